@@ -0,0 +1,85 @@
+package org.sitenv.vocabularies.benchmark;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.sitenv.vocabularies.configuration.CodeValidatorApiConfiguration;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+/**
+ * Boots the application context the way a web application embedding the validator does, with a
+ * {@link SyntheticVocabulary} as its vocabulary and a configuration resource as the preloaded validator
+ * configuration. The vocabulary is loaded before {@link #start} returns.
+ *
+ * The files of a synthetic vocabulary are written once, to a directory named after it in java.io.tmpdir,
+ * together with a vocabulary snapshot; the forks JMH starts for the other benchmarks and parameters restore
+ * the snapshot instead of generating and parsing the files again.
+ */
+public class BenchmarkContext implements Closeable {
+	/** the fixture vocabulary; benchmarkValidatorConfig.xml names its ten value sets */
+	public static final SyntheticVocabulary FIXTURE_VOCABULARY = new SyntheticVocabulary(5000, 10, 100);
+	private static final String COMPLETE_MARKER = ".complete";
+
+	private final AnnotationConfigWebApplicationContext applicationContext;
+
+	private BenchmarkContext(AnnotationConfigWebApplicationContext applicationContext) {
+		this.applicationContext = applicationContext;
+	}
+
+	public static BenchmarkContext start() throws IOException {
+		return start(FIXTURE_VOCABULARY, SyntheticDocument.CONFIG_RESOURCE);
+	}
+
+	public static BenchmarkContext start(SyntheticVocabulary vocabulary, String configResource) throws IOException {
+		File directory = prepare(vocabulary);
+		File configFile = new File(directory, new File(configResource).getName());
+		try (InputStream config = BenchmarkContext.class.getResourceAsStream(configResource)) {
+			Files.copy(config, configFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		MockServletContext servletContext = new MockServletContext();
+		servletContext.setInitParameter("vocabulary.localCodeRepositoryDir", new File(directory, "code_repository").getAbsolutePath());
+		servletContext.setInitParameter("vocabulary.localValueSetRepositoryDir",
+				new File(directory, "valueset_repository").getAbsolutePath());
+		servletContext.setInitParameter("vocabulary.snapshotDir", new File(directory, "snapshot").getAbsolutePath());
+		servletContext.setInitParameter("referenceccda.configFile", configFile.getAbsolutePath());
+		servletContext.setInitParameter("referenceccda.isDynamicVocab", "false");
+		AnnotationConfigWebApplicationContext applicationContext = new AnnotationConfigWebApplicationContext();
+		applicationContext.setServletContext(servletContext);
+		applicationContext.register(CodeValidatorApiConfiguration.class);
+		applicationContext.refresh();
+		return new BenchmarkContext(applicationContext);
+	}
+
+	/**
+	 * @return the directory the files of vocabulary are in, written by this call if an earlier one did not
+	 *         complete them
+	 */
+	public static synchronized File prepare(SyntheticVocabulary vocabulary) throws IOException {
+		File directory = new File(System.getProperty("java.io.tmpdir"), "vocabulary-benchmark-" + vocabulary.getName());
+		File completeMarker = new File(directory, COMPLETE_MARKER);
+		if (!completeMarker.isFile()) {
+			vocabulary.write(new File(directory, "code_repository"), new File(directory, "valueset_repository"));
+			Files.createFile(completeMarker.toPath());
+		}
+		return directory;
+	}
+
+	public <T> T getBean(Class<T> beanClass) {
+		return applicationContext.getBean(beanClass);
+	}
+
+	public <T> T getBean(String name, Class<T> beanClass) {
+		return applicationContext.getBean(name, beanClass);
+	}
+
+	@Override
+	public void close() {
+		applicationContext.close();
+	}
+}
@@ -0,0 +1,297 @@
+package org.sitenv.vocabularies.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sitenv.vocabularies.loader.VocabularyLoader;
+import org.sitenv.vocabularies.loader.VocabularyStore;
+import org.sitenv.vocabularies.loader.code.CdtLoader;
+import org.sitenv.vocabularies.loader.code.CptLoader;
+import org.sitenv.vocabularies.loader.code.Icd10CmLoader;
+import org.sitenv.vocabularies.loader.code.Icd10PcsLoader;
+import org.sitenv.vocabularies.loader.code.Icd9CmDxLoader;
+import org.sitenv.vocabularies.loader.code.Icd9CmSgLoader;
+import org.sitenv.vocabularies.loader.code.LoincLoader;
+import org.sitenv.vocabularies.loader.code.RxNormLoader;
+import org.sitenv.vocabularies.loader.code.SnomedLoader;
+import org.sitenv.vocabularies.loader.valueset.VsacLoader;
+
+/**
+ * Measures each vocabulary loader on a synthetic file of rowCount rows, loaded into the staging tables of a
+ * fresh vocabulary store the way {@link org.sitenv.vocabularies.loader.VocabularyLoadRunner} loads one
+ * directory; normalizing and indexing are not part of it. LOINC_LEGACY is the LOINC loader on the layout of
+ * releases before 2.50, VSAC loads 100 value sets of rowCount / 100 members.
+ *
+ * Run with -prof org.sitenv.vocabularies.benchmark.LoaderProfiler, {@link LoaderProfiler} reports next to the
+ * time of a load:
+ * <ul>
+ * <li>rowsPerSecond, the source rows loaded per second</li>
+ * <li>peakHeap, the peak heap of the load, the sum of the peaks of the heap pools after a collection</li>
+ * <li>insert, the time spent in the batch inserts and commits of the store</li>
+ * <li>parse, the rest of the load, which is parsing. The VSAC loader inserts on a writer thread while it
+ * parses, so for VSAC this is the time the store did not account for, not the time spent parsing.</li>
+ * </ul>
+ * The files are written once per format and row count, to a directory in java.io.tmpdir.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms3g", "-Xmx3g" })
+public class LoaderBenchmark {
+	private static final int VALUE_SET_COUNT = 100;
+	private static final String COMPLETE_MARKER = ".complete";
+	private static final AtomicInteger generation = new AtomicInteger();
+	private static final AtomicReference<Load> lastLoad = new AtomicReference<>();
+
+	@Param({ "LOINC", "LOINC_LEGACY", "SNOMED-CT", "RXNORM", "ICD10CM", "ICD10PCS", "ICD9CM_DX", "ICD9CM_SG", "CPT", "CDT",
+			"VSAC" })
+	public String format;
+
+	@Param({ "10000", "100000", "1000000" })
+	public int rowCount;
+
+	private VocabularyLoader loader;
+	private File directory;
+	private VocabularyStore store;
+	private InsertTimer insertTimer;
+	private Connection connection;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		loader = newLoader(format);
+		directory = prepare();
+	}
+
+	@Setup(Level.Invocation)
+	public void openStore() throws SQLException {
+		store = VocabularyStore.create(generation.incrementAndGet());
+		insertTimer = new InsertTimer();
+		connection = insertTimer.wrap(store.getDatabase().getConnection());
+		connection.setAutoCommit(false);
+		System.gc();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	@TearDown(Level.Invocation)
+	public void closeStore() throws SQLException {
+		connection.close();
+		store.getDatabase().shutdown();
+	}
+
+	@Benchmark
+	public void load() {
+		long start = System.nanoTime();
+		loader.load(Arrays.asList(directory.listFiles()), connection);
+		long elapsedNanos = System.nanoTime() - start;
+		// the loaders log and swallow their failures, a load that inserted nothing must not pass as a fast one
+		if (insertTimer.rows.sum() == 0) {
+			throw new IllegalStateException(format + " loader inserted no rows from " + directory);
+		}
+		long peakHeapBytes = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peakHeapBytes += pool.getPeakUsage().getUsed();
+			}
+		}
+		long insertNanos = insertTimer.nanos.sum();
+		lastLoad.set(new Load(rowCount * 1e9 / elapsedNanos, peakHeapBytes / (1024.0 * 1024.0),
+				Math.max(0, elapsedNanos - insertNanos) / 1e6, insertNanos / 1e6));
+	}
+
+	/**
+	 * @return the measurements of the last load since the previous call, or null if there was none
+	 */
+	static Load takeLastLoad() {
+		return lastLoad.getAndSet(null);
+	}
+
+	/**
+	 * The measurements of one load, reported by {@link LoaderProfiler}.
+	 */
+	static class Load {
+		private final double rowsPerSecond;
+		private final double peakHeapMb;
+		private final double parseMs;
+		private final double insertMs;
+
+		Load(double rowsPerSecond, double peakHeapMb, double parseMs, double insertMs) {
+			this.rowsPerSecond = rowsPerSecond;
+			this.peakHeapMb = peakHeapMb;
+			this.parseMs = parseMs;
+			this.insertMs = insertMs;
+		}
+
+		double getRowsPerSecond() {
+			return rowsPerSecond;
+		}
+
+		double getPeakHeapMb() {
+			return peakHeapMb;
+		}
+
+		double getParseMs() {
+			return parseMs;
+		}
+
+		double getInsertMs() {
+			return insertMs;
+		}
+	}
+
+	private static VocabularyLoader newLoader(String format) {
+		switch (format) {
+		case "LOINC":
+		case "LOINC_LEGACY":
+			return new LoincLoader();
+		case "SNOMED-CT":
+			return new SnomedLoader();
+		case "RXNORM":
+			return new RxNormLoader();
+		case "ICD10CM":
+			return new Icd10CmLoader();
+		case "ICD10PCS":
+			return new Icd10PcsLoader();
+		case "ICD9CM_DX":
+			return new Icd9CmDxLoader();
+		case "ICD9CM_SG":
+			return new Icd9CmSgLoader();
+		case "CPT":
+			return new CptLoader();
+		case "CDT":
+			return new CdtLoader();
+		case "VSAC":
+			return new VsacLoader();
+		default:
+			throw new IllegalArgumentException("No loader for " + format);
+		}
+	}
+
+	/**
+	 * @return the directory the loader reads, named after the code system as the loaders expect, written by
+	 *         this call if an earlier one did not complete it
+	 */
+	private File prepare() throws IOException {
+		File parent = new File(System.getProperty("java.io.tmpdir"), "vocabulary-loader-benchmark-" + format + "-" + rowCount);
+		File loaderDirectory = new File(parent, format.equals("LOINC_LEGACY") ? "LOINC" : format);
+		File completeMarker = new File(parent, COMPLETE_MARKER);
+		if (!completeMarker.isFile()) {
+			SyntheticVocabulary vocabulary = new SyntheticVocabulary(rowCount, VALUE_SET_COUNT, rowCount / VALUE_SET_COUNT);
+			switch (format) {
+			case "LOINC":
+				vocabulary.writeLoinc(loaderDirectory, false);
+				break;
+			case "LOINC_LEGACY":
+				vocabulary.writeLoinc(loaderDirectory, true);
+				break;
+			case "SNOMED-CT":
+				vocabulary.writeSnomed(loaderDirectory);
+				break;
+			case "RXNORM":
+				vocabulary.writeRxNorm(loaderDirectory);
+				break;
+			case "ICD10CM":
+			case "ICD10PCS":
+				vocabulary.writeIcd10(loaderDirectory);
+				break;
+			case "ICD9CM_DX":
+			case "ICD9CM_SG":
+				vocabulary.writeIcd9(loaderDirectory);
+				break;
+			case "CPT":
+				vocabulary.writeCpt(loaderDirectory);
+				break;
+			case "CDT":
+				vocabulary.writeCdt(loaderDirectory);
+				break;
+			default:
+				vocabulary.writeVsac(loaderDirectory);
+			}
+			Files.createFile(completeMarker.toPath());
+		}
+		return loaderDirectory;
+	}
+
+	/**
+	 * Wraps the loader connection to time the statement executions and commits that reach the store, and to
+	 * count the rows added to batches. Loaders that insert on a writer thread share the timer with it.
+	 */
+	private static class InsertTimer {
+		private final LongAdder nanos = new LongAdder();
+		private final LongAdder rows = new LongAdder();
+
+		Connection wrap(final Connection connection) {
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+					new InvocationHandler() {
+						@Override
+						public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+							Object result = timed(connection, method, args, method.getName().equals("commit"));
+							if (result instanceof PreparedStatement) {
+								return wrap((PreparedStatement) result);
+							}
+							return result;
+						}
+					});
+		}
+
+		private PreparedStatement wrap(final PreparedStatement statement) {
+			return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+					new Class<?>[] { PreparedStatement.class }, new InvocationHandler() {
+						@Override
+						public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+							if (method.getName().equals("addBatch")) {
+								rows.increment();
+							}
+							return timed(statement, method, args, method.getName().startsWith("execute"));
+						}
+					});
+		}
+
+		private Object timed(Object target, Method method, Object[] args, boolean timed) throws Throwable {
+			long start = timed ? System.nanoTime() : 0;
+			try {
+				return method.invoke(target, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			} finally {
+				if (timed) {
+					nanos.add(System.nanoTime() - start);
+				}
+			}
+		}
+	}
+}
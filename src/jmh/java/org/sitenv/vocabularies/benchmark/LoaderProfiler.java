@@ -0,0 +1,46 @@
+package org.sitenv.vocabularies.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+/**
+ * Reports the rows per second, peak heap, parse and insert time of the load a {@link LoaderBenchmark}
+ * iteration made, averaged over the iterations. Enabled with -prof
+ * org.sitenv.vocabularies.benchmark.LoaderProfiler; it reports nothing for other benchmarks.
+ */
+public class LoaderProfiler implements InternalProfiler {
+	@Override
+	public String getDescription() {
+		return "Rows per second, peak heap, parse and insert time of LoaderBenchmark loads";
+	}
+
+	@Override
+	public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+		LoaderBenchmark.takeLastLoad();
+	}
+
+	@Override
+	public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams,
+			IterationResult result) {
+		LoaderBenchmark.Load load = LoaderBenchmark.takeLastLoad();
+		if (load == null) {
+			return Collections.emptyList();
+		}
+		List<Result> results = new ArrayList<>();
+		results.add(new ScalarResult("rowsPerSecond", load.getRowsPerSecond(), "rows/s", AggregationPolicy.AVG));
+		results.add(new ScalarResult("peakHeap", load.getPeakHeapMb(), "MB", AggregationPolicy.AVG));
+		results.add(new ScalarResult("parse", load.getParseMs(), "ms", AggregationPolicy.AVG));
+		results.add(new ScalarResult("insert", load.getInsertMs(), "ms", AggregationPolicy.AVG));
+		return results;
+	}
+}
@@ -0,0 +1,269 @@
+package org.sitenv.vocabularies.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sitenv.vocabularies.validation.repositories.CodeRepository;
+import org.sitenv.vocabularies.validation.repositories.VocabularyLookupRepository;
+import org.sitenv.vocabularies.validation.repositories.VsacValuesSetRepository;
+
+/**
+ * Measures each vocabulary lookup the validators make, through {@link VocabularyLookupRepository} inside a
+ * lookup session as the validation service uses it, and through the JPA {@link CodeRepository} and
+ * {@link VsacValuesSetRepository}. The vocabulary is one SNOMED-CT code system of rowCount codes plus
+ * rowCount value set members in 100 value sets. With hit false every lookup asks for a code or display name
+ * that is not there, and the lookups that only name a code system, a code system OID or value sets ask for
+ * one that is not loaded. The probes are spread over the whole vocabulary, so consecutive calls do not read
+ * the same rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms3g", "-Xmx3g" })
+public class LookupBenchmark {
+	private static final int PROBE_COUNT = 1024;
+	private static final int VALUE_SET_COUNT = 100;
+	private static final String CODE_SYSTEM = "SNOMED-CT";
+	private static final String VALUE_SET_CODE_SYSTEM_NAME = "SNOMEDCT";
+
+	@Param({ "10000", "100000", "1000000" })
+	public int rowCount;
+
+	@Param({ "true", "false" })
+	public boolean hit;
+
+	private BenchmarkContext benchmarkContext;
+	private VocabularyLookupRepository vocabularyLookupRepository;
+	private CodeRepository codeRepository;
+	private VsacValuesSetRepository vsacValuesSetRepository;
+
+	private final String[] codes = new String[PROBE_COUNT];
+	private final String[] activeCodes = new String[PROBE_COUNT];
+	private final String[] displayNames = new String[PROBE_COUNT];
+	private final List<List<String>> valueSetOids = new ArrayList<>();
+	private final Set<String> codeSystems = Collections.singleton(CODE_SYSTEM);
+	private Set<String> probedCodeSystems;
+	private List<String> probedValueSetOids;
+	private String codeSystemOid;
+	private String valueSetCodeSystemName;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		SyntheticVocabulary vocabulary = new SyntheticVocabulary(rowCount, VALUE_SET_COUNT, rowCount / VALUE_SET_COUNT, CODE_SYSTEM);
+		benchmarkContext = BenchmarkContext.start(vocabulary, SyntheticDocument.CONFIG_RESOURCE);
+		vocabularyLookupRepository = benchmarkContext.getBean(VocabularyLookupRepository.class);
+		codeRepository = benchmarkContext.getBean(CodeRepository.class);
+		vsacValuesSetRepository = benchmarkContext.getBean(VsacValuesSetRepository.class);
+
+		for (int probe = 0; probe < PROBE_COUNT; probe++) {
+			// a prime stride spreads the probes over the vocabulary
+			int code = (int) ((probe * 7919L) % rowCount);
+			if (!SyntheticVocabulary.isActive(code)) {
+				code--;
+			}
+			activeCodes[probe] = SyntheticVocabulary.snomedCode(code);
+			codes[probe] = hit ? SyntheticVocabulary.snomedCode(code) : "9" + SyntheticVocabulary.snomedCode(code);
+			displayNames[probe] = hit ? SyntheticVocabulary.snomedDisplayName(code) : "UNKNOWN FINDING " + code;
+			// the value set that has the code as a member, and the next one
+			int valueSet = code / vocabulary.getValueSetSize();
+			valueSetOids.add(Arrays.asList(SyntheticVocabulary.valueSetOid(valueSet),
+					SyntheticVocabulary.valueSetOid((valueSet + 1) % VALUE_SET_COUNT)));
+		}
+		probedCodeSystems = new HashSet<>(Collections.singletonList(hit ? CODE_SYSTEM : "LOINC"));
+		probedValueSetOids = hit ? valueSetOids.get(0) : Collections.singletonList(SyntheticVocabulary.valueSetOid(VALUE_SET_COUNT));
+		codeSystemOid = hit ? SyntheticVocabulary.SNOMED_OID : SyntheticVocabulary.LOINC_OID;
+		valueSetCodeSystemName = hit ? VALUE_SET_CODE_SYSTEM_NAME : "LOINC";
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		benchmarkContext.close();
+	}
+
+	/**
+	 * The index of the next probe of one benchmark thread.
+	 */
+	@State(Scope.Thread)
+	public static class Probe {
+		private int next;
+
+		int next() {
+			next = (next + 1) % PROBE_COUNT;
+			return next;
+		}
+	}
+
+	/**
+	 * The lookup session of one benchmark thread, open for a whole iteration as it is for a whole validation.
+	 */
+	@State(Scope.Thread)
+	public static class Session {
+		private VocabularyLookupRepository.LookupSession lookupSession;
+
+		@Setup(Level.Iteration)
+		public void open(LookupBenchmark benchmark) {
+			lookupSession = benchmark.vocabularyLookupRepository.openSession();
+		}
+
+		@TearDown(Level.Iteration)
+		public void close() {
+			lookupSession.close();
+		}
+	}
+
+	@Benchmark
+	public boolean jdbcFoundCodesystems(Session session) {
+		return vocabularyLookupRepository.foundCodesystems(probedCodeSystems);
+	}
+
+	@Benchmark
+	public boolean jdbcFoundActiveCodeAndDisplayNameAndCodeSystemOIDInCodesystem(Session session, Probe probe) {
+		int next = probe.next();
+		return vocabularyLookupRepository.foundActiveCodeAndDisplayNameAndCodeSystemOIDInCodesystem(codes[next],
+				displayNames[next], SyntheticVocabulary.SNOMED_OID, codeSystems);
+	}
+
+	@Benchmark
+	public boolean jdbcFoundCodeInCodesystems(Session session, Probe probe) {
+		return vocabularyLookupRepository.foundCodeInCodesystems(codes[probe.next()], codeSystems);
+	}
+
+	@Benchmark
+	public boolean jdbcCodeIsActive(Session session, Probe probe) {
+		return vocabularyLookupRepository.codeIsActive(codes[probe.next()], codeSystems);
+	}
+
+	@Benchmark
+	public boolean jdbcFoundDisplayNameInCodesystems(Session session, Probe probe) {
+		return vocabularyLookupRepository.foundDisplayNameInCodesystems(displayNames[probe.next()], codeSystems);
+	}
+
+	@Benchmark
+	public boolean jdbcFoundCodeSystemOIDInCodesystems(Session session) {
+		return vocabularyLookupRepository.foundCodeSystemOIDInCodesystems(codeSystemOid, codeSystems);
+	}
+
+	@Benchmark
+	public boolean jdbcValuesetOidsExists(Session session) {
+		return vocabularyLookupRepository.valuesetOidsExists(probedValueSetOids);
+	}
+
+	@Benchmark
+	public boolean jdbcExistsByCodeAndCodeSystemAndCodeSystemNameAndDisplayNameInValuesetOid(Session session, Probe probe) {
+		int next = probe.next();
+		return vocabularyLookupRepository.existsByCodeAndCodeSystemAndCodeSystemNameAndDisplayNameInValuesetOid(codes[next],
+				SyntheticVocabulary.SNOMED_OID, VALUE_SET_CODE_SYSTEM_NAME, displayNames[next], valueSetOids.get(next));
+	}
+
+	@Benchmark
+	public boolean jdbcCodeSystemExistsInValueset(Session session, Probe probe) {
+		return vocabularyLookupRepository.codeSystemExistsInValueset(codeSystemOid, valueSetOids.get(probe.next()));
+	}
+
+	@Benchmark
+	public boolean jdbcCodeExistsInValueset(Session session, Probe probe) {
+		int next = probe.next();
+		return vocabularyLookupRepository.codeExistsInValueset(codes[next], valueSetOids.get(next));
+	}
+
+	@Benchmark
+	public boolean jdbcDisplayNameExistsInValueset(Session session, Probe probe) {
+		int next = probe.next();
+		return vocabularyLookupRepository.displayNameExistsInValueset(displayNames[next], valueSetOids.get(next));
+	}
+
+	@Benchmark
+	public boolean jdbcCodeSystemNameExistsInValueset(Session session, Probe probe) {
+		return vocabularyLookupRepository.codeSystemNameExistsInValueset(valueSetCodeSystemName, valueSetOids.get(probe.next()));
+	}
+
+	@Benchmark
+	public boolean jpaFoundCodesystems() {
+		return codeRepository.foundCodesystems(probedCodeSystems);
+	}
+
+	@Benchmark
+	public boolean jpaFoundActiveCodeAndDisplayNameAndCodeSystemOIDInCodesystem(Probe probe) {
+		int next = probe.next();
+		return codeRepository.foundActiveCodeAndDisplayNameAndCodeSystemOIDInCodesystem(codes[next], displayNames[next],
+				SyntheticVocabulary.SNOMED_OID, codeSystems);
+	}
+
+	@Benchmark
+	public boolean jpaFoundCodeInCodesystems(Probe probe) {
+		return codeRepository.foundCodeInCodesystems(codes[probe.next()], codeSystems);
+	}
+
+	/**
+	 * Always asks for a code that exists, because the JPA query has no result to return for one that does not.
+	 */
+	@Benchmark
+	public boolean jpaCodeIsActive(Probe probe) {
+		return codeRepository.codeIsActive(activeCodes[probe.next()], codeSystems);
+	}
+
+	@Benchmark
+	public boolean jpaFoundDisplayNameInCodesystems(Probe probe) {
+		return codeRepository.foundDisplayNameInCodesystems(displayNames[probe.next()], codeSystems);
+	}
+
+	@Benchmark
+	public boolean jpaFoundCodeSystemOIDInCodesystems() {
+		return codeRepository.foundCodeSystemOIDInCodesystems(codeSystemOid, codeSystems);
+	}
+
+	@Benchmark
+	public boolean jpaValuesetOidsExists() {
+		return vsacValuesSetRepository.valuesetOidsExists(probedValueSetOids);
+	}
+
+	@Benchmark
+	public boolean jpaExistsByCodeAndCodeSystemAndCodeSystemNameAndDisplayNameInValuesetOid(Probe probe) {
+		int next = probe.next();
+		return vsacValuesSetRepository.existsByCodeAndCodeSystemAndCodeSystemNameAndDisplayNameInValuesetOid(codes[next],
+				SyntheticVocabulary.SNOMED_OID, VALUE_SET_CODE_SYSTEM_NAME, displayNames[next], valueSetOids.get(next));
+	}
+
+	@Benchmark
+	public boolean jpaCodeSystemExistsInValueset(Probe probe) {
+		return vsacValuesSetRepository.codeSystemExistsInValueset(codeSystemOid, valueSetOids.get(probe.next()));
+	}
+
+	@Benchmark
+	public boolean jpaCodeExistsInValueset(Probe probe) {
+		int next = probe.next();
+		return vsacValuesSetRepository.codeExistsInValueset(codes[next], valueSetOids.get(next));
+	}
+
+	@Benchmark
+	public boolean jpaDisplayNameExistsInValueset(Probe probe) {
+		int next = probe.next();
+		return vsacValuesSetRepository.displayNameExistsInValueset(displayNames[next], valueSetOids.get(next));
+	}
+
+	@Benchmark
+	public boolean jpaCodeSystemNameExistsInValueset(Probe probe) {
+		return vsacValuesSetRepository.codeSystemNameExistsInValueset(valueSetCodeSystemName, valueSetOids.get(probe.next()));
+	}
+}
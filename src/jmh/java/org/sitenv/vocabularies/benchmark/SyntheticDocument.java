@@ -0,0 +1,60 @@
+package org.sitenv.vocabularies.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.sitenv.vocabularies.test.other.CcdaCorpusGenerator;
+
+/**
+ * Generates C-CDA documents for the expressions of benchmarkValidatorConfig.xml with a
+ * {@link CcdaCorpusGenerator}, drawing codes from the loaded vocabulary. One structure in ten carries a code
+ * that is not in the vocabulary or lacks its required child, so each severity level has results to report.
+ * The documents are the same from one fork to the next.
+ */
+public class SyntheticDocument {
+	public static final String CONFIG_RESOURCE = "/benchmarkValidatorConfig.xml";
+	private static final double INVALID_RATIO = 0.1;
+	private static final long SEED = 0;
+
+	public enum Size {
+		/** a referral note with a handful of entries, around 10 KB */
+		SMALL(10 * 1024),
+		/** a typical continuity of care document, around 300 KB */
+		MEDIAN(300 * 1024),
+		/** a document with years of results, around 2 MB */
+		LARGE(2 * 1024 * 1024);
+
+		private final long bytes;
+
+		Size(long bytes) {
+			this.bytes = bytes;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+	}
+
+	private final CcdaCorpusGenerator generator;
+
+	/**
+	 * @param vocabulary the data source of the vocabulary the documents are validated against
+	 */
+	public SyntheticDocument(DataSource vocabulary) throws IOException, SQLException {
+		try (InputStream config = SyntheticDocument.class.getResourceAsStream(CONFIG_RESOURCE)) {
+			generator = new CcdaCorpusGenerator(CcdaCorpusGenerator.readConfigurations(config), vocabulary);
+		}
+		if (!generator.getUnsupportedExpressions().isEmpty()) {
+			throw new IllegalStateException("No structure is generated for " + generator.getUnsupportedExpressions());
+		}
+		generator.setInvalidRatio(INVALID_RATIO);
+	}
+
+	public byte[] generate(Size size) throws IOException {
+		generator.setSeed(SEED);
+		return generator.generate(size.getBytes());
+	}
+}
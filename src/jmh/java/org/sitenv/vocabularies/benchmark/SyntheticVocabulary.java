@@ -0,0 +1,356 @@
+package org.sitenv.vocabularies.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+/**
+ * Writes a synthetic vocabulary in the file formats the loaders read, so the benchmarks run offline and
+ * without licensed terminology files. Codes, display names and value set members are derived from their
+ * index, which lets the document generators pick codes that are or are not in the vocabulary. Every
+ * twentieth code is inactive.
+ */
+public class SyntheticVocabulary {
+	public static final String LOINC_OID = "2.16.840.1.113883.6.1";
+	public static final String SNOMED_OID = "2.16.840.1.113883.6.96";
+	public static final String RXNORM_OID = "2.16.840.1.113883.6.88";
+	private static final String VALUESET_OID_PREFIX = "2.16.840.1.113883.3.99999.";
+	private static final int LOINC_COLUMN_COUNT = 40;
+	private static final int LOINC_STATUS_INDEX = 11;
+	private static final int LOINC_SHORT_NAME_INDEX = 22;
+	private static final int LOINC_LONG_COMMON_NAME_INDEX = 28;
+	private static final int LEGACY_LOINC_COLUMN_OFFSET = 1;
+	private static final int RXNCONSO_COLUMN_COUNT = 19;
+	private static final int RXNCONSO_NAME_INDEX = 14;
+	private static final List<String> CODE_SYSTEMS = Arrays.asList("LOINC", "SNOMED-CT", "RXNORM");
+
+	private final int codeCount;
+	private final int valueSetCount;
+	private final int valueSetSize;
+	private final List<String> codeSystems;
+
+	/**
+	 * @param codeCount the number of codes of each code system
+	 * @param valueSetCount the number of value sets, all of them in a single VSAC workbook
+	 * @param valueSetSize the number of SNOMED CT members of each value set
+	 * @param codeSystems the code systems to write, out of LOINC, SNOMED-CT and RXNORM; all of them if none
+	 *        is given
+	 */
+	public SyntheticVocabulary(int codeCount, int valueSetCount, int valueSetSize, String... codeSystems) {
+		this.codeCount = codeCount;
+		this.valueSetCount = valueSetCount;
+		this.valueSetSize = valueSetSize;
+		this.codeSystems = codeSystems.length > 0 ? Arrays.asList(codeSystems) : CODE_SYSTEMS;
+		if (!CODE_SYSTEMS.containsAll(this.codeSystems)) {
+			throw new IllegalArgumentException("Synthetic code systems are " + CODE_SYSTEMS + ", not " + this.codeSystems);
+		}
+	}
+
+	/**
+	 * @return a name that differs for vocabularies that write different files
+	 */
+	public String getName() {
+		StringBuilder name = new StringBuilder("synthetic-").append(codeCount).append('-').append(valueSetCount).append('x')
+				.append(valueSetSize);
+		for (String codeSystem : codeSystems) {
+			name.append('-').append(codeSystem);
+		}
+		return name.toString();
+	}
+
+	public int getCodeCount() {
+		return codeCount;
+	}
+
+	public int getValueSetCount() {
+		return valueSetCount;
+	}
+
+	public int getValueSetSize() {
+		return valueSetSize;
+	}
+
+	/**
+	 * Writes the code systems below codeDirectory and the VSAC value sets below valueSetDirectory, each in the
+	 * subdirectory the loader of that format is registered for.
+	 */
+	public void write(File codeDirectory, File valueSetDirectory) throws IOException {
+		if (codeSystems.contains("LOINC")) {
+			writeLoinc(new File(codeDirectory, "LOINC"));
+		}
+		if (codeSystems.contains("SNOMED-CT")) {
+			writeSnomed(new File(codeDirectory, "SNOMED-CT"));
+		}
+		if (codeSystems.contains("RXNORM")) {
+			writeRxNorm(new File(codeDirectory, "RXNORM"));
+		}
+		writeVsac(new File(valueSetDirectory, "VSAC"));
+	}
+
+	public void writeLoinc(File directory) throws IOException {
+		writeLoinc(directory, false);
+	}
+
+	/**
+	 * @param legacyLayout whether to write the layout of LOINC releases before 2.50, in which status, short
+	 *        name and long common name are one column further right
+	 */
+	public void writeLoinc(File directory, boolean legacyLayout) throws IOException {
+		int offset = legacyLayout ? LEGACY_LOINC_COLUMN_OFFSET : 0;
+		int statusIndex = LOINC_STATUS_INDEX + offset;
+		int shortNameIndex = LOINC_SHORT_NAME_INDEX + offset;
+		int longCommonNameIndex = LOINC_LONG_COMMON_NAME_INDEX + offset;
+		try (BufferedWriter writer = newWriter(new File(directory, "Loinc.csv"))) {
+			String[] columns = new String[LOINC_COLUMN_COUNT + offset];
+			for (int column = 0; column < columns.length; column++) {
+				columns[column] = "COLUMN" + column;
+			}
+			columns[0] = "LOINC_NUM";
+			columns[1] = "COMPONENT";
+			columns[statusIndex] = "STATUS";
+			columns[shortNameIndex] = "SHORTNAME";
+			columns[longCommonNameIndex] = "LONG_COMMON_NAME";
+			writeCsvRecord(writer, columns);
+			for (int i = 0; i < codeCount; i++) {
+				for (int column = 0; column < columns.length; column++) {
+					columns[column] = "";
+				}
+				columns[0] = loincCode(i);
+				columns[1] = "SYNTHETIC COMPONENT " + i;
+				columns[statusIndex] = isActive(i) ? "ACTIVE" : "DEPRECATED";
+				columns[shortNameIndex] = "SYNTHETIC " + i;
+				columns[longCommonNameIndex] = loincDisplayName(i);
+				writeCsvRecord(writer, columns);
+			}
+		}
+	}
+
+	public void writeSnomed(File directory) throws IOException {
+		try (BufferedWriter writer = newWriter(new File(directory, "sct2_Description_Snapshot-en_INT_20200101.txt"))) {
+			writer.write("id\teffectiveTime\tactive\tmoduleId\tconceptId\tlanguageCode\ttypeId\tterm\tcaseSignificanceId\n");
+			for (int i = 0; i < codeCount; i++) {
+				writer.write(i + "\t20200101\t" + (isActive(i) ? "1" : "0") + "\t900000000000207008\t" + snomedCode(i)
+						+ "\ten\t900000000000013009\t" + snomedDisplayName(i) + "\t900000000000448009\n");
+			}
+		}
+	}
+
+	public void writeRxNorm(File directory) throws IOException {
+		try (BufferedWriter writer = newWriter(new File(directory, "RXNCONSO.RRF"))) {
+			StringBuilder line = new StringBuilder();
+			for (int i = 0; i < codeCount; i++) {
+				line.setLength(0);
+				line.append(rxNormCode(i));
+				for (int column = 1; column < RXNCONSO_COLUMN_COUNT; column++) {
+					line.append('|');
+					if (column == RXNCONSO_NAME_INDEX) {
+						line.append(rxNormDisplayName(i));
+					}
+				}
+				writer.write(line.append('\n').toString());
+			}
+		}
+	}
+
+	/**
+	 * Writes an ICD-10-CM or ICD-10-PCS order file: order number, code, header flag, short and long
+	 * description in fixed width columns.
+	 */
+	public void writeIcd10(File directory) throws IOException {
+		try (BufferedWriter writer = newWriter(new File(directory, "icd10_order.txt"))) {
+			for (int i = 0; i < codeCount; i++) {
+				writer.write(String.format("%05d %-7s 1 %-60s %s%n", i % 100000, icd10Code(i), "SYNTHETIC DIAGNOSIS " + i,
+						icdDisplayName(i)));
+			}
+		}
+	}
+
+	/**
+	 * Writes an ICD-9-CM long description file: a five character code, a space and the description.
+	 */
+	public void writeIcd9(File directory) throws IOException {
+		try (BufferedWriter writer = newWriter(new File(directory, "CMS32_DESC_LONG.txt"))) {
+			for (int i = 0; i < codeCount; i++) {
+				writer.write(icd9Code(i) + " " + icdDisplayName(i) + "\n");
+			}
+		}
+	}
+
+	/**
+	 * Writes a CPT file of five character codes, each followed by a tab and its description.
+	 */
+	public void writeCpt(File directory) throws IOException {
+		try (BufferedWriter writer = newWriter(new File(directory, "cpt.txt"))) {
+			for (int i = 0; i < codeCount; i++) {
+				writer.write(cptCode(i) + "\t" + cptDisplayName(i) + "\n");
+			}
+		}
+	}
+
+	/**
+	 * Writes a CDT workbook with all codes on the sheet after its cover sheet.
+	 */
+	public void writeCdt(File directory) throws IOException {
+		Files.createDirectories(directory.toPath());
+		SXSSFWorkbook workbook = new SXSSFWorkbook();
+		try {
+			workbook.createSheet("Cover").createRow(0).createCell(0).setCellValue("Synthetic dental procedure codes");
+			Sheet sheet = workbook.createSheet("Codes");
+			writeRow(sheet.createRow(0), "CODE", "DESCRIPTOR", "CATEGORY", "SUBCATEGORY", "NOMENCLATURE", "EFFECTIVE DATE");
+			for (int i = 0; i < codeCount; i++) {
+				writeRow(sheet.createRow(i + 1), cdtCode(i), cdtDisplayName(i), "SYNTHETIC", "SYNTHETIC", cdtDisplayName(i),
+						"2020-01-01");
+			}
+			try (OutputStream outputStream = new FileOutputStream(new File(directory, "synthetic_cdt.xlsx"))) {
+				workbook.write(outputStream);
+			}
+		} finally {
+			workbook.dispose();
+		}
+	}
+
+	/**
+	 * Writes the value sets as one sheet each, after the summary sheet VSAC workbooks start with.
+	 */
+	public void writeVsac(File directory) throws IOException {
+		File file = new File(directory, "synthetic_value_sets.xlsx");
+		Files.createDirectories(directory.toPath());
+		SXSSFWorkbook workbook = new SXSSFWorkbook();
+		try {
+			workbook.createSheet("Summary").createRow(0).createCell(0).setCellValue("Synthetic value sets");
+			for (int valueSet = 0; valueSet < valueSetCount; valueSet++) {
+				Sheet sheet = workbook.createSheet("Value Set " + valueSet);
+				int rowIndex = 0;
+				writeRow(sheet.createRow(rowIndex++), "Value Set Name", "Synthetic value set " + valueSet);
+				writeRow(sheet.createRow(rowIndex++), "OID", valueSetOid(valueSet));
+				writeRow(sheet.createRow(rowIndex++), "Type", "Extensional");
+				writeRow(sheet.createRow(rowIndex++), "Definition Version", "20200101");
+				writeRow(sheet.createRow(rowIndex++), "Steward", "Synthetic");
+				writeRow(sheet.createRow(rowIndex++), "CODE", "DESCRIPTION", "CODE SYSTEM", "CODE SYSTEM VERSION",
+						"CODE SYSTEM OID", "TTY");
+				for (int member = 0; member < valueSetSize; member++) {
+					int code = valueSetMember(valueSet, member);
+					writeRow(sheet.createRow(rowIndex++), snomedCode(code), snomedDisplayName(code), "SNOMEDCT", "2020-01",
+							SNOMED_OID, "PT");
+				}
+			}
+			try (OutputStream outputStream = new FileOutputStream(file)) {
+				workbook.write(outputStream);
+			}
+		} finally {
+			workbook.dispose();
+		}
+	}
+
+	/**
+	 * @return the index of the SNOMED CT code that is the given member of the given value set
+	 */
+	public int valueSetMember(int valueSet, int member) {
+		return (valueSet * valueSetSize + member) % codeCount;
+	}
+
+	public static boolean isActive(int code) {
+		return code % 20 != 19;
+	}
+
+	public static String loincCode(int code) {
+		return (10000 + code) + "-" + code % 10;
+	}
+
+	public static String loincDisplayName(int code) {
+		return "SYNTHETIC OBSERVATION " + code;
+	}
+
+	public static String snomedCode(int code) {
+		return String.valueOf(100000000L + code);
+	}
+
+	public static String snomedDisplayName(int code) {
+		return "SYNTHETIC FINDING " + code;
+	}
+
+	public static String rxNormCode(int code) {
+		return String.valueOf(500000 + code);
+	}
+
+	public static String rxNormDisplayName(int code) {
+		return "SYNTHETIC DRUG " + code + " 10 MG ORAL TABLET";
+	}
+
+	/**
+	 * @return a letter and six digits, without the dot the loader inserts
+	 */
+	public static String icd10Code(int code) {
+		return (char) ('A' + code / 1000000 % 26) + String.format("%06d", code % 1000000);
+	}
+
+	/**
+	 * @return five digits without the dot the loader inserts; codes repeat after 100000
+	 */
+	public static String icd9Code(int code) {
+		return String.format("%05d", code % 100000);
+	}
+
+	public static String icdDisplayName(int code) {
+		return "SYNTHETIC DIAGNOSIS " + code + " OF UNSPECIFIED SITE";
+	}
+
+	/**
+	 * @return five digits; codes repeat after 100000
+	 */
+	public static String cptCode(int code) {
+		return String.format("%05d", code % 100000);
+	}
+
+	public static String cptDisplayName(int code) {
+		return "SYNTHETIC PROCEDURE " + code;
+	}
+
+	/**
+	 * @return D and four digits; codes repeat after 10000
+	 */
+	public static String cdtCode(int code) {
+		return String.format("D%04d", code % 10000);
+	}
+
+	public static String cdtDisplayName(int code) {
+		return "SYNTHETIC DENTAL PROCEDURE " + code;
+	}
+
+	public static String valueSetOid(int valueSet) {
+		return VALUESET_OID_PREFIX + valueSet;
+	}
+
+	private static BufferedWriter newWriter(File file) throws IOException {
+		Files.createDirectories(file.getParentFile().toPath());
+		return Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+	}
+
+	private static void writeCsvRecord(BufferedWriter writer, String[] values) throws IOException {
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				writer.write(',');
+			}
+			writer.write('"');
+			writer.write(values[i].replace("\"", "\"\""));
+			writer.write('"');
+		}
+		writer.write('\n');
+	}
+
+	private static void writeRow(Row row, String... values) {
+		for (int i = 0; i < values.length; i++) {
+			row.createCell(i).setCellValue(values[i]);
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package org.sitenv.vocabularies.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sitenv.vocabularies.constants.VocabularyConstants;
+import org.sitenv.vocabularies.constants.VocabularyConstants.SeverityLevel;
+import org.sitenv.vocabularies.loader.VocabularyDataSource;
+import org.sitenv.vocabularies.validation.dto.VocabularyValidationResult;
+import org.sitenv.vocabularies.validation.services.VocabularyValidationService;
+import org.xml.sax.SAXException;
+
+/**
+ * Measures end to end validations per second of {@link VocabularyValidationService#validate(java.io.InputStream,
+ * String, SeverityLevel)}, from parsing the document to the list of results, for each document size and severity
+ * level, on one thread and on as many threads as there are processors. Run it with
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="ValidationBenchmark"
+ *
+ * A LARGE document takes minutes to validate, so its iterations run far longer than the configured time;
+ * add -p documentSize=SMALL,MEDIAN to the arguments for a quick comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class ValidationBenchmark {
+	@Param({ "SMALL", "MEDIAN", "LARGE" })
+	public SyntheticDocument.Size documentSize;
+
+	@Param({ "INFO", "WARNING", "ERROR" })
+	public SeverityLevel severityLevel;
+
+	private BenchmarkContext benchmarkContext;
+	private VocabularyValidationService vocabularyValidationService;
+	private byte[] document;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException, SAXException, SQLException {
+		benchmarkContext = BenchmarkContext.start();
+		vocabularyValidationService = benchmarkContext.getBean(VocabularyValidationService.class);
+		document = new SyntheticDocument(benchmarkContext.getBean(VocabularyDataSource.class)).generate(documentSize);
+		// a document without results at this severity level would only measure the XPath evaluation
+		if (validate().isEmpty()) {
+			throw new IllegalStateException("The synthetic document validated without any results at " + severityLevel);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		benchmarkContext.close();
+	}
+
+	@Benchmark
+	@Threads(1)
+	public List<VocabularyValidationResult> singleThreaded() throws IOException, SAXException {
+		return validate();
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public List<VocabularyValidationResult> multiThreaded() throws IOException, SAXException {
+		return validate();
+	}
+
+	private List<VocabularyValidationResult> validate() throws IOException, SAXException {
+		return vocabularyValidationService.validate(new ByteArrayInputStream(document), VocabularyConstants.Config.DEFAULT,
+				severityLevel);
+	}
+}
@@ -0,0 +1,218 @@
+package org.sitenv.vocabularies.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sitenv.vocabularies.configuration.ConfiguredValidationResultSeverityLevel;
+import org.sitenv.vocabularies.configuration.ConfiguredValidator;
+import org.sitenv.vocabularies.validation.NodeValidation;
+import org.sitenv.vocabularies.validation.NodeValidatorFactory;
+import org.sitenv.vocabularies.validation.dto.VocabularyValidationResult;
+import org.sitenv.vocabularies.validation.repositories.VocabularyLookupRepository;
+import org.sitenv.vocabularies.validation.utils.CCDADocumentNamespaces;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Measures validateNode of each node validator on nodes of a parsed document, inside a lookup session as the
+ * validation service calls it. The vocabulary is the one of {@link LookupBenchmark}. With hit true every node
+ * is valid; with hit false its code, unit, text, code system or required child is not, so the validators
+ * make the further lookups they report the failure with.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms3g", "-Xmx3g" })
+public class ValidatorBenchmark {
+	private static final int NODE_COUNT = 64;
+	private static final int VALUE_SET_COUNT = 100;
+	private static final String CODE_SYSTEM = "SNOMED-CT";
+
+	@Param({ "10000", "100000", "1000000" })
+	public int rowCount;
+
+	@Param({ "true", "false" })
+	public boolean hit;
+
+	@Param({ "CodeSystemCodeValidator", "ValueSetCodeValidator", "ValueSetNodeWithOnlyCodeValidator", "ClassCodeValidator",
+			"LanguageCodeNodeLanguageCodeValuesetValidator", "LanguageCodeNodeCountryCodeValuesetValidator",
+			"NodeCodeSystemMatchesConfiguredCodeSystemValidator", "RequiredNodeValidator", "TextNodeValidator", "UnitValidator",
+			"UnitAllowsOneValidator" })
+	public String validatorName;
+
+	private BenchmarkContext benchmarkContext;
+	private VocabularyLookupRepository vocabularyLookupRepository;
+	private NodeValidation nodeValidation;
+	private XPath xpath;
+	private final Node[] nodes = new Node[NODE_COUNT];
+	private final ConfiguredValidator[] configuredValidators = new ConfiguredValidator[NODE_COUNT];
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException, SAXException, ParserConfigurationException {
+		SyntheticVocabulary vocabulary = new SyntheticVocabulary(rowCount, VALUE_SET_COUNT, rowCount / VALUE_SET_COUNT, CODE_SYSTEM);
+		benchmarkContext = BenchmarkContext.start(vocabulary, SyntheticDocument.CONFIG_RESOURCE);
+		vocabularyLookupRepository = benchmarkContext.getBean(VocabularyLookupRepository.class);
+		nodeValidation = benchmarkContext.getBean("vocabularyValidatorFactory", NodeValidatorFactory.class)
+				.getVocabularyValidator(validatorName);
+		xpath = benchmarkContext.getBean(XPathFactory.class).newXPath();
+		xpath.setNamespaceContext(new CcdaNamespaceContext());
+
+		StringBuilder document = new StringBuilder("<ClinicalDocument xmlns=\"urn:hl7-org:v3\">\n");
+		for (int node = 0; node < NODE_COUNT; node++) {
+			// a prime stride spreads the nodes over the vocabulary
+			int code = (int) ((node * 7919L) % rowCount);
+			if (!SyntheticVocabulary.isActive(code)) {
+				code--;
+			}
+			int valueSet = code / vocabulary.getValueSetSize();
+			String valueSetOids = SyntheticVocabulary.valueSetOid(valueSet) + "," + SyntheticVocabulary.valueSetOid((valueSet + 1) % VALUE_SET_COUNT);
+			configuredValidators[node] = configuredValidator(valueSetOids);
+			document.append(element(hit ? SyntheticVocabulary.snomedCode(code) : "9" + SyntheticVocabulary.snomedCode(code),
+					SyntheticVocabulary.snomedDisplayName(code))).append('\n');
+		}
+		document.append("</ClinicalDocument>");
+		DocumentBuilderFactory documentBuilderFactory = benchmarkContext.getBean(DocumentBuilderFactory.class);
+		Document parsedDocument = documentBuilderFactory.newDocumentBuilder()
+				.parse(new ByteArrayInputStream(document.toString().getBytes(StandardCharsets.UTF_8)));
+		NodeList children = parsedDocument.getDocumentElement().getChildNodes();
+		for (int child = 0, node = 0; child < children.getLength(); child++) {
+			if (children.item(child).getNodeType() == Node.ELEMENT_NODE) {
+				nodes[node++] = children.item(child);
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		benchmarkContext.close();
+	}
+
+	/**
+	 * The index of the next node and the lookup session of one benchmark thread; the session is open for a
+	 * whole iteration as it is for a whole validation.
+	 */
+	@State(Scope.Thread)
+	public static class Probe {
+		private int next;
+		private VocabularyLookupRepository.LookupSession lookupSession;
+
+		@Setup(Level.Iteration)
+		public void openSession(ValidatorBenchmark benchmark) {
+			lookupSession = benchmark.vocabularyLookupRepository.openSession();
+		}
+
+		@TearDown(Level.Iteration)
+		public void closeSession() {
+			lookupSession.close();
+		}
+
+		int next() {
+			next = (next + 1) % NODE_COUNT;
+			return next;
+		}
+	}
+
+	@Benchmark
+	public List<VocabularyValidationResult> validateNode(Probe probe) {
+		int next = probe.next();
+		return nodeValidation.validateNode(configuredValidators[next], xpath, nodes[next], next);
+	}
+
+	private ConfiguredValidator configuredValidator(String valueSetOids) {
+		ConfiguredValidator configuredValidator = new ConfiguredValidator();
+		configuredValidator.setName(validatorName);
+		configuredValidator.setConfiguredValidationResultSeverityLevel(new ConfiguredValidationResultSeverityLevel("SHALL"));
+		configuredValidator.setValidationMessage("Benchmark node failed " + validatorName);
+		if (validatorName.equals("CodeSystemCodeValidator")) {
+			configuredValidator.setAllowedCodesystemNames(CODE_SYSTEM);
+		} else if (validatorName.equals("NodeCodeSystemMatchesConfiguredCodeSystemValidator")) {
+			configuredValidator.setAllowedValuesetOids(SyntheticVocabulary.SNOMED_OID);
+		} else if (validatorName.equals("RequiredNodeValidator")) {
+			configuredValidator.setRequiredNodeName("v3:effectiveTime");
+		} else {
+			configuredValidator.setAllowedValuesetOids(valueSetOids);
+		}
+		return configuredValidator;
+	}
+
+	/**
+	 * @return the element validatorName validates, with code in the attribute or text it reads
+	 */
+	private String element(String code, String displayName) {
+		switch (validatorName) {
+		case "CodeSystemCodeValidator":
+			return "<code code=\"" + code + "\" displayName=\"" + displayName + "\" codeSystem=\"" + SyntheticVocabulary.SNOMED_OID
+					+ "\" codeSystemName=\"" + CODE_SYSTEM + "\"/>";
+		case "ValueSetCodeValidator":
+			return "<value code=\"" + code + "\" displayName=\"" + displayName + "\" codeSystem=\"" + SyntheticVocabulary.SNOMED_OID
+					+ "\" codeSystemName=\"SNOMEDCT\"/>";
+		case "ClassCodeValidator":
+			return "<observation classCode=\"" + code + "\"/>";
+		case "LanguageCodeNodeLanguageCodeValuesetValidator":
+			return "<languageCode code=\"" + code + "-US\"/>";
+		case "LanguageCodeNodeCountryCodeValuesetValidator":
+			return "<languageCode code=\"EN-" + code + "\"/>";
+		case "NodeCodeSystemMatchesConfiguredCodeSystemValidator":
+			return "<code code=\"" + code + "\" codeSystem=\"" + (hit ? SyntheticVocabulary.SNOMED_OID : SyntheticVocabulary.LOINC_OID)
+					+ "\"/>";
+		case "RequiredNodeValidator":
+			return hit ? "<observation><effectiveTime value=\"20200101\"/></observation>" : "<observation/>";
+		case "TextNodeValidator":
+			return "<text>" + code + "</text>";
+		case "UnitValidator":
+		case "UnitAllowsOneValidator":
+			return "<value value=\"1\" unit=\"" + code + "\"/>";
+		default:
+			return "<code code=\"" + code + "\"/>";
+		}
+	}
+
+	private static class CcdaNamespaceContext implements NamespaceContext {
+		@Override
+		public String getNamespaceURI(String prefix) {
+			if (CCDADocumentNamespaces.sdtc.name().equals(prefix)) {
+				return CCDADocumentNamespaces.sdtc.getNamespace();
+			} else if (CCDADocumentNamespaces.xsi.name().equals(prefix)) {
+				return CCDADocumentNamespaces.xsi.getNamespace();
+			}
+			return CCDADocumentNamespaces.defaultNameSpaceForCcda.getNamespace();
+		}
+
+		@Override
+		public String getPrefix(String namespaceURI) {
+			return null;
+		}
+
+		@Override
+		public Iterator<?> getPrefixes(String namespaceURI) {
+			return null;
+		}
+	}
+}
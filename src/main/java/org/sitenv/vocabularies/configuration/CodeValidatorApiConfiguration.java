@@ -12,10 +12,15 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPathFactory;
 
+import org.sitenv.vocabularies.loader.BaseCodeLoader;
+import org.sitenv.vocabularies.loader.VocabularyDataSource;
 import org.sitenv.vocabularies.loader.VocabularyLoadRunner;
 import org.sitenv.vocabularies.loader.VocabularyLoaderFactory;
+import org.sitenv.vocabularies.loader.VocabularyReloader;
+import org.sitenv.vocabularies.loader.VocabularyStore;
 import org.sitenv.vocabularies.validation.NodeValidatorFactory;
 import org.sitenv.vocabularies.validation.dto.GlobalCodeValidatorResults;
+import org.sitenv.vocabularies.validation.metrics.ValidationMetrics;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.ServiceLocatorFactoryBean;
 import org.springframework.context.annotation.Bean;
@@ -24,8 +29,6 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
 import org.springframework.core.env.Environment;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
-import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
-import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
 import org.springframework.orm.hibernate4.HibernateExceptionTranslator;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
@@ -73,9 +76,8 @@ public class CodeValidatorApiConfiguration {
 	}
 
 	@Bean
-	public DataSource dataSource() {
-		return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.HSQL).addScript("classpath:schema.sql")
-				.build();
+	public VocabularyDataSource dataSource() {
+		return new VocabularyDataSource(VocabularyStore.create(1));
 	}
 
 	@Bean
@@ -112,7 +114,8 @@ public class CodeValidatorApiConfiguration {
 	@Autowired
 	@Bean
 	VocabularyLoadRunner vocabularyLoadRunner(final Environment environment,
-			final VocabularyLoaderFactory vocabularyLoaderFactory, final DataSource dataSource) {
+			final VocabularyLoaderFactory vocabularyLoaderFactory, final DataSource dataSource,
+			final ConfiguredVocabularyReferences vocabularyReferences) {
 		VocabularyLoadRunner vocabularyLoadRunner = null;
 		String localCodeRepositoryDir = environment.getProperty("vocabulary.localCodeRepositoryDir");
 		String localValueSetRepositoryDir = environment.getProperty("vocabulary.localValueSetRepositoryDir");
@@ -121,11 +124,45 @@ public class CodeValidatorApiConfiguration {
 				+ localValueSetRepositoryDir + " CODES - " + localCodeRepositoryDir);
 		vocabularyLoadRunner.setCodeDirectory(localCodeRepositoryDir);
 		vocabularyLoadRunner.setValueSetDirectory(localValueSetRepositoryDir);
+		vocabularyLoadRunner.setParallelLoad(environment.getProperty("vocabulary.parallelLoad", Boolean.class, false));
+		vocabularyLoadRunner.setLoadThreadCount(environment.getProperty("vocabulary.loadThreadCount", Integer.class,
+				Runtime.getRuntime().availableProcessors()));
+		vocabularyLoadRunner.setSnapshotDirectory(environment.getProperty("vocabulary.snapshotDir"));
+		vocabularyLoadRunner.setBatchSize(environment.getProperty("vocabulary.loadBatchSize", Integer.class,
+				BaseCodeLoader.DEFAULT_BATCH_SIZE));
+		vocabularyLoadRunner.setLoadQueueCapacity(environment.getProperty("vocabulary.loadQueueCapacity", Integer.class,
+				BaseCodeLoader.DEFAULT_LOAD_QUEUE_CAPACITY));
+		vocabularyLoadRunner.setSheetThreadCount(environment.getProperty("vocabulary.sheetThreadCount", Integer.class, 0));
+		vocabularyLoadRunner.setLazyLoad(environment.getProperty("vocabulary.lazyLoad", Boolean.class, false));
+		vocabularyLoadRunner.setVocabularyReferences(vocabularyReferences);
+		if (environment.getProperty("vocabulary.pruneValueSets", Boolean.class, false)) {
+			vocabularyLoadRunner.setValueSetOidFilter(vocabularyReferences.getValuesetOidFilter());
+		}
 		vocabularyLoadRunner.setDataSource(dataSource);
 		vocabularyLoadRunner.setVocabularyLoaderFactory(vocabularyLoaderFactory);
 		return vocabularyLoadRunner;
 	}
 
+	@Autowired
+	@Bean
+	public ConfiguredVocabularyReferences vocabularyReferences(final Environment environment) {
+		return ConfiguredVocabularyReferences.scan(environment.getProperty("referenceccda.configFile"),
+				environment.getProperty("referenceccda.configFolder"), castorMarshaller());
+	}
+
+	@Autowired
+	@Bean
+	VocabularyReloader vocabularyReloader(final Environment environment, final VocabularyLoadRunner vocabularyLoadRunner,
+			final VocabularyDataSource dataSource, final EntityManagerFactory entityManagerFactory) {
+		VocabularyReloader vocabularyReloader = new VocabularyReloader();
+		vocabularyReloader.setVocabularyLoadRunner(vocabularyLoadRunner);
+		vocabularyReloader.setVocabularyDataSource(dataSource);
+		vocabularyReloader.setEntityManagerFactory(entityManagerFactory);
+		vocabularyReloader.setCheckIntervalSeconds(
+				environment.getProperty("vocabulary.reloadCheckIntervalSeconds", Long.class, 0L));
+		return vocabularyReloader;
+	}
+
 	@Bean
 	public static List<ConfiguredExpression> vocabularyValidationConfigurations(
 			ValidationConfigurationLoader configurationLoader) {
@@ -174,6 +211,15 @@ public class CodeValidatorApiConfiguration {
 		return jaxb2Marshaller;
 	}
 
+	@Autowired
+	@Bean
+	public ValidationMetrics validationMetrics(final Environment environment) {
+		ValidationMetrics validationMetrics = new ValidationMetrics();
+		validationMetrics.setEnabled(environment.getProperty("vocabulary.metricsEnabled", Boolean.class, true));
+		validationMetrics.setRegisterMBeans(environment.getProperty("vocabulary.metricsJmx", Boolean.class, true));
+		return validationMetrics;
+	}
+
 	@Bean
 	public static GlobalCodeValidatorResults globalCodeValidatorResults() {
 		return new GlobalCodeValidatorResults();
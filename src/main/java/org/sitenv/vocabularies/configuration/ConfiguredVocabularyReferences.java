@@ -0,0 +1,110 @@
+package org.sitenv.vocabularies.configuration;
+
+import org.sitenv.vocabularies.constants.VocabularyConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.oxm.Unmarshaller;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The code system names and value set OIDs named by the allowedCodesystemNames and allowedValuesetOids of a
+ * set of validation configurations. Code system names are trimmed and upper cased so they can be compared
+ * with the vocabulary directory names; OIDs are only trimmed.
+ */
+public class ConfiguredVocabularyReferences {
+    private static Logger logger = LoggerFactory.getLogger(ConfiguredVocabularyReferences.class);
+
+    private final Set<String> codeSystemNames = new TreeSet<>();
+    private final Set<String> valuesetOids = new TreeSet<>();
+    private int configurationCount = 0;
+
+    /**
+     * Scans the default configuration file and every configuration in the dynamic configuration folder, the
+     * ones a validation can select with its vocabularyConfig. Files that cannot be read are logged and
+     * skipped; either path may be null.
+     */
+    public static ConfiguredVocabularyReferences scan(String configFile, String configFolder, Unmarshaller unmarshaller) {
+        ConfiguredVocabularyReferences references = new ConfiguredVocabularyReferences();
+        if (configFile != null && !configFile.trim().isEmpty()) {
+            references.addConfigurationFile(new File(configFile), unmarshaller);
+        }
+        if (configFolder != null && !configFolder.trim().isEmpty()) {
+            File[] files = new File(configFolder).listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (file.isFile() && file.getName().endsWith(VocabularyConstants.Config.XML_EXT)) {
+                        references.addConfigurationFile(file, unmarshaller);
+                    }
+                }
+            }
+        }
+        return references;
+    }
+
+    public void addExpressions(List<ConfiguredExpression> expressions) {
+        if (expressions == null) {
+            return;
+        }
+        configurationCount++;
+        for (ConfiguredExpression expression : expressions) {
+            if (expression.getConfiguredValidators() == null) {
+                continue;
+            }
+            for (ConfiguredValidator validator : expression.getConfiguredValidators()) {
+                addAll(codeSystemNames, validator.getAllowedCodesystemNames(), true);
+                addAll(valuesetOids, validator.getAllowedValuesetOids(), false);
+            }
+        }
+    }
+
+    public Set<String> getCodeSystemNames() {
+        return Collections.unmodifiableSet(codeSystemNames);
+    }
+
+    public Set<String> getValuesetOids() {
+        return Collections.unmodifiableSet(valuesetOids);
+    }
+
+    /**
+     * @return the OIDs a value set loader should keep, or null if no configuration could be read and every
+     * value set has to be loaded
+     */
+    public Set<String> getValuesetOidFilter() {
+        return configurationCount > 0 ? getValuesetOids() : null;
+    }
+
+    /**
+     * @return the number of configurations that were read successfully
+     */
+    public int getConfigurationCount() {
+        return configurationCount;
+    }
+
+    private void addConfigurationFile(File file, Unmarshaller unmarshaller) {
+        ValidationConfigurationLoader configurationLoader = new ValidationConfigurationLoader();
+        configurationLoader.setUnmarshaller(unmarshaller);
+        try {
+            configurationLoader.xmlToObject(file.getPath());
+            addExpressions(configurationLoader.getConfigurations().getExpressions());
+        } catch (Exception e) {
+            logger.warn("Cannot read validation configuration " + file.getPath() + " for vocabulary references. " + e.getMessage());
+        }
+    }
+
+    private static void addAll(Set<String> target, String commaSeparatedValues, boolean upperCase) {
+        if (commaSeparatedValues == null) {
+            return;
+        }
+        for (String value : commaSeparatedValues.split(",")) {
+            String trimmed = value.trim();
+            if (!trimmed.isEmpty()) {
+                target.add(upperCase ? trimmed.toUpperCase() : trimmed);
+            }
+        }
+    }
+}
@@ -1,10 +1,6 @@
 package org.sitenv.vocabularies.loader;
 
-import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.text.StrBuilder;
-
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
 /**
@@ -12,46 +8,52 @@ import java.sql.SQLException;
  */
 public abstract class BaseCodeLoader implements VocabularyLoader{
 
-    public final String codeTableInsertSQLPrefix = "insert into CODES (ID, CODE, DISPLAYNAME, CODESYSTEM, CODESYSTEMOID, ACTIVE) values ";
-    protected static final int BATCH_SIZE = 100;
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final int DEFAULT_LOAD_QUEUE_CAPACITY = 16;
 
     protected final boolean CODES_IN_THIS_SYSTEM_ARE_ALWAYS_ACTIVE = true;
     protected String code;
     protected String codeSystem;
     protected String oid;
     protected boolean active;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int loadQueueCapacity = DEFAULT_LOAD_QUEUE_CAPACITY;
+    private int sheetThreadCount = 0;
+
+    /**
+     * The loader settings are set by {@link VocabularyLoadRunner} before each directory is loaded.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getLoadQueueCapacity() {
+        return loadQueueCapacity;
+    }
+
+    /**
+     * Number of row batches a {@link LoadPipeline} may hold before its parser blocks.
+     */
+    public void setLoadQueueCapacity(int loadQueueCapacity) {
+        this.loadQueueCapacity = loadQueueCapacity;
+    }
+
+    /**
+     * @return the number of threads parsing the sheets of one workbook, by default the number of processors
+     */
+    public int getSheetThreadCount() {
+        return sheetThreadCount > 0 ? sheetThreadCount : Runtime.getRuntime().availableProcessors();
+    }
 
-    public boolean insertCode(String sql, Connection connection) throws SQLException {
-        PreparedStatement preparedStatement = null;
-        boolean inserted = false;
-        if(sql.endsWith(",")){
-            sql = StringUtils.chop(sql);
-        }
-        try{
-            preparedStatement = connection.prepareStatement(sql);
-            inserted = preparedStatement.execute();
-            connection.commit();
-        }finally {
-            if(preparedStatement != null){
-                preparedStatement.close();
-            }
-        }
-       return inserted;
+    public void setSheetThreadCount(int sheetThreadCount) {
+        this.sheetThreadCount = sheetThreadCount;
     }
 
-    protected void buildCodeInsertQueryString(StrBuilder insertQueryBuilder, String code, String displayName, String codeSystem, String oid, boolean active) {
-        insertQueryBuilder.append("(");
-        insertQueryBuilder.append("DEFAULT");
-        insertQueryBuilder.append(",'");
-        insertQueryBuilder.append(code.trim().toUpperCase());
-        insertQueryBuilder.append("','");
-        insertQueryBuilder.append(displayName.trim().toUpperCase().replaceAll("'", "''"));
-        insertQueryBuilder.append("','");
-        insertQueryBuilder.append(codeSystem);
-        insertQueryBuilder.append("','");
-        insertQueryBuilder.append(oid);
-        insertQueryBuilder.append("',");
-        insertQueryBuilder.append(active);
-        insertQueryBuilder.append("),");
+    protected CodeSink newCodeSink(Connection connection) throws SQLException {
+        return new CodeSink(connection, batchSize);
     }
 }
@@ -0,0 +1,16 @@
+package org.sitenv.vocabularies.loader;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Writer side of a {@link LoadPipeline}. Each writer is driven by exactly one pipeline thread, so
+ * implementations do not need to be thread-safe. close() is called on that same thread once the queue
+ * has been drained and should commit whatever is still pending.
+ */
+public interface BatchWriter<T> extends AutoCloseable {
+    void write(List<T> rows) throws SQLException;
+
+    @Override
+    void close() throws SQLException;
+}
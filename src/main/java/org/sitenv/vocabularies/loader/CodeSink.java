@@ -0,0 +1,73 @@
+package org.sitenv.vocabularies.loader;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Receives code rows from the code loaders and writes them to the CODES_STAGING table through a single reused
+ * PreparedStatement. Rows are sent with addBatch/executeBatch every batchSize rows and only committed
+ * when the loader calls commit() (once per file) or closes the sink with rows added since the last commit. {@link VocabularyNormalizer} moves
+ * the staged rows into the normalized CODES table once the load is done.
+ */
+public class CodeSink implements AutoCloseable {
+    private static final String INSERT_CODE_SQL = "insert into CODES_STAGING (CODE, DISPLAYNAME, DISPLAYNAME_HASH, CODESYSTEM, CODESYSTEMOID, ACTIVE) values (?,?,?,?,?,?)";
+
+    private final Connection connection;
+    private final PreparedStatement preparedStatement;
+    private final int batchSize;
+    private int pendingCount = 0;
+    private long rowCount = 0;
+    private boolean uncommitted = false;
+
+    public CodeSink(Connection connection, int batchSize) throws SQLException {
+        this.connection = connection;
+        this.batchSize = batchSize > 0 ? batchSize : 1;
+        this.preparedStatement = connection.prepareStatement(INSERT_CODE_SQL);
+    }
+
+    public void add(String code, String displayName, String codeSystem, String oid, boolean active) throws SQLException {
+        String cleanedDisplayName = displayName.trim().toUpperCase();
+        preparedStatement.setString(1, code.trim().toUpperCase());
+        preparedStatement.setString(2, cleanedDisplayName);
+        preparedStatement.setLong(3, DisplayNameHash.of(cleanedDisplayName));
+        preparedStatement.setString(4, codeSystem);
+        preparedStatement.setString(5, oid);
+        preparedStatement.setBoolean(6, active);
+        preparedStatement.addBatch();
+        rowCount++;
+        uncommitted = true;
+        if (++pendingCount >= batchSize) {
+            flush();
+        }
+    }
+
+    public void flush() throws SQLException {
+        if (pendingCount > 0) {
+            preparedStatement.executeBatch();
+            preparedStatement.clearBatch();
+            pendingCount = 0;
+        }
+    }
+
+    public void commit() throws SQLException {
+        flush();
+        connection.commit();
+        uncommitted = false;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            if (uncommitted) {
+                commit();
+            }
+        } finally {
+            preparedStatement.close();
+        }
+    }
+}
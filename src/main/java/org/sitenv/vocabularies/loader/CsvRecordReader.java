@@ -0,0 +1,188 @@
+package org.sitenv.vocabularies.loader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streaming RFC-4180 tokenizer that reads one record at a time and only keeps the columns it was asked
+ * for. Quoted fields may contain commas, doubled quotes and line breaks. Each selected column is read
+ * into its own reusable buffer, so unselected columns are skipped without being copied anywhere and
+ * the only per-record allocation is the String handed out by get().
+ */
+public class CsvRecordReader implements Closeable {
+    private static final char DELIMITER = ',';
+    private static final char QUOTE = '"';
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+    private boolean endOfInput = false;
+
+    private final StringBuilder[] columnBuffers;
+    private int columnCount = 0;
+    private long recordNumber = 0;
+
+    public CsvRecordReader(Reader reader, int... selectedColumns) {
+        this.reader = reader;
+        int maxColumn = -1;
+        for (int column : selectedColumns) {
+            if (column < 0) {
+                throw new IllegalArgumentException("Column indexes must not be negative: " + column);
+            }
+            maxColumn = Math.max(maxColumn, column);
+        }
+        columnBuffers = new StringBuilder[maxColumn + 1];
+        for (int column : selectedColumns) {
+            columnBuffers[column] = new StringBuilder(64);
+        }
+    }
+
+    /**
+     * Advances to the next record.
+     *
+     * @return false once the input is exhausted
+     */
+    public boolean next() throws IOException {
+        if (!fill()) {
+            return false;
+        }
+        for (StringBuilder columnBuffer : columnBuffers) {
+            if (columnBuffer != null) {
+                columnBuffer.setLength(0);
+            }
+        }
+        columnCount = 0;
+        boolean endOfRecord = false;
+        while (!endOfRecord) {
+            StringBuilder target = columnCount < columnBuffers.length ? columnBuffers[columnCount] : null;
+            endOfRecord = readField(target);
+            columnCount++;
+        }
+        recordNumber++;
+        return true;
+    }
+
+    /**
+     * @return the value of a selected column in the current record, or an empty string when the record
+     * has fewer columns
+     */
+    public String get(int column) {
+        if (column >= columnBuffers.length || columnBuffers[column] == null) {
+            throw new IllegalArgumentException("Column " + column + " was not selected");
+        }
+        return column < columnCount ? columnBuffers[column].toString() : "";
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Reads one field into target (or discards it when target is null).
+     *
+     * @return true if the field ended the record
+     */
+    private boolean readField(StringBuilder target) throws IOException {
+        if (fill() && buffer[position] == QUOTE) {
+            position++;
+            return readQuotedField(target);
+        }
+        while (fill()) {
+            int start = position;
+            while (position < limit) {
+                char c = buffer[position];
+                if (c == DELIMITER || c == '\n' || c == '\r') {
+                    append(target, start, position);
+                    return consumeSeparator();
+                }
+                position++;
+            }
+            append(target, start, position);
+        }
+        return true;
+    }
+
+    private boolean readQuotedField(StringBuilder target) throws IOException {
+        while (fill()) {
+            int start = position;
+            while (position < limit) {
+                if (buffer[position] == QUOTE) {
+                    append(target, start, position);
+                    position++;
+                    if (fill() && buffer[position] == QUOTE) {
+                        // escaped quote: keep one and continue inside the quoted section
+                        if (target != null) {
+                            target.append(QUOTE);
+                        }
+                        position++;
+                        start = position;
+                        if (position >= limit) {
+                            break;
+                        }
+                        continue;
+                    }
+                    // closing quote: anything up to the next separator is kept as-is
+                    return readField(target);
+                }
+                position++;
+            }
+            append(target, start, Math.min(position, limit));
+        }
+        return true;
+    }
+
+    /**
+     * Consumes the separator at the current position.
+     *
+     * @return true if it was a line break
+     */
+    private boolean consumeSeparator() throws IOException {
+        char c = buffer[position++];
+        if (c == DELIMITER) {
+            return false;
+        }
+        if (c == '\r' && fill() && buffer[position] == '\n') {
+            position++;
+        }
+        return true;
+    }
+
+    private void append(StringBuilder target, int start, int end) {
+        if (target != null && end > start) {
+            target.append(buffer, start, end - start);
+        }
+    }
+
+    private boolean fill() throws IOException {
+        if (position < limit) {
+            return true;
+        }
+        if (endOfInput) {
+            return false;
+        }
+        int read;
+        do {
+            read = reader.read(buffer, 0, buffer.length);
+        } while (read == 0);
+        position = 0;
+        if (read < 0) {
+            limit = 0;
+            endOfInput = true;
+            return false;
+        }
+        limit = read;
+        return true;
+    }
+}
@@ -0,0 +1,33 @@
+package org.sitenv.vocabularies.loader;
+
+/**
+ * The 64 bit key display names are looked up by (DISPLAYNAMES.DISPLAYNAME_HASH). The index is built on this
+ * hash instead of the display name itself, which can be up to 100000 characters long. Different display
+ * names can share a hash, so every lookup by hash also compares the display name.
+ *
+ * The hash is FNV-1a over the UTF-16 chars of the display name exactly as it is stored (loaders trim and upper
+ * case it first), so the same function must be applied to the values that are looked up.
+ */
+public final class DisplayNameHash {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private DisplayNameHash() {
+    }
+
+    /**
+     * @return the hash of displayName, 0 for null (which matches no display name anyway)
+     */
+    public static long of(String displayName) {
+        if (displayName == null) {
+            return 0;
+        }
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < displayName.length(); i++) {
+            char c = displayName.charAt(i);
+            hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+            hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,253 @@
+package org.sitenv.vocabularies.loader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decouples file parsing from database insertion. Parser threads hand rows to a {@link Producer}, which
+ * groups them into batches and puts them on a bounded queue; one thread per {@link BatchWriter} drains
+ * that queue. A full queue blocks the producers (backpressure), so memory use is bounded by
+ * queueCapacity * batchSize rows no matter how far parsing runs ahead of the store.
+ *
+ * Typical use:
+ * <pre>
+ * try (LoadPipeline&lt;ValueSetRow&gt; pipeline = LoadPipeline.start("VSAC", batchSize, capacity, writers)) {
+ *     LoadPipeline&lt;ValueSetRow&gt;.Producer producer = pipeline.newProducer();
+ *     ... producer.add(row) ...
+ *     producer.flush();
+ *     pipeline.finish();
+ * }
+ * </pre>
+ * If finish() is never reached (the parser failed), close() discards whatever is still queued and stops
+ * the writers.
+ */
+public class LoadPipeline<T> implements AutoCloseable {
+    private static Logger logger = LoggerFactory.getLogger(LoadPipeline.class);
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private final List<T> endOfInput = new ArrayList<>(0);
+    private final String name;
+    private final int batchSize;
+    private final BlockingQueue<List<T>> queue;
+    private final List<Thread> writerThreads = new ArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile boolean aborted = false;
+    private boolean closed = false;
+    private final long startNanos = System.nanoTime();
+
+    private final LongAdder rowsProduced = new LongAdder();
+    private final LongAdder batchesQueued = new LongAdder();
+    private final LongAdder producerWaitNanos = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder writerBusyNanos = new LongAdder();
+    private final LongAdder writerIdleNanos = new LongAdder();
+
+    private LoadPipeline(String name, int batchSize, int queueCapacity) {
+        this.name = name;
+        this.batchSize = batchSize > 0 ? batchSize : 1;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity > 0 ? queueCapacity : 1);
+    }
+
+    /**
+     * Starts one writer thread per element of writers. The pipeline takes ownership of the writers and
+     * closes each of them on its own thread once the queue has been drained.
+     */
+    public static <T> LoadPipeline<T> start(String name, int batchSize, int queueCapacity, List<? extends BatchWriter<T>> writers) {
+        if (writers.isEmpty()) {
+            throw new IllegalArgumentException("A load pipeline needs at least one writer");
+        }
+        LoadPipeline<T> pipeline = new LoadPipeline<>(name, batchSize, queueCapacity);
+        for (int i = 0; i < writers.size(); i++) {
+            final BatchWriter<T> writer = writers.get(i);
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    pipeline.drain(writer);
+                }
+            }, "vocabulary-writer-" + name + "-" + (i + 1));
+            thread.setDaemon(true);
+            pipeline.writerThreads.add(thread);
+        }
+        for (Thread thread : pipeline.writerThreads) {
+            thread.start();
+        }
+        return pipeline;
+    }
+
+    /**
+     * @return a new producer handle. Producers are not thread-safe; every parser thread needs its own.
+     */
+    public Producer newProducer() {
+        return new Producer();
+    }
+
+    /**
+     * Signals that all producers have flushed, waits for the writers to drain the queue and close, and
+     * logs the per-stage counters.
+     *
+     * @throws SQLException if any writer failed
+     */
+    public void finish() throws SQLException {
+        stopWriters();
+        logger.info(name + " pipeline: " + rowsProduced.sum() + " rows parsed into " + batchesQueued.sum() + " batches, "
+                + rowsWritten.sum() + " rows written in " + millis(System.nanoTime() - startNanos) + " ms (insert "
+                + millis(writerBusyNanos.sum()) + " ms, writers idle " + millis(writerIdleNanos.sum())
+                + " ms, producers blocked " + millis(producerWaitNanos.sum()) + " ms)");
+        throwIfFailed();
+    }
+
+    /**
+     * Stops the pipeline without finishing it: queued batches are discarded. Does nothing after finish().
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            aborted = true;
+            queue.clear();
+            try {
+                stopWriters();
+            } catch (SQLException e) {
+                logger.error("ERROR stopping " + name + " pipeline. " + e.getMessage());
+            }
+        }
+    }
+
+    public long getRowsProduced() {
+        return rowsProduced.sum();
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten.sum();
+    }
+
+    public long getProducerWaitNanos() {
+        return producerWaitNanos.sum();
+    }
+
+    public long getWriterBusyNanos() {
+        return writerBusyNanos.sum();
+    }
+
+    public long getWriterIdleNanos() {
+        return writerIdleNanos.sum();
+    }
+
+    private void stopWriters() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            for (int i = 0; i < writerThreads.size(); i++) {
+                queue.put(endOfInput);
+            }
+            for (Thread thread : writerThreads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            aborted = true;
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the " + name + " writers", e);
+        }
+    }
+
+    private void drain(BatchWriter<T> writer) {
+        try {
+            while (true) {
+                long waitStart = System.nanoTime();
+                List<T> batch = queue.take();
+                long writeStart = System.nanoTime();
+                writerIdleNanos.add(writeStart - waitStart);
+                if (batch == endOfInput) {
+                    break;
+                }
+                // after a failure keep taking batches so blocked producers are released, but drop them
+                if (aborted || failure.get() != null) {
+                    continue;
+                }
+                try {
+                    writer.write(batch);
+                    rowsWritten.add(batch.size());
+                } catch (SQLException | RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+                writerBusyNanos.add(System.nanoTime() - writeStart);
+            }
+        } catch (InterruptedException e) {
+            failure.compareAndSet(null, e);
+            Thread.currentThread().interrupt();
+        } finally {
+            long closeStart = System.nanoTime();
+            try {
+                writer.close();
+            } catch (SQLException | RuntimeException e) {
+                failure.compareAndSet(null, e);
+            }
+            writerBusyNanos.add(System.nanoTime() - closeStart);
+        }
+    }
+
+    private void throwIfFailed() throws SQLException {
+        Throwable cause = failure.get();
+        if (cause instanceof SQLException) {
+            throw (SQLException) cause;
+        }
+        if (cause != null) {
+            throw new SQLException(name + " writer failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * Groups rows from one parser thread into batches and queues them, blocking while the queue is full.
+     */
+    public class Producer {
+        private List<T> batch = new ArrayList<>(batchSize);
+
+        public void add(T row) throws SQLException {
+            batch.add(row);
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        /**
+         * Queues the current partial batch. Must be called before {@link LoadPipeline#finish()}.
+         */
+        public void flush() throws SQLException {
+            if (batch.isEmpty()) {
+                return;
+            }
+            long waitStart = System.nanoTime();
+            try {
+                while (!queue.offer(batch, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    throwIfFailed();
+                    if (aborted) {
+                        throw new SQLException(name + " pipeline was closed");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while queueing " + name + " rows", e);
+            } finally {
+                producerWaitNanos.add(System.nanoTime() - waitStart);
+            }
+            rowsProduced.add(batch.size());
+            batchesQueued.increment();
+            batch = new ArrayList<>(batchSize);
+            throwIfFailed();
+        }
+    }
+}
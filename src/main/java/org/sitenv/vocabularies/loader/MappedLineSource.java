@@ -0,0 +1,185 @@
+package org.sitenv.vocabularies.loader;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads a UTF-8 text file line by line through a memory mapped window instead of a Reader. Lines are
+ * located on the raw bytes; nothing is decoded until a caller asks for the whole line or for a single
+ * delimited field, so a loader that needs three columns of a fifteen column RRF line only pays for those
+ * three Strings. Line breaks may be LF or CRLF, and a leading UTF-8 byte order mark is skipped.
+ *
+ * Files larger than the window are mapped piece by piece, always starting at the beginning of the current
+ * line, so no line is ever split between two mappings. A single line may not exceed the window size.
+ */
+public class MappedLineSource implements Closeable {
+    private static final long DEFAULT_WINDOW_SIZE = 128L * 1024 * 1024;
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long fileSize;
+    private final long windowSize;
+    private MappedByteBuffer window;
+    private long windowStart = 0;
+
+    private long nextLineStart = 0;
+    private int lineStart;
+    private int lineEnd;
+    private long lineNumber = 0;
+
+    private byte[] scratch = new byte[256];
+    private int[] fieldBounds = new int[32];
+    private int fieldCount = -1;
+    private byte fieldDelimiter;
+
+    public MappedLineSource(File file) throws IOException {
+        this(file, DEFAULT_WINDOW_SIZE);
+    }
+
+    public MappedLineSource(File file, long windowSize) throws IOException {
+        this.file = new RandomAccessFile(file, "r");
+        this.channel = this.file.getChannel();
+        this.fileSize = channel.size();
+        this.windowSize = Math.min(windowSize, Integer.MAX_VALUE);
+        mapWindow(0);
+        if (fileSize >= 3 && window.get(0) == (byte) 0xEF && window.get(1) == (byte) 0xBB && window.get(2) == (byte) 0xBF) {
+            nextLineStart = 3;
+        }
+    }
+
+    /**
+     * Advances to the next line.
+     *
+     * @return false at the end of the file
+     */
+    public boolean nextLine() throws IOException {
+        if (nextLineStart >= fileSize) {
+            return false;
+        }
+        int position = (int) (nextLineStart - windowStart);
+        int limit = window.limit();
+        int newline = indexOf(LF, position, limit);
+        if (newline < 0 && windowStart + limit < fileSize) {
+            mapWindow(nextLineStart);
+            position = 0;
+            limit = window.limit();
+            newline = indexOf(LF, position, limit);
+            if (newline < 0 && windowStart + limit < fileSize) {
+                throw new IOException("Line " + (lineNumber + 1) + " is longer than " + windowSize + " bytes");
+            }
+        }
+        lineStart = position;
+        lineEnd = newline < 0 ? limit : newline;
+        nextLineStart = windowStart + (newline < 0 ? limit : newline + 1);
+        if (lineEnd > lineStart && window.get(lineEnd - 1) == CR) {
+            lineEnd--;
+        }
+        fieldCount = -1;
+        lineNumber++;
+        return true;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    public boolean isEmptyLine() {
+        return lineEnd == lineStart;
+    }
+
+    /**
+     * @return the whole current line, decoded
+     */
+    public String getLine() {
+        return decode(lineStart, lineEnd);
+    }
+
+    /**
+     * @return the number of fields the current line has when split on delimiter (an empty line has one)
+     */
+    public int getFieldCount(char delimiter) {
+        splitFields(delimiter);
+        return fieldCount;
+    }
+
+    /**
+     * @return field index of the current line when split on delimiter, or an empty string if the line has
+     * fewer fields. Empty fields between two delimiters are preserved.
+     */
+    public String getField(int index, char delimiter) {
+        splitFields(delimiter);
+        if (index < 0 || index >= fieldCount) {
+            return "";
+        }
+        return decode(fieldBounds[index * 2], fieldBounds[index * 2 + 1]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        try {
+            channel.close();
+        } finally {
+            file.close();
+        }
+    }
+
+    private void splitFields(char delimiter) {
+        if (delimiter > 0x7F) {
+            throw new IllegalArgumentException("Only ASCII delimiters are supported");
+        }
+        byte delimiterByte = (byte) delimiter;
+        if (fieldCount >= 0 && fieldDelimiter == delimiterByte) {
+            return;
+        }
+        fieldDelimiter = delimiterByte;
+        fieldCount = 0;
+        int start = lineStart;
+        for (int position = lineStart; position <= lineEnd; position++) {
+            if (position == lineEnd || window.get(position) == delimiterByte) {
+                if (fieldBounds.length < (fieldCount + 1) * 2) {
+                    fieldBounds = Arrays.copyOf(fieldBounds, fieldBounds.length * 2);
+                }
+                fieldBounds[fieldCount * 2] = start;
+                fieldBounds[fieldCount * 2 + 1] = position;
+                fieldCount++;
+                start = position + 1;
+            }
+        }
+    }
+
+    private String decode(int start, int end) {
+        int length = end - start;
+        if (length <= 0) {
+            return "";
+        }
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        window.position(start);
+        window.get(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private int indexOf(byte value, int from, int to) {
+        for (int position = from; position < to; position++) {
+            if (window.get(position) == value) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    private void mapWindow(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, fileSize - start));
+    }
+}
@@ -0,0 +1,79 @@
+package org.sitenv.vocabularies.loader;
+
+/**
+ * One already normalized row of the VALUESETS_STAGING table, as handed from a value set parser to a
+ * {@link ValueSetSink}.
+ */
+public class ValueSetRow {
+    private final String code;
+    private final String displayName;
+    private final String codeSystemName;
+    private final String codeSystemVersion;
+    private final String codeSystem;
+    private final String tty;
+    private final String valueSetName;
+    private final String valueSetOid;
+    private final String valueSetType;
+    private final String valueSetDefinitionVersion;
+    private final String valueSetSteward;
+
+    public ValueSetRow(String code, String displayName, String codeSystemName, String codeSystemVersion,
+                       String codeSystem, String tty, String valueSetName, String valueSetOid, String valueSetType,
+                       String valueSetDefinitionVersion, String valueSetSteward) {
+        this.code = code;
+        this.displayName = displayName;
+        this.codeSystemName = codeSystemName;
+        this.codeSystemVersion = codeSystemVersion;
+        this.codeSystem = codeSystem;
+        this.tty = tty;
+        this.valueSetName = valueSetName;
+        this.valueSetOid = valueSetOid;
+        this.valueSetType = valueSetType;
+        this.valueSetDefinitionVersion = valueSetDefinitionVersion;
+        this.valueSetSteward = valueSetSteward;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public String getCodeSystemName() {
+        return codeSystemName;
+    }
+
+    public String getCodeSystemVersion() {
+        return codeSystemVersion;
+    }
+
+    public String getCodeSystem() {
+        return codeSystem;
+    }
+
+    public String getTty() {
+        return tty;
+    }
+
+    public String getValueSetName() {
+        return valueSetName;
+    }
+
+    public String getValueSetOid() {
+        return valueSetOid;
+    }
+
+    public String getValueSetType() {
+        return valueSetType;
+    }
+
+    public String getValueSetDefinitionVersion() {
+        return valueSetDefinitionVersion;
+    }
+
+    public String getValueSetSteward() {
+        return valueSetSteward;
+    }
+}
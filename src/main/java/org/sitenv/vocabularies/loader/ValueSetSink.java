@@ -0,0 +1,79 @@
+package org.sitenv.vocabularies.loader;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Counterpart of {@link CodeSink} for the VALUESETS_STAGING table. Rows are written through one reused
+ * PreparedStatement in batches of batchSize and committed on commit() or close().
+ */
+public class ValueSetSink implements BatchWriter<ValueSetRow> {
+    private static final String INSERT_VALUESET_SQL = "insert into VALUESETS_STAGING (CODE, DISPLAYNAME, DISPLAYNAME_HASH, CODESYSTEMNAME, CODESYSTEMVERSION, CODESYSTEM, TTY, VALUESETNAME, VALUESETOID, VALUESETTYPE, VALUESETDEFINITIONVERSION, VALUESETSTEWARD) values (?,?,?,?,?,?,?,?,?,?,?,?)";
+
+    private final Connection connection;
+    private final PreparedStatement preparedStatement;
+    private final int batchSize;
+    private int pendingCount = 0;
+    private long rowCount = 0;
+
+    public ValueSetSink(Connection connection, int batchSize) throws SQLException {
+        this.connection = connection;
+        this.batchSize = batchSize > 0 ? batchSize : 1;
+        this.preparedStatement = connection.prepareStatement(INSERT_VALUESET_SQL);
+    }
+
+    public void add(ValueSetRow row) throws SQLException {
+        preparedStatement.setString(1, row.getCode());
+        preparedStatement.setString(2, row.getDisplayName());
+        preparedStatement.setLong(3, DisplayNameHash.of(row.getDisplayName()));
+        preparedStatement.setString(4, row.getCodeSystemName());
+        preparedStatement.setString(5, row.getCodeSystemVersion());
+        preparedStatement.setString(6, row.getCodeSystem());
+        preparedStatement.setString(7, row.getTty());
+        preparedStatement.setString(8, row.getValueSetName());
+        preparedStatement.setString(9, row.getValueSetOid());
+        preparedStatement.setString(10, row.getValueSetType());
+        preparedStatement.setString(11, row.getValueSetDefinitionVersion());
+        preparedStatement.setString(12, row.getValueSetSteward());
+        preparedStatement.addBatch();
+        rowCount++;
+        if (++pendingCount >= batchSize) {
+            flush();
+        }
+    }
+
+    @Override
+    public void write(List<ValueSetRow> rows) throws SQLException {
+        for (ValueSetRow row : rows) {
+            add(row);
+        }
+    }
+
+    public void flush() throws SQLException {
+        if (pendingCount > 0) {
+            preparedStatement.executeBatch();
+            preparedStatement.clearBatch();
+            pendingCount = 0;
+        }
+    }
+
+    public void commit() throws SQLException {
+        flush();
+        connection.commit();
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            commit();
+        } finally {
+            preparedStatement.close();
+        }
+    }
+}
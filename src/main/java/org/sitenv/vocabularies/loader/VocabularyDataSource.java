@@ -0,0 +1,160 @@
+package org.sitenv.vocabularies.loader;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * DataSource in front of the current {@link VocabularyStore}. The store behind it can be replaced at any
+ * time with {@link #swap(VocabularyStore)}; threads that pinned a store keep getting connections to it
+ * until they release their lease, so a validation never sees two vocabulary versions.
+ *
+ * Connections taken without a pin go to whatever store is current at that moment.
+ *
+ * {@link #getReadDataSource()} routes the same way, but hands out read only connections from the
+ * {@link VocabularyReadPool} of the store, for the lookups of concurrent validations.
+ */
+public class VocabularyDataSource extends AbstractDataSource {
+    public static final long DEFAULT_READ_POOL_MAX_WAIT_MILLIS = 30000;
+
+    private final AtomicReference<VocabularyStore> currentStore;
+    private final ThreadLocal<VocabularyStore> pinnedStore = new ThreadLocal<>();
+    private final DataSource readDataSource = new ReadDataSource();
+    private int readPoolSize = 0;
+    private long readPoolMaxWaitMillis = DEFAULT_READ_POOL_MAX_WAIT_MILLIS;
+
+    public VocabularyDataSource(VocabularyStore initialStore) {
+        this.currentStore = new AtomicReference<>(initialStore);
+    }
+
+    public VocabularyStore getCurrentStore() {
+        return currentStore.get();
+    }
+
+    /**
+     * @return the maximum number of read connections per store, by default the number of available processors
+     */
+    public int getReadPoolSize() {
+        return readPoolSize > 0 ? readPoolSize : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Should be at least the number of validations that run at the same time. Applies to stores whose read
+     * pool has not been opened yet.
+     */
+    @Value("${vocabulary.readPoolSize:0}")
+    public void setReadPoolSize(int readPoolSize) {
+        this.readPoolSize = readPoolSize;
+    }
+
+    public long getReadPoolMaxWaitMillis() {
+        return readPoolMaxWaitMillis;
+    }
+
+    @Value("${vocabulary.readPoolMaxWaitMillis:" + DEFAULT_READ_POOL_MAX_WAIT_MILLIS + "}")
+    public void setReadPoolMaxWaitMillis(long readPoolMaxWaitMillis) {
+        this.readPoolMaxWaitMillis = readPoolMaxWaitMillis;
+    }
+
+    /**
+     * @return a DataSource of read only, autocommit connections to the store pinned to the calling thread, or
+     * to the current store if the thread has no pin
+     */
+    public DataSource getReadDataSource() {
+        return readDataSource;
+    }
+
+    /**
+     * @return the read pool of the current store, or null if no lookup has used it yet
+     */
+    public VocabularyReadPool getReadPool() {
+        return currentStore.get().getReadPool();
+    }
+
+    /**
+     * Pins the current store to the calling thread until the returned lease is closed. Nested pins on the
+     * same thread share the outer pin.
+     */
+    public Lease pin() {
+        if (pinnedStore.get() != null) {
+            return new Lease(null);
+        }
+        VocabularyStore store;
+        do {
+            store = currentStore.get();
+        } while (!store.retain());
+        pinnedStore.set(store);
+        return new Lease(store);
+    }
+
+    /**
+     * Makes newStore current and retires the previous store, which shuts down once its last lease is
+     * released.
+     *
+     * @return the previous store
+     */
+    public VocabularyStore swap(VocabularyStore newStore) {
+        VocabularyStore previousStore = currentStore.getAndSet(newStore);
+        previousStore.retire();
+        return previousStore;
+    }
+
+    /**
+     * Shuts down the current store, called when the application context closes.
+     */
+    public void shutdown() {
+        currentStore.get().shutdown();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getStoreForCurrentThread().getDatabase().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getStoreForCurrentThread().getDatabase().getConnection(username, password);
+    }
+
+    /**
+     * @return the store pinned to the calling thread, or the current store if the thread has no pin
+     */
+    public VocabularyStore getStoreForCurrentThread() {
+        VocabularyStore store = pinnedStore.get();
+        return store != null ? store : currentStore.get();
+    }
+
+    private class ReadDataSource extends AbstractDataSource {
+        @Override
+        public Connection getConnection() throws SQLException {
+            return getStoreForCurrentThread().getReadConnection(getReadPoolSize(), readPoolMaxWaitMillis);
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            throw new SQLException("The vocabulary read pool does not take credentials");
+        }
+    }
+
+    public class Lease implements AutoCloseable {
+        private final VocabularyStore store;
+        private boolean closed = false;
+
+        private Lease(VocabularyStore store) {
+            this.store = store;
+        }
+
+        @Override
+        public void close() {
+            if (store != null && !closed) {
+                closed = true;
+                pinnedStore.remove();
+                store.release();
+            }
+        }
+    }
+}
@@ -1,16 +1,34 @@
 package org.sitenv.vocabularies.loader;
 
+import org.sitenv.vocabularies.configuration.ConfiguredValidator;
+import org.sitenv.vocabularies.configuration.ConfiguredVocabularyReferences;
+import org.sitenv.vocabularies.loader.valueset.VsacLoader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
 
 import javax.sql.DataSource;
 import java.io.File;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Created by Brian on 2/6/2016.
@@ -18,10 +36,29 @@ import java.util.Arrays;
 public class VocabularyLoadRunner implements InitializingBean, DisposableBean {
     private VocabularyLoaderFactory vocabularyLoaderFactory;
     private static Logger logger = LoggerFactory.getLogger(VocabularyLoadRunner.class);
+    private static final String MANIFEST_FILE_NAME = "vocabulary-manifest.tsv";
+    private static final String INDEX_SCRIPT = "schema-indexes.sql";
     private String codeDirectory = null;
     private String valueSetDirectory = null;
     private boolean recursive = true;
+    private boolean parallelLoad = false;
+    private int loadThreadCount = Runtime.getRuntime().availableProcessors();
+    private String snapshotDirectory = null;
+    private int batchSize = BaseCodeLoader.DEFAULT_BATCH_SIZE;
+    private int loadQueueCapacity = BaseCodeLoader.DEFAULT_LOAD_QUEUE_CAPACITY;
+    private int sheetThreadCount = 0;
+    private boolean lazyLoad = false;
+    private ConfiguredVocabularyReferences vocabularyReferences = null;
+    private Set<String> valueSetOidFilter = null;
     private DataSource dataSource;
+    private final VocabularyLoadState standaloneLoadState = new VocabularyLoadState();
+    private final Set<String> demandedPartitions = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final VocabularyLoadState.PartitionLoader deferredPartitionLoader = new VocabularyLoadState.PartitionLoader() {
+        @Override
+        public boolean load(VocabularyPartition partition, DataSource target, VocabularyLoadState loadState) {
+            return loadDeferredPartition(partition, target, loadState);
+        }
+    };
 
     public void loadDirectory(String directory, Connection connection) throws IOException {
         File dir = new File(directory);
@@ -40,6 +77,16 @@ public class VocabularyLoadRunner implements InitializingBean, DisposableBean {
             File[] filesToLoad = directory.listFiles();
             logger.debug("Building Loader for directory: " + directory.getName() + "...");
             VocabularyLoader loader = vocabularyLoaderFactory.getVocabularyLoader(directory.getName());
+            if (loader instanceof VsacLoader) {
+                // the filter the value set snapshot is recorded with is the one the loader applies
+                ((VsacLoader) loader).setValuesetOidFilter(valueSetOidFilter);
+            }
+            if (loader instanceof BaseCodeLoader) {
+                BaseCodeLoader codeLoader = (BaseCodeLoader) loader;
+                codeLoader.setBatchSize(batchSize);
+                codeLoader.setLoadQueueCapacity(loadQueueCapacity);
+                codeLoader.setSheetThreadCount(sheetThreadCount);
+            }
             if (loader != null && filesToLoad != null) {
                 logger.debug("Loader built...");
                 logger.info("Loading files in : " + directory.getName() + "...");
@@ -75,6 +122,99 @@ public class VocabularyLoadRunner implements InitializingBean, DisposableBean {
         this.recursive = recursive;
     }
 
+    public boolean isParallelLoad() {
+        return parallelLoad;
+    }
+
+    public void setParallelLoad(boolean parallelLoad) {
+        this.parallelLoad = parallelLoad;
+    }
+
+    public int getLoadThreadCount() {
+        return loadThreadCount;
+    }
+
+    public void setLoadThreadCount(int loadThreadCount) {
+        this.loadThreadCount = loadThreadCount;
+    }
+
+    public String getSnapshotDirectory() {
+        return snapshotDirectory;
+    }
+
+    /**
+     * Enables incremental loading: partitions whose source files are unchanged since the previous load are
+     * restored from snapshots kept in this directory instead of being parsed again.
+     */
+    public void setSnapshotDirectory(String snapshotDirectory) {
+        this.snapshotDirectory = snapshotDirectory;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Number of rows the loaders send to the database in one batch, also used when restoring snapshots.
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getLoadQueueCapacity() {
+        return loadQueueCapacity;
+    }
+
+    public void setLoadQueueCapacity(int loadQueueCapacity) {
+        this.loadQueueCapacity = loadQueueCapacity;
+    }
+
+    public int getSheetThreadCount() {
+        return sheetThreadCount;
+    }
+
+    /**
+     * Number of threads parsing the sheets of one workbook, or 0 for the number of processors.
+     */
+    public void setSheetThreadCount(int sheetThreadCount) {
+        this.sheetThreadCount = sheetThreadCount;
+    }
+
+    public boolean isLazyLoad() {
+        return lazyLoad;
+    }
+
+    /**
+     * Enables lazy loading: only the code systems named by the vocabularyReferences, and the value sets if
+     * any value set OID is named, are loaded up front. The other partitions are loaded the first time
+     * {@link #ensureLoaded(ConfiguredValidator)} is called for a validator that names them. Without
+     * references everything is loaded up front.
+     */
+    public void setLazyLoad(boolean lazyLoad) {
+        this.lazyLoad = lazyLoad;
+    }
+
+    public ConfiguredVocabularyReferences getVocabularyReferences() {
+        return vocabularyReferences;
+    }
+
+    public void setVocabularyReferences(ConfiguredVocabularyReferences vocabularyReferences) {
+        this.vocabularyReferences = vocabularyReferences;
+    }
+
+    public Set<String> getValueSetOidFilter() {
+        return valueSetOidFilter;
+    }
+
+    /**
+     * The value set OIDs to load (see vocabulary.pruneValueSets), or null to load all of them. The runner
+     * hands them to the value set loader and records them with the value set snapshot, so that an incremental
+     * load reparses the value sets when the configured OIDs change.
+     */
+    public void setValueSetOidFilter(Set<String> valueSetOidFilter) {
+        this.valueSetOidFilter = valueSetOidFilter;
+    }
+
     public void setDataSource(DataSource dataSource) {
         this.dataSource = dataSource;
     }
@@ -85,40 +225,569 @@ public class VocabularyLoadRunner implements InitializingBean, DisposableBean {
 
     @Override
     public void afterPropertiesSet() throws Exception {
+        load(dataSource);
+    }
+
+    /**
+     * Loads the configured directories into target, which does not have to be the data source this runner
+     * was configured with (see {@link VocabularyReloader}).
+     *
+     * @return false if a directory or partition failed to load
+     */
+    public boolean load(DataSource target) {
+        if (target instanceof VocabularyDataSource) {
+            return load(((VocabularyDataSource) target).getCurrentStore());
+        }
+        return load(target, standaloneLoadState);
+    }
+
+    /**
+     * Loads the configured directories into store. Partitions deferred by a lazy load are tracked in the
+     * store's {@link VocabularyLoadState}, so each store generation loads them on its own.
+     */
+    public boolean load(VocabularyStore store) {
+        return load(store.getDatabase(), store.getLoadState());
+    }
+
+    private boolean load(DataSource target, VocabularyLoadState loadState) {
+        long start = System.currentTimeMillis();
+        loadState.reset(target);
+        boolean loaded;
+        if (isConfigured(snapshotDirectory)) {
+            loaded = loadIncrementally(target, loadState);
+        } else if (parallelLoad) {
+            loaded = loadInParallel(target, loadState);
+        } else {
+            loaded = loadSequentially(target, loadState);
+        }
+        logger.info("Vocabulary rows loaded in " + (System.currentTimeMillis() - start) + " ms");
+        loaded &= normalize(target, null);
+        loaded &= buildIndexes(target);
+        collectStatistics(target, loadState, null);
+        return loaded;
+    }
+
+    /**
+     * @return what the current store holds, or null while it is loading (see {@link VocabularyStatistics})
+     */
+    public VocabularyStatistics getStatistics() {
+        VocabularyLoadState loadState = dataSource instanceof VocabularyDataSource
+                ? ((VocabularyDataSource) dataSource).getCurrentStore().getLoadState() : standaloneLoadState;
+        return loadState.getStatistics();
+    }
+
+    /**
+     * Moves the staged rows of partition, or every staged row if partition is null, into the normalized
+     * tables (see {@link VocabularyNormalizer}).
+     */
+    private boolean normalize(DataSource target, VocabularyPartition partition) {
+        long start = System.currentTimeMillis();
+        Connection connection = null;
+        try {
+            connection = target.getConnection();
+            connection.setAutoCommit(false);
+            if (partition == null || !partition.isValueSets()) {
+                VocabularyNormalizer.normalizeCodes(connection, partition != null ? partition.getCodeSystem() : null);
+            }
+            if (partition == null || partition.isValueSets()) {
+                VocabularyNormalizer.normalizeValueSets(connection);
+            }
+            logger.info("Vocabulary rows normalized in " + (System.currentTimeMillis() - start) + " ms");
+            return true;
+        } catch (SQLException e) {
+            logger.error("Failed to normalize vocabulary rows.", e);
+            return false;
+        } finally {
+            closeQuietly(connection);
+        }
+    }
+
+    /**
+     * Collects the statistics of the loaded rows, or only of partition if it is not null, into loadState and
+     * logs them. They are collected once per load rather than by the validations, and a failure only costs
+     * the statistics, not the load.
+     */
+    private void collectStatistics(DataSource target, VocabularyLoadState loadState, VocabularyPartition partition) {
+        Connection connection = null;
+        try {
+            connection = target.getConnection();
+            VocabularyStatistics statistics;
+            // deferred partitions can finish at the same time, each replaces the statistics of the others
+            synchronized (loadState) {
+                statistics = partition == null ? VocabularyStatistics.collect(connection)
+                        : VocabularyStatistics.collect(connection, partition, loadState.getStatistics());
+                loadState.setStatistics(statistics);
+            }
+            logger.info("Vocabulary statistics: " + statistics);
+            if (logger.isDebugEnabled()) {
+                for (VocabularyStatistics.ValueSetStatistics valueSet : statistics.getValueSets()) {
+                    logger.debug("Value set " + valueSet);
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to collect vocabulary statistics.", e);
+        } finally {
+            closeQuietly(connection);
+        }
+    }
+
+    /**
+     * The tables are created without indexes so the bulk insert does not maintain them row by row; they
+     * are built here in one pass once every loader has finished.
+     */
+    private boolean buildIndexes(DataSource target) {
+        long start = System.currentTimeMillis();
+        try {
+            new ResourceDatabasePopulator(new ClassPathResource(INDEX_SCRIPT)).execute(target);
+            logger.info("Vocabulary indexes built in " + (System.currentTimeMillis() - start) + " ms");
+            return true;
+        } catch (DataAccessException e) {
+            logger.error("Failed to build vocabulary indexes.", e);
+            return false;
+        }
+    }
+
+    private boolean loadSequentially(DataSource target, VocabularyLoadState loadState) {
         Connection connection = null;
         try {
-            connection = dataSource.getConnection();
+            connection = target.getConnection();
             connection.setAutoCommit(false);
-            if (codeDirectory != null && !codeDirectory.trim().equals("")) {
+            if (isConfigured(codeDirectory)) {
                 logger.info("Loading vocabularies at: " + codeDirectory + "...");
-                loadDirectory(codeDirectory, connection);
+                for (File directory : selectCodeSystemDirectories(loadState)) {
+                    load(directory, connection);
+                }
                 logger.info("Vocabularies loaded...");
             }
             connection.commit();
 
-            if (valueSetDirectory != null && !valueSetDirectory.trim().equals("")) {
+            if (isConfigured(valueSetDirectory)) {
                 logger.info("Loading value sets at: " + valueSetDirectory + "...");
-                loadDirectory(valueSetDirectory, connection);
+                for (File directory : selectValueSetDirectories(loadState)) {
+                    load(directory, connection);
+                }
                 logger.info("Value Sets loaded...");
             }
             connection.commit();
 
             logger.info("!!!!*********** VOCABULARY DATABASE HAS FINISHED LOADING - SERVER WILL CONTINUE AND SHOULD BE DONE SHORTLY. ***********!!!!");
+            return true;
         } catch (Exception e) {
             logger.error("Failed to load configured vocabulary directory.", e);
+            return false;
         }finally {
+            closeQuietly(connection);
+        }
+    }
+
+    /**
+     * Loads every code system and value set directory on its own worker thread and JDBC connection.
+     * A failing loader is logged and does not stop the others; the finished signal is only logged once
+     * every directory has either loaded or failed.
+     */
+    private boolean loadInParallel(final DataSource target, VocabularyLoadState loadState) {
+        List<File> directories = new ArrayList<>();
+        try {
+            directories.addAll(selectCodeSystemDirectories(loadState));
+            directories.addAll(selectValueSetDirectories(loadState));
+        } catch (IOException e) {
+            logger.error("Failed to load configured vocabulary directory.", e);
+            return false;
+        }
+
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (final File directory : directories) {
+            tasks.add(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return loadOnOwnConnection(directory, target);
+                }
+            });
+        }
+
+        int failedCount;
+        try {
+            failedCount = runInParallel(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while waiting for vocabulary loaders to finish.", e);
+            return false;
+        }
+
+        if (failedCount > 0) {
+            logger.error(failedCount + " of " + directories.size() + " vocabulary directories failed to load. See previous errors.");
+        }
+        logger.info("!!!!*********** VOCABULARY DATABASE HAS FINISHED LOADING - SERVER WILL CONTINUE AND SHOULD BE DONE SHORTLY. ***********!!!!");
+        return failedCount == 0;
+    }
+
+    /**
+     * Loads the vocabulary one partition at a time (see {@link VocabularyPartition}), comparing
+     * each partition's files with the manifest of the previous load. Unchanged partitions are restored from
+     * their snapshot; changed or new ones have their rows deleted and their loader run, and are then
+     * snapshotted again. Partitions run in parallel when parallelLoad is set.
+     */
+    private boolean loadIncrementally(final DataSource target, VocabularyLoadState loadState) {
+        List<VocabularyPartition> partitions = new ArrayList<>();
+        try {
+            for (File directory : selectCodeSystemDirectories(loadState)) {
+                partitions.add(VocabularyPartition.forCodeSystem(directory));
+            }
+            List<File> valueSetDirectories = selectValueSetDirectories(loadState);
+            if (!valueSetDirectories.isEmpty()) {
+                partitions.add(VocabularyPartition.forValueSets(valueSetDirectories));
+            }
+        } catch (IOException e) {
+            logger.error("Failed to load configured vocabulary directory.", e);
+            return false;
+        }
+
+        final File snapshotDir = new File(snapshotDirectory);
+        if (!snapshotDir.isDirectory() && !snapshotDir.mkdirs()) {
+            logger.error("Cannot create vocabulary snapshot directory " + snapshotDir.getAbsolutePath() + ", loading everything from source.");
+            return loadSequentially(target, loadState);
+        }
+        File manifestFile = new File(snapshotDir, MANIFEST_FILE_NAME);
+        final VocabularyManifest previousManifest = VocabularyManifest.read(manifestFile);
+        final VocabularyManifest manifest = new VocabularyManifest();
+
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (final VocabularyPartition partition : partitions) {
+            tasks.add(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return loadPartitionOnOwnConnection(partition, target, previousManifest, manifest, snapshotDir);
+                }
+            });
+        }
+
+        int failedCount = 0;
+        try {
+            if (parallelLoad) {
+                failedCount = runInParallel(tasks);
+            } else {
+                for (Callable<Boolean> task : tasks) {
+                    if (!task.call()) {
+                        failedCount++;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while waiting for vocabulary loaders to finish.", e);
+            return false;
+        } catch (Exception e) {
+            logger.error("Failed to load configured vocabulary directory.", e);
+            return false;
+        }
+
+        try {
+            manifest.write(manifestFile);
+        } catch (IOException e) {
+            logger.error("Failed to write vocabulary manifest " + manifestFile.getAbsolutePath(), e);
+        }
+        if (failedCount > 0) {
+            logger.error(failedCount + " of " + partitions.size() + " vocabulary partitions failed to load. See previous errors.");
+        }
+        logger.info("!!!!*********** VOCABULARY DATABASE HAS FINISHED LOADING - SERVER WILL CONTINUE AND SHOULD BE DONE SHORTLY. ***********!!!!");
+        return failedCount == 0;
+    }
+
+    private boolean loadPartitionOnOwnConnection(VocabularyPartition partition, DataSource target, VocabularyManifest previousManifest,
+                                                 VocabularyManifest manifest, File snapshotDir) {
+        long start = System.currentTimeMillis();
+        Connection connection = null;
+        try {
+            connection = target.getConnection();
+            connection.setAutoCommit(false);
+            String action = loadPartition(partition, connection, previousManifest, manifest, snapshotDir);
+            logger.info(action + " " + partition.getName() + " in " + (System.currentTimeMillis() - start) + " ms");
+            return true;
+        } catch (Exception e) {
+            logger.error("Failed to load vocabulary partition: " + partition.getName(), e);
+            return false;
+        } finally {
+            closeQuietly(connection);
+        }
+    }
+
+    private String loadPartition(VocabularyPartition partition, Connection connection, VocabularyManifest previousManifest,
+                                 VocabularyManifest manifest, File snapshotDir) throws IOException, SQLException {
+        File snapshotFile = partition.getSnapshotFile(snapshotDir);
+        VocabularyManifest.Partition previous = previousManifest.get(partition.getName());
+        List<VocabularyManifest.FileEntry> files = VocabularyManifest.fingerprint(partition.listFiles(), previous);
+        if (partition.isValueSets() && valueSetOidFilter != null) {
+            files.add(VocabularyManifest.settingEntry("allowedValuesetOids", valueSetOidFilter));
+        }
+
+        partition.deleteRows(connection);
+        connection.commit();
+        if (previous != null && previous.hasSameContent(files) && snapshotFile.isFile()) {
             try {
-                if(connection != null || !(connection.isClosed())) {
-                    connection.close();
+                long restoredCount = partition.restoreFrom(connection, snapshotFile, batchSize);
+                if (restoredCount == previous.getRowCount()) {
+                    manifest.put(new VocabularyManifest.Partition(partition.getName(), restoredCount, files));
+                    return "Source files unchanged, restored " + restoredCount + " rows from snapshot for";
+                }
+                logger.warn("Snapshot of " + partition.getName() + " has " + restoredCount + " rows, manifest expects "
+                        + previous.getRowCount() + ". Reloading from source files.");
+            } catch (IOException | SQLException e) {
+                logger.warn("Cannot restore snapshot of " + partition.getName() + ", reloading from source files. " + e.getMessage());
+            }
+            connection.rollback();
+            partition.deleteRows(connection);
+            connection.commit();
+        }
+
+        for (File directory : partition.getDirectories()) {
+            load(directory, connection);
+        }
+        connection.commit();
+        long rowCount = partition.exportTo(connection, snapshotFile);
+        if (rowCount > 0) {
+            manifest.put(new VocabularyManifest.Partition(partition.getName(), rowCount, files));
+        } else {
+            // loaders log and swallow their own errors, so an empty partition is not trusted as a snapshot
+            logger.warn("No rows loaded for " + partition.getName() + ", it will be loaded from source again next time.");
+        }
+        return "Loaded " + rowCount + " rows from source files for";
+    }
+
+    /**
+     * Runs tasks on a fixed pool of loader threads and waits for all of them.
+     *
+     * @return the number of tasks that returned false or threw
+     */
+    private int runInParallel(List<Callable<Boolean>> tasks) throws InterruptedException {
+        int threadCount = Math.max(1, Math.min(loadThreadCount, tasks.size()));
+        logger.info("Loading " + tasks.size() + " vocabulary directories in parallel using " + threadCount + " threads...");
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount, new LoaderThreadFactory());
+        int failedCount = 0;
+        try {
+            List<Future<Boolean>> results = executorService.invokeAll(tasks);
+            for (Future<Boolean> result : results) {
+                try {
+                    if (!result.get()) {
+                        failedCount++;
+                    }
+                } catch (ExecutionException e) {
+                    failedCount++;
+                    logger.error("Vocabulary loader failed.", e.getCause());
+                }
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        return failedCount;
+    }
+
+    private boolean loadOnOwnConnection(File directory, DataSource target) {
+        long start = System.currentTimeMillis();
+        Connection connection = null;
+        try {
+            connection = target.getConnection();
+            connection.setAutoCommit(false);
+            load(directory, connection);
+            connection.commit();
+            logger.info("Finished loading " + directory.getName() + " in " + (System.currentTimeMillis() - start) + " ms");
+            return true;
+        } catch (Exception e) {
+            logger.error("Failed to load vocabulary directory: " + directory.getAbsolutePath(), e);
+            return false;
+        } finally {
+            closeQuietly(connection);
+        }
+    }
+
+    /**
+     * Loads the partitions configuredValidator needs if the current lazy load deferred them. The store is
+     * the one pinned to the calling thread, so a validation that started before a reload fills in the store
+     * it reads from. Concurrent callers that need the same partition wait for a single load.
+     *
+     * @return the names of the needed partitions that failed to load, empty if every one is loaded. A failed
+     * partition is loaded again by the next call that needs it.
+     */
+    public List<String> ensureLoaded(ConfiguredValidator configuredValidator) {
+        List<String> failedPartitions = new ArrayList<>();
+        if (!lazyLoad) {
+            return failedPartitions;
+        }
+        VocabularyLoadState loadState = dataSource instanceof VocabularyDataSource
+                ? ((VocabularyDataSource) dataSource).getStoreForCurrentThread().getLoadState() : standaloneLoadState;
+        if (!loadState.hasDeferredPartitions()) {
+            return failedPartitions;
+        }
+        List<String> partitionNames = new ArrayList<>();
+        String codeSystemNames = configuredValidator.getAllowedCodesystemNames();
+        if (codeSystemNames != null) {
+            for (String codeSystemName : codeSystemNames.split(",")) {
+                if (!codeSystemName.trim().isEmpty()) {
+                    partitionNames.add(VocabularyPartition.codeSystemPartitionName(codeSystemName.trim()));
+                }
+            }
+        }
+        String valuesetOids = configuredValidator.getAllowedValuesetOids();
+        if (valuesetOids != null && !valuesetOids.trim().isEmpty()) {
+            partitionNames.add(VocabularyPartition.VALUESETS_PARTITION_NAME);
+        }
+        for (String partitionName : partitionNames) {
+            if (!loadState.ensureLoaded(partitionName, deferredPartitionLoader)) {
+                failedPartitions.add(partitionName);
+            }
+        }
+        return failedPartitions;
+    }
+
+    private boolean loadDeferredPartition(VocabularyPartition partition, DataSource target, VocabularyLoadState loadState) {
+        // once needed, a partition is loaded up front by later reloads
+        demandedPartitions.add(partition.getName().toUpperCase());
+        logger.info("Loading deferred vocabulary partition " + partition.getName() + " on first use...");
+        // an earlier attempt that failed while normalizing may have left some of its rows behind
+        if (!deleteRows(partition, target)) {
+            return false;
+        }
+        for (File directory : partition.getDirectories()) {
+            if (!loadOnOwnConnection(directory, target)) {
+                // leave nothing of the failed load to be normalized, the next attempt starts over
+                deleteRows(partition, target);
+                return false;
+            }
+        }
+        boolean loaded = normalize(target, partition);
+        collectStatistics(target, loadState, partition);
+        return loaded;
+    }
+
+    private boolean deleteRows(VocabularyPartition partition, DataSource target) {
+        Connection connection = null;
+        try {
+            connection = target.getConnection();
+            connection.setAutoCommit(false);
+            partition.deleteRows(connection);
+            connection.commit();
+            return true;
+        } catch (SQLException e) {
+            logger.error("Failed to delete the rows of vocabulary partition " + partition.getName(), e);
+            return false;
+        } finally {
+            closeQuietly(connection);
+        }
+    }
+
+    private boolean isLazy() {
+        return lazyLoad && vocabularyReferences != null && vocabularyReferences.getConfigurationCount() > 0;
+    }
+
+    /**
+     * @return the code system directories to load now; with a lazy load the others are deferred in loadState
+     */
+    private List<File> selectCodeSystemDirectories(VocabularyLoadState loadState) throws IOException {
+        List<File> directories = new ArrayList<>();
+        if (!isConfigured(codeDirectory)) {
+            return directories;
+        }
+        for (File directory : listLoadableDirectories(codeDirectory)) {
+            VocabularyPartition partition = VocabularyPartition.forCodeSystem(directory);
+            if (!isLazy() || vocabularyReferences.getCodeSystemNames().contains(directory.getName().toUpperCase())
+                    || demandedPartitions.contains(partition.getName().toUpperCase())) {
+                directories.add(directory);
+            } else {
+                deferPartition(partition, loadState);
+            }
+        }
+        return directories;
+    }
+
+    /**
+     * @return every value set directory, or none if a lazy load deferred them; value sets are one partition
+     */
+    private List<File> selectValueSetDirectories(VocabularyLoadState loadState) throws IOException {
+        if (!isConfigured(valueSetDirectory)) {
+            return new ArrayList<>();
+        }
+        List<File> directories = listLoadableDirectories(valueSetDirectory);
+        if (isLazy() && !directories.isEmpty() && vocabularyReferences.getValuesetOids().isEmpty()
+                && !demandedPartitions.contains(VocabularyPartition.VALUESETS_PARTITION_NAME)) {
+            deferPartition(VocabularyPartition.forValueSets(directories), loadState);
+            return new ArrayList<>();
+        }
+        return directories;
+    }
+
+    private static void deferPartition(VocabularyPartition partition, VocabularyLoadState loadState) {
+        logger.info("Deferring vocabulary partition " + partition.getName() + " until a validator names it");
+        loadState.defer(partition);
+    }
+
+    /**
+     * A cheap signature of the configured source files (path, size and modification time of every file),
+     * used to notice that a new release has been dropped into the vocabulary directories.
+     */
+    public String getSourceSignature() throws IOException {
+        StringBuilder signature = new StringBuilder();
+        for (String root : Arrays.asList(codeDirectory, valueSetDirectory)) {
+            if (isConfigured(root)) {
+                List<File> directories = listLoadableDirectories(root);
+                Collections.sort(directories);
+                for (File directory : directories) {
+                    File[] files = directory.listFiles();
+                    if (files != null) {
+                        Arrays.sort(files);
+                        for (File file : files) {
+                            signature.append(file.getAbsolutePath()).append('|').append(file.length()).append('|')
+                                    .append(file.lastModified()).append('\n');
+                        }
+                    }
                 }
-            } catch (SQLException e) {
-                e.printStackTrace();
             }
         }
+        return signature.toString();
+    }
+
+    private static List<File> listLoadableDirectories(String directory) throws IOException {
+        File dir = new File(directory);
+        if (dir.isFile()) {
+            throw new IOException("Directory to Load is a file and not a directory");
+        }
+        List<File> directories = new ArrayList<>();
+        File[] list = dir.listFiles();
+        if (list != null) {
+            for (File file : list) {
+                if (file.isDirectory() && !file.isHidden()) {
+                    directories.add(file);
+                }
+            }
+        }
+        return directories;
+    }
+
+    private static boolean isConfigured(String directory) {
+        return directory != null && !directory.trim().equals("");
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            if (connection != null && !connection.isClosed()) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to close vocabulary load connection.", e);
+        }
     }
 
     @Override
     public void destroy() throws Exception {
         logger.info("Destroying Loader Bean. Loading is done.");
     }
+
+    private static class LoaderThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "vocabulary-loader-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
 }
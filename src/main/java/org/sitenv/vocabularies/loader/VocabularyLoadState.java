@@ -0,0 +1,120 @@
+package org.sitenv.vocabularies.loader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * The partitions of one vocabulary store that were deferred by a lazy load (see
+ * {@link VocabularyLoadRunner#setLazyLoad(boolean)}) and have not been loaded yet. A deferred partition is
+ * loaded by one thread at a time: the first thread that needs it runs the load, concurrent threads wait for
+ * that same load instead of starting their own. Once loaded it is not loaded again; a load that fails leaves
+ * the partition deferred for the next thread that needs it.
+ *
+ * Partitions are keyed by their upper cased {@link VocabularyPartition#getName()}.
+ *
+ * It also keeps the {@link VocabularyStatistics} of what has been loaded so far.
+ */
+public class VocabularyLoadState {
+    private static Logger logger = LoggerFactory.getLogger(VocabularyLoadState.class);
+
+    private volatile DataSource target;
+    private final ConcurrentMap<String, VocabularyPartition> deferredPartitions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, FutureTask<Boolean>> partitionLoads = new ConcurrentHashMap<>();
+    private volatile VocabularyStatistics statistics;
+
+    interface PartitionLoader {
+        boolean load(VocabularyPartition partition, DataSource target, VocabularyLoadState loadState) throws Exception;
+    }
+
+    /**
+     * Forgets everything deferred by a previous load; deferred partitions will be loaded into target.
+     */
+    void reset(DataSource target) {
+        this.target = target;
+        deferredPartitions.clear();
+        partitionLoads.clear();
+        statistics = null;
+    }
+
+    void defer(VocabularyPartition partition) {
+        deferredPartitions.put(partition.getName().toUpperCase(), partition);
+    }
+
+    public boolean hasDeferredPartitions() {
+        return !deferredPartitions.isEmpty();
+    }
+
+    public boolean isDeferred(String partitionName) {
+        return deferredPartitions.containsKey(partitionName.toUpperCase());
+    }
+
+    /**
+     * @return the statistics of the last load and the deferred partitions loaded since, or null if the load
+     * has not finished or they could not be collected
+     */
+    public VocabularyStatistics getStatistics() {
+        return statistics;
+    }
+
+    void setStatistics(VocabularyStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Loads the named partition if it is still deferred, or waits for the thread already loading it.
+     *
+     * @return false if the load this call ran or waited for failed. A failed partition stays deferred, so
+     * the next call tries to load it again.
+     */
+    boolean ensureLoaded(String partitionName, final PartitionLoader loader) {
+        final String key = partitionName.toUpperCase();
+        final VocabularyPartition partition = deferredPartitions.get(key);
+        if (partition == null) {
+            return true;
+        }
+        final DataSource loadTarget = target;
+        FutureTask<Boolean> load = new FutureTask<>(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return loader.load(partition, loadTarget, VocabularyLoadState.this);
+            }
+        });
+        FutureTask<Boolean> runningLoad = partitionLoads.putIfAbsent(key, load);
+        if (runningLoad == null) {
+            runningLoad = load;
+            load.run();
+        }
+        boolean loaded = false;
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    loaded = runningLoad.get();
+                    return loaded;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            logger.error("Failed to load deferred vocabulary partition " + partition.getName(), e.getCause());
+            return false;
+        } finally {
+            if (loaded) {
+                deferredPartitions.remove(key, partition);
+            } else {
+                // the callers waiting for this load all see it fail, the next caller starts a new one
+                partitionLoads.remove(key, runningLoad);
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
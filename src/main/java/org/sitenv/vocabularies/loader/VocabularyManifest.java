@@ -0,0 +1,264 @@
+package org.sitenv.vocabularies.loader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Records which input files produced each loaded partition (size, last modified time and SHA-256 of every
+ * file, plus the partition's row count) so a later load can tell whether a partition's inputs changed.
+ * The manifest is a tab separated text file:
+ * <pre>
+ * P  partition  rowCount
+ * F  partition  path  size  lastModified  sha256
+ * </pre>
+ */
+public class VocabularyManifest {
+    private static Logger logger = LoggerFactory.getLogger(VocabularyManifest.class);
+    private static final String HEADER = "# vocabulary load manifest v1";
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+    private static final String SETTING_PATH_PREFIX = "setting:";
+
+    private final Map<String, Partition> partitions = new TreeMap<>();
+
+    /**
+     * Reads a manifest. A missing or unreadable manifest is treated as empty, which simply makes every
+     * partition load from its source files again.
+     */
+    public static VocabularyManifest read(File file) {
+        VocabularyManifest manifest = new VocabularyManifest();
+        if (!file.isFile()) {
+            return manifest;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(reader.readLine())) {
+                logger.warn("Ignoring vocabulary manifest with an unknown format: " + file.getAbsolutePath());
+                return manifest;
+            }
+            Map<String, Long> rowCounts = new TreeMap<>();
+            Map<String, List<FileEntry>> files = new TreeMap<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+                if (fields.length == 3 && fields[0].equals("P")) {
+                    rowCounts.put(fields[1], Long.parseLong(fields[2]));
+                } else if (fields.length == 6 && fields[0].equals("F")) {
+                    List<FileEntry> entries = files.get(fields[1]);
+                    if (entries == null) {
+                        entries = new ArrayList<>();
+                        files.put(fields[1], entries);
+                    }
+                    entries.add(new FileEntry(fields[2], Long.parseLong(fields[3]), Long.parseLong(fields[4]), fields[5]));
+                }
+            }
+            for (Map.Entry<String, Long> rowCount : rowCounts.entrySet()) {
+                List<FileEntry> entries = files.get(rowCount.getKey());
+                manifest.put(new Partition(rowCount.getKey(), rowCount.getValue(),
+                        entries != null ? entries : Collections.<FileEntry>emptyList()));
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring unreadable vocabulary manifest: " + file.getAbsolutePath() + " " + e.getMessage());
+            return new VocabularyManifest();
+        }
+        return manifest;
+    }
+
+    /**
+     * Writes the manifest through a temporary file so a crash never leaves a half written manifest behind.
+     */
+    public synchronized void write(File file) throws IOException {
+        File temporaryFile = new File(file.getPath() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporaryFile.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for (Partition partition : partitions.values()) {
+                writer.write("P\t" + partition.getName() + "\t" + partition.getRowCount());
+                writer.newLine();
+                for (FileEntry entry : partition.getFiles()) {
+                    writer.write("F\t" + partition.getName() + "\t" + entry.getPath() + "\t" + entry.getSize() + "\t"
+                            + entry.getLastModified() + "\t" + entry.getSha256());
+                    writer.newLine();
+                }
+            }
+        }
+        Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public synchronized Partition get(String name) {
+        return partitions.get(name);
+    }
+
+    public synchronized void put(Partition partition) {
+        partitions.put(partition.getName(), partition);
+    }
+
+    public synchronized void remove(String name) {
+        partitions.remove(name);
+    }
+
+    /**
+     * Fingerprints files. The content hash of a file whose size and modification time match the previous
+     * manifest entry is reused, so unchanged multi-gigabyte releases are not read again on every start.
+     */
+    public static List<FileEntry> fingerprint(List<File> files, Partition previous) throws IOException {
+        List<FileEntry> entries = new ArrayList<>();
+        for (File file : files) {
+            String path = file.getAbsolutePath();
+            long size = file.length();
+            long lastModified = file.lastModified();
+            FileEntry previousEntry = previous != null ? previous.getFile(path) : null;
+            if (previousEntry != null && previousEntry.getSize() == size && previousEntry.getLastModified() == lastModified) {
+                entries.add(previousEntry);
+            } else {
+                entries.add(new FileEntry(path, size, lastModified, sha256(file)));
+            }
+        }
+        Collections.sort(entries, new Comparator<FileEntry>() {
+            @Override
+            public int compare(FileEntry first, FileEntry second) {
+                return first.getPath().compareTo(second.getPath());
+            }
+        });
+        return entries;
+    }
+
+    /**
+     * An entry that stands for a setting the loaded rows depend on rather than for a file, so that changing
+     * the setting makes the partition differ from its snapshot.
+     */
+    public static FileEntry settingEntry(String name, Collection<String> values) {
+        List<String> sortedValues = new ArrayList<>(values);
+        Collections.sort(sortedValues);
+        MessageDigest digest = newDigest();
+        for (String value : sortedValues) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        return new FileEntry(SETTING_PATH_PREFIX + name, sortedValues.size(), 0, toHex(digest.digest()));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String sha256(File file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        try (InputStream inputStream = new FileInputStream(file)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    public static class Partition {
+        private final String name;
+        private final long rowCount;
+        private final List<FileEntry> files;
+
+        public Partition(String name, long rowCount, List<FileEntry> files) {
+            this.name = name;
+            this.rowCount = rowCount;
+            this.files = Collections.unmodifiableList(new ArrayList<>(files));
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getRowCount() {
+            return rowCount;
+        }
+
+        public List<FileEntry> getFiles() {
+            return files;
+        }
+
+        public FileEntry getFile(String path) {
+            for (FileEntry entry : files) {
+                if (entry.getPath().equals(path)) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return true if currentFiles is the same set of files with the same content
+         */
+        public boolean hasSameContent(List<FileEntry> currentFiles) {
+            if (currentFiles.size() != files.size()) {
+                return false;
+            }
+            for (FileEntry current : currentFiles) {
+                FileEntry entry = getFile(current.getPath());
+                if (entry == null || entry.getSize() != current.getSize() || !entry.getSha256().equals(current.getSha256())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    public static class FileEntry {
+        private final String path;
+        private final long size;
+        private final long lastModified;
+        private final String sha256;
+
+        public FileEntry(String path, long size, long lastModified, String sha256) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.sha256 = sha256;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.sitenv.vocabularies.loader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Moves the flat rows the loaders wrote to CODES_STAGING and VALUESETS_STAGING into the normalized tables:
+ * code systems, value set headers and display names become rows of their own dimension tables, referenced
+ * by integer keys from the narrow CODES and VALUESETMEMBERS fact tables. Every step is one set based
+ * statement; dimension rows that already exist are reused, so staged rows can be normalized in several
+ * rounds (as lazily loaded partitions are). Distinct values are collected before they are looked up, so each
+ * dimension lookup runs once per value rather than once per staged row.
+ *
+ * Display names are matched by their {@link DisplayNameHash} first and compared only when the hash is
+ * equal. Nothing but this class inserts them, and normalizations are serialized, so two of them cannot
+ * insert the same new display name at the same time.
+ */
+public final class VocabularyNormalizer {
+    private static Logger logger = LoggerFactory.getLogger(VocabularyNormalizer.class);
+    private static final Object NORMALIZATION_LOCK = new Object();
+
+    private static final String CODE_SYSTEM_FILTER = " AND s.CODESYSTEM = ?";
+    private static final String DISPLAY_NAME_MATCHES = "d.DISPLAYNAME_HASH = s.DISPLAYNAME_HASH AND d.DISPLAYNAME = s.DISPLAYNAME";
+    private static final String INSERT_CODE_SYSTEMS_SQL = "INSERT INTO CODESYSTEMS (NAME, OID) SELECT s.CODESYSTEM, s.CODESYSTEMOID"
+            + " FROM (SELECT DISTINCT s.CODESYSTEM, s.CODESYSTEMOID FROM CODES_STAGING s WHERE 1 = 1%s) s"
+            + " WHERE NOT EXISTS (SELECT 1 FROM CODESYSTEMS c WHERE c.NAME = s.CODESYSTEM AND c.OID = s.CODESYSTEMOID)";
+    private static final String INSERT_CODE_DISPLAY_NAMES_SQL = "INSERT INTO DISPLAYNAMES (DISPLAYNAME_HASH, DISPLAYNAME)"
+            + " SELECT s.DISPLAYNAME_HASH, s.DISPLAYNAME"
+            + " FROM (SELECT DISTINCT s.DISPLAYNAME_HASH, s.DISPLAYNAME FROM CODES_STAGING s WHERE 1 = 1%s) s"
+            + " WHERE NOT EXISTS (SELECT 1 FROM DISPLAYNAMES d WHERE " + DISPLAY_NAME_MATCHES + ")";
+    private static final String INSERT_CODES_SQL = "INSERT INTO CODES (CODE, DISPLAYNAME_ID, CODESYSTEM_ID, ACTIVE) SELECT s.CODE, d.ID, c.ID, s.ACTIVE"
+            + " FROM CODES_STAGING s JOIN DISPLAYNAMES d ON " + DISPLAY_NAME_MATCHES
+            + " JOIN CODESYSTEMS c ON c.NAME = s.CODESYSTEM AND c.OID = s.CODESYSTEMOID WHERE 1 = 1%s";
+    private static final String DELETE_STAGED_CODES_SQL = "DELETE FROM CODES_STAGING s WHERE 1 = 1%s";
+
+    private static final String INSERT_VALUESET_HEADERS_SQL = "INSERT INTO VALUESETHEADERS (OID, NAME, TYPE, DEFINITIONVERSION, STEWARD)"
+            + " SELECT s.VALUESETOID, s.VALUESETNAME, s.VALUESETTYPE, s.VALUESETDEFINITIONVERSION, s.VALUESETSTEWARD FROM (SELECT DISTINCT"
+            + " COALESCE(s.VALUESETOID, '') VALUESETOID, COALESCE(s.VALUESETNAME, '') VALUESETNAME, COALESCE(s.VALUESETTYPE, '') VALUESETTYPE,"
+            + " COALESCE(s.VALUESETDEFINITIONVERSION, '') VALUESETDEFINITIONVERSION, COALESCE(s.VALUESETSTEWARD, '') VALUESETSTEWARD"
+            + " FROM VALUESETS_STAGING s) s WHERE NOT EXISTS (SELECT 1 FROM VALUESETHEADERS h WHERE " + headerMatches() + ")";
+    private static final String INSERT_VALUESET_CODE_SYSTEMS_SQL = "INSERT INTO VALUESETCODESYSTEMS (OID, NAME, VERSION)"
+            + " SELECT s.CODESYSTEM, s.CODESYSTEMNAME, s.CODESYSTEMVERSION"
+            + " FROM (SELECT DISTINCT s.CODESYSTEM, s.CODESYSTEMNAME, s.CODESYSTEMVERSION FROM VALUESETS_STAGING s) s"
+            + " WHERE NOT EXISTS (SELECT 1 FROM VALUESETCODESYSTEMS c WHERE " + valueSetCodeSystemMatches() + ")";
+    private static final String INSERT_VALUESET_DISPLAY_NAMES_SQL = "INSERT INTO DISPLAYNAMES (DISPLAYNAME_HASH, DISPLAYNAME)"
+            + " SELECT s.DISPLAYNAME_HASH, s.DISPLAYNAME"
+            + " FROM (SELECT DISTINCT s.DISPLAYNAME_HASH, s.DISPLAYNAME FROM VALUESETS_STAGING s) s"
+            + " WHERE NOT EXISTS (SELECT 1 FROM DISPLAYNAMES d WHERE " + DISPLAY_NAME_MATCHES + ")";
+    private static final String INSERT_VALUESET_MEMBERS_SQL = "INSERT INTO VALUESETMEMBERS (VALUESET_ID, CODE, DISPLAYNAME_ID, CODESYSTEM_ID, TTY)"
+            + " SELECT h.ID, s.CODE, d.ID, c.ID, s.TTY FROM VALUESETS_STAGING s"
+            + " JOIN VALUESETHEADERS h ON " + headerMatches()
+            + " JOIN VALUESETCODESYSTEMS c ON " + valueSetCodeSystemMatches()
+            + " JOIN DISPLAYNAMES d ON " + DISPLAY_NAME_MATCHES;
+    private static final String DELETE_STAGED_VALUESETS_SQL = "DELETE FROM VALUESETS_STAGING";
+
+    private VocabularyNormalizer() {
+    }
+
+    /**
+     * Normalizes every staged code row, or only those of codeSystem if it is not null, and commits.
+     *
+     * @return the number of CODES rows inserted
+     */
+    public static int normalizeCodes(Connection connection, String codeSystem) throws SQLException {
+        synchronized (NORMALIZATION_LOCK) {
+            long start = System.currentTimeMillis();
+            String filter = codeSystem != null ? CODE_SYSTEM_FILTER : "";
+            execute(connection, String.format(INSERT_CODE_SYSTEMS_SQL, filter), codeSystem);
+            execute(connection, String.format(INSERT_CODE_DISPLAY_NAMES_SQL, filter), codeSystem);
+            int rowCount = execute(connection, String.format(INSERT_CODES_SQL, filter), codeSystem);
+            execute(connection, String.format(DELETE_STAGED_CODES_SQL, filter), codeSystem);
+            connection.commit();
+            logger.info("Normalized " + rowCount + " code rows" + (codeSystem != null ? " of " + codeSystem : "") + " in "
+                    + (System.currentTimeMillis() - start) + " ms");
+            return rowCount;
+        }
+    }
+
+    /**
+     * Normalizes every staged value set row and commits.
+     *
+     * @return the number of VALUESETMEMBERS rows inserted
+     */
+    public static int normalizeValueSets(Connection connection) throws SQLException {
+        synchronized (NORMALIZATION_LOCK) {
+            long start = System.currentTimeMillis();
+            execute(connection, INSERT_VALUESET_HEADERS_SQL, null);
+            execute(connection, INSERT_VALUESET_CODE_SYSTEMS_SQL, null);
+            execute(connection, INSERT_VALUESET_DISPLAY_NAMES_SQL, null);
+            int rowCount = execute(connection, INSERT_VALUESET_MEMBERS_SQL, null);
+            execute(connection, DELETE_STAGED_VALUESETS_SQL, null);
+            connection.commit();
+            logger.info("Normalized " + rowCount + " value set rows in " + (System.currentTimeMillis() - start) + " ms");
+            return rowCount;
+        }
+    }
+
+    private static int execute(Connection connection, String sql, String codeSystem) throws SQLException {
+        if (codeSystem == null) {
+            try (Statement statement = connection.createStatement()) {
+                return statement.executeUpdate(sql);
+            }
+        }
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setString(1, codeSystem);
+            return preparedStatement.executeUpdate();
+        }
+    }
+
+    private static String headerMatches() {
+        return "h.OID = COALESCE(s.VALUESETOID, '') AND h.NAME = COALESCE(s.VALUESETNAME, '') AND h.TYPE = COALESCE(s.VALUESETTYPE, '')"
+                + " AND h.DEFINITIONVERSION = COALESCE(s.VALUESETDEFINITIONVERSION, '') AND h.STEWARD = COALESCE(s.VALUESETSTEWARD, '')";
+    }
+
+    private static String valueSetCodeSystemMatches() {
+        return "c.OID = s.CODESYSTEM AND c.NAME = s.CODESYSTEMNAME AND c.VERSION = s.CODESYSTEMVERSION";
+    }
+}
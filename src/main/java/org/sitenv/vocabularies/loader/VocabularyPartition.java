@@ -0,0 +1,237 @@
+package org.sitenv.vocabularies.loader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The unit of incremental reloading: the rows one set of source directories put into the store.
+ * A code system directory owns the CODES rows whose code system is named like the directory (every code
+ * loader uses its directory name as the code system). Value set rows do not record where they came from, so
+ * all value set directories together form a single partition.
+ *
+ * A partition's rows live in the staging tables until {@link VocabularyNormalizer} moves them into the
+ * normalized tables, so snapshots are exported from the staging tables right after the partition was loaded.
+ *
+ * Partitions can be deleted, exported to a gzip snapshot and restored from one without running a loader.
+ */
+public class VocabularyPartition {
+    private static final int SNAPSHOT_MAGIC = 0x56534E50;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_BUFFER_SIZE = 64 * 1024;
+    public static final String VALUESETS_PARTITION_NAME = "VALUESETS";
+    private static final String CODES_PARTITION_PREFIX = "CODES:";
+
+    private final String name;
+    private final String codeSystem;
+    private final List<File> directories;
+
+    private VocabularyPartition(String name, String codeSystem, List<File> directories) {
+        this.name = name;
+        this.codeSystem = codeSystem;
+        this.directories = Collections.unmodifiableList(new ArrayList<>(directories));
+    }
+
+    public static VocabularyPartition forCodeSystem(File directory) {
+        return new VocabularyPartition(codeSystemPartitionName(directory.getName()), directory.getName(),
+                Collections.singletonList(directory));
+    }
+
+    public static String codeSystemPartitionName(String codeSystem) {
+        return CODES_PARTITION_PREFIX + codeSystem;
+    }
+
+    public static VocabularyPartition forValueSets(List<File> directories) {
+        return new VocabularyPartition(VALUESETS_PARTITION_NAME, null, directories);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<File> getDirectories() {
+        return directories;
+    }
+
+    /**
+     * @return the CODESYSTEM of the rows of a code system partition, null for the value set partition
+     */
+    public String getCodeSystem() {
+        return codeSystem;
+    }
+
+    public boolean isValueSets() {
+        return codeSystem == null;
+    }
+
+    /**
+     * @return the regular, non hidden files the loaders of this partition are handed
+     */
+    public List<File> listFiles() {
+        List<File> files = new ArrayList<>();
+        for (File directory : directories) {
+            File[] list = directory.listFiles();
+            if (list != null) {
+                Arrays.sort(list);
+                for (File file : list) {
+                    if (file.isFile() && !file.isHidden()) {
+                        files.add(file);
+                    }
+                }
+            }
+        }
+        return files;
+    }
+
+    public File getSnapshotFile(File snapshotDirectory) {
+        return new File(snapshotDirectory, name.replaceAll("[^A-Za-z0-9_.-]", "_") + ".snapshot.gz");
+    }
+
+    /**
+     * Deletes the rows of this partition from the staging and the normalized tables. Shared rows of the
+     * dimension tables (display names, code systems, value set headers) are left in place.
+     */
+    public int deleteRows(Connection connection) throws SQLException {
+        String[] statements = isValueSets()
+                ? new String[] {"delete from VALUESETMEMBERS", "delete from VALUESETS_STAGING"}
+                : new String[] {"delete from CODES where CODESYSTEM_ID in (select ID from CODESYSTEMS where NAME = ?)",
+                        "delete from CODES_STAGING where CODESYSTEM = ?"};
+        int rowCount = 0;
+        for (String sql : statements) {
+            try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                if (!isValueSets()) {
+                    preparedStatement.setString(1, codeSystem);
+                }
+                rowCount += preparedStatement.executeUpdate();
+            }
+        }
+        return rowCount;
+    }
+
+    /**
+     * Writes every staged row of this partition to snapshotFile (through a temporary file).
+     *
+     * @return the number of rows written
+     */
+    public long exportTo(Connection connection, File snapshotFile) throws SQLException, IOException {
+        String sql = isValueSets()
+                ? "select CODE, DISPLAYNAME, CODESYSTEMNAME, CODESYSTEMVERSION, CODESYSTEM, TTY, VALUESETNAME, VALUESETOID, VALUESETTYPE, VALUESETDEFINITIONVERSION, VALUESETSTEWARD from VALUESETS_STAGING"
+                : "select CODE, DISPLAYNAME, CODESYSTEM, CODESYSTEMOID, ACTIVE from CODES_STAGING where CODESYSTEM = ?";
+        File temporaryFile = new File(snapshotFile.getPath() + ".tmp");
+        long rowCount = 0;
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql);
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                     new GZIPOutputStream(new FileOutputStream(temporaryFile), SNAPSHOT_BUFFER_SIZE), SNAPSHOT_BUFFER_SIZE))) {
+            if (!isValueSets()) {
+                preparedStatement.setString(1, codeSystem);
+            }
+            preparedStatement.setFetchSize(1000);
+            output.writeInt(SNAPSHOT_MAGIC);
+            output.writeInt(SNAPSHOT_VERSION);
+            writeString(output, name);
+            int columnCount = isValueSets() ? 11 : 5;
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    output.writeBoolean(true);
+                    if (isValueSets()) {
+                        for (int column = 1; column <= columnCount; column++) {
+                            writeString(output, resultSet.getString(column));
+                        }
+                    } else {
+                        for (int column = 1; column <= 4; column++) {
+                            writeString(output, resultSet.getString(column));
+                        }
+                        output.writeBoolean(resultSet.getBoolean(5));
+                    }
+                    rowCount++;
+                }
+            }
+            output.writeBoolean(false);
+            output.writeLong(rowCount);
+        }
+        Files.move(temporaryFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return rowCount;
+    }
+
+    /**
+     * Inserts the rows of snapshotFile. The caller is expected to have deleted the partition first.
+     *
+     * @return the number of rows restored
+     * @throws IOException if the snapshot is truncated, corrupt or belongs to another partition
+     */
+    public long restoreFrom(Connection connection, File snapshotFile, int batchSize) throws SQLException, IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(snapshotFile), SNAPSHOT_BUFFER_SIZE), SNAPSHOT_BUFFER_SIZE))) {
+            if (input.readInt() != SNAPSHOT_MAGIC || input.readInt() != SNAPSHOT_VERSION || !name.equals(readString(input))) {
+                throw new IOException("Snapshot " + snapshotFile.getName() + " does not belong to partition " + name);
+            }
+            long rowCount = isValueSets() ? restoreValueSets(input, connection, batchSize) : restoreCodes(input, connection, batchSize);
+            if (input.readLong() != rowCount) {
+                throw new IOException("Snapshot " + snapshotFile.getName() + " is incomplete");
+            }
+            return rowCount;
+        } catch (EOFException e) {
+            throw new IOException("Snapshot " + snapshotFile.getName() + " is truncated", e);
+        }
+    }
+
+    private static long restoreCodes(DataInputStream input, Connection connection, int batchSize) throws SQLException, IOException {
+        try (CodeSink codeSink = new CodeSink(connection, batchSize)) {
+            while (input.readBoolean()) {
+                codeSink.add(readString(input), readString(input), readString(input), readString(input), input.readBoolean());
+            }
+            return codeSink.getRowCount();
+        }
+    }
+
+    private static long restoreValueSets(DataInputStream input, Connection connection, int batchSize) throws SQLException, IOException {
+        try (ValueSetSink valueSetSink = new ValueSetSink(connection, batchSize)) {
+            while (input.readBoolean()) {
+                valueSetSink.add(new ValueSetRow(readString(input), readString(input), readString(input), readString(input),
+                        readString(input), readString(input), readString(input), readString(input), readString(input),
+                        readString(input), readString(input)));
+            }
+            return valueSetSink.getRowCount();
+        }
+    }
+
+    // DataOutputStream.writeUTF is limited to 64K bytes, display names are not
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,66 @@
+package org.sitenv.vocabularies.loader;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+
+/**
+ * The pool of read only connections to one {@link VocabularyStore}, used by the validation lookups. Every
+ * connection is in autocommit mode and keeps the statements prepared on it, so the same lookup prepared by
+ * the next validation is taken from the pool instead of being compiled again.
+ *
+ * Besides the active and idle connections of {@link BasicDataSource}, the pool reports how long borrowers
+ * waited for a connection, which shows whether it is smaller than the number of concurrent validations.
+ */
+public class VocabularyReadPool extends BasicDataSource {
+    private final int generation;
+
+    VocabularyReadPool(int generation, String url, int maxTotal, long maxWaitMillis) {
+        this.generation = generation;
+        setDriverClassName("org.hsqldb.jdbc.JDBCDriver");
+        // ifexists keeps a pool that outlives its store from creating an empty database of the same name
+        setUrl(url + ";ifexists=true");
+        setUsername("sa");
+        setPassword("");
+        setDefaultReadOnly(true);
+        setDefaultAutoCommit(true);
+        setPoolPreparedStatements(true);
+        setMaxTotal(maxTotal);
+        setMaxIdle(maxTotal);
+        setMaxWaitMillis(maxWaitMillis);
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return the number of threads waiting for a connection right now
+     */
+    public int getNumWaiters() {
+        GenericObjectPool<?> connectionPool = getConnectionPool();
+        return connectionPool != null ? connectionPool.getNumWaiters() : 0;
+    }
+
+    /**
+     * @return the mean time the last borrowers waited for a connection, in milliseconds
+     */
+    public long getMeanBorrowWaitTimeMillis() {
+        GenericObjectPool<?> connectionPool = getConnectionPool();
+        return connectionPool != null ? connectionPool.getMeanBorrowWaitTimeMillis() : 0;
+    }
+
+    /**
+     * @return the longest time any borrower waited for a connection, in milliseconds
+     */
+    public long getMaxBorrowWaitTimeMillis() {
+        GenericObjectPool<?> connectionPool = getConnectionPool();
+        return connectionPool != null ? connectionPool.getMaxBorrowWaitTimeMillis() : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "vocabulary read pool of generation " + generation + ": " + getNumActive() + " active, " + getNumIdle()
+                + " idle, " + getNumWaiters() + " waiting, mean wait " + getMeanBorrowWaitTimeMillis() + " ms, max wait "
+                + getMaxBorrowWaitTimeMillis() + " ms";
+    }
+}
@@ -0,0 +1,189 @@
+package org.sitenv.vocabularies.loader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reloads the vocabulary without a restart. A reload builds a new {@link VocabularyStore} in the background
+ * with the configured {@link VocabularyLoadRunner} while the current store keeps serving, then swaps it in
+ * through {@link VocabularyDataSource}. Validations already running finish against the store they pinned;
+ * the old store is shut down once they are done. After the swap the JPA second level cache is evicted and
+ * registered {@link Listener}s are told to drop anything they cached from the old store.
+ *
+ * Reloads are triggered explicitly with {@link #reload()} / {@link #reloadInBackground()}, or, when
+ * checkIntervalSeconds is positive, whenever the files in the vocabulary directories change.
+ */
+public class VocabularyReloader implements InitializingBean, DisposableBean {
+    private static Logger logger = LoggerFactory.getLogger(VocabularyReloader.class);
+
+    private VocabularyLoadRunner vocabularyLoadRunner;
+    private VocabularyDataSource vocabularyDataSource;
+    private EntityManagerFactory entityManagerFactory;
+    private long checkIntervalSeconds = 0;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean reloading = new AtomicBoolean(false);
+    private ScheduledExecutorService executorService;
+    private volatile String loadedSourceSignature;
+
+    /**
+     * Notified after a new store has been swapped in.
+     */
+    public interface Listener {
+        void vocabularyReloaded(VocabularyStore newStore);
+    }
+
+    public void setVocabularyLoadRunner(VocabularyLoadRunner vocabularyLoadRunner) {
+        this.vocabularyLoadRunner = vocabularyLoadRunner;
+    }
+
+    public void setVocabularyDataSource(VocabularyDataSource vocabularyDataSource) {
+        this.vocabularyDataSource = vocabularyDataSource;
+    }
+
+    public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    public long getCheckIntervalSeconds() {
+        return checkIntervalSeconds;
+    }
+
+    public void setCheckIntervalSeconds(long checkIntervalSeconds) {
+        this.checkIntervalSeconds = checkIntervalSeconds;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public boolean isReloading() {
+        return reloading.get();
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        executorService = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "vocabulary-reloader");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        loadedSourceSignature = readSourceSignature();
+        if (checkIntervalSeconds > 0) {
+            executorService.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    reloadIfSourcesChanged();
+                }
+            }, checkIntervalSeconds, checkIntervalSeconds, TimeUnit.SECONDS);
+            logger.info("Checking vocabulary directories for changes every " + checkIntervalSeconds + " seconds");
+        }
+    }
+
+    /**
+     * Starts a reload on the reloader thread.
+     *
+     * @return resolves to the result of {@link #reload()}
+     */
+    public Future<Boolean> reloadInBackground() {
+        return executorService.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return reload();
+            }
+        });
+    }
+
+    /**
+     * Loads the vocabulary into a new store and swaps it in. Returns false without swapping if a reload is
+     * already running or if any directory failed to load, in which case the current store stays in place.
+     */
+    public boolean reload() {
+        if (!reloading.compareAndSet(false, true)) {
+            logger.warn("Vocabulary reload requested while another reload is running, ignoring it");
+            return false;
+        }
+        try {
+            String sourceSignature = readSourceSignature();
+            int generation = vocabularyDataSource.getCurrentStore().getGeneration() + 1;
+            long start = System.currentTimeMillis();
+            logger.info("Reloading vocabulary into store generation " + generation + "...");
+            VocabularyStore newStore = VocabularyStore.create(generation);
+            boolean loaded;
+            try {
+                loaded = vocabularyLoadRunner.load(newStore);
+            } catch (RuntimeException e) {
+                logger.error("Vocabulary reload failed", e);
+                loaded = false;
+            }
+            if (!loaded) {
+                logger.error("Vocabulary reload failed, keeping store generation " + (generation - 1));
+                newStore.shutdown();
+                return false;
+            }
+
+            VocabularyStore previousStore = vocabularyDataSource.swap(newStore);
+            loadedSourceSignature = sourceSignature;
+            evictCaches(newStore);
+            logger.info("Swapped in vocabulary store generation " + generation + " after " + (System.currentTimeMillis() - start)
+                    + " ms, generation " + previousStore.getGeneration() + " shuts down when its "
+                    + previousStore.getLeaseCount() + " running validations finish");
+            return true;
+        } finally {
+            reloading.set(false);
+        }
+    }
+
+    private void reloadIfSourcesChanged() {
+        String sourceSignature = readSourceSignature();
+        if (sourceSignature != null && !sourceSignature.equals(loadedSourceSignature)) {
+            logger.info("Vocabulary source files changed, reloading");
+            reload();
+        }
+    }
+
+    private void evictCaches(VocabularyStore newStore) {
+        if (entityManagerFactory != null) {
+            entityManagerFactory.getCache().evictAll();
+        }
+        for (Listener listener : listeners) {
+            try {
+                listener.vocabularyReloaded(newStore);
+            } catch (RuntimeException e) {
+                logger.error("Vocabulary reload listener failed", e);
+            }
+        }
+    }
+
+    private String readSourceSignature() {
+        try {
+            return vocabularyLoadRunner.getSourceSignature();
+        } catch (IOException e) {
+            logger.error("Cannot read the vocabulary directories. " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+}
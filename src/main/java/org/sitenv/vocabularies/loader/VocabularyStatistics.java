@@ -0,0 +1,536 @@
+package org.sitenv.vocabularies.loader;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What one vocabulary store holds after a load: the rows, distinct codes and distinct display names of each
+ * code system and value set, the length of their display names, and the rows and estimated heap bytes of
+ * each normalized table and its indexes.
+ *
+ * The statistics are collected by {@link VocabularyLoadRunner} with a few aggregate queries once a load has
+ * normalized its rows and built its indexes, and again for each partition a lazy load defers, so reading
+ * them never queries the store. They are immutable; a deferred partition replaces the statistics of its
+ * store with a new instance.
+ *
+ * HSQLDB keeps memory tables as Java objects, so the estimated bytes add up the objects a row and an index
+ * node take on a 64 bit JVM with compressed references. They are meant for sizing the heap, not as an exact
+ * measurement; shared values such as small integers are counted as if every row had its own.
+ */
+public final class VocabularyStatistics {
+    // the row object with its column array, plus one reference per column
+    private static final long ROW_BYTES = 48;
+    private static final long REFERENCE_BYTES = 4;
+    // a String and the header of its char array; the characters take two bytes each
+    private static final long STRING_BYTES = 40;
+    private static final long CHARACTER_BYTES = 2;
+    private static final long INTEGER_BYTES = 16;
+    private static final long BIGINT_BYTES = 24;
+    // every index keeps one AVL node per row
+    private static final long INDEX_NODE_BYTES = 32;
+
+    private static final String CODE_SYSTEMS_SQL = "SELECT c.NAME, c.OID, COUNT(*), COUNT(DISTINCT x.CODE), COUNT(DISTINCT x.DISPLAYNAME_ID),"
+            + " AVG(CAST(CHAR_LENGTH(d.DISPLAYNAME) AS DOUBLE)), MAX(CHAR_LENGTH(d.DISPLAYNAME)), SUM(CHAR_LENGTH(x.CODE))"
+            + " FROM CODES x JOIN CODESYSTEMS c ON c.ID = x.CODESYSTEM_ID JOIN DISPLAYNAMES d ON d.ID = x.DISPLAYNAME_ID"
+            + " WHERE 1 = 1%s GROUP BY c.NAME, c.OID";
+    private static final String CODE_SYSTEM_FILTER = " AND c.NAME = ?";
+    private static final String VALUESETS_SQL = "SELECT h.OID, h.NAME, h.DEFINITIONVERSION, COUNT(*), COUNT(DISTINCT m.CODE),"
+            + " COUNT(DISTINCT m.DISPLAYNAME_ID), AVG(CAST(CHAR_LENGTH(d.DISPLAYNAME) AS DOUBLE)), MAX(CHAR_LENGTH(d.DISPLAYNAME)),"
+            + " SUM(CHAR_LENGTH(m.CODE) + CHAR_LENGTH(m.TTY))"
+            + " FROM VALUESETMEMBERS m JOIN VALUESETHEADERS h ON h.ID = m.VALUESET_ID JOIN DISPLAYNAMES d ON d.ID = m.DISPLAYNAME_ID"
+            + " GROUP BY h.OID, h.NAME, h.DEFINITIONVERSION";
+    private static final String INDEXES_SQL = "SELECT DISTINCT TABLE_NAME, INDEX_NAME FROM INFORMATION_SCHEMA.SYSTEM_INDEXINFO"
+            + " WHERE TABLE_SCHEM = 'PUBLIC'";
+
+    private static final Table CODES = new Table("CODES", 5, 3, 0, "CODE");
+    private static final Table VALUESETMEMBERS = new Table("VALUESETMEMBERS", 6, 4, 0, "CODE", "TTY");
+    // the dimension tables are small except DISPLAYNAMES, so their rows and characters are counted directly
+    private static final Table[] DIMENSION_TABLES = {
+            new Table("DISPLAYNAMES", 3, 1, 1, "DISPLAYNAME"),
+            new Table("CODESYSTEMS", 3, 1, 0, "NAME", "OID"),
+            new Table("VALUESETHEADERS", 6, 1, 0, "OID", "NAME", "TYPE", "DEFINITIONVERSION", "STEWARD"),
+            new Table("VALUESETCODESYSTEMS", 4, 1, 0, "NAME", "VERSION", "OID")};
+
+    private final List<CodeSystemStatistics> codeSystems;
+    private final List<ValueSetStatistics> valueSets;
+    private final List<TableStatistics> tables;
+    private final long collectMillis;
+
+    private VocabularyStatistics(List<CodeSystemStatistics> codeSystems, List<ValueSetStatistics> valueSets,
+                                 List<TableStatistics> tables, long collectMillis) {
+        this.codeSystems = Collections.unmodifiableList(codeSystems);
+        this.valueSets = Collections.unmodifiableList(valueSets);
+        this.tables = Collections.unmodifiableList(tables);
+        this.collectMillis = collectMillis;
+    }
+
+    /**
+     * Collects the statistics of every normalized row in the store connection belongs to.
+     */
+    public static VocabularyStatistics collect(Connection connection) throws SQLException {
+        long start = System.currentTimeMillis();
+        List<CodeSystemStatistics> codeSystems = collectCodeSystems(connection, null);
+        List<ValueSetStatistics> valueSets = collectValueSets(connection);
+        return new VocabularyStatistics(codeSystems, valueSets, collectTables(connection, codeSystems, valueSets),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Collects the statistics of partition, which has just been loaded, and takes those of the other
+     * partitions from previous. Without previous statistics everything is collected.
+     */
+    public static VocabularyStatistics collect(Connection connection, VocabularyPartition partition, VocabularyStatistics previous)
+            throws SQLException {
+        if (previous == null) {
+            return collect(connection);
+        }
+        long start = System.currentTimeMillis();
+        List<CodeSystemStatistics> codeSystems = new ArrayList<>();
+        List<ValueSetStatistics> valueSets;
+        if (partition.isValueSets()) {
+            codeSystems.addAll(previous.codeSystems);
+            valueSets = collectValueSets(connection);
+        } else {
+            for (CodeSystemStatistics codeSystem : previous.codeSystems) {
+                if (!codeSystem.getName().equals(partition.getCodeSystem())) {
+                    codeSystems.add(codeSystem);
+                }
+            }
+            codeSystems.addAll(collectCodeSystems(connection, partition.getCodeSystem()));
+            Collections.sort(codeSystems, CodeSystemStatistics.BY_NAME);
+            valueSets = new ArrayList<>(previous.valueSets);
+        }
+        return new VocabularyStatistics(codeSystems, valueSets, collectTables(connection, codeSystems, valueSets),
+                System.currentTimeMillis() - start);
+    }
+
+    private static List<CodeSystemStatistics> collectCodeSystems(Connection connection, String codeSystem) throws SQLException {
+        List<CodeSystemStatistics> codeSystems = new ArrayList<>();
+        String sql = String.format(CODE_SYSTEMS_SQL, codeSystem != null ? CODE_SYSTEM_FILTER : "");
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            if (codeSystem != null) {
+                preparedStatement.setString(1, codeSystem);
+            }
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    codeSystems.add(new CodeSystemStatistics(resultSet.getString(1), resultSet.getString(2), resultSet.getLong(3),
+                            resultSet.getLong(4), resultSet.getLong(5), resultSet.getDouble(6), resultSet.getInt(7), resultSet.getLong(8)));
+                }
+            }
+        }
+        Collections.sort(codeSystems, CodeSystemStatistics.BY_NAME);
+        return codeSystems;
+    }
+
+    private static List<ValueSetStatistics> collectValueSets(Connection connection) throws SQLException {
+        List<ValueSetStatistics> valueSets = new ArrayList<>();
+        try (PreparedStatement preparedStatement = connection.prepareStatement(VALUESETS_SQL);
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                valueSets.add(new ValueSetStatistics(resultSet.getString(1), resultSet.getString(2), resultSet.getString(3),
+                        resultSet.getLong(4), resultSet.getLong(5), resultSet.getLong(6), resultSet.getDouble(7), resultSet.getInt(8),
+                        resultSet.getLong(9)));
+            }
+        }
+        Collections.sort(valueSets, new Comparator<ValueSetStatistics>() {
+            @Override
+            public int compare(ValueSetStatistics first, ValueSetStatistics second) {
+                int comparison = first.getOid().compareTo(second.getOid());
+                return comparison != 0 ? comparison : first.getDefinitionVersion().compareTo(second.getDefinitionVersion());
+            }
+        });
+        return valueSets;
+    }
+
+    private static List<TableStatistics> collectTables(Connection connection, List<CodeSystemStatistics> codeSystems,
+                                                       List<ValueSetStatistics> valueSets) throws SQLException {
+        Map<String, long[]> rowsAndCharacters = new LinkedHashMap<>();
+        long[] codes = new long[2];
+        for (CodeSystemStatistics codeSystem : codeSystems) {
+            codes[0] += codeSystem.getRowCount();
+            codes[1] += codeSystem.getCodeCharacterCount();
+        }
+        rowsAndCharacters.put(CODES.name, codes);
+        long[] members = new long[2];
+        for (ValueSetStatistics valueSet : valueSets) {
+            members[0] += valueSet.getRowCount();
+            members[1] += valueSet.getCodeCharacterCount();
+        }
+        rowsAndCharacters.put(VALUESETMEMBERS.name, members);
+        for (Table table : DIMENSION_TABLES) {
+            rowsAndCharacters.put(table.name, countRowsAndCharacters(connection, table));
+        }
+
+        Map<String, List<String>> indexNames = new LinkedHashMap<>();
+        try (PreparedStatement preparedStatement = connection.prepareStatement(INDEXES_SQL);
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                List<String> names = indexNames.get(resultSet.getString(1));
+                if (names == null) {
+                    names = new ArrayList<>();
+                    indexNames.put(resultSet.getString(1), names);
+                }
+                names.add(resultSet.getString(2));
+            }
+        }
+
+        List<TableStatistics> tables = new ArrayList<>();
+        for (Table table : tableLayouts()) {
+            long[] counts = rowsAndCharacters.get(table.name);
+            List<IndexStatistics> indexes = new ArrayList<>();
+            List<String> names = indexNames.get(table.name);
+            if (names != null) {
+                Collections.sort(names);
+                for (String name : names) {
+                    indexes.add(new IndexStatistics(name, counts[0] * INDEX_NODE_BYTES));
+                }
+            }
+            tables.add(new TableStatistics(table.name, counts[0], table.estimateBytes(counts[0], counts[1]), indexes));
+        }
+        return tables;
+    }
+
+    private static long[] countRowsAndCharacters(Connection connection, Table table) throws SQLException {
+        StringBuilder characters = new StringBuilder();
+        for (String column : table.stringColumns) {
+            characters.append(characters.length() > 0 ? " + " : "").append("CHAR_LENGTH(").append(column).append(")");
+        }
+        String sql = "SELECT COUNT(*), COALESCE(SUM(" + characters + "), 0) FROM " + table.name;
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql);
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            resultSet.next();
+            return new long[] {resultSet.getLong(1), resultSet.getLong(2)};
+        }
+    }
+
+    private static List<Table> tableLayouts() {
+        List<Table> tables = new ArrayList<>();
+        tables.add(CODES);
+        tables.add(VALUESETMEMBERS);
+        Collections.addAll(tables, DIMENSION_TABLES);
+        return tables;
+    }
+
+    /**
+     * @return the statistics of each code system, ordered by name
+     */
+    public List<CodeSystemStatistics> getCodeSystems() {
+        return codeSystems;
+    }
+
+    public CodeSystemStatistics getCodeSystem(String name) {
+        for (CodeSystemStatistics codeSystem : codeSystems) {
+            if (codeSystem.getName().equalsIgnoreCase(name)) {
+                return codeSystem;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the statistics of each value set, ordered by OID and definition version
+     */
+    public List<ValueSetStatistics> getValueSets() {
+        return valueSets;
+    }
+
+    /**
+     * @return the statistics of the value set with this OID, or null if none was loaded; if several
+     *         definition versions of it were loaded, the first
+     */
+    public ValueSetStatistics getValueSet(String oid) {
+        for (ValueSetStatistics valueSet : valueSets) {
+            if (valueSet.getOid().equals(oid)) {
+                return valueSet;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the normalized tables, the fact tables CODES and VALUESETMEMBERS first
+     */
+    public List<TableStatistics> getTables() {
+        return tables;
+    }
+
+    public TableStatistics getTable(String name) {
+        for (TableStatistics table : tables) {
+            if (table.getName().equalsIgnoreCase(name)) {
+                return table;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the estimated bytes of every table and index
+     */
+    public long getEstimatedBytes() {
+        long bytes = 0;
+        for (TableStatistics table : tables) {
+            bytes += table.getEstimatedBytes() + table.getEstimatedIndexBytes();
+        }
+        return bytes;
+    }
+
+    public long getCollectMillis() {
+        return collectMillis;
+    }
+
+    /**
+     * @return a summary with a line per code system and table; the value sets are only counted
+     */
+    @Override
+    public String toString() {
+        long codeRows = getTable(CODES.name).getRowCount();
+        long memberRows = getTable(VALUESETMEMBERS.name).getRowCount();
+        StringBuilder summary = new StringBuilder();
+        summary.append(codeRows).append(" code rows in ").append(codeSystems.size()).append(" code systems, ").append(memberRows)
+                .append(" value set rows in ").append(valueSets.size()).append(" value sets, about ").append(megabytes(getEstimatedBytes()))
+                .append(" (collected in ").append(collectMillis).append(" ms)");
+        for (CodeSystemStatistics codeSystem : codeSystems) {
+            summary.append("\n  ").append(codeSystem);
+        }
+        for (TableStatistics table : tables) {
+            summary.append("\n  ").append(table);
+        }
+        return summary.toString();
+    }
+
+    private static String megabytes(long bytes) {
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    /**
+     * The column layout of a normalized table, for estimating its bytes.
+     */
+    private static class Table {
+        private final String name;
+        private final int columnCount;
+        private final int integerColumnCount;
+        private final int bigintColumnCount;
+        private final String[] stringColumns;
+
+        Table(String name, int columnCount, int integerColumnCount, int bigintColumnCount, String... stringColumns) {
+            this.name = name;
+            this.columnCount = columnCount;
+            this.integerColumnCount = integerColumnCount;
+            this.bigintColumnCount = bigintColumnCount;
+            this.stringColumns = stringColumns;
+        }
+
+        long estimateBytes(long rowCount, long characterCount) {
+            long rowBytes = ROW_BYTES + columnCount * REFERENCE_BYTES + integerColumnCount * INTEGER_BYTES
+                    + bigintColumnCount * BIGINT_BYTES + stringColumns.length * STRING_BYTES;
+            return rowCount * rowBytes + characterCount * CHARACTER_BYTES;
+        }
+    }
+
+    /**
+     * The rows of one code system or value set and their display names.
+     */
+    public abstract static class RowStatistics {
+        private final long rowCount;
+        private final long distinctCodeCount;
+        private final long distinctDisplayNameCount;
+        private final double averageDisplayNameLength;
+        private final int maxDisplayNameLength;
+        private final long codeCharacterCount;
+
+        RowStatistics(long rowCount, long distinctCodeCount, long distinctDisplayNameCount, double averageDisplayNameLength,
+                      int maxDisplayNameLength, long codeCharacterCount) {
+            this.rowCount = rowCount;
+            this.distinctCodeCount = distinctCodeCount;
+            this.distinctDisplayNameCount = distinctDisplayNameCount;
+            this.averageDisplayNameLength = averageDisplayNameLength;
+            this.maxDisplayNameLength = maxDisplayNameLength;
+            this.codeCharacterCount = codeCharacterCount;
+        }
+
+        public long getRowCount() {
+            return rowCount;
+        }
+
+        public long getDistinctCodeCount() {
+            return distinctCodeCount;
+        }
+
+        public long getDistinctDisplayNameCount() {
+            return distinctDisplayNameCount;
+        }
+
+        /**
+         * @return the average display name length of the rows, in characters
+         */
+        public double getAverageDisplayNameLength() {
+            return averageDisplayNameLength;
+        }
+
+        public int getMaxDisplayNameLength() {
+            return maxDisplayNameLength;
+        }
+
+        /**
+         * @return the characters of the codes of the rows, and for value sets of their TTY
+         */
+        public long getCodeCharacterCount() {
+            return codeCharacterCount;
+        }
+
+        @Override
+        public String toString() {
+            return rowCount + " rows, " + distinctCodeCount + " distinct codes, " + distinctDisplayNameCount
+                    + " distinct display names of " + String.format("%.1f", averageDisplayNameLength) + " characters on average, "
+                    + maxDisplayNameLength + " at most";
+        }
+    }
+
+    public static class CodeSystemStatistics extends RowStatistics {
+        private static final Comparator<CodeSystemStatistics> BY_NAME = new Comparator<CodeSystemStatistics>() {
+            @Override
+            public int compare(CodeSystemStatistics first, CodeSystemStatistics second) {
+                int comparison = first.name.compareTo(second.name);
+                return comparison != 0 ? comparison : first.oid.compareTo(second.oid);
+            }
+        };
+
+        private final String name;
+        private final String oid;
+
+        CodeSystemStatistics(String name, String oid, long rowCount, long distinctCodeCount, long distinctDisplayNameCount,
+                             double averageDisplayNameLength, int maxDisplayNameLength, long codeCharacterCount) {
+            super(rowCount, distinctCodeCount, distinctDisplayNameCount, averageDisplayNameLength, maxDisplayNameLength,
+                    codeCharacterCount);
+            this.name = name;
+            this.oid = oid;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getOid() {
+            return oid;
+        }
+
+        @Override
+        public String toString() {
+            return name + " (" + oid + "): " + super.toString();
+        }
+    }
+
+    public static class ValueSetStatistics extends RowStatistics {
+        private final String oid;
+        private final String name;
+        private final String definitionVersion;
+
+        ValueSetStatistics(String oid, String name, String definitionVersion, long rowCount, long distinctCodeCount,
+                           long distinctDisplayNameCount, double averageDisplayNameLength, int maxDisplayNameLength,
+                           long codeCharacterCount) {
+            super(rowCount, distinctCodeCount, distinctDisplayNameCount, averageDisplayNameLength, maxDisplayNameLength,
+                    codeCharacterCount);
+            this.oid = oid;
+            this.name = name;
+            this.definitionVersion = definitionVersion;
+        }
+
+        public String getOid() {
+            return oid;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDefinitionVersion() {
+            return definitionVersion;
+        }
+
+        @Override
+        public String toString() {
+            return oid + " " + name + " " + definitionVersion + ": " + super.toString();
+        }
+    }
+
+    public static class TableStatistics {
+        private final String name;
+        private final long rowCount;
+        private final long estimatedBytes;
+        private final List<IndexStatistics> indexes;
+
+        TableStatistics(String name, long rowCount, long estimatedBytes, List<IndexStatistics> indexes) {
+            this.name = name;
+            this.rowCount = rowCount;
+            this.estimatedBytes = estimatedBytes;
+            this.indexes = Collections.unmodifiableList(indexes);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getRowCount() {
+            return rowCount;
+        }
+
+        /**
+         * @return the estimated bytes of the rows, without the indexes
+         */
+        public long getEstimatedBytes() {
+            return estimatedBytes;
+        }
+
+        /**
+         * @return the indexes of the table, including those of its primary key and unique constraints, by name
+         */
+        public List<IndexStatistics> getIndexes() {
+            return indexes;
+        }
+
+        public long getEstimatedIndexBytes() {
+            long bytes = 0;
+            for (IndexStatistics index : indexes) {
+                bytes += index.getEstimatedBytes();
+            }
+            return bytes;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + rowCount + " rows, about " + megabytes(estimatedBytes) + " and " + megabytes(getEstimatedIndexBytes())
+                    + " in " + indexes.size() + " indexes";
+        }
+    }
+
+    public static class IndexStatistics {
+        private final String name;
+        private final long estimatedBytes;
+
+        IndexStatistics(String name, long estimatedBytes) {
+            this.name = name;
+            this.estimatedBytes = estimatedBytes;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getEstimatedBytes() {
+            return estimatedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": about " + megabytes(estimatedBytes);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package org.sitenv.vocabularies.loader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * One generation of the in-memory vocabulary database. Validations lease the store they started on
+ * (see {@link VocabularyDataSource#pin()}); once a newer generation has been swapped in, the store is
+ * retired and shut down as soon as its last lease is released, which frees its memory.
+ *
+ * Loaders and JPA take their connections straight from the database; validation lookups take read only
+ * connections from the store's {@link VocabularyReadPool}, which is opened on the first of them.
+ */
+public class VocabularyStore {
+    private static Logger logger = LoggerFactory.getLogger(VocabularyStore.class);
+    private static final String SCHEMA_SCRIPT = "classpath:schema.sql";
+
+    private final int generation;
+    private final String databaseName;
+    private final EmbeddedDatabase database;
+    private VocabularyReadPool readPool;
+    private final VocabularyLoadState loadState = new VocabularyLoadState();
+    private int leaseCount = 0;
+    private boolean retired = false;
+    private boolean shutDown = false;
+
+    public VocabularyStore(int generation, String databaseName, EmbeddedDatabase database) {
+        this.generation = generation;
+        this.databaseName = databaseName;
+        this.database = database;
+    }
+
+    /**
+     * Creates an empty store with tables but no indexes; {@link VocabularyLoadRunner} builds those after
+     * loading. Every generation gets its own database name, otherwise HSQL would hand back the in-memory
+     * database of the previous generation.
+     */
+    public static VocabularyStore create(int generation) {
+        long start = System.currentTimeMillis();
+        String databaseName = "vocabulary" + generation;
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.HSQL)
+                .setName(databaseName).addScript(SCHEMA_SCRIPT).build();
+        logger.info("Vocabulary store generation " + generation + " schema created in " + (System.currentTimeMillis() - start) + " ms");
+        return new VocabularyStore(generation, databaseName, database);
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public EmbeddedDatabase getDatabase() {
+        return database;
+    }
+
+    /**
+     * Borrows a read only connection from the store's read pool, opening the pool with the given size and
+     * maximum wait on the first call.
+     */
+    Connection getReadConnection(int readPoolSize, long readPoolMaxWaitMillis) throws SQLException {
+        VocabularyReadPool pool;
+        synchronized (this) {
+            if (shutDown) {
+                throw new SQLException("Vocabulary store generation " + generation + " is shut down");
+            }
+            if (readPool == null) {
+                readPool = new VocabularyReadPool(generation, "jdbc:hsqldb:mem:" + databaseName, readPoolSize, readPoolMaxWaitMillis);
+            }
+            pool = readPool;
+        }
+        return pool.getConnection();
+    }
+
+    /**
+     * @return the read pool, or null if no lookup has used this store yet
+     */
+    public synchronized VocabularyReadPool getReadPool() {
+        return readPool;
+    }
+
+    /**
+     * @return the partitions of this store a lazy load has deferred
+     */
+    public VocabularyLoadState getLoadState() {
+        return loadState;
+    }
+
+    /**
+     * @return what has been loaded into this store, or null while it is loading
+     */
+    public VocabularyStatistics getStatistics() {
+        return loadState.getStatistics();
+    }
+
+    /**
+     * @return false if the store has already been retired, in which case the caller should use the
+     * current store instead
+     */
+    synchronized boolean retain() {
+        if (retired) {
+            return false;
+        }
+        leaseCount++;
+        return true;
+    }
+
+    synchronized void release() {
+        leaseCount--;
+        if (retired && leaseCount == 0) {
+            shutdown();
+        }
+    }
+
+    synchronized void retire() {
+        retired = true;
+        if (leaseCount == 0) {
+            shutdown();
+        }
+    }
+
+    public synchronized int getLeaseCount() {
+        return leaseCount;
+    }
+
+    public synchronized boolean isShutDown() {
+        return shutDown;
+    }
+
+    synchronized void shutdown() {
+        if (!shutDown) {
+            shutDown = true;
+            closeReadPool();
+            database.shutdown();
+            logger.info("Vocabulary store generation " + generation + " shut down");
+        }
+    }
+
+    private void closeReadPool() {
+        if (readPool != null) {
+            logger.info("Closing " + readPool);
+            try {
+                readPool.close();
+            } catch (SQLException e) {
+                logger.warn("Cannot close the read pool of vocabulary store generation " + generation + ". " + e.getMessage());
+            }
+        }
+    }
+}
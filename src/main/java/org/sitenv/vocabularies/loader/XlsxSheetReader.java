@@ -0,0 +1,297 @@
+package org.sitenv.vocabularies.loader;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.SAXHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads the sheets of an xlsx workbook as streams of rows without building a workbook model. The shared
+ * strings and styles are read once; each sheet is then parsed by its own SAX parser from its own stream
+ * over the package part, so several sheets can be parsed at the same time (see {@link #readSheets}).
+ *
+ * Rows are handed to a {@link SheetHandler} as the formatted text of their cells, indexed by column. Cells
+ * that are missing from the sheet are empty strings.
+ */
+public class XlsxSheetReader implements Closeable {
+    private final String fileName;
+    private final OPCPackage opcPackage;
+    private final ReadOnlySharedStringsTable sharedStrings;
+    private final StylesTable styles;
+    private final List<String> sheetNames = new ArrayList<>();
+    private final List<PackagePart> sheetParts = new ArrayList<>();
+
+    /**
+     * Receives the rows of one sheet, always on a single thread.
+     */
+    public interface SheetHandler {
+        /**
+         * @param rowIndex the zero based row number in the sheet; empty rows are not reported
+         * @return false to stop reading the sheet; the rest of its rows are not parsed
+         */
+        boolean row(int rowIndex, String[] cells) throws Exception;
+
+        /**
+         * Called after the last row that was read, also when the sheet was stopped early.
+         */
+        void endSheet() throws Exception;
+    }
+
+    public interface SheetHandlerFactory {
+        /**
+         * Called on the thread that will read the sheet.
+         */
+        SheetHandler newSheetHandler(int sheetIndex, String sheetName) throws Exception;
+    }
+
+    public XlsxSheetReader(File file) throws IOException {
+        this.fileName = file.getName();
+        try {
+            opcPackage = OPCPackage.open(file, PackageAccess.READ);
+        } catch (InvalidFormatException e) {
+            throw new IOException("Not an xlsx workbook: " + file.getName(), e);
+        }
+        try {
+            XSSFReader reader = new XSSFReader(opcPackage);
+            sharedStrings = new ReadOnlySharedStringsTable(opcPackage);
+            styles = reader.getStylesTable();
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (sheets.hasNext()) {
+                sheets.next().close();
+                sheetNames.add(sheets.getSheetName());
+                sheetParts.add(sheets.getSheetPart());
+            }
+        } catch (OpenXML4JException | SAXException | IOException | RuntimeException e) {
+            opcPackage.revert();
+            throw e instanceof IOException ? (IOException) e : new IOException("Cannot read workbook " + file.getName(), e);
+        }
+    }
+
+    public int getSheetCount() {
+        return sheetNames.size();
+    }
+
+    public String getSheetName(int sheetIndex) {
+        return sheetNames.get(sheetIndex);
+    }
+
+    /**
+     * Reads one sheet on the calling thread.
+     */
+    public void readSheet(int sheetIndex, SheetHandler handler) throws IOException {
+        RowCollector rowCollector = new RowCollector(handler);
+        try (InputStream inputStream = sheetParts.get(sheetIndex).getInputStream()) {
+            XMLReader xmlReader = SAXHelper.newXMLReader();
+            xmlReader.setContentHandler(new XSSFSheetXMLHandler(styles, null, sharedStrings, rowCollector, new DataFormatter(), false));
+            xmlReader.parse(new InputSource(inputStream));
+        } catch (StopSheetException e) {
+            // the handler asked for no more rows
+        } catch (SAXException e) {
+            if (!(e.getException() instanceof StopSheetException)) {
+                throw rethrow(sheetIndex, e.getException() != null ? e.getException() : e);
+            }
+        } catch (ParserConfigurationException | HandlerException e) {
+            throw rethrow(sheetIndex, e);
+        }
+        try {
+            handler.endSheet();
+        } catch (Exception e) {
+            throw rethrow(sheetIndex, e);
+        }
+    }
+
+    /**
+     * Reads the sheets from firstSheetIndex to the last one on up to threadCount threads and waits for all
+     * of them. Rows of different sheets arrive concurrently, in no particular order between sheets.
+     *
+     * @throws IOException for the first sheet that failed, after every sheet has been read or has failed
+     */
+    public void readSheets(int firstSheetIndex, int threadCount, final SheetHandlerFactory handlerFactory) throws IOException {
+        int sheetCount = getSheetCount() - firstSheetIndex;
+        if (sheetCount <= 0) {
+            return;
+        }
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = firstSheetIndex; i < getSheetCount(); i++) {
+            final int sheetIndex = i;
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    readSheet(sheetIndex, handlerFactory.newSheetHandler(sheetIndex, getSheetName(sheetIndex)));
+                    return null;
+                }
+            });
+        }
+        if (threadCount <= 1 || sheetCount == 1) {
+            for (Callable<Void> task : tasks) {
+                callSequentially(task);
+            }
+            return;
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.min(threadCount, sheetCount), new SheetThreadFactory(fileName));
+        try {
+            IOException failure = null;
+            for (Future<Void> result : executorService.invokeAll(tasks)) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof IOException ? (IOException) e.getCause()
+                                : new IOException("Cannot read workbook " + fileName, e.getCause());
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading workbook " + fileName, e);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Override
+    public void close() {
+        // opened read only, so nothing has to be saved
+        opcPackage.revert();
+    }
+
+    private static void callSequentially(Callable<Void> task) throws IOException {
+        try {
+            task.call();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private IOException rethrow(int sheetIndex, Throwable cause) {
+        if (cause instanceof HandlerException) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        return new IOException("Cannot read sheet " + getSheetName(sheetIndex) + " of workbook " + fileName, cause);
+    }
+
+    /**
+     * Turns the cell callbacks of XSSFSheetXMLHandler into one String[] per row.
+     */
+    private static class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final SheetHandler handler;
+        private String[] cells = new String[16];
+        private int cellCount = 0;
+        private int currentColumn = -1;
+
+        RowCollector(SheetHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cellCount = 0;
+            currentColumn = -1;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (cellCount == 0) {
+                return;
+            }
+            boolean more;
+            try {
+                more = handler.row(rowNum, Arrays.copyOf(cells, cellCount));
+            } catch (Exception e) {
+                throw new HandlerException(e);
+            }
+            if (!more) {
+                throw new StopSheetException();
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : currentColumn + 1;
+            currentColumn = column;
+            if (column >= cells.length) {
+                cells = Arrays.copyOf(cells, Math.max(column + 1, cells.length * 2));
+            }
+            for (int i = cellCount; i < column; i++) {
+                cells[i] = "";
+            }
+            cells[column] = formattedValue != null ? formattedValue : "";
+            cellCount = Math.max(cellCount, column + 1);
+        }
+
+        @Override
+        public void headerFooter(String text, boolean isHeader, String tagName) {
+        }
+    }
+
+    /**
+     * Unwinds the SAX parser when a handler stops reading a sheet.
+     */
+    private static class StopSheetException extends RuntimeException {
+        StopSheetException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Carries an exception thrown by a {@link SheetHandler} through the SAX parser.
+     */
+    private static class HandlerException extends RuntimeException {
+        HandlerException(Exception cause) {
+            super(cause);
+        }
+    }
+
+    private static class SheetThreadFactory implements ThreadFactory {
+        private final String fileName;
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        SheetThreadFactory(String fileName) {
+            this.fileName = fileName;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "vocabulary-xlsx-" + fileName + "-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
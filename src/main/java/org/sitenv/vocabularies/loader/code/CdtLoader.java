@@ -1,21 +1,16 @@
 package org.sitenv.vocabularies.loader.code;
 
-import org.apache.commons.lang3.text.StrBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.xssf.usermodel.XSSFCell;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.sitenv.vocabularies.loader.BaseCodeLoader;
+import org.sitenv.vocabularies.loader.CodeSink;
+import org.sitenv.vocabularies.loader.XlsxSheetReader;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.List;
@@ -30,59 +25,63 @@ import java.util.List;
 
     @Override
     public void load(List<File> filesToLoad, Connection connection) {
-        StrBuilder insertQueryBuilder;
         for (File file : filesToLoad) {
             if (file.isFile() && !file.isHidden()) {
-                String codeSystem = file.getParentFile().getName();
-                InputStream inputStream = null;
-                XSSFWorkbook workBook = null;
-                try {
+                final String codeSystem = file.getParentFile().getName();
+                try (XlsxSheetReader reader = new XlsxSheetReader(file); final CodeSink codeSink = newCodeSink(connection)) {
                     logger.debug("Loading CDT File: " + file.getName());
-                    inputStream = new FileInputStream(file);
-                    workBook = new XSSFWorkbook(inputStream);
-                    for (int i = 1; i < workBook.getNumberOfSheets(); i++) {
-                        insertQueryBuilder = new StrBuilder(codeTableInsertSQLPrefix);
-                        boolean headerRowFound = false;
-                        Sheet sheet = workBook.getSheetAt(i);
-                        String code;
-                        String displayName;
-
-                        for (Row row : sheet) {
-                            if (headerRowFound && canProcessRow(row)) {
-                                code = row.getCell(0).getStringCellValue().toUpperCase().trim();
-                                displayName = row.getCell(1).getStringCellValue().toUpperCase().trim();
-                                buildCodeInsertQueryString(insertQueryBuilder, code, displayName, codeSystem, CodeSystemOIDs.CDT.codesystemOID(), true);
-                            }
-
-                            if (!headerRowFound) {
-                                if (hasValueInCell(row, 0) && row.getCell(0).getStringCellValue().toUpperCase().trim().equals(HEADER_ROW_FINDER_KEY)) {
-                                    headerRowFound = true;
-                                }
-                            }
+                    reader.readSheets(1, getSheetThreadCount(), new XlsxSheetReader.SheetHandlerFactory() {
+                        @Override
+                        public XlsxSheetReader.SheetHandler newSheetHandler(int sheetIndex, String sheetName) {
+                            return new SheetLoader(codeSink, codeSystem);
                         }
-
-                        insertCode(insertQueryBuilder.toString(), connection);
-                    }
+                    });
                 } catch (IOException e) {
                     logger.error(e.getMessage());
                 } catch (SQLException e) {
                     e.printStackTrace();
-                } finally {
-                    try {
-                        if (workBook != null) {
-                            workBook.close();
-                        }
-                        if (inputStream != null) {
-                            inputStream.close();
-                        }
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
                 }
             }
         }
     }
 
+    /**
+     * Loads the code rows that follow the header row of one sheet. Sheets are read in parallel and share
+     * the file's CodeSink, so rows are added under its lock.
+     */
+    private static class SheetLoader implements XlsxSheetReader.SheetHandler {
+        private final CodeSink codeSink;
+        private final String codeSystem;
+        private boolean headerRowFound = false;
+
+        SheetLoader(CodeSink codeSink, String codeSystem) {
+            this.codeSink = codeSink;
+            this.codeSystem = codeSystem;
+        }
+
+        @Override
+        public boolean row(int rowIndex, String[] cells) throws SQLException {
+            if (headerRowFound && canProcessRow(cells)) {
+                String code = cells[0].toUpperCase().trim();
+                String displayName = cells[1].toUpperCase().trim();
+                synchronized (codeSink) {
+                    codeSink.add(code, displayName, codeSystem, CodeSystemOIDs.CDT.codesystemOID(), true);
+                }
+            }
+
+            if (!headerRowFound) {
+                if (hasValueInCell(cells, 0) && cells[0].toUpperCase().trim().equals(HEADER_ROW_FINDER_KEY)) {
+                    headerRowFound = true;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void endSheet() {
+        }
+    }
+
     public static boolean isRowEmpty(Row row) {
         if (row != null) {
             for (int c = row.getFirstCellNum(); c < row.getLastCellNum(); c++) {
@@ -94,19 +93,19 @@ import java.util.List;
         return true;
     }
 
-    private boolean hasValueInCell(Row row, int cellNum) {
-        return row.getCell(cellNum) != null && !row.getCell(cellNum).getStringCellValue().isEmpty();
+    private static boolean hasValueInCell(String[] cells, int cellNum) {
+        return cellNum < cells.length && !cells[cellNum].isEmpty();
     }
 
-    private boolean canProcessRow(Row row) {
-        return hasCodevalueInFirstCell(row) && hasExpectedNumberOfCellsInRow(row);
+    private static boolean canProcessRow(String[] cells) {
+        return hasCodevalueInFirstCell(cells) && hasExpectedNumberOfCellsInRow(cells);
     }
 
-    private boolean hasCodevalueInFirstCell(Row row) {
-        return hasValueInCell(row, CODE_CELL_INDEX_IN_ROW);
+    private static boolean hasCodevalueInFirstCell(String[] cells) {
+        return hasValueInCell(cells, CODE_CELL_INDEX_IN_ROW);
     }
 
-    private boolean hasExpectedNumberOfCellsInRow(Row row) {
-        return row.getLastCellNum() >= MIN_EXPECTED_NUMBER_OF_CELLS_IN_ROW;
+    private static boolean hasExpectedNumberOfCellsInRow(String[] cells) {
+        return cells.length >= MIN_EXPECTED_NUMBER_OF_CELLS_IN_ROW;
     }
 }
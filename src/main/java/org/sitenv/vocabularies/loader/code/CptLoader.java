@@ -1,14 +1,13 @@
 package org.sitenv.vocabularies.loader.code;
 
-import org.apache.commons.lang3.text.StrBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sitenv.vocabularies.loader.BaseCodeLoader;
+import org.sitenv.vocabularies.loader.CodeSink;
+import org.sitenv.vocabularies.loader.MappedLineSource;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -28,49 +27,33 @@ public class CptLoader extends BaseCodeLoader {
 
     @Override
     public void load(List<File> filesToLoad, Connection connection) {
-        BufferedReader br = null;
-        FileReader fileReader = null;
-        try {
-            StrBuilder insertQueryBuilder = new StrBuilder(codeTableInsertSQLPrefix);
-            int totalCount = 0; 
-            boolean isPending = false;
-
+        MappedLineSource lines = null;
+        try (CodeSink codeSink = newCodeSink(connection)) {
             for (File file : filesToLoad) {
                 if (file.isFile() && !file.isHidden()) {
                     logger.debug("Loading CPT File: " + file.getName());
                     String codeSystem = file.getParentFile().getName();
-                    fileReader = new FileReader(file);
-                    br = new BufferedReader(fileReader);
-                    String line;
-                    while ((line = br.readLine()) != null) {
-                        if (!line.isEmpty()) {
+                    lines = new MappedLineSource(file);
+                    while (lines.nextLine()) {
+                        if (!lines.isEmptyLine()) {
+                            String line = lines.getLine();
                             String code = line.substring(0, 5);
                             String displayName = isTabDelimitedFile(line) ? line.substring(line.indexOf('\t')) : line.substring(line.indexOf(" "));
-                            buildCodeInsertQueryString(insertQueryBuilder, code, displayName, codeSystem, oid, CODES_IN_THIS_SYSTEM_ARE_ALWAYS_ACTIVE);
-                            isPending = true;
-
-                            if ((++totalCount % BATCH_SIZE) == 0) {
-                                insertCode(insertQueryBuilder.toString(), connection);
-                                insertQueryBuilder.clear();
-                                insertQueryBuilder.append(codeTableInsertSQLPrefix);
-                                isPending = false;
-                            }
+                            codeSink.add(code, displayName, codeSystem, oid, CODES_IN_THIS_SYSTEM_ARE_ALWAYS_ACTIVE);
                         }
                     }
+                    codeSink.commit();
+                    lines.close();
                 }
             }
-            if (isPending) {
-                insertCode(insertQueryBuilder.toString(), connection);
-            }
         } catch (IOException e) {
             logger.error(e.getMessage());
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
-            if (br != null) {
+            if (lines != null) {
                 try {
-                    fileReader.close();
-                    br.close();
+                    lines.close();
                 } catch (IOException e) {
                     logger.error(e.getMessage());
                 }
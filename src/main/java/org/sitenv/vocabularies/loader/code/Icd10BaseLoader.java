@@ -1,12 +1,11 @@
 package org.sitenv.vocabularies.loader.code;
 
-import org.apache.commons.lang3.text.StrBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sitenv.vocabularies.loader.CodeSink;
+import org.sitenv.vocabularies.loader.MappedLineSource;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -21,49 +20,37 @@ public abstract class Icd10BaseLoader extends IcdLoader {
 
     @Override
     public void load(List<File> filesToLoad, Connection connection) {
-        BufferedReader br = null;
-        FileReader fileReader = null;
-        try {
-            StrBuilder insertQueryBuilder = new StrBuilder(codeTableInsertSQLPrefix);
-            int totalCount = 0, pendingCount = 0;
-
+        MappedLineSource lines = null;
+        try (CodeSink codeSink = newCodeSink(connection)) {
             for (File file : filesToLoad) {
                 if (file.isFile() && !file.isHidden()) {
                     logger.debug("Loading ICD10CM File: " + file.getName());
                     String codeSystem = file.getParentFile().getName();
-                    fileReader = new FileReader(file);
-                    br = new BufferedReader(fileReader);
-                    String available;
-                    while ((available = br.readLine()) != null) {
+                    lines = new MappedLineSource(file);
+                    while (lines.nextLine()) {
+                        if (lines.isEmptyLine()) {
+                            continue;
+                        }
+                        String available = lines.getLine();
                         String code = buildDelimitedIcdCode(available.substring(6, 13));
                         String shortDisplayName = available.substring(16, 77);
                         String longDisplayName = available.substring(77);
 
-                        buildCodeInsertQueryString(insertQueryBuilder, code, shortDisplayName, codeSystem, oid, CODES_IN_THIS_SYSTEM_ARE_ALWAYS_ACTIVE);
-                        buildCodeInsertQueryString(insertQueryBuilder, code, longDisplayName, codeSystem, oid, CODES_IN_THIS_SYSTEM_ARE_ALWAYS_ACTIVE);
-
-                        if ((++totalCount % BATCH_SIZE) == 0) {
-                            insertCode(insertQueryBuilder.toString(), connection);
-                            insertQueryBuilder.clear();
-                            insertQueryBuilder.append(codeTableInsertSQLPrefix);
-                            pendingCount = 0;
-                        }
+                        codeSink.add(code, shortDisplayName, codeSystem, oid, CODES_IN_THIS_SYSTEM_ARE_ALWAYS_ACTIVE);
+                        codeSink.add(code, longDisplayName, codeSystem, oid, CODES_IN_THIS_SYSTEM_ARE_ALWAYS_ACTIVE);
                     }
-
+                    codeSink.commit();
+                    lines.close();
                 }
             }
-            if (pendingCount > 0) {
-                insertCode(insertQueryBuilder.toString(), connection);
-            }
         } catch (IOException e) {
             logger.error(e.getMessage());
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
-            if (br != null) {
+            if (lines != null) {
                 try {
-                    fileReader.close();
-                    br.close();
+                    lines.close();
                 } catch (IOException e) {
                     logger.error(e.getMessage());
                 }
@@ -1,13 +1,12 @@
 package org.sitenv.vocabularies.loader.code;
 
-import org.apache.commons.lang3.text.StrBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sitenv.vocabularies.loader.BaseCodeLoader;
+import org.sitenv.vocabularies.loader.CodeSink;
+import org.sitenv.vocabularies.loader.MappedLineSource;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -24,47 +23,33 @@ public abstract class Icd9BaseLoader extends BaseCodeLoader {
 
     @Override
     public void load(List<File> filesToLoad, Connection connection) {
-        BufferedReader br = null;
-        FileReader fileReader = null;
-        try {
-            StrBuilder insertQueryBuilder = new StrBuilder(codeTableInsertSQLPrefix);
-            int totalCount = 0, pendingCount = 0;
-
+        MappedLineSource lines = null;
+        try (CodeSink codeSink = newCodeSink(connection)) {
             for (File file : filesToLoad) {
                 if (file.isFile() && !file.isHidden()) {
                     logger.debug("Loading ICD9 File: " + file.getName());
                     String codeSystem = file.getParentFile().getName();
-                    fileReader = new FileReader(file);
-                    br = new BufferedReader(fileReader);
-                    String line;
-                    while ((line = br.readLine()) != null) {
-                        if (!line.isEmpty()) {
+                    lines = new MappedLineSource(file);
+                    while (lines.nextLine()) {
+                        if (!lines.isEmptyLine()) {
+                            String line = lines.getLine();
                             String code = buildDelimitedIcdCode(line.substring(0, 5));
                             String displayName = line.substring(6);
-                            buildCodeInsertQueryString(insertQueryBuilder, code, displayName, codeSystem, oid, CODES_IN_THIS_SYSTEM_ARE_ALWAYS_ACTIVE);
-
-                            if ((++totalCount % BATCH_SIZE) == 0) {
-                                insertCode(insertQueryBuilder.toString(), connection);
-                                insertQueryBuilder.clear();
-                                insertQueryBuilder.append(codeTableInsertSQLPrefix);
-                                pendingCount = 0;
-                            }
+                            codeSink.add(code, displayName, codeSystem, oid, CODES_IN_THIS_SYSTEM_ARE_ALWAYS_ACTIVE);
                         }
                     }
+                    codeSink.commit();
+                    lines.close();
                 }
             }
-            if (pendingCount > 0) {
-                insertCode(insertQueryBuilder.toString(), connection);
-            }
         } catch (IOException e) {
             logger.error(e.getMessage());
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
-            if (br != null) {
+            if (lines != null) {
                 try {
-                    fileReader.close();
-                    br.close();
+                    lines.close();
                 } catch (IOException e) {
                     logger.error(e.getMessage());
                 }
@@ -1,17 +1,18 @@
 package org.sitenv.vocabularies.loader.code;
 
-import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.text.StrBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sitenv.vocabularies.loader.BaseCodeLoader;
+import org.sitenv.vocabularies.loader.CodeSink;
+import org.sitenv.vocabularies.loader.CsvRecordReader;
 import org.sitenv.vocabularies.loader.VocabularyLoader;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.List;
@@ -35,29 +36,25 @@ public class LoincLoader extends BaseCodeLoader implements VocabularyLoader {
 
     @Override
     public void load(List<File> filesToLoad, Connection connection) {
-        BufferedReader br = null;
-        FileReader fileReader = null;
-        try {
-            StrBuilder insertQueryBuilder = new StrBuilder(codeTableInsertSQLPrefix);
-            int totalCount = 0, pendingCount = 0;
-
+        CsvRecordReader csvReader = null;
+        try (CodeSink codeSink = newCodeSink(connection)) {
             for (File file : filesToLoad) {
                 if (file.isFile() && !file.isHidden()) {
                     logger.debug("Loading LOINC File: " + file.getName());
-                    int count = 0;
-                    fileReader = new FileReader(file);
-                    br = new BufferedReader(fileReader);
-                    String available;
+                    String codeSystem = file.getParentFile().getName();
+                    String oid = CodeSystemOIDs.LOINC.codesystemOID();
+                    csvReader = new CsvRecordReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8),
+                            CODE_INDEX, COMPONENT_INDEX,
+                            LATEST_LOINC_CSV_STATUS_INDEX, LATEST_LOINC_CSV_SHORT_NAME_INDEX, LATEST_LOINC_CSV_LONG_COMMON_NAME_INDEX,
+                            FORMER_LOINC_CSV_STATUS_INDEX, FORMER_LOINC_CSV_SHORT_NAME_INDEX, FORMER_LOINC_CSV_LONG_COMMON_NAME_INDEX);
                     // Default to legacy LOINC CSV indexes
                     int statusIndex = FORMER_LOINC_CSV_STATUS_INDEX;
                     int shortNameIndex = FORMER_LOINC_CSV_SHORT_NAME_INDEX;
                     int longCommonNameIndex = FORMER_LOINC_CSV_LONG_COMMON_NAME_INDEX;
-                    while ((available = br.readLine()) != null) {
-                        String[] line = available.replaceAll("^\"", "").split("\"?(,|$)(?=(([^\"]*\"){2})*[^\"]*$) *\"?");
-                    	String status = StringUtils.strip(line[LATEST_LOINC_CSV_STATUS_INDEX], "\"");                     	
-                        if ((count++ == 0)) {
+                    while (csvReader.next()) {
+                        if (csvReader.getRecordNumber() == 1) {
                         	// Analyze relevant data from header row to determine LOINC CSV version and update indexes if latest
-                            if (status.equalsIgnoreCase(STATUS_ROW_HEADER_VALUE)) {
+                            if (csvReader.get(LATEST_LOINC_CSV_STATUS_INDEX).equalsIgnoreCase(STATUS_ROW_HEADER_VALUE)) {
                                 logger.info("Loading latest LOINC CSV / updating indexes");
                                 statusIndex = LATEST_LOINC_CSV_STATUS_INDEX;
                                 shortNameIndex = LATEST_LOINC_CSV_SHORT_NAME_INDEX;
@@ -65,46 +62,37 @@ public class LoincLoader extends BaseCodeLoader implements VocabularyLoader {
                             } else {
                             	logger.info("Loading Legacy LOINC CSV / using default indexes");
                             }
-                        } else {
-                            String codeSystem = file.getParentFile().getName();
-                            String oid = CodeSystemOIDs.LOINC.codesystemOID();
-                            
+                        } else if (csvReader.getColumnCount() > longCommonNameIndex) {
                             // Indexes OK for both versions
-                            String code = StringUtils.strip(line[CODE_INDEX], "\"");
-                            String componentName = StringUtils.strip(line[COMPONENT_INDEX], "\"");                                                     
+                            String code = csvReader.get(CODE_INDEX);
+                            String componentName = csvReader.get(COMPONENT_INDEX);
                             // Indexes depend on version
-                            status = StringUtils.strip(line[statusIndex], "\"");
-                            String shortName = StringUtils.strip(line[shortNameIndex], "\"");
-                            String longCommonName = StringUtils.strip(line[longCommonNameIndex], "\"");
-                            
+                            String status = csvReader.get(statusIndex);
+                            String shortName = csvReader.get(shortNameIndex);
+                            String longCommonName = csvReader.get(longCommonNameIndex);
+
                             boolean isCodeActive = status.equals(ACTIVE_CODE);
-                            
-                            buildCodeInsertQueryString(insertQueryBuilder, code, longCommonName, codeSystem, oid, isCodeActive);
-                            buildCodeInsertQueryString(insertQueryBuilder, code, componentName, codeSystem, oid, isCodeActive);
-                            buildCodeInsertQueryString(insertQueryBuilder, code, shortName, codeSystem, oid, isCodeActive);
 
-                            if ((++totalCount % BATCH_SIZE) == 0) {
-                                insertCode(insertQueryBuilder.toString(), connection);
-                                insertQueryBuilder.clear();
-                                insertQueryBuilder.append(codeTableInsertSQLPrefix);
-                                pendingCount = 0;
-                            }
+                            codeSink.add(code, longCommonName, codeSystem, oid, isCodeActive);
+                            codeSink.add(code, componentName, codeSystem, oid, isCodeActive);
+                            codeSink.add(code, shortName, codeSystem, oid, isCodeActive);
+                        } else {
+                            logger.debug("Skipping LOINC record " + csvReader.getRecordNumber() + " with only " + csvReader.getColumnCount() + " columns");
                         }
                     }
+                    codeSink.commit();
+                    csvReader.close();
+                    csvReader = null;
                 }
             }
-            if (pendingCount > 0) {
-                insertCode(insertQueryBuilder.toString(), connection);
-            }
         } catch (IOException e) {
             logger.error(e.getMessage());
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
-            if (br != null) {
+            if (csvReader != null) {
                 try {
-                    fileReader.close();
-                    br.close();
+                    csvReader.close();
                 } catch (IOException e) {
                     logger.error(e.getMessage());
                 }
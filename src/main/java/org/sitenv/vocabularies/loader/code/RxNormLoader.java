@@ -1,16 +1,14 @@
 package org.sitenv.vocabularies.loader.code;
 
-import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.text.StrBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sitenv.vocabularies.loader.BaseCodeLoader;
+import org.sitenv.vocabularies.loader.CodeSink;
+import org.sitenv.vocabularies.loader.MappedLineSource;
 import org.sitenv.vocabularies.loader.VocabularyLoader;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -22,50 +20,41 @@ import java.util.List;
 @Component(value = "RXNORM")
 public class RxNormLoader extends BaseCodeLoader implements VocabularyLoader {
     private static Logger logger = LoggerFactory.getLogger(RxNormLoader.class);
+    private static final char FIELD_DELIMITER = '|';
+    private static final int RXCUI_FIELD = 0;
+    private static final int STR_FIELD = 14;
 
     @Override
     public void load(List<File> filesToLoad, Connection connection) {
-        FileReader fileReader = null;
-        BufferedReader br = null;
-        try {
-            StrBuilder insertQueryBuilder = new StrBuilder(codeTableInsertSQLPrefix);
-            int totalCount = 0, pendingCount = 0;
-
+        MappedLineSource lines = null;
+        try (CodeSink codeSink = newCodeSink(connection)) {
             for (File file : filesToLoad) {
                 if (file.isFile() && !file.isHidden()) {
                     logger.debug("Loading RxNorm File: " + file.getName());
                     String codeSystem = file.getParentFile().getName();
-                    fileReader = new FileReader(file);
-                    br = new BufferedReader(fileReader);
-                    String available;
-                    while ((available = br.readLine()) != null) {
-                        String[] line = StringUtils.splitPreserveAllTokens(available, "|", 16);
-                        String code = line[0];
-                        String displayName = line[14];
-
-                        buildCodeInsertQueryString(insertQueryBuilder, code, displayName, codeSystem, CodeSystemOIDs.RXNORM.codesystemOID(), CODES_IN_THIS_SYSTEM_ARE_ALWAYS_ACTIVE);
-
-                        if ((++totalCount % BATCH_SIZE) == 0) {
-                            insertCode(insertQueryBuilder.toString(), connection);
-                            insertQueryBuilder.clear();
-                            insertQueryBuilder.append(codeTableInsertSQLPrefix);
-                            pendingCount = 0;
+                    lines = new MappedLineSource(file);
+                    while (lines.nextLine()) {
+                        if (lines.getFieldCount(FIELD_DELIMITER) <= STR_FIELD) {
+                            logger.debug("Skipping line " + lines.getLineNumber() + " of " + file.getName() + ", it has too few fields");
+                            continue;
                         }
+                        String code = lines.getField(RXCUI_FIELD, FIELD_DELIMITER);
+                        String displayName = lines.getField(STR_FIELD, FIELD_DELIMITER);
+
+                        codeSink.add(code, displayName, codeSystem, CodeSystemOIDs.RXNORM.codesystemOID(), CODES_IN_THIS_SYSTEM_ARE_ALWAYS_ACTIVE);
                     }
+                    codeSink.commit();
+                    lines.close();
                 }
             }
-            if (pendingCount > 0) {
-                insertCode(insertQueryBuilder.toString(), connection);
-            }
         } catch (IOException e) {
             logger.error(e.getMessage());
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
-            if (br != null) {
+            if (lines != null) {
                 try {
-                    fileReader.close();
-                    br.close();
+                    lines.close();
                 } catch (IOException e) {
                     logger.error(e.getMessage());
                 }
@@ -1,16 +1,14 @@
 package org.sitenv.vocabularies.loader.code;
 
-import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.text.StrBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sitenv.vocabularies.loader.BaseCodeLoader;
+import org.sitenv.vocabularies.loader.CodeSink;
+import org.sitenv.vocabularies.loader.MappedLineSource;
 import org.sitenv.vocabularies.loader.VocabularyLoader;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -23,58 +21,47 @@ import java.util.List;
 public class SnomedLoader extends BaseCodeLoader implements VocabularyLoader {
     private static Logger logger = LoggerFactory.getLogger(SnomedLoader.class);
     private static final String ACTIVE_CODE = "1";
+    private static final char FIELD_DELIMITER = '\t';
+    private static final int ACTIVE_FIELD = 2;
+    private static final int CONCEPT_ID_FIELD = 4;
+    private static final int TERM_FIELD = 7;
 
     @Override
     public void load(List<File> filesToLoad, Connection connection) {
-        BufferedReader br = null;
-        FileReader fileReader = null;
-        try {
-            StrBuilder insertQueryBuilder = new StrBuilder(codeTableInsertSQLPrefix);
-            int totalCount = 0, pendingCount = 0;
-
+        MappedLineSource lines = null;
+        try (CodeSink codeSink = newCodeSink(connection)) {
             for (File file : filesToLoad) {
                 if (file.isFile() && !file.isHidden()) {
                     logger.debug("Loading SNOMED File: " + file.getName());
                     logger.info("testing");
                     String codeSystem = file.getParentFile().getName();
-                    int count = 0;
-                    fileReader = new FileReader(file);
-                    br = new BufferedReader(fileReader);
-                    String available;
-                    while ((available = br.readLine()) != null) {
-                        if ((count++ == 0)) {
+                    lines = new MappedLineSource(file);
+                    while (lines.nextLine()) {
+                        if (lines.getLineNumber() == 1) {
                             continue; // skip header row
+                        } else if (lines.getFieldCount(FIELD_DELIMITER) <= TERM_FIELD) {
+                            logger.debug("Skipping line " + lines.getLineNumber() + " of " + file.getName() + ", it has too few fields");
                         } else {
-                            String[] line = StringUtils.splitPreserveAllTokens(available, "\t", 9);
-                            String code = line[4];
-                            String active = line[2];
-                            String displayName = line[7];
+                            String code = lines.getField(CONCEPT_ID_FIELD, FIELD_DELIMITER);
+                            String active = lines.getField(ACTIVE_FIELD, FIELD_DELIMITER);
+                            String displayName = lines.getField(TERM_FIELD, FIELD_DELIMITER);
                             boolean isCodeActive = active.equals(ACTIVE_CODE);
 
-                            buildCodeInsertQueryString(insertQueryBuilder, code, displayName, codeSystem, CodeSystemOIDs.SNOMEDCT.codesystemOID(), isCodeActive);
-
-                            if ((++totalCount % BATCH_SIZE) == 0) {
-                                insertCode(insertQueryBuilder.toString(), connection);
-                                insertQueryBuilder.clear();
-                                insertQueryBuilder.append(codeTableInsertSQLPrefix);
-                                pendingCount = 0;
-                            }
+                            codeSink.add(code, displayName, codeSystem, CodeSystemOIDs.SNOMEDCT.codesystemOID(), isCodeActive);
                         }
                     }
+                    codeSink.commit();
+                    lines.close();
                 }
             }
-            if (pendingCount > 0) {
-                insertCode(insertQueryBuilder.toString(), connection);
-            }
         } catch (IOException e) {
             logger.error(e.getMessage());
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
-            if (br != null) {
+            if (lines != null) {
                 try {
-                    fileReader.close();
-                    br.close();
+                    lines.close();
                 } catch (IOException e) {
                     logger.error(e.getMessage());
                 }
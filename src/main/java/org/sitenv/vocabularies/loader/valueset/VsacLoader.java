@@ -1,146 +1,202 @@
 package org.sitenv.vocabularies.loader.valueset;
 
-import com.monitorjbl.xlsx.StreamingReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
 import org.sitenv.vocabularies.loader.BaseCodeLoader;
+import org.sitenv.vocabularies.loader.LoadPipeline;
+import org.sitenv.vocabularies.loader.ValueSetRow;
+import org.sitenv.vocabularies.loader.ValueSetSink;
 import org.sitenv.vocabularies.loader.VocabularyLoader;
+import org.sitenv.vocabularies.loader.XlsxSheetReader;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component(value = "VSAC")
 public class VsacLoader extends BaseCodeLoader implements VocabularyLoader {
     private static Logger logger = LoggerFactory.getLogger(VsacLoader.class);
     private static final int MIN_EXPECTED_NUMBER_OF_CELLS_IN_ROW = 6;
     private static final int CODE_CELL_INDEX_IN_ROW = 0;
-    private static final int BATCH_SIZE = 1000;
     private static final String HEADER_ROW_FINDER_KEY = "CODE"; 
+    private Set<String> valuesetOidFilter = null;
+
+    /**
+     * @return the upper cased OIDs to load, or null to load every value set
+     */
+    public Set<String> getValuesetOidFilter() {
+        return valuesetOidFilter;
+    }
+
+    /**
+     * Set by {@link org.sitenv.vocabularies.loader.VocabularyLoadRunner} from its value set OID filter. Sheets
+     * whose OID is not in valuesetOids are skipped as soon as their OID row has been read, before any member
+     * row is parsed; null loads every value set.
+     */
+    public void setValuesetOidFilter(Set<String> valuesetOids) {
+        if (valuesetOids == null) {
+            valuesetOidFilter = null;
+            return;
+        }
+        Set<String> upperCasedOids = new HashSet<>();
+        for (String valuesetOid : valuesetOids) {
+            upperCasedOids.add(valuesetOid.toUpperCase());
+        }
+        valuesetOidFilter = upperCasedOids;
+    }
 
     public void load(List<File> filesToLoad, Connection connection) {
-        String insertQueryPrefix = "insert into VALUESETS (ID, CODE, DISPLAYNAME, CODESYSTEMNAME, CODESYSTEMVERSION, CODESYSTEM, TTY, VALUESETNAME, VALUESETOID, VALUESETTYPE, VALUESETDEFINITIONVERSION, VALUESETSTEWARD) values (DEFAULT ,?,?,?,?,?,?,?,?,?,?,?)";
+        final Set<String> valuesetOidFilter = this.valuesetOidFilter;
+        if (valuesetOidFilter != null) {
+            logger.info("Loading only the " + valuesetOidFilter.size() + " value sets named by the validation configurations");
+        }
         for (File file : filesToLoad) {
             if (file.isFile() && !file.isHidden()) {
-            	Workbook workBook = null;
-                try {
-                    logger.info("Loading Value Set File: " + file.getName());
-                    PreparedStatement preparedStatement = connection.prepareStatement(insertQueryPrefix);
-                    InputStream inputStream = new FileInputStream(file);
-                    workBook = StreamingReader.builder().open(inputStream);
-                    for (int i = 1; i < workBook.getNumberOfSheets(); i++) {
-                        boolean headerRowFound = false;
-                        Sheet sheet = workBook.getSheetAt(i);
-                        String valueSetName = "";
-                        String valueSetOid = "";
-                        String valueSetType = "";
-                        String valueSetVersion = "";
-                        String valueSetSteward = "";
-                        int valuesetDataRowCount = 0;
-                        String rowlabel = "";
-
-                        for(Row row : sheet){
-                            if ((!headerRowFound) && hasValueInCell(row, 0) && (row.getRowNum()<10)) {
-                            	rowlabel = row.getCell(0).getStringCellValue().trim();
-								// Switching to use labels in the first column to look for meta info 
-                                if (rowlabel.equalsIgnoreCase("VALUE SET NAME")) {
-                                    if(row.getCell(1).getStringCellValue() != null){
-                                        valueSetName = row.getCell(1).getStringCellValue().toUpperCase().trim();
-                                    }
-                                }
-                                if (rowlabel.equalsIgnoreCase("OID")) {
-                                    if(row.getCell(1) != null) {
-                                        valueSetOid = row.getCell(1).getStringCellValue().toUpperCase().trim();
-                                    }
-                                }
-                                if (rowlabel.equalsIgnoreCase("TYPE")) {
-                                    if(row.getCell(1) != null) {
-                                        valueSetType = row.getCell(1).getStringCellValue().toUpperCase().trim();
-                                    }
-                                }
-                                if (rowlabel.equalsIgnoreCase("DEFINITION VERSION")) {
-                                    if(row.getCell(1) != null) {
-                                        valueSetVersion = row.getCell(1).getStringCellValue().toUpperCase().trim();
-                                    }
-                                }
-                                if (rowlabel.equalsIgnoreCase("STEWARD")) {
-                                    if(row.getCell(1) != null) {
-                                        valueSetSteward = row.getCell(1).getStringCellValue().toUpperCase().trim();
-                                    }
-                                }
-                            }
-
-                            if(headerRowFound && canProcessRow(row)){
-                                preparedStatement.setString(1, row.getCell(0).getStringCellValue().toUpperCase().trim());
-                                preparedStatement.setString(2, row.getCell(1).getStringCellValue().toUpperCase().trim());
-                                preparedStatement.setString(3, row.getCell(2).getStringCellValue().toUpperCase().trim());
-                                preparedStatement.setString(4, row.getCell(3).getStringCellValue().trim());
-                                preparedStatement.setString(5, row.getCell(4).getStringCellValue().toUpperCase().trim());
-                                preparedStatement.setString(6, row.getCell(5).getStringCellValue().toUpperCase().trim());
-                                preparedStatement.setString(7, valueSetName);
-                                preparedStatement.setString(8, valueSetOid);
-                                preparedStatement.setString(9, valueSetType);
-                                preparedStatement.setString(10, valueSetVersion);
-                                preparedStatement.setString(11, valueSetSteward);
-                                preparedStatement.addBatch();
-                                valuesetDataRowCount++;
-
-                                if(valuesetDataRowCount % BATCH_SIZE == 0){
-                                    preparedStatement.executeBatch();
-                                    connection.commit();
-                                    preparedStatement.clearBatch();
-                                }
-                            }
-
-                            if(!headerRowFound){
-                                if(hasValueInCell(row, 0) && row.getCell(0).getStringCellValue().toUpperCase().trim().equals(HEADER_ROW_FINDER_KEY)){
-                                    headerRowFound = true;
-                                }
+                logger.info("Loading Value Set File: " + file.getName());
+                // the xlsx parse is the slow part, so sheets are parsed in parallel and inserts run on a writer thread behind them
+                try (XlsxSheetReader reader = new XlsxSheetReader(file)) {
+                    List<ValueSetSink> writers = Collections.singletonList(new ValueSetSink(connection, getBatchSize()));
+                    try (final LoadPipeline<ValueSetRow> pipeline = LoadPipeline.start("VSAC", getBatchSize(), getLoadQueueCapacity(), writers)) {
+                        final AtomicInteger loadedSheetCount = new AtomicInteger();
+                        final AtomicInteger skippedSheetCount = new AtomicInteger();
+                        reader.readSheets(1, getSheetThreadCount(), new XlsxSheetReader.SheetHandlerFactory() {
+                            @Override
+                            public XlsxSheetReader.SheetHandler newSheetHandler(int sheetIndex, String sheetName) {
+                                return new SheetLoader(sheetName, pipeline.newProducer(), valuesetOidFilter, loadedSheetCount, skippedSheetCount);
                             }
+                        });
+                        pipeline.finish();
+                        if (valuesetOidFilter != null) {
+                            logger.info(file.getName() + ": loaded " + loadedSheetCount.get() + " value sets, skipped " + skippedSheetCount.get()
+                                    + " that no validation configuration names");
                         }
-
-                        preparedStatement.executeBatch();
-                        connection.commit();
                     }
                 } catch (IOException | SQLException e) {
                     logger.error("ERROR loading valueset. " + e.getLocalizedMessage());
                     e.printStackTrace();
-                } finally {
-                	if(workBook != null) {
-	                	try {
-							workBook.close();
-						} catch (IOException e) {
-							logger.error("ERROR closing workBook. " + e.getLocalizedMessage());
-							e.printStackTrace();
-						}
-                	}
                 }
             }
         }
     }
 
-    private boolean canProcessRow(Row row) {
-        return hasCodevalueInFirstCell(row) && hasExpectedNumberOfCellsInRow(row);
+    /**
+     * Loads the rows of one value set sheet. The metadata rows at the top name the value set; its member
+     * rows follow the header row whose first cell is CODE.
+     */
+    private static class SheetLoader implements XlsxSheetReader.SheetHandler {
+        private final String sheetName;
+        private final LoadPipeline<ValueSetRow>.Producer producer;
+        private final Set<String> valuesetOidFilter;
+        private final AtomicInteger loadedSheetCount;
+        private final AtomicInteger skippedSheetCount;
+        private boolean headerRowFound = false;
+        private boolean skipped = false;
+        private int rowCount = 0;
+        private String valueSetName = "";
+        private String valueSetOid = "";
+        private String valueSetType = "";
+        private String valueSetVersion = "";
+        private String valueSetSteward = "";
+
+        SheetLoader(String sheetName, LoadPipeline<ValueSetRow>.Producer producer, Set<String> valuesetOidFilter,
+                    AtomicInteger loadedSheetCount, AtomicInteger skippedSheetCount) {
+            this.sheetName = sheetName;
+            this.producer = producer;
+            this.valuesetOidFilter = valuesetOidFilter;
+            this.loadedSheetCount = loadedSheetCount;
+            this.skippedSheetCount = skippedSheetCount;
+        }
+
+        @Override
+        public boolean row(int rowIndex, String[] cells) throws SQLException {
+            if ((!headerRowFound) && hasValueInCell(cells, 0) && (rowIndex < 10)) {
+                String rowlabel = cells[0].trim();
+                // Switching to use labels in the first column to look for meta info
+                if (rowlabel.equalsIgnoreCase("VALUE SET NAME")) {
+                    valueSetName = cell(cells, 1).toUpperCase().trim();
+                }
+                if (rowlabel.equalsIgnoreCase("OID")) {
+                    valueSetOid = cell(cells, 1).toUpperCase().trim();
+                    if (valuesetOidFilter != null && !valuesetOidFilter.contains(valueSetOid)) {
+                        // the member rows of a skipped sheet are never parsed
+                        logger.info("Value set " + valueSetOid + " (sheet " + sheetName + "): skipped");
+                        skipped = true;
+                        return false;
+                    }
+                }
+                if (rowlabel.equalsIgnoreCase("TYPE")) {
+                    valueSetType = cell(cells, 1).toUpperCase().trim();
+                }
+                if (rowlabel.equalsIgnoreCase("DEFINITION VERSION")) {
+                    valueSetVersion = cell(cells, 1).toUpperCase().trim();
+                }
+                if (rowlabel.equalsIgnoreCase("STEWARD")) {
+                    valueSetSteward = cell(cells, 1).toUpperCase().trim();
+                }
+            }
+
+            if (headerRowFound && canProcessRow(cells)) {
+                producer.add(new ValueSetRow(
+                        cells[0].toUpperCase().trim(),
+                        cells[1].toUpperCase().trim(),
+                        cells[2].toUpperCase().trim(),
+                        cells[3].trim(),
+                        cells[4].toUpperCase().trim(),
+                        cells[5].toUpperCase().trim(),
+                        valueSetName,
+                        valueSetOid,
+                        valueSetType,
+                        valueSetVersion,
+                        valueSetSteward));
+                rowCount++;
+            }
+
+            if (!headerRowFound) {
+                if (hasValueInCell(cells, 0) && cells[0].toUpperCase().trim().equals(HEADER_ROW_FINDER_KEY)) {
+                    headerRowFound = true;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void endSheet() throws SQLException {
+            producer.flush();
+            if (skipped) {
+                skippedSheetCount.incrementAndGet();
+            } else {
+                loadedSheetCount.incrementAndGet();
+                if (valuesetOidFilter != null) {
+                    logger.info("Value set " + valueSetOid + " (sheet " + sheetName + "): loaded " + rowCount + " rows");
+                }
+            }
+        }
+    }
+
+    private static boolean canProcessRow(String[] cells) {
+        return hasCodevalueInFirstCell(cells) && hasExpectedNumberOfCellsInRow(cells);
+    }
+
+    private static boolean hasCodevalueInFirstCell(String[] cells) {
+        return hasValueInCell(cells, CODE_CELL_INDEX_IN_ROW);
     }
 
-    private boolean hasCodevalueInFirstCell(Row row){
-        return hasValueInCell(row, CODE_CELL_INDEX_IN_ROW);
+    private static boolean hasExpectedNumberOfCellsInRow(String[] cells) {
+        return cells.length >= MIN_EXPECTED_NUMBER_OF_CELLS_IN_ROW;
     }
 
-    private boolean hasExpectedNumberOfCellsInRow(Row row) {
-        return row.getLastCellNum() >= MIN_EXPECTED_NUMBER_OF_CELLS_IN_ROW;
+    private static boolean hasValueInCell(String[] cells, int cellNum) {
+        return cellNum < cells.length && !cells[cellNum].isEmpty();
     }
 
-    private boolean hasValueInCell(Row row, int cellNum) {
-        return row.getCell(cellNum) != null && !row.getCell(cellNum).getStringCellValue().isEmpty();
+    private static String cell(String[] cells, int cellNum) {
+        return cellNum < cells.length ? cells[cellNum] : "";
     }
 }
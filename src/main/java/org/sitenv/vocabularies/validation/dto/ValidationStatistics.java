@@ -0,0 +1,140 @@
+package org.sitenv.vocabularies.validation.dto;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The numbers of one validation, returned with its results in a {@link VocabularyValidationReport}. Unlike
+ * the shared {@link GlobalCodeValidatorResults} they cannot be overwritten by a validation running at the same
+ * time.
+ */
+public class ValidationStatistics {
+
+	private int vocabularyValidationConfigurationsCount;
+	private int vocabularyValidationConfigurationsErrorCount;
+	private long nodeCount;
+	private int errorCount;
+	private int warningCount;
+	private int infoCount;
+	private long lookupCount;
+	private Map<String, Long> lookupCounts = Collections.emptyMap();
+	private boolean lookupBudgetExceeded;
+	private int unvalidatedConfigurationsCount;
+	private List<String> unloadedPartitions = Collections.emptyList();
+
+	/**
+	 * @return the configured expressions that were evaluated, after limiting them to the severity level
+	 */
+	public int getVocabularyValidationConfigurationsCount() {
+		return vocabularyValidationConfigurationsCount;
+	}
+
+	public void setVocabularyValidationConfigurationsCount(int vocabularyValidationConfigurationsCount) {
+		this.vocabularyValidationConfigurationsCount = vocabularyValidationConfigurationsCount;
+	}
+
+	/**
+	 * @return the configured validators that report errors, after limiting them to the severity level
+	 */
+	public int getVocabularyValidationConfigurationsErrorCount() {
+		return vocabularyValidationConfigurationsErrorCount;
+	}
+
+	public void setVocabularyValidationConfigurationsErrorCount(int vocabularyValidationConfigurationsErrorCount) {
+		this.vocabularyValidationConfigurationsErrorCount = vocabularyValidationConfigurationsErrorCount;
+	}
+
+	/**
+	 * @return the nodes the evaluated expressions matched, each validated once per expression
+	 */
+	public long getNodeCount() {
+		return nodeCount;
+	}
+
+	public void setNodeCount(long nodeCount) {
+		this.nodeCount = nodeCount;
+	}
+
+	public int getErrorCount() {
+		return errorCount;
+	}
+
+	public void setErrorCount(int errorCount) {
+		this.errorCount = errorCount;
+	}
+
+	public int getWarningCount() {
+		return warningCount;
+	}
+
+	public void setWarningCount(int warningCount) {
+		this.warningCount = warningCount;
+	}
+
+	public int getInfoCount() {
+		return infoCount;
+	}
+
+	public void setInfoCount(int infoCount) {
+		this.infoCount = infoCount;
+	}
+
+	/**
+	 * @return the vocabulary lookups the validators made
+	 */
+	public long getLookupCount() {
+		return lookupCount;
+	}
+
+	public void setLookupCount(long lookupCount) {
+		this.lookupCount = lookupCount;
+	}
+
+	/**
+	 * @return the vocabulary lookups per type, see
+	 *         {@link org.sitenv.vocabularies.validation.repositories.VocabularyLookupRepository.LookupType}
+	 */
+	public Map<String, Long> getLookupCounts() {
+		return lookupCounts;
+	}
+
+	public void setLookupCounts(Map<String, Long> lookupCounts) {
+		this.lookupCounts = lookupCounts;
+	}
+
+	/**
+	 * @return true if the validation was stopped at its lookup budget, so its results are incomplete
+	 */
+	public boolean isLookupBudgetExceeded() {
+		return lookupBudgetExceeded;
+	}
+
+	public void setLookupBudgetExceeded(boolean lookupBudgetExceeded) {
+		this.lookupBudgetExceeded = lookupBudgetExceeded;
+	}
+
+	/**
+	 * @return the configured expressions whose nodes were not all validated because the lookup budget was exceeded
+	 */
+	public int getUnvalidatedConfigurationsCount() {
+		return unvalidatedConfigurationsCount;
+	}
+
+	public void setUnvalidatedConfigurationsCount(int unvalidatedConfigurationsCount) {
+		this.unvalidatedConfigurationsCount = unvalidatedConfigurationsCount;
+	}
+
+	/**
+	 * @return the vocabulary partitions a lazy load deferred that the validators needed but that failed to load,
+	 *         so codes of them were reported as not found
+	 */
+	public List<String> getUnloadedPartitions() {
+		return unloadedPartitions;
+	}
+
+	public void setUnloadedPartitions(List<String> unloadedPartitions) {
+		this.unloadedPartitions = unloadedPartitions;
+	}
+
+}
@@ -0,0 +1,26 @@
+package org.sitenv.vocabularies.validation.dto;
+
+import java.util.List;
+
+/**
+ * The results of one validation together with its {@link ValidationStatistics}.
+ */
+public class VocabularyValidationReport {
+
+	private final List<VocabularyValidationResult> results;
+	private final ValidationStatistics statistics;
+
+	public VocabularyValidationReport(List<VocabularyValidationResult> results, ValidationStatistics statistics) {
+		this.results = results;
+		this.statistics = statistics;
+	}
+
+	public List<VocabularyValidationResult> getResults() {
+		return results;
+	}
+
+	public ValidationStatistics getStatistics() {
+		return statistics;
+	}
+
+}
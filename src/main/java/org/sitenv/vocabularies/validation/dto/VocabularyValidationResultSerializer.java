@@ -0,0 +1,163 @@
+package org.sitenv.vocabularies.validation.dto;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes validation results straight to an OutputStream as a JSON array or as newline-delimited JSON
+ * (one result per line). Results are emitted through a streaming generator as they are handed over,
+ * so no intermediate tree or string is built regardless of how many results a document produces.
+ * Property names match the bean properties of VocabularyValidationResult and NodeValidationResult.
+ */
+public class VocabularyValidationResultSerializer {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public enum Format {
+        JSON,
+        NDJSON
+    }
+
+    private final Format format;
+
+    public VocabularyValidationResultSerializer() {
+        this(Format.JSON);
+    }
+
+    public VocabularyValidationResultSerializer(Format format) {
+        this.format = format;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public void serialize(Iterable<VocabularyValidationResult> results, OutputStream outputStream) throws IOException {
+        try (ResultWriter resultWriter = open(outputStream)) {
+            for (VocabularyValidationResult result : results) {
+                resultWriter.write(result);
+            }
+        }
+    }
+
+    /**
+     * Opens a writer over the given stream. Closing the writer finishes the document and flushes it but
+     * leaves the underlying stream open for the caller.
+     */
+    public ResultWriter open(OutputStream outputStream) throws IOException {
+        JsonGenerator generator = JSON_FACTORY.createGenerator(outputStream, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        // lines are terminated explicitly for NDJSON, so no separator between root values
+        generator.setRootValueSeparator(null);
+        return new ResultWriter(generator, format);
+    }
+
+    public static class ResultWriter implements Closeable {
+        private final JsonGenerator generator;
+        private final Format format;
+        private boolean started;
+        private boolean closed;
+        private long count;
+
+        private ResultWriter(JsonGenerator generator, Format format) {
+            this.generator = generator;
+            this.format = format;
+        }
+
+        public void write(VocabularyValidationResult result) throws IOException {
+            if (closed) {
+                throw new IOException("ResultWriter is already closed");
+            }
+            startIfNeeded();
+            writeVocabularyValidationResult(generator, result);
+            if (format == Format.NDJSON) {
+                generator.writeRaw('\n');
+            }
+            count++;
+        }
+
+        public void flush() throws IOException {
+            generator.flush();
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            startIfNeeded();
+            if (format == Format.JSON) {
+                generator.writeEndArray();
+            }
+            closed = true;
+            generator.close();
+        }
+
+        private void startIfNeeded() throws IOException {
+            if (!started) {
+                if (format == Format.JSON) {
+                    generator.writeStartArray();
+                }
+                started = true;
+            }
+        }
+    }
+
+    private static void writeVocabularyValidationResult(JsonGenerator generator, VocabularyValidationResult result) throws IOException {
+        generator.writeStartObject();
+        if (result.getNodeValidationResult() != null) {
+            generator.writeFieldName("nodeValidationResult");
+            writeNodeValidationResult(generator, result.getNodeValidationResult());
+        } else {
+            generator.writeNullField("nodeValidationResult");
+        }
+        writeStringField(generator, "message", result.getMessage());
+        writeStringField(generator, "vocabularyValidationResultLevel",
+                result.getVocabularyValidationResultLevel() != null ? result.getVocabularyValidationResultLevel().name() : null);
+        generator.writeEndObject();
+    }
+
+    private static void writeNodeValidationResult(JsonGenerator generator, NodeValidationResult nodeValidationResult) throws IOException {
+        generator.writeStartObject();
+        generator.writeBooleanField("valid", nodeValidationResult.isValid());
+        writeStringField(generator, "validatedDocumentXpathExpression", nodeValidationResult.getValidatedDocumentXpathExpression());
+        generator.writeNumberField("baseNodeIndex", nodeValidationResult.getBaseNodeIndex());
+        writeStringField(generator, "configuredXpathExpression", nodeValidationResult.getConfiguredXpathExpression());
+        generator.writeNumberField("nodeIndex", nodeValidationResult.getNodeIndex());
+        writeStringField(generator, "requestedCode", nodeValidationResult.getRequestedCode());
+        writeStringField(generator, "requestedCodeSystem", nodeValidationResult.getRequestedCodeSystem());
+        writeStringField(generator, "requestedCodeSystemName", nodeValidationResult.getRequestedCodeSystemName());
+        writeStringField(generator, "requestedDisplayName", nodeValidationResult.getRequestedDisplayName());
+        writeStringField(generator, "requestedUnit", nodeValidationResult.getRequestedUnit());
+        writeStringField(generator, "requestedClassCode", nodeValidationResult.getRequestedClassCode());
+        writeStringField(generator, "requestedText", nodeValidationResult.getRequestedText());
+        writeStringField(generator, "requestedNode", nodeValidationResult.getRequestedNode());
+        writeStringField(generator, "configuredAllowableValuesetOidsForNode", nodeValidationResult.getConfiguredAllowableValuesetOidsForNode());
+        writeStringField(generator, "configuredAllowableCodesystemNamesForNode", nodeValidationResult.getConfiguredAllowableCodesystemNamesForNode());
+        writeStringField(generator, "configuredValidationMessage", nodeValidationResult.getConfiguredValidationMessage());
+        generator.writeBooleanField("nodeCodeSystemOIDFound", nodeValidationResult.isNodeCodeSystemOIDFound());
+        generator.writeBooleanField("nodeValuesetsFound", nodeValidationResult.isNodeValuesetsFound());
+        generator.writeBooleanField("codeSystemFound", nodeValidationResult.isCodeSystemFound());
+        generator.writeBooleanField("nodeCodeFound", nodeValidationResult.isNodeCodeFound());
+        generator.writeBooleanField("nodeCodeSystemNameFound", nodeValidationResult.isNodeCodeSystemNameFound());
+        generator.writeBooleanField("nodeDisplayNameFound", nodeValidationResult.isNodeDisplayNameFound());
+        generator.writeBooleanField("nodeCodeIsActive", nodeValidationResult.isNodeCodeIsActive());
+        generator.writeEndObject();
+    }
+
+    private static void writeStringField(JsonGenerator generator, String fieldName, String value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(fieldName, value);
+        } else {
+            generator.writeNullField(fieldName);
+        }
+    }
+}
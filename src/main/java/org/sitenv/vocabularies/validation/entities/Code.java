@@ -2,7 +2,10 @@ package org.sitenv.vocabularies.validation.entities;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
 import javax.persistence.Table;
 
 /**
@@ -18,24 +21,19 @@ public class Code {
     @Column(name = "CODE")
     private String code;
 
-    @Column(name = "DISPLAYNAME")
-    private String displayName;
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "DISPLAYNAME_ID")
+    private DisplayName display;
 
-    @Column(name = "CODESYSTEM")
-    private String codeSystem;
-
-    @Column(name = "CODESYSTEMOID")
-    private String codeSystemOID;
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "CODESYSTEM_ID")
+    private CodeSystem system;
 
     @Column(name = "ACTIVE")
     private boolean active;
 
     public String getCodeSystemOID() {
-        return codeSystemOID;
-    }
-
-    public void setCodeSystemOID(String codeSystemOID) {
-        this.codeSystemOID = codeSystemOID;
+        return system.getOid();
     }
 
     public Integer getId() {
@@ -55,19 +53,19 @@ public class Code {
     }
 
     public String getDisplayName() {
-        return displayName;
+        return display.getDisplayName();
     }
 
-    public void setDisplayName(String displayName) {
-        this.displayName = displayName;
+    public void setDisplay(DisplayName display) {
+        this.display = display;
     }
 
     public String getCodeSystem() {
-        return codeSystem;
+        return system.getName();
     }
 
-    public void setCodeSystem(String codeSystem) {
-        this.codeSystem = codeSystem;
+    public void setSystem(CodeSystem system) {
+        this.system = system;
     }
 
     public boolean isActive() {
@@ -77,4 +75,4 @@ public class Code {
     public void setActive(boolean active) {
         this.active = active;
     }
-}
\ No newline at end of file
+}
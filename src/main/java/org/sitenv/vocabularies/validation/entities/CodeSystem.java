@@ -0,0 +1,47 @@
+package org.sitenv.vocabularies.validation.entities;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * A code system of the CODES table, stored once and referenced by its integer ID.
+ */
+@Entity
+@Table(name = "CODESYSTEMS")
+public class CodeSystem {
+    @Id
+    @Column(name = "ID")
+    private Integer Id;
+
+    @Column(name = "NAME")
+    private String name;
+
+    @Column(name = "OID")
+    private String oid;
+
+    public Integer getId() {
+        return Id;
+    }
+
+    public void setId(Integer id) {
+        Id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getOid() {
+        return oid;
+    }
+
+    public void setOid(String oid) {
+        this.oid = oid;
+    }
+}
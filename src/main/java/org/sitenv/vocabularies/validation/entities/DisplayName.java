@@ -0,0 +1,47 @@
+package org.sitenv.vocabularies.validation.entities;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * A display name shared by every code and value set member that uses it.
+ */
+@Entity
+@Table(name = "DISPLAYNAMES")
+public class DisplayName {
+    @Id
+    @Column(name = "ID")
+    private Integer Id;
+
+    @Column(name = "DISPLAYNAME_HASH")
+    private long displayNameHash;
+
+    @Column(name = "DISPLAYNAME")
+    private String displayName;
+
+    public Integer getId() {
+        return Id;
+    }
+
+    public void setId(Integer id) {
+        Id = id;
+    }
+
+    public long getDisplayNameHash() {
+        return displayNameHash;
+    }
+
+    public void setDisplayNameHash(long displayNameHash) {
+        this.displayNameHash = displayNameHash;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public void setDisplayName(String displayName) {
+        this.displayName = displayName;
+    }
+}
@@ -0,0 +1,80 @@
+package org.sitenv.vocabularies.validation.entities;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * The columns a value set repeated on every member row. Missing values are stored as empty strings.
+ */
+@Entity
+@Table(name = "VALUESETHEADERS")
+public class ValueSetHeader {
+    @Id
+    @Column(name = "ID")
+    private Integer Id;
+
+    @Column(name = "OID")
+    private String oid;
+
+    @Column(name = "NAME")
+    private String name;
+
+    @Column(name = "TYPE")
+    private String type;
+
+    @Column(name = "DEFINITIONVERSION")
+    private String definitionVersion;
+
+    @Column(name = "STEWARD")
+    private String steward;
+
+    public Integer getId() {
+        return Id;
+    }
+
+    public void setId(Integer id) {
+        Id = id;
+    }
+
+    public String getOid() {
+        return oid;
+    }
+
+    public void setOid(String oid) {
+        this.oid = oid;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getDefinitionVersion() {
+        return definitionVersion;
+    }
+
+    public void setDefinitionVersion(String definitionVersion) {
+        this.definitionVersion = definitionVersion;
+    }
+
+    public String getSteward() {
+        return steward;
+    }
+
+    public void setSteward(String steward) {
+        this.steward = steward;
+    }
+}
@@ -2,52 +2,40 @@ package org.sitenv.vocabularies.validation.entities;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
 import javax.persistence.Table;
 
 /**
  * Created by Brian on 2/5/2016.
  */
 @Entity
-@Table(name = "VALUESETS")
+@Table(name = "VALUESETMEMBERS")
 public class VsacValueSet {
     @Id
     @Column(name = "ID")
     private Integer Id;
 
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "VALUESET_ID")
+    private ValueSetHeader header;
+
     @Column(name ="CODE")
     private String code;
 
-    @Column(name = "DISPLAYNAME")
-    private String displayName;
-
-    @Column(name = "CODESYSTEMNAME")
-    private String codeSystemName;
-
-    @Column(name = "CODESYSTEMVERSION")
-    private String codeSystemVersion;
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "DISPLAYNAME_ID")
+    private DisplayName display;
 
-    @Column(name = "CODESYSTEM")
-    private String codeSystem;
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "CODESYSTEM_ID")
+    private ValueSetCodeSystem system;
 
     @Column(name = "TTY")
     private String tty;
 
-    @Column(name = "VALUESETNAME")
-    private String valuesetName;
-
-    @Column(name = "VALUESETOID")
-    private String valuesetOid;
-
-    @Column(name = "VALUESETTYPE")
-    private String valuesetType;
-
-    @Column(name = "VALUESETDEFINITIONVERSION")
-    private String valuesetDefinitionVersion;
-
-    @Column(name = "VALUESETSTEWARD")
-    private String valuesetSteward;
-
     public Integer getId() {
         return Id;
     }
@@ -65,35 +53,27 @@ public class VsacValueSet {
     }
 
     public String getDisplayName() {
-        return displayName;
+        return display.getDisplayName();
     }
 
-    public void setDisplayName(String displayName) {
-        this.displayName = displayName;
+    public void setDisplay(DisplayName display) {
+        this.display = display;
     }
 
     public String getCodeSystemName() {
-        return codeSystemName;
-    }
-
-    public void setCodeSystemName(String codeSystemName) {
-        this.codeSystemName = codeSystemName;
+        return system.getName();
     }
 
     public String getCodeSystemVersion() {
-        return codeSystemVersion;
-    }
-
-    public void setCodeSystemVersion(String codeSystemVersion) {
-        this.codeSystemVersion = codeSystemVersion;
+        return system.getVersion();
     }
 
     public String getCodeSystem() {
-        return codeSystem;
+        return system.getOid();
     }
 
-    public void setCodeSystem(String codeSystem) {
-        this.codeSystem = codeSystem;
+    public void setSystem(ValueSetCodeSystem system) {
+        this.system = system;
     }
 
     public String getTty() {
@@ -105,42 +85,26 @@ public class VsacValueSet {
     }
 
     public String getValuesetName() {
-        return valuesetName;
-    }
-
-    public void setValuesetName(String valuesetName) {
-        this.valuesetName = valuesetName;
+        return header.getName();
     }
 
     public String getValuesetOid() {
-        return valuesetOid;
-    }
-
-    public void setValuesetOid(String valuesetOid) {
-        this.valuesetOid = valuesetOid;
+        return header.getOid();
     }
 
     public String getValuesetType() {
-        return valuesetType;
-    }
-
-    public void setValuesetType(String valuesetType) {
-        this.valuesetType = valuesetType;
+        return header.getType();
     }
 
     public String getValuesetDefinitionVersion() {
-        return valuesetDefinitionVersion;
-    }
-
-    public void setValuesetDefinitionVersion(String valuesetDefinitionVersion) {
-        this.valuesetDefinitionVersion = valuesetDefinitionVersion;
+        return header.getDefinitionVersion();
     }
 
     public String getValuesetSteward() {
-        return valuesetSteward;
+        return header.getSteward();
     }
 
-    public void setValuesetSteward(String valuesetSteward) {
-        this.valuesetSteward = valuesetSteward;
+    public void setHeader(ValueSetHeader header) {
+        this.header = header;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,29 @@
+package org.sitenv.vocabularies.validation.metrics;
+
+/**
+ * What the validations spent on one configured xpathExpression: the time its evaluations took, in
+ * nanoseconds, and the number of nodes each matched.
+ */
+public class ExpressionStatistics {
+    private final String xpathExpression;
+    private final HistogramSnapshot xpathNanos;
+    private final HistogramSnapshot nodesMatched;
+
+    ExpressionStatistics(String xpathExpression, HistogramSnapshot xpathNanos, HistogramSnapshot nodesMatched) {
+        this.xpathExpression = xpathExpression;
+        this.xpathNanos = xpathNanos;
+        this.nodesMatched = nodesMatched;
+    }
+
+    public String getXpathExpression() {
+        return xpathExpression;
+    }
+
+    public HistogramSnapshot getXpathNanos() {
+        return xpathNanos;
+    }
+
+    public HistogramSnapshot getNodesMatched() {
+        return nodesMatched;
+    }
+}
@@ -0,0 +1,101 @@
+package org.sitenv.vocabularies.validation.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of non negative values that threads record into without locking, laid out like an HDR
+ * histogram: values below 16 each have a bucket, above that every power of two is split into 16 buckets, so a
+ * percentile is reported within 1/16 of the recorded value. Values above the highest trackable value are
+ * counted in the last bucket; the maximum is kept exactly.
+ *
+ * A {@link #snapshot()} taken while other threads record is not atomic, it may miss the values recorded
+ * during the copy.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private final long highestTrackableValue;
+    private final AtomicLongArray counts;
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param highestTrackableValue the largest value told apart from larger ones, for instance an hour in
+     *        nanoseconds for timings
+     */
+    public LatencyHistogram(long highestTrackableValue) {
+        this.highestTrackableValue = Math.max(SUB_BUCKET_COUNT, highestTrackableValue);
+        this.counts = new AtomicLongArray(bucketIndex(this.highestTrackableValue) + 1);
+    }
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucketIndex(Math.min(value, highestTrackableValue)));
+        sum.add(value);
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    public HistogramSnapshot snapshot() {
+        long[] bucketCounts = new long[counts.length()];
+        long count = 0;
+        for (int bucket = 0; bucket < bucketCounts.length; bucket++) {
+            bucketCounts[bucket] = counts.get(bucket);
+            count += bucketCounts[bucket];
+        }
+        long maxValue = max.get();
+        return new HistogramSnapshot(count, count == 0 ? 0 : sum.sum() / (double) count, maxValue,
+                valueAtPercentile(bucketCounts, count, 50, maxValue), valueAtPercentile(bucketCounts, count, 90, maxValue),
+                valueAtPercentile(bucketCounts, count, 99, maxValue), valueAtPercentile(bucketCounts, count, 99.9, maxValue));
+    }
+
+    public void reset() {
+        for (int bucket = 0; bucket < counts.length(); bucket++) {
+            counts.set(bucket, 0);
+        }
+        sum.reset();
+        max.set(0);
+    }
+
+    /**
+     * @return the highest value of the bucket the percentile falls into, or the maximum if that is lower
+     */
+    private static long valueAtPercentile(long[] bucketCounts, long count, double percentile, long maxValue) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int bucket = 0; bucket < bucketCounts.length; bucket++) {
+            seen += bucketCounts[bucket];
+            if (seen >= rank) {
+                return Math.min(highestValueOfBucket(bucket), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKET_COUNT + (int) (value >>> shift);
+    }
+
+    static long highestValueOfBucket(int bucket) {
+        if (bucket < 2 * SUB_BUCKET_COUNT) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKET_COUNT - 1;
+        long subBucket = bucket % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
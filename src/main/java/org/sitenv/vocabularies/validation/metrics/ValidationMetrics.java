@@ -0,0 +1,318 @@
+package org.sitenv.vocabularies.validation.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects how long the validations spend on each configured xpathExpression and in each node validator, in
+ * {@link LatencyHistogram}s that the validation threads record into without locking, so percentiles are
+ * available in production without a profiler. Per expression it records the XPath evaluation time and the
+ * nodes matched; per validator the validateNode time and the vocabulary lookups issued.
+ *
+ * It also keeps {@link ValidationTotals} of the documents, nodes, results by severity and configured expressions of
+ * all validations, in LongAdders, so concurrent validations add to them without contending for a lock.
+ *
+ * {@link #getSnapshot()} returns the statistics; with registerMBeans they are also registered in the platform
+ * MBean server, as org.sitenv.vocabularies:type=ValidationMetrics and one
+ * org.sitenv.vocabularies:type=ValidationMetrics,validator=name per validator. When disabled no histogram is
+ * recorded and the validations do not read the clock; the totals are counted either way.
+ */
+public class ValidationMetrics implements ValidationMetricsMXBean, InitializingBean, DisposableBean {
+    private static Logger logger = LoggerFactory.getLogger(ValidationMetrics.class);
+    private static final String OBJECT_NAME = "org.sitenv.vocabularies:type=ValidationMetrics";
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.HOURS.toNanos(1);
+    private static final long HIGHEST_TRACKABLE_COUNT = 1L << 24;
+
+    private volatile boolean enabled = true;
+    private boolean registerMBeans = false;
+    private MBeanServer mBeanServer;
+    private final List<ObjectName> registeredNames = Collections.synchronizedList(new ArrayList<ObjectName>());
+    private final ConcurrentMap<String, ExpressionMetrics> expressionMetrics = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ValidatorMetrics> validatorMetrics = new ConcurrentHashMap<>();
+    private final LongAdder lookupCount = new LongAdder();
+    private final LongAdder documentCount = new LongAdder();
+    private final LongAdder nodeCount = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final LongAdder warningCount = new LongAdder();
+    private final LongAdder infoCount = new LongAdder();
+    private final LongAdder configurationsExecutedCount = new LongAdder();
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isRegisterMBeans() {
+        return registerMBeans;
+    }
+
+    public void setRegisterMBeans(boolean registerMBeans) {
+        this.registerMBeans = registerMBeans;
+    }
+
+    public void recordExpression(String xpathExpression, long xpathNanos, int nodesMatched) {
+        ExpressionMetrics metrics = expressionMetrics.get(xpathExpression);
+        if (metrics == null) {
+            metrics = putIfAbsent(expressionMetrics, xpathExpression, new ExpressionMetrics(xpathExpression));
+        }
+        metrics.xpathNanos.record(xpathNanos);
+        metrics.nodesMatched.record(nodesMatched);
+    }
+
+    public void recordValidator(String validatorName, long validateNodeNanos, long lookups) {
+        ValidatorMetrics metrics = validatorMetrics.get(validatorName);
+        if (metrics == null) {
+            metrics = new ValidatorMetrics(validatorName);
+            ValidatorMetrics existing = validatorMetrics.putIfAbsent(validatorName, metrics);
+            if (existing != null) {
+                metrics = existing;
+            } else {
+                register(metrics, OBJECT_NAME + ",validator=" + ObjectName.quote(validatorName));
+            }
+        }
+        metrics.validateNodeNanos.record(validateNodeNanos);
+        metrics.lookups.record(lookups);
+        lookupCount.add(lookups);
+    }
+
+    /**
+     * Adds a validated document to the totals.
+     */
+    public void recordDocument(long nodes, int errors, int warnings, int info, int configurationsExecuted) {
+        documentCount.increment();
+        nodeCount.add(nodes);
+        errorCount.add(errors);
+        warningCount.add(warnings);
+        infoCount.add(info);
+        configurationsExecutedCount.add(configurationsExecuted);
+    }
+
+    public Snapshot getSnapshot() {
+        return new Snapshot(getExpressions(), getValidators(), getLookupCount(), getTotals());
+    }
+
+    @Override
+    public ValidationTotals getTotals() {
+        return new ValidationTotals(documentCount.sum(), nodeCount.sum(), errorCount.sum(), warningCount.sum(), infoCount.sum(),
+                configurationsExecutedCount.sum());
+    }
+
+    @Override
+    public List<ExpressionStatistics> getExpressions() {
+        List<ExpressionStatistics> expressions = new ArrayList<>();
+        for (ExpressionMetrics metrics : expressionMetrics.values()) {
+            expressions.add(new ExpressionStatistics(metrics.xpathExpression, metrics.xpathNanos.snapshot(),
+                    metrics.nodesMatched.snapshot()));
+        }
+        Collections.sort(expressions, new Comparator<ExpressionStatistics>() {
+            @Override
+            public int compare(ExpressionStatistics first, ExpressionStatistics second) {
+                return first.getXpathExpression().compareTo(second.getXpathExpression());
+            }
+        });
+        return expressions;
+    }
+
+    @Override
+    public List<ValidatorStatistics> getValidators() {
+        List<ValidatorStatistics> validators = new ArrayList<>();
+        for (ValidatorMetrics metrics : validatorMetrics.values()) {
+            validators.add(metrics.statistics());
+        }
+        Collections.sort(validators, new Comparator<ValidatorStatistics>() {
+            @Override
+            public int compare(ValidatorStatistics first, ValidatorStatistics second) {
+                return first.getName().compareTo(second.getName());
+            }
+        });
+        return validators;
+    }
+
+    @Override
+    public long getLookupCount() {
+        return lookupCount.sum();
+    }
+
+    /**
+     * Clears the statistics; values recorded during the reset may be partly kept.
+     */
+    @Override
+    public void reset() {
+        for (ExpressionMetrics metrics : expressionMetrics.values()) {
+            metrics.xpathNanos.reset();
+            metrics.nodesMatched.reset();
+        }
+        for (ValidatorMetrics metrics : validatorMetrics.values()) {
+            metrics.validateNodeNanos.reset();
+            metrics.lookups.reset();
+        }
+        lookupCount.reset();
+        documentCount.reset();
+        nodeCount.reset();
+        errorCount.reset();
+        warningCount.reset();
+        infoCount.reset();
+        configurationsExecutedCount.reset();
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (registerMBeans) {
+            mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            register(this, OBJECT_NAME);
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        synchronized (registeredNames) {
+            for (ObjectName objectName : registeredNames) {
+                try {
+                    mBeanServer.unregisterMBean(objectName);
+                } catch (JMException e) {
+                    logger.warn("Could not unregister " + objectName + ": " + e.getMessage());
+                }
+            }
+            registeredNames.clear();
+        }
+    }
+
+    private void register(Object mBean, String name) {
+        if (mBeanServer == null) {
+            return;
+        }
+        try {
+            ObjectName objectName = new ObjectName(name);
+            mBeanServer.registerMBean(mBean, objectName);
+            registeredNames.add(objectName);
+        } catch (InstanceAlreadyExistsException e) {
+            // another application context in this JVM registered its metrics first
+            logger.info(name + " is already registered, these validation metrics are only available through getSnapshot()");
+        } catch (JMException e) {
+            logger.warn("Could not register " + name + ": " + e.getMessage());
+        }
+    }
+
+    private static <T> T putIfAbsent(ConcurrentMap<String, T> map, String key, T value) {
+        T existing = map.putIfAbsent(key, value);
+        return existing != null ? existing : value;
+    }
+
+    /**
+     * The statistics of all validations at one point in time.
+     */
+    public static class Snapshot {
+        private final List<ExpressionStatistics> expressions;
+        private final List<ValidatorStatistics> validators;
+        private final long lookupCount;
+        private final ValidationTotals totals;
+
+        Snapshot(List<ExpressionStatistics> expressions, List<ValidatorStatistics> validators, long lookupCount,
+                ValidationTotals totals) {
+            this.expressions = Collections.unmodifiableList(expressions);
+            this.validators = Collections.unmodifiableList(validators);
+            this.lookupCount = lookupCount;
+            this.totals = totals;
+        }
+
+        /**
+         * @return the statistics of each expression, ordered by expression
+         */
+        public List<ExpressionStatistics> getExpressions() {
+            return expressions;
+        }
+
+        /**
+         * @return the statistics of each validator, ordered by name
+         */
+        public List<ValidatorStatistics> getValidators() {
+            return validators;
+        }
+
+        public ExpressionStatistics getExpression(String xpathExpression) {
+            for (ExpressionStatistics expression : expressions) {
+                if (expression.getXpathExpression().equals(xpathExpression)) {
+                    return expression;
+                }
+            }
+            return null;
+        }
+
+        public ValidatorStatistics getValidator(String name) {
+            for (ValidatorStatistics validator : validators) {
+                if (validator.getName().equals(name)) {
+                    return validator;
+                }
+            }
+            return null;
+        }
+
+        public long getLookupCount() {
+            return lookupCount;
+        }
+
+        public ValidationTotals getTotals() {
+            return totals;
+        }
+    }
+
+    private static class ExpressionMetrics {
+        private final String xpathExpression;
+        private final LatencyHistogram xpathNanos = new LatencyHistogram(HIGHEST_TRACKABLE_NANOS);
+        private final LatencyHistogram nodesMatched = new LatencyHistogram(HIGHEST_TRACKABLE_COUNT);
+
+        ExpressionMetrics(String xpathExpression) {
+            this.xpathExpression = xpathExpression;
+        }
+    }
+
+    private static class ValidatorMetrics implements ValidatorMetricsMXBean {
+        private final String name;
+        private final LatencyHistogram validateNodeNanos = new LatencyHistogram(HIGHEST_TRACKABLE_NANOS);
+        private final LatencyHistogram lookups = new LatencyHistogram(HIGHEST_TRACKABLE_COUNT);
+
+        ValidatorMetrics(String name) {
+            this.name = name;
+        }
+
+        ValidatorStatistics statistics() {
+            return new ValidatorStatistics(name, validateNodeNanos.snapshot(), lookups.snapshot());
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public HistogramSnapshot getValidateNodeNanos() {
+            return validateNodeNanos.snapshot();
+        }
+
+        @Override
+        public HistogramSnapshot getLookups() {
+            return lookups.snapshot();
+        }
+    }
+}
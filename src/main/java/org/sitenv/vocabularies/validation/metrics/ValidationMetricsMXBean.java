@@ -0,0 +1,26 @@
+package org.sitenv.vocabularies.validation.metrics;
+
+import java.util.List;
+
+/**
+ * The statistics of all validations since the start or the last reset, registered as
+ * org.sitenv.vocabularies:type=ValidationMetrics.
+ */
+public interface ValidationMetricsMXBean {
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    List<ExpressionStatistics> getExpressions();
+
+    List<ValidatorStatistics> getValidators();
+
+    /**
+     * @return the vocabulary lookups the validators issued
+     */
+    long getLookupCount();
+
+    ValidationTotals getTotals();
+
+    void reset();
+}
@@ -0,0 +1,53 @@
+package org.sitenv.vocabularies.validation.metrics;
+
+/**
+ * The totals of all validations since the start or the last reset of {@link ValidationMetrics}.
+ */
+public class ValidationTotals {
+    private final long documentCount;
+    private final long nodeCount;
+    private final long errorCount;
+    private final long warningCount;
+    private final long infoCount;
+    private final long configurationsExecutedCount;
+
+    ValidationTotals(long documentCount, long nodeCount, long errorCount, long warningCount, long infoCount,
+            long configurationsExecutedCount) {
+        this.documentCount = documentCount;
+        this.nodeCount = nodeCount;
+        this.errorCount = errorCount;
+        this.warningCount = warningCount;
+        this.infoCount = infoCount;
+        this.configurationsExecutedCount = configurationsExecutedCount;
+    }
+
+    public long getDocumentCount() {
+        return documentCount;
+    }
+
+    /**
+     * @return the nodes the configured expressions matched
+     */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    public long getWarningCount() {
+        return warningCount;
+    }
+
+    public long getInfoCount() {
+        return infoCount;
+    }
+
+    /**
+     * @return the configured expressions evaluated
+     */
+    public long getConfigurationsExecutedCount() {
+        return configurationsExecutedCount;
+    }
+}
@@ -0,0 +1,236 @@
+package org.sitenv.vocabularies.validation.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The breakdown of one validation, for investigating a slow document: the time spent parsing it, resolving
+ * the validation configuration, evaluating and validating each configured expression and building the
+ * results. Per expression it holds the nodes matched and, per validator, the validateNode calls, their time,
+ * the vocabulary lookups they issued and how many of those reused a statement the lookup session had already
+ * prepared.
+ *
+ * A trace is filled in by passing it to one of the validate methods of
+ * {@link org.sitenv.vocabularies.validation.services.VocabularyValidationService} that take one; validations
+ * without a trace record nothing. A trace belongs to one validation and is not thread safe. All times are in
+ * nanoseconds.
+ */
+public class ValidationTrace {
+    private long parseNanos;
+    private long configurationNanos;
+    private long validationNanos;
+    private long resultBuildingNanos;
+    private int resultCount;
+    private final List<ExpressionTrace> expressions = new ArrayList<>();
+
+    public void recordParse(long nanos) {
+        parseNanos += nanos;
+    }
+
+    public void recordConfiguration(long nanos) {
+        configurationNanos += nanos;
+    }
+
+    public ExpressionTrace recordExpression(String xpathExpression, long xpathNanos, int nodesMatched) {
+        ExpressionTrace expression = new ExpressionTrace(xpathExpression, xpathNanos, nodesMatched);
+        expressions.add(expression);
+        return expression;
+    }
+
+    public void recordResultBuilding(long nanos, int resultCount) {
+        this.resultBuildingNanos += nanos;
+        this.resultCount = resultCount;
+    }
+
+    public void recordValidation(long nanos) {
+        validationNanos += nanos;
+    }
+
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+    /**
+     * @return the time spent resolving the dynamic configuration and limiting it to the severity level
+     */
+    public long getConfigurationNanos() {
+        return configurationNanos;
+    }
+
+    /**
+     * @return the time of the validation of the parsed document, from pinning the vocabulary to the list of
+     *         results; it includes the configuration, expression and result building times
+     */
+    public long getValidationNanos() {
+        return validationNanos;
+    }
+
+    public long getResultBuildingNanos() {
+        return resultBuildingNanos;
+    }
+
+    public long getTotalNanos() {
+        return parseNanos + validationNanos;
+    }
+
+    public int getResultCount() {
+        return resultCount;
+    }
+
+    /**
+     * @return the evaluated expressions, in the order they were evaluated
+     */
+    public List<ExpressionTrace> getExpressions() {
+        return Collections.unmodifiableList(expressions);
+    }
+
+    /**
+     * @return the validators summed over all expressions, in the order they were first called
+     */
+    public List<ValidatorTrace> getValidators() {
+        Map<String, ValidatorTrace> validators = new LinkedHashMap<>();
+        for (ExpressionTrace expression : expressions) {
+            for (ValidatorTrace validator : expression.getValidators()) {
+                ValidatorTrace total = validators.get(validator.getName());
+                if (total == null) {
+                    total = new ValidatorTrace(validator.getName());
+                    validators.put(validator.getName(), total);
+                }
+                total.add(validator);
+            }
+        }
+        return new ArrayList<>(validators.values());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder trace = new StringBuilder();
+        trace.append("total ").append(millis(getTotalNanos())).append(", parse ").append(millis(parseNanos))
+                .append(", configuration ").append(millis(configurationNanos)).append(", result building ")
+                .append(millis(resultBuildingNanos)).append(" (").append(resultCount).append(" results)");
+        for (ExpressionTrace expression : expressions) {
+            trace.append("\n  ").append(expression);
+        }
+        return trace.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f ms", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    /**
+     * One configured expression of the validation.
+     */
+    public static class ExpressionTrace {
+        private final String xpathExpression;
+        private final long xpathNanos;
+        private final int nodesMatched;
+        private final Map<String, ValidatorTrace> validators = new LinkedHashMap<>();
+
+        ExpressionTrace(String xpathExpression, long xpathNanos, int nodesMatched) {
+            this.xpathExpression = xpathExpression;
+            this.xpathNanos = xpathNanos;
+            this.nodesMatched = nodesMatched;
+        }
+
+        public void recordValidator(String name, long nanos, long lookups, long statementReuses) {
+            ValidatorTrace validator = validators.get(name);
+            if (validator == null) {
+                validator = new ValidatorTrace(name);
+                validators.put(name, validator);
+            }
+            validator.calls++;
+            validator.nanos += nanos;
+            validator.lookups += lookups;
+            validator.statementReuses += statementReuses;
+        }
+
+        public String getXpathExpression() {
+            return xpathExpression;
+        }
+
+        public long getXpathNanos() {
+            return xpathNanos;
+        }
+
+        public int getNodesMatched() {
+            return nodesMatched;
+        }
+
+        /**
+         * @return the validators of the expression, in the order they were first called
+         */
+        public List<ValidatorTrace> getValidators() {
+            return new ArrayList<>(validators.values());
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder trace = new StringBuilder(xpathExpression).append(": xpath ").append(millis(xpathNanos)).append(", ")
+                    .append(nodesMatched).append(" nodes");
+            for (ValidatorTrace validator : validators.values()) {
+                trace.append("; ").append(validator);
+            }
+            return trace.toString();
+        }
+    }
+
+    /**
+     * The validateNode calls of one validator.
+     */
+    public static class ValidatorTrace {
+        private final String name;
+        private int calls;
+        private long nanos;
+        private long lookups;
+        private long statementReuses;
+
+        ValidatorTrace(String name) {
+            this.name = name;
+        }
+
+        void add(ValidatorTrace other) {
+            calls += other.calls;
+            nanos += other.nanos;
+            lookups += other.lookups;
+            statementReuses += other.statementReuses;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getCalls() {
+            return calls;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return the vocabulary lookups of the calls
+         */
+        public long getLookups() {
+            return lookups;
+        }
+
+        /**
+         * @return the lookups that reused a statement the lookup session had prepared, the hits of its
+         *         statement cache
+         */
+        public long getStatementReuses() {
+            return statementReuses;
+        }
+
+        @Override
+        public String toString() {
+            return name + " " + calls + " calls " + millis(nanos) + ", " + lookups + " lookups (" + statementReuses
+                    + " reused statements)";
+        }
+    }
+}
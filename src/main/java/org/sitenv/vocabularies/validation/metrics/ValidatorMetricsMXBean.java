@@ -0,0 +1,13 @@
+package org.sitenv.vocabularies.validation.metrics;
+
+/**
+ * The statistics of one node validator, registered as org.sitenv.vocabularies:type=ValidationMetrics,validator=
+ * followed by the validator name.
+ */
+public interface ValidatorMetricsMXBean {
+    String getName();
+
+    HistogramSnapshot getValidateNodeNanos();
+
+    HistogramSnapshot getLookups();
+}
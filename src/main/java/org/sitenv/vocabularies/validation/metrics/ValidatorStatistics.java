@@ -0,0 +1,29 @@
+package org.sitenv.vocabularies.validation.metrics;
+
+/**
+ * What the validations spent in one node validator: the time its validateNode calls took, in nanoseconds,
+ * and the number of vocabulary lookups each issued.
+ */
+public class ValidatorStatistics {
+    private final String name;
+    private final HistogramSnapshot validateNodeNanos;
+    private final HistogramSnapshot lookups;
+
+    ValidatorStatistics(String name, HistogramSnapshot validateNodeNanos, HistogramSnapshot lookups) {
+        this.name = name;
+        this.validateNodeNanos = validateNodeNanos;
+        this.lookups = lookups;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public HistogramSnapshot getValidateNodeNanos() {
+        return validateNodeNanos;
+    }
+
+    public HistogramSnapshot getLookups() {
+        return lookups;
+    }
+}
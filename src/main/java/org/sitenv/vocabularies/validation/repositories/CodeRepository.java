@@ -1,5 +1,6 @@
 package org.sitenv.vocabularies.validation.repositories;
 
+import org.sitenv.vocabularies.loader.DisplayNameHash;
 import org.sitenv.vocabularies.validation.entities.Code;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -11,29 +12,45 @@ import java.util.Set;
 
 /**
  * Created by Brian on 2/7/2016.
+ *
+ * Display names are looked up through their indexed {@link DisplayNameHash} and compared afterwards; the
+ * default methods compute the hash for callers that only have the display name.
  */
 @Repository
 public interface CodeRepository extends JpaRepository<Code, Integer> {
-    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM Code c WHERE c.codeSystem in (:codesystems)")
+    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM Code c JOIN c.system s WHERE s.name in (:codesystems)")
     boolean foundCodesystems(@Param("codesystems")Set<String> codesystems);
 
-    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM Code c WHERE c.code = :code and c.displayName = :displayName and c.codeSystem in (:codesystems)")
-    boolean foundCodeAndDisplayNameInCodesystem(@Param("code")String code, @Param("displayName")String displayName, @Param("codesystems")List<String> codesystems);
+    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM Code c JOIN c.system s JOIN c.display d WHERE c.code = :code and d.displayNameHash = :displayNameHash and d.displayName = :displayName and s.name in (:codesystems)")
+    boolean foundCodeAndDisplayNameHashInCodesystem(@Param("code")String code, @Param("displayNameHash")long displayNameHash, @Param("displayName")String displayName, @Param("codesystems")List<String> codesystems);
 
-    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM Code c WHERE c.code = :code and c.displayName = :displayName and c.codeSystemOID = :codeSystemOID and c.codeSystem in (:codesystems) and c.active = true")
-    boolean foundActiveCodeAndDisplayNameAndCodeSystemOIDInCodesystem(@Param("code")String code, @Param("displayName")String displayName, @Param("codeSystemOID")String codeSystemOID, @Param("codesystems")Set<String> codesystems);
+    default boolean foundCodeAndDisplayNameInCodesystem(String code, String displayName, List<String> codesystems) {
+        return foundCodeAndDisplayNameHashInCodesystem(code, DisplayNameHash.of(displayName), displayName, codesystems);
+    }
 
-    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM Code c WHERE c.code = :code and c.codeSystem in (:codesystems)")
+    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM Code c JOIN c.system s JOIN c.display d WHERE c.code = :code and d.displayNameHash = :displayNameHash and d.displayName = :displayName and s.oid = :codeSystemOID and s.name in (:codesystems) and c.active = true")
+    boolean foundActiveCodeAndDisplayNameHashAndCodeSystemOIDInCodesystem(@Param("code")String code, @Param("displayNameHash")long displayNameHash, @Param("displayName")String displayName, @Param("codeSystemOID")String codeSystemOID, @Param("codesystems")Set<String> codesystems);
+
+    default boolean foundActiveCodeAndDisplayNameAndCodeSystemOIDInCodesystem(String code, String displayName, String codeSystemOID, Set<String> codesystems) {
+        return foundActiveCodeAndDisplayNameHashAndCodeSystemOIDInCodesystem(code, DisplayNameHash.of(displayName), displayName, codeSystemOID, codesystems);
+    }
+
+    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM Code c JOIN c.system s WHERE c.code = :code and s.name in (:codesystems)")
     boolean foundCodeInCodesystems(@Param("code")String code, @Param("codesystems")Set<String> codesystems);
 
-    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM Code c WHERE c.displayName = :displayName and c.codeSystem in (:codesystems)")
-    boolean foundDisplayNameInCodesystems(@Param("displayName")String displayName, @Param("codesystems")Set<String> codesystems);
+    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM Code c JOIN c.system s JOIN c.display d WHERE d.displayNameHash = :displayNameHash and d.displayName = :displayName and s.name in (:codesystems)")
+    boolean foundDisplayNameHashInCodesystems(@Param("displayNameHash")long displayNameHash, @Param("displayName")String displayName, @Param("codesystems")Set<String> codesystems);
+
+    default boolean foundDisplayNameInCodesystems(String displayName, Set<String> codesystems) {
+        return foundDisplayNameHashInCodesystems(DisplayNameHash.of(displayName), displayName, codesystems);
+    }
 
-    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM Code c WHERE c.codeSystemOID = :codeSystemOID and c.codeSystem in (:codesystems)")
+    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM Code c JOIN c.system s WHERE s.oid = :codeSystemOID and s.name in (:codesystems)")
     boolean foundCodeSystemOIDInCodesystems(@Param("codeSystemOID")String codeSystemOID, @Param("codesystems")Set<String> codesystems);
 
-    List<Code> findByCodeAndCodeSystemIn(String code, List<String> codesystems);
+    @Query("SELECT c FROM Code c JOIN FETCH c.system s JOIN FETCH c.display WHERE c.code = :code and s.name in (:codesystems)")
+    List<Code> findByCodeAndCodeSystemIn(@Param("code")String code, @Param("codesystems")List<String> codesystems);
 
-    @Query("SELECT c.active FROM Code c WHERE c.code = :code and c.codeSystem in (:codesystems)")
+    @Query("SELECT c.active FROM Code c JOIN c.system s WHERE c.code = :code and s.name in (:codesystems)")
     boolean codeIsActive(@Param("code")String code, @Param("codesystems")Set<String> codesystems);
 }
@@ -0,0 +1,365 @@
+package org.sitenv.vocabularies.validation.repositories;
+
+import org.sitenv.vocabularies.loader.DisplayNameHash;
+import org.sitenv.vocabularies.loader.VocabularyDataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The existence lookups of the validators, run as plain JDBC against the normalized vocabulary tables.
+ * {@link CodeRepository} and {@link VsacValuesSetRepository} answer the same questions through JPA and stay
+ * in use for everything that needs entities; the validators ask these questions once or more per node, so
+ * they skip the repository proxies, the JPQL translation and the Hibernate session, and every query stops
+ * at the first matching row instead of counting all of them.
+ *
+ * A validation opens a {@link LookupSession} for its duration: all of its lookups share one connection and
+ * reuse the statements it prepared. Lookups made without a session take a connection of their own. Both
+ * come from the read pool of the vocabulary store (see {@link VocabularyDataSource#getReadDataSource()}).
+ * A session counts its lookups per {@link LookupType} and may be given a budget: the first lookup beyond it
+ * throws a {@link LookupBudgetExceededException} instead of querying the store.
+ */
+@Repository
+public class VocabularyLookupRepository {
+    // the IN lists of the code system names or value set OIDs always come last, in place of %s. HSQL joins the
+    // tables in the order they are named, so the most selective indexed condition comes first.
+    private static final LookupQuery CODE_SYSTEMS_FOUND = new LookupQuery(LookupType.CODE_SYSTEMS_FOUND, "SELECT 1 FROM CODESYSTEMS s"
+            + " JOIN CODES c ON c.CODESYSTEM_ID = s.ID WHERE s.NAME IN (%s) FETCH FIRST 1 ROWS ONLY");
+    private static final LookupQuery ACTIVE_CODE_AND_DISPLAY_NAME_AND_CODE_SYSTEM_OID_FOUND = new LookupQuery(LookupType.ACTIVE_CODE_AND_DISPLAY_NAME_AND_CODE_SYSTEM_OID_FOUND, "SELECT 1 FROM CODES c"
+            + " JOIN CODESYSTEMS s ON s.ID = c.CODESYSTEM_ID JOIN DISPLAYNAMES d ON d.ID = c.DISPLAYNAME_ID"
+            + " WHERE c.CODE = ? AND d.DISPLAYNAME_HASH = ? AND d.DISPLAYNAME = ? AND s.OID = ? AND c.ACTIVE = TRUE"
+            + " AND s.NAME IN (%s) FETCH FIRST 1 ROWS ONLY");
+    private static final LookupQuery CODE_FOUND = new LookupQuery(LookupType.CODE_FOUND, "SELECT 1 FROM CODES c"
+            + " JOIN CODESYSTEMS s ON s.ID = c.CODESYSTEM_ID WHERE c.CODE = ? AND s.NAME IN (%s) FETCH FIRST 1 ROWS ONLY");
+    private static final LookupQuery INACTIVE_CODE_FOUND = new LookupQuery(LookupType.INACTIVE_CODE_FOUND, "SELECT 1 FROM CODES c"
+            + " JOIN CODESYSTEMS s ON s.ID = c.CODESYSTEM_ID WHERE c.CODE = ? AND c.ACTIVE = FALSE AND s.NAME IN (%s)"
+            + " FETCH FIRST 1 ROWS ONLY");
+    private static final LookupQuery DISPLAY_NAME_FOUND = new LookupQuery(LookupType.DISPLAY_NAME_FOUND, "SELECT 1 FROM DISPLAYNAMES d"
+            + " JOIN CODES c ON c.DISPLAYNAME_ID = d.ID JOIN CODESYSTEMS s ON s.ID = c.CODESYSTEM_ID"
+            + " WHERE d.DISPLAYNAME_HASH = ? AND d.DISPLAYNAME = ? AND s.NAME IN (%s) FETCH FIRST 1 ROWS ONLY");
+    private static final LookupQuery CODE_SYSTEM_OID_FOUND = new LookupQuery(LookupType.CODE_SYSTEM_OID_FOUND, "SELECT 1 FROM CODESYSTEMS s"
+            + " JOIN CODES c ON c.CODESYSTEM_ID = s.ID WHERE s.OID = ? AND s.NAME IN (%s) FETCH FIRST 1 ROWS ONLY");
+
+    private static final LookupQuery VALUESET_OIDS_EXIST = new LookupQuery(LookupType.VALUESET_OIDS_EXIST, "SELECT 1 FROM VALUESETHEADERS h"
+            + " JOIN VALUESETMEMBERS m ON m.VALUESET_ID = h.ID WHERE h.OID IN (%s) FETCH FIRST 1 ROWS ONLY");
+    private static final LookupQuery CODE_AND_CODE_SYSTEM_AND_DISPLAY_NAME_IN_VALUESET = new LookupQuery(LookupType.CODE_AND_CODE_SYSTEM_AND_DISPLAY_NAME_IN_VALUESET, "SELECT 1 FROM VALUESETMEMBERS m"
+            + " JOIN VALUESETHEADERS h ON h.ID = m.VALUESET_ID JOIN VALUESETCODESYSTEMS s ON s.ID = m.CODESYSTEM_ID"
+            + " JOIN DISPLAYNAMES d ON d.ID = m.DISPLAYNAME_ID"
+            + " WHERE m.CODE = ? AND s.OID = ? AND s.NAME = ? AND d.DISPLAYNAME_HASH = ? AND d.DISPLAYNAME = ?"
+            + " AND h.OID IN (%s) FETCH FIRST 1 ROWS ONLY");
+    // as a join HSQL would start at the code system and scan all of its members for one of the value sets; the
+    // subquery probes IDX_CODESYSTEMINVALUESETMEMBERS once per value set instead, and stops at the first member
+    private static final LookupQuery CODE_SYSTEM_IN_VALUESET = new LookupQuery(LookupType.CODE_SYSTEM_IN_VALUESET, "SELECT 1 FROM VALUESETHEADERS h"
+            + " WHERE EXISTS (SELECT 1 FROM VALUESETCODESYSTEMS s JOIN VALUESETMEMBERS m ON m.CODESYSTEM_ID = s.ID"
+            + " WHERE s.OID = ? AND m.VALUESET_ID = h.ID FETCH FIRST 1 ROWS ONLY) AND h.OID IN (%s) FETCH FIRST 1 ROWS ONLY");
+    private static final LookupQuery CODE_IN_VALUESET = new LookupQuery(LookupType.CODE_IN_VALUESET, "SELECT 1 FROM VALUESETMEMBERS m"
+            + " JOIN VALUESETHEADERS h ON h.ID = m.VALUESET_ID WHERE m.CODE = ? AND h.OID IN (%s) FETCH FIRST 1 ROWS ONLY");
+    private static final LookupQuery DISPLAY_NAME_IN_VALUESET = new LookupQuery(LookupType.DISPLAY_NAME_IN_VALUESET, "SELECT 1 FROM DISPLAYNAMES d"
+            + " JOIN VALUESETMEMBERS m ON m.DISPLAYNAME_ID = d.ID JOIN VALUESETHEADERS h ON h.ID = m.VALUESET_ID"
+            + " WHERE d.DISPLAYNAME_HASH = ? AND d.DISPLAYNAME = ? AND h.OID IN (%s) FETCH FIRST 1 ROWS ONLY");
+    private static final LookupQuery CODE_SYSTEM_NAME_IN_VALUESET = new LookupQuery(LookupType.CODE_SYSTEM_NAME_IN_VALUESET, "SELECT 1 FROM VALUESETHEADERS h"
+            + " JOIN VALUESETMEMBERS m ON m.VALUESET_ID = h.ID JOIN VALUESETCODESYSTEMS s ON s.ID = m.CODESYSTEM_ID"
+            + " WHERE s.NAME = ? AND h.OID IN (%s) FETCH FIRST 1 ROWS ONLY");
+
+    private final DataSource dataSource;
+    private final ThreadLocal<SessionState> currentSession = new ThreadLocal<>();
+
+    @Autowired
+    public VocabularyLookupRepository(VocabularyDataSource vocabularyDataSource) {
+        this.dataSource = vocabularyDataSource.getReadDataSource();
+    }
+
+    /**
+     * Lets the lookups of the calling thread share one connection and its prepared statements until the
+     * returned session is closed. The connection is taken on the first lookup, from whatever store the
+     * thread has pinned at that time. Nested sessions on the same thread share the outer session.
+     */
+    public LookupSession openSession() {
+        return openSession(0);
+    }
+
+    /**
+     * Opens a session like {@link #openSession()} that makes at most lookupBudget lookups; 0 or less for no
+     * limit. A nested session keeps the budget of the outer one.
+     */
+    public LookupSession openSession(long lookupBudget) {
+        if (currentSession.get() != null) {
+            return new LookupSession(null);
+        }
+        SessionState sessionState = new SessionState(lookupBudget);
+        currentSession.set(sessionState);
+        return new LookupSession(sessionState);
+    }
+
+    /**
+     * @return the number of lookups made in the session of the calling thread so far, 0 without a session
+     */
+    public long getSessionLookupCount() {
+        SessionState sessionState = currentSession.get();
+        return sessionState != null ? sessionState.lookupCount : 0;
+    }
+
+    /**
+     * @return the lookups made in the session of the calling thread so far per type, in the order of the
+     * types and without the types it did not look up; empty without a session
+     */
+    public Map<LookupType, Long> getSessionLookupCounts() {
+        Map<LookupType, Long> lookupCounts = new EnumMap<>(LookupType.class);
+        SessionState sessionState = currentSession.get();
+        if (sessionState != null) {
+            for (LookupType lookupType : LookupType.values()) {
+                long lookupCount = sessionState.lookupCounts[lookupType.ordinal()];
+                if (lookupCount > 0) {
+                    lookupCounts.put(lookupType, lookupCount);
+                }
+            }
+        }
+        return lookupCounts;
+    }
+
+    /**
+     * @return the number of lookups of the session of the calling thread that reused a statement the session
+     * had already prepared, 0 without a session
+     */
+    public long getSessionStatementReuseCount() {
+        SessionState sessionState = currentSession.get();
+        return sessionState != null ? sessionState.statementReuseCount : 0;
+    }
+
+    public boolean foundCodesystems(Collection<String> codeSystems) {
+        return exists(CODE_SYSTEMS_FOUND, codeSystems);
+    }
+
+    public boolean foundActiveCodeAndDisplayNameAndCodeSystemOIDInCodesystem(String code, String displayName, String codeSystemOID, Collection<String> codeSystems) {
+        return exists(ACTIVE_CODE_AND_DISPLAY_NAME_AND_CODE_SYSTEM_OID_FOUND, codeSystems, code, DisplayNameHash.of(displayName), displayName, codeSystemOID);
+    }
+
+    public boolean foundCodeInCodesystems(String code, Collection<String> codeSystems) {
+        return exists(CODE_FOUND, codeSystems, code);
+    }
+
+    /**
+     * @return false if the code has an inactive row in any of the code systems. A code with several rows
+     * is only active if all of them are; callers check that the code exists first.
+     */
+    public boolean codeIsActive(String code, Collection<String> codeSystems) {
+        return !exists(INACTIVE_CODE_FOUND, codeSystems, code);
+    }
+
+    public boolean foundDisplayNameInCodesystems(String displayName, Collection<String> codeSystems) {
+        return exists(DISPLAY_NAME_FOUND, codeSystems, DisplayNameHash.of(displayName), displayName);
+    }
+
+    public boolean foundCodeSystemOIDInCodesystems(String codeSystemOID, Collection<String> codeSystems) {
+        return exists(CODE_SYSTEM_OID_FOUND, codeSystems, codeSystemOID);
+    }
+
+    public boolean valuesetOidsExists(Collection<String> valuesetOids) {
+        return exists(VALUESET_OIDS_EXIST, valuesetOids);
+    }
+
+    public boolean existsByCodeAndCodeSystemAndCodeSystemNameAndDisplayNameInValuesetOid(String code, String codeSystem, String codeSystemName, String displayName, Collection<String> valuesetOids) {
+        return exists(CODE_AND_CODE_SYSTEM_AND_DISPLAY_NAME_IN_VALUESET, valuesetOids, code, codeSystem, codeSystemName, DisplayNameHash.of(displayName), displayName);
+    }
+
+    public boolean codeSystemExistsInValueset(String codeSystem, Collection<String> valuesetOids) {
+        return exists(CODE_SYSTEM_IN_VALUESET, valuesetOids, codeSystem);
+    }
+
+    public boolean codeExistsInValueset(String code, Collection<String> valuesetOids) {
+        return exists(CODE_IN_VALUESET, valuesetOids, code);
+    }
+
+    public boolean displayNameExistsInValueset(String displayName, Collection<String> valuesetOids) {
+        return exists(DISPLAY_NAME_IN_VALUESET, valuesetOids, DisplayNameHash.of(displayName), displayName);
+    }
+
+    public boolean codeSystemNameExistsInValueset(String codeSystemName, Collection<String> valuesetOids) {
+        return exists(CODE_SYSTEM_NAME_IN_VALUESET, valuesetOids, codeSystemName);
+    }
+
+    private boolean exists(LookupQuery query, Collection<String> inValues, Object... parameters) {
+        if (inValues == null || inValues.isEmpty()) {
+            return false;
+        }
+        String sql = query.sql(inValues.size());
+        SessionState sessionState = currentSession.get();
+        try {
+            if (sessionState != null) {
+                sessionState.count(query.lookupType);
+                return exists(sessionState.prepare(dataSource, sql), inValues, parameters);
+            }
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                return exists(preparedStatement, inValues, parameters);
+            }
+        } catch (SQLException e) {
+            throw new UncategorizedSQLException("vocabulary lookup", sql, e);
+        }
+    }
+
+    private static boolean exists(PreparedStatement preparedStatement, Collection<String> inValues, Object[] parameters) throws SQLException {
+        int index = 1;
+        for (Object parameter : parameters) {
+            if (parameter instanceof Long) {
+                preparedStatement.setLong(index++, (Long) parameter);
+            } else {
+                preparedStatement.setString(index++, (String) parameter);
+            }
+        }
+        for (String inValue : inValues) {
+            preparedStatement.setString(index++, inValue);
+        }
+        try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            return resultSet.next();
+        }
+    }
+
+    /**
+     * The SQL of one lookup, with as many IN list placeholders as there are values to look for. The SQL
+     * for each list length is built once, so a session finds its prepared statement by the same String.
+     */
+    private static class LookupQuery {
+        private final LookupType lookupType;
+        private final String template;
+        private final AtomicReferenceArray<String> sqlByArity = new AtomicReferenceArray<>(32);
+
+        LookupQuery(LookupType lookupType, String template) {
+            this.lookupType = lookupType;
+            this.template = template;
+        }
+
+        String sql(int arity) {
+            if (arity >= sqlByArity.length()) {
+                return build(arity);
+            }
+            String sql = sqlByArity.get(arity);
+            if (sql == null) {
+                sql = build(arity);
+                sqlByArity.compareAndSet(arity, null, sql);
+                sql = sqlByArity.get(arity);
+            }
+            return sql;
+        }
+
+        private String build(int arity) {
+            StringBuilder placeholders = new StringBuilder("?");
+            for (int i = 1; i < arity; i++) {
+                placeholders.append(", ?");
+            }
+            return String.format(template, placeholders);
+        }
+    }
+
+    /**
+     * The connection and prepared statements of one session; only used by the thread that opened it.
+     */
+    private static class SessionState {
+        private Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+        private final long lookupBudget;
+        private final long[] lookupCounts = new long[LookupType.values().length];
+        private long lookupCount = 0;
+        private long statementReuseCount = 0;
+
+        SessionState(long lookupBudget) {
+            this.lookupBudget = lookupBudget;
+        }
+
+        void count(LookupType lookupType) {
+            if (lookupBudget > 0 && lookupCount >= lookupBudget) {
+                throw new LookupBudgetExceededException(lookupBudget);
+            }
+            lookupCount++;
+            lookupCounts[lookupType.ordinal()]++;
+        }
+
+        PreparedStatement prepare(DataSource dataSource, String sql) throws SQLException {
+            PreparedStatement preparedStatement = statements.get(sql);
+            if (preparedStatement != null) {
+                statementReuseCount++;
+            } else {
+                if (connection == null) {
+                    connection = dataSource.getConnection();
+                }
+                preparedStatement = connection.prepareStatement(sql);
+                statements.put(sql, preparedStatement);
+            }
+            return preparedStatement;
+        }
+
+        void close() {
+            // closing the connection closes its statements
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    throw new UncategorizedSQLException("closing vocabulary lookup session", null, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * The questions the lookups answer, one per query.
+     */
+    public enum LookupType {
+        CODE_SYSTEMS_FOUND,
+        ACTIVE_CODE_AND_DISPLAY_NAME_AND_CODE_SYSTEM_OID_FOUND,
+        CODE_FOUND,
+        INACTIVE_CODE_FOUND,
+        DISPLAY_NAME_FOUND,
+        CODE_SYSTEM_OID_FOUND,
+        VALUESET_OIDS_EXIST,
+        CODE_AND_CODE_SYSTEM_AND_DISPLAY_NAME_IN_VALUESET,
+        CODE_SYSTEM_IN_VALUESET,
+        CODE_IN_VALUESET,
+        DISPLAY_NAME_IN_VALUESET,
+        CODE_SYSTEM_NAME_IN_VALUESET
+    }
+
+    /**
+     * Thrown by a lookup of a session that has already made as many lookups as its budget allows.
+     */
+    public static class LookupBudgetExceededException extends RuntimeException {
+        private final long lookupBudget;
+
+        LookupBudgetExceededException(long lookupBudget) {
+            super("The lookup session exceeded its budget of " + lookupBudget + " lookups");
+            this.lookupBudget = lookupBudget;
+        }
+
+        public long getLookupBudget() {
+            return lookupBudget;
+        }
+    }
+
+    public class LookupSession implements AutoCloseable {
+        private final SessionState sessionState;
+        private boolean closed = false;
+
+        private LookupSession(SessionState sessionState) {
+            this.sessionState = sessionState;
+        }
+
+        @Override
+        public void close() {
+            if (sessionState != null && !closed) {
+                closed = true;
+                currentSession.remove();
+                sessionState.close();
+            }
+        }
+    }
+}
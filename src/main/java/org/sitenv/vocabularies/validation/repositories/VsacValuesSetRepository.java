@@ -1,5 +1,6 @@
 package org.sitenv.vocabularies.validation.repositories;
 
+import org.sitenv.vocabularies.loader.DisplayNameHash;
 import org.sitenv.vocabularies.validation.entities.VsacValueSet;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -10,35 +11,51 @@ import java.util.List;
 
 /**
  * Created by Brian on 2/10/2016.
+ *
+ * Display names are looked up the same way as in {@link CodeRepository}: by hash, then compared.
  */
 @Repository
 public interface VsacValuesSetRepository extends JpaRepository<VsacValueSet, Integer> {
 
-    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM VsacValueSet c WHERE c.code = :code and c.codeSystem = :codeSystem and c.codeSystemName = :codeSystemName and c.displayName = :displayName and c.valuesetOid in (:valuesetOids)")
-    boolean existsByCodeAndCodeSystemAndCodeSystemNameAndDisplayNameInValuesetOid(@Param("code")String code, @Param("codeSystem")String codeSystem, @Param("codeSystemName")String codeSystemName, @Param("displayName")String displayName, @Param("valuesetOids")List<String> valuesetOids);
+    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM VsacValueSet c JOIN c.header h JOIN c.system s JOIN c.display d WHERE c.code = :code and s.oid = :codeSystem and s.name = :codeSystemName and d.displayNameHash = :displayNameHash and d.displayName = :displayName and h.oid in (:valuesetOids)")
+    boolean existsByCodeAndCodeSystemAndCodeSystemNameAndDisplayNameHashInValuesetOid(@Param("code")String code, @Param("codeSystem")String codeSystem, @Param("codeSystemName")String codeSystemName, @Param("displayNameHash")long displayNameHash, @Param("displayName")String displayName, @Param("valuesetOids")List<String> valuesetOids);
 
-    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM VsacValueSet c WHERE c.valuesetOid in (:valuesetOids)")
+    default boolean existsByCodeAndCodeSystemAndCodeSystemNameAndDisplayNameInValuesetOid(String code, String codeSystem, String codeSystemName, String displayName, List<String> valuesetOids) {
+        return existsByCodeAndCodeSystemAndCodeSystemNameAndDisplayNameHashInValuesetOid(code, codeSystem, codeSystemName, DisplayNameHash.of(displayName), displayName, valuesetOids);
+    }
+
+    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM VsacValueSet c JOIN c.header h WHERE h.oid in (:valuesetOids)")
     boolean valuesetOidsExists(@Param("valuesetOids")List<String> valuesetOids);
 
-    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM VsacValueSet c WHERE c.codeSystem = :codeSystem and c.valuesetOid in (:valuesetOids)")
+    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM VsacValueSet c JOIN c.header h JOIN c.system s WHERE s.oid = :codeSystem and h.oid in (:valuesetOids)")
     boolean codeSystemExistsInValueset(@Param("codeSystem") String codeSystem, @Param("valuesetOids")List<String> valuesetOids);
 
-    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM VsacValueSet c WHERE c.displayName = :displayName and c.code = :code and c.codeSystem = :codeSystem and c.valuesetOid in (:valuesetOids)")
-    boolean displayNameExistsForCodeByCodeSystemInValueset(@Param("displayName")String displayName, @Param("code")String code, @Param("codeSystem")String codeSystem, @Param("valuesetOids")List<String> valuesetOids);
+    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM VsacValueSet c JOIN c.header h JOIN c.system s JOIN c.display d WHERE d.displayNameHash = :displayNameHash and d.displayName = :displayName and c.code = :code and s.oid = :codeSystem and h.oid in (:valuesetOids)")
+    boolean displayNameHashExistsForCodeByCodeSystemInValueset(@Param("displayNameHash")long displayNameHash, @Param("displayName")String displayName, @Param("code")String code, @Param("codeSystem")String codeSystem, @Param("valuesetOids")List<String> valuesetOids);
+
+    default boolean displayNameExistsForCodeByCodeSystemInValueset(String displayName, String code, String codeSystem, List<String> valuesetOids) {
+        return displayNameHashExistsForCodeByCodeSystemInValueset(DisplayNameHash.of(displayName), displayName, code, codeSystem, valuesetOids);
+    }
 
-    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM VsacValueSet c WHERE c.codeSystemName = :codeSystemName and c.code = :code and c.codeSystem = :codeSystem and c.valuesetOid in (:valuesetOids)")
+    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM VsacValueSet c JOIN c.header h JOIN c.system s WHERE s.name = :codeSystemName and c.code = :code and s.oid = :codeSystem and h.oid in (:valuesetOids)")
     boolean codeSystemNameExistsForCodeByCodeSystemInValueset(@Param("codeSystemName")String codeSystemName, @Param("code")String code, @Param("codeSystem")String codeSystem, @Param("valuesetOids")List<String> valuesetOids);
 
-    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM VsacValueSet c WHERE c.displayName = :displayName and c.valuesetOid in (:valuesetOids)")
-    boolean displayNameExistsInValueset(@Param("displayName")String displayName, @Param("valuesetOids")List<String> valuesetOids);
+    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM VsacValueSet c JOIN c.header h JOIN c.display d WHERE d.displayNameHash = :displayNameHash and d.displayName = :displayName and h.oid in (:valuesetOids)")
+    boolean displayNameHashExistsInValueset(@Param("displayNameHash")long displayNameHash, @Param("displayName")String displayName, @Param("valuesetOids")List<String> valuesetOids);
+
+    default boolean displayNameExistsInValueset(String displayName, List<String> valuesetOids) {
+        return displayNameHashExistsInValueset(DisplayNameHash.of(displayName), displayName, valuesetOids);
+    }
 
-    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM VsacValueSet c WHERE c.codeSystemName = :codeSystemName and c.valuesetOid in (:valuesetOids)")
+    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM VsacValueSet c JOIN c.header h JOIN c.system s WHERE s.name = :codeSystemName and h.oid in (:valuesetOids)")
     boolean codeSystemNameExistsInValueset(@Param("codeSystemName")String codeSystemName, @Param("valuesetOids")List<String> valuesetOids);
 
-    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM VsacValueSet c WHERE c.code = :code and c.valuesetOid in (:valuesetOids)")
+    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM VsacValueSet c JOIN c.header h WHERE c.code = :code and h.oid in (:valuesetOids)")
     boolean codeExistsInValueset(@Param("code") String code, @Param("valuesetOids")List<String> valuesetOids);
 
-    List<VsacValueSet> findByValuesetOidIn(List<String> valuesetOids);
+    @Query("SELECT c FROM VsacValueSet c JOIN FETCH c.header h JOIN FETCH c.system JOIN FETCH c.display WHERE h.oid in (:valuesetOids)")
+    List<VsacValueSet> findByValuesetOidIn(@Param("valuesetOids")List<String> valuesetOids);
 
-    List<VsacValueSet> findByCodeAndValuesetOidIn(String code, List<String> valuesetOids);
+    @Query("SELECT c FROM VsacValueSet c JOIN FETCH c.header h JOIN FETCH c.system JOIN FETCH c.display WHERE c.code = :code and h.oid in (:valuesetOids)")
+    List<VsacValueSet> findByCodeAndValuesetOidIn(@Param("code")String code, @Param("valuesetOids")List<String> valuesetOids);
 }
\ No newline at end of file
@@ -6,8 +6,11 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.Resource;
 import javax.servlet.ServletContext;
@@ -30,13 +33,22 @@ import org.sitenv.vocabularies.configuration.ValidationConfigurationLoader;
 import org.sitenv.vocabularies.constants.VocabularyConstants;
 import org.sitenv.vocabularies.constants.VocabularyConstants.LogSeverity;
 import org.sitenv.vocabularies.constants.VocabularyConstants.SeverityLevel;
+import org.sitenv.vocabularies.loader.VocabularyDataSource;
+import org.sitenv.vocabularies.loader.VocabularyLoadRunner;
 import org.sitenv.vocabularies.validation.NodeValidation;
 import org.sitenv.vocabularies.validation.NodeValidatorFactory;
 import org.sitenv.vocabularies.validation.dto.GlobalCodeValidatorResults;
+import org.sitenv.vocabularies.validation.dto.NodeValidationResult;
+import org.sitenv.vocabularies.validation.dto.ValidationStatistics;
+import org.sitenv.vocabularies.validation.dto.VocabularyValidationReport;
 import org.sitenv.vocabularies.validation.dto.VocabularyValidationResult;
 import org.sitenv.vocabularies.validation.dto.enums.VocabularyValidationResultLevel;
+import org.sitenv.vocabularies.validation.metrics.ValidationMetrics;
+import org.sitenv.vocabularies.validation.metrics.ValidationTrace;
+import org.sitenv.vocabularies.validation.repositories.VocabularyLookupRepository;
 import org.sitenv.vocabularies.validation.utils.CCDADocumentNamespaces;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
@@ -60,9 +72,19 @@ public class VocabularyValidationService {
     private ServletContext context;
     @Resource(name="globalCodeValidatorResults")
     GlobalCodeValidatorResults globalCodeValidatorResults;
+    @Autowired(required = false)
+    VocabularyDataSource vocabularyDataSource;
+    @Autowired(required = false)
+    VocabularyLoadRunner vocabularyLoadRunner;
+    @Autowired(required = false)
+    VocabularyLookupRepository vocabularyLookupRepository;
+    @Autowired(required = false)
+    ValidationMetrics validationMetrics;
     
     private static final Logger logger = LoggerFactory.getLogger(VocabularyValidationService.class);
     private static final boolean FULL_LOG = false;
+
+    private long lookupBudget = 0;
     
     public List<VocabularyValidationResult> validate(String uri) throws IOException, SAXException {
     	return this.validate(uri, VocabularyConstants.Config.DEFAULT);
@@ -74,14 +96,35 @@ public class VocabularyValidationService {
 
 	public List<VocabularyValidationResult> validate(String uri, String vocabularyConfig, SeverityLevel severityLevel)
 			throws IOException, SAXException {
+		return validate(uri, vocabularyConfig, severityLevel, null);
+	}
+
+	/**
+	 * @param trace filled in with the breakdown of this validation, or null to validate without tracing
+	 */
+	public List<VocabularyValidationResult> validate(String uri, String vocabularyConfig, SeverityLevel severityLevel,
+			ValidationTrace trace) throws IOException, SAXException {
+		return validateAndReport(uri, vocabularyConfig, severityLevel, trace).getResults();
+	}
+
+	/**
+	 * @param trace filled in with the breakdown of this validation, or null to validate without tracing
+	 * @return the results together with the statistics of this validation
+	 */
+	public VocabularyValidationReport validateAndReport(String uri, String vocabularyConfig, SeverityLevel severityLevel,
+			ValidationTrace trace) throws IOException, SAXException {
 		DocumentBuilder documentBuilder;
 		try {
 			documentBuilder = documentBuilderFactory.newDocumentBuilder();
 		} catch (ParserConfigurationException e) {
 			throw new RuntimeException("ERROR creating DocumentBuilder " + e.getMessage());
 		}
+		long parseStart = trace != null ? System.nanoTime() : 0;
 		Document doc = documentBuilder.parse(uri);
-		return this.validate(doc, vocabularyConfig, severityLevel);
+		if (trace != null) {
+			trace.recordParse(System.nanoTime() - parseStart);
+		}
+		return this.validateAndReport(doc, vocabularyConfig, severityLevel, trace);
 	}
 
     public List<VocabularyValidationResult> validate(InputStream stream) throws IOException, SAXException {
@@ -96,14 +139,35 @@ public class VocabularyValidationService {
 	public List<VocabularyValidationResult> validate(InputStream stream, String vocabularyConfig,
 			SeverityLevel severityLevel)
 			throws IOException, SAXException {
+		return validate(stream, vocabularyConfig, severityLevel, null);
+	}
+
+	/**
+	 * @param trace filled in with the breakdown of this validation, or null to validate without tracing
+	 */
+	public List<VocabularyValidationResult> validate(InputStream stream, String vocabularyConfig,
+			SeverityLevel severityLevel, ValidationTrace trace) throws IOException, SAXException {
+		return validateAndReport(stream, vocabularyConfig, severityLevel, trace).getResults();
+	}
+
+	/**
+	 * @param trace filled in with the breakdown of this validation, or null to validate without tracing
+	 * @return the results together with the statistics of this validation
+	 */
+	public VocabularyValidationReport validateAndReport(InputStream stream, String vocabularyConfig,
+			SeverityLevel severityLevel, ValidationTrace trace) throws IOException, SAXException {
 		DocumentBuilder documentBuilder;
 		try {
 			documentBuilder = documentBuilderFactory.newDocumentBuilder();
 		} catch (ParserConfigurationException e) {
 			throw new RuntimeException("ERROR creating DocumentBuilder " + e.getMessage());
 		}
+		long parseStart = trace != null ? System.nanoTime() : 0;
 		Document doc = documentBuilder.parse(stream);
-		return this.validate(doc, vocabularyConfig, severityLevel);
+		if (trace != null) {
+			trace.recordParse(System.nanoTime() - parseStart);
+		}
+		return this.validateAndReport(doc, vocabularyConfig, severityLevel, trace);
 	}
 
 	public List<VocabularyValidationResult> validate(Document doc) {
@@ -115,41 +179,185 @@ public class VocabularyValidationService {
 	}
 	
     public List<VocabularyValidationResult> validate(Document doc, String vocabularyConfig, SeverityLevel severityLevel) {
+        return validate(doc, vocabularyConfig, severityLevel, null);
+    }
+
+    /**
+     * @param trace filled in with the breakdown of this validation, or null to validate without tracing
+     */
+    public List<VocabularyValidationResult> validate(Document doc, String vocabularyConfig, SeverityLevel severityLevel,
+            ValidationTrace trace) {
+        return validateAndReport(doc, vocabularyConfig, severityLevel, trace).getResults();
+    }
+
+    /**
+     * Validates the document and returns its results with the statistics of this validation, which stay
+     * correct however many validations run at the same time.
+     *
+     * @param trace filled in with the breakdown of this validation, or null to validate without tracing
+     */
+    public VocabularyValidationReport validateAndReport(Document doc, String vocabularyConfig, SeverityLevel severityLevel,
+            ValidationTrace trace) {
+        long validationStart = trace != null ? System.nanoTime() : 0;
         Map<String, ArrayList<VocabularyValidationResult>> vocabularyValidationResultMap = getInitializedResultMap();
-        if (doc != null) {
-            String configuredXpathExpression = "";
-            try {
-                XPath xpath = getNewXpath(doc);                         
-                
-                if (Boolean.parseBoolean(context.getInitParameter("referenceccda.isDynamicVocab"))) {
-                	String suffix = "based on vocabularyConfig input: " + vocabularyConfig;
+        ValidationStatistics statistics = new ValidationStatistics();
+        if (doc != null && vocabularyDataSource != null) {
+            // every lookup of this validation goes to the same vocabulary store, even if a reload swaps it meanwhile
+            try (VocabularyDataSource.Lease lease = vocabularyDataSource.pin()) {
+                if (vocabularyLookupRepository != null) {
+                    // and all of them share one connection to it
+                    try (VocabularyLookupRepository.LookupSession lookupSession = vocabularyLookupRepository
+                            .openSession(lookupBudget)) {
+                        validateDocument(vocabularyValidationResultMap, doc, vocabularyConfig, severityLevel, statistics, trace);
+                        recordLookupCounts(statistics);
+                    }
+                } else {
+                    validateDocument(vocabularyValidationResultMap, doc, vocabularyConfig, severityLevel, statistics, trace);
+                }
+            }
+        } else if (doc != null) {
+            validateDocument(vocabularyValidationResultMap, doc, vocabularyConfig, severityLevel, statistics, trace);
+        }
+        long resultBuildingStart = trace != null ? System.nanoTime() : 0;
+        List<VocabularyValidationResult> results = convertMapToList(vocabularyValidationResultMap, severityLevel);
+        countResultsBySeverity(results, statistics);
+        if (statistics.isLookupBudgetExceeded()) {
+            // added after the severity limit, the results are incomplete at any level
+            results.add(createLookupBudgetExceededResult(statistics));
+        }
+        if (!statistics.getUnloadedPartitions().isEmpty()) {
+            results.add(createUnloadedPartitionsResult(statistics));
+        }
+        if (trace != null) {
+            long end = System.nanoTime();
+            trace.recordResultBuilding(end - resultBuildingStart, results.size());
+            trace.recordValidation(end - validationStart);
+        }
+        if (validationMetrics != null) {
+            validationMetrics.recordDocument(statistics.getNodeCount(), statistics.getErrorCount(),
+                    statistics.getWarningCount(), statistics.getInfoCount(),
+                    statistics.getVocabularyValidationConfigurationsCount());
+        }
+        return new VocabularyValidationReport(results, statistics);
+    }
+
+    public long getLookupBudget() {
+        return lookupBudget;
+    }
+
+    /**
+     * The most vocabulary lookups one validation may make, 0 or less for no limit.
+     */
+    @Value("${vocabulary.lookupBudget:0}")
+    public void setLookupBudget(long lookupBudget) {
+        this.lookupBudget = lookupBudget;
+    }
+
+    private void recordLookupCounts(ValidationStatistics statistics) {
+        Map<String, Long> lookupCounts = new LinkedHashMap<>();
+        long lookupCount = 0;
+        for (Map.Entry<VocabularyLookupRepository.LookupType, Long> entry : vocabularyLookupRepository.getSessionLookupCounts()
+                .entrySet()) {
+            lookupCounts.put(entry.getKey().name(), entry.getValue());
+            lookupCount += entry.getValue();
+        }
+        statistics.setLookupCounts(lookupCounts);
+        statistics.setLookupCount(lookupCount);
+    }
+
+    private static VocabularyValidationResult createLookupBudgetExceededResult(ValidationStatistics statistics) {
+        NodeValidationResult nodeValidationResult = new NodeValidationResult();
+        nodeValidationResult.setValid(false);
+        VocabularyValidationResult result = new VocabularyValidationResult();
+        result.setNodeValidationResult(nodeValidationResult);
+        result.setVocabularyValidationResultLevel(VocabularyValidationResultLevel.SHOULD);
+        result.setMessage("Vocabulary validation stopped after " + statistics.getLookupCount()
+                + " vocabulary lookups, the lookup budget of a document. " + statistics.getUnvalidatedConfigurationsCount()
+                + " of " + statistics.getVocabularyValidationConfigurationsCount()
+                + " configured expressions were not completely validated, so these results are incomplete.");
+        return result;
+    }
+
+    private static VocabularyValidationResult createUnloadedPartitionsResult(ValidationStatistics statistics) {
+        NodeValidationResult nodeValidationResult = new NodeValidationResult();
+        nodeValidationResult.setValid(false);
+        VocabularyValidationResult result = new VocabularyValidationResult();
+        result.setNodeValidationResult(nodeValidationResult);
+        result.setVocabularyValidationResultLevel(VocabularyValidationResultLevel.SHOULD);
+        result.setMessage("The vocabulary partitions " + String.join(", ", statistics.getUnloadedPartitions())
+                + " failed to load, so codes that should be found in it are reported as not found. These results"
+                + " may report valid codes as invalid; validate the document again once the vocabulary is available.");
+        return result;
+    }
+
+    private static void countResultsBySeverity(List<VocabularyValidationResult> results, ValidationStatistics statistics) {
+        int errorCount = 0;
+        int warningCount = 0;
+        int infoCount = 0;
+        for (VocabularyValidationResult result : results) {
+            switch (result.getVocabularyValidationResultLevel()) {
+            case SHALL:
+                errorCount++;
+                break;
+            case SHOULD:
+                warningCount++;
+                break;
+            case MAY:
+                infoCount++;
+                break;
+            }
+        }
+        statistics.setErrorCount(errorCount);
+        statistics.setWarningCount(warningCount);
+        statistics.setInfoCount(infoCount);
+    }
+
+    private void validateDocument(Map<String, ArrayList<VocabularyValidationResult>> vocabularyValidationResultMap, Document doc,
+    		String vocabularyConfig, SeverityLevel severityLevel, ValidationStatistics statistics, ValidationTrace trace) {
+        String configuredXpathExpression = "";
+        try {
+            XPath xpath = getNewXpath(doc);                         
+            long configurationStart = trace != null ? System.nanoTime() : 0;
+            
+            if (Boolean.parseBoolean(context.getInitParameter("referenceccda.isDynamicVocab"))) {
+            	String suffix = "based on vocabularyConfig input: " + vocabularyConfig;
 	                if (useDynamicVocab(vocabularyConfig)) {	                
 	                	logger.info("useDynamicConfig was successful " + suffix + " but may have used default (see prior log).");
 	                } else {
 	                	logger.error("useDynamicConfig (including attempt to load default dynamically) failed " + suffix);
 	                }	                
-                } else {
-                	logger.info("Property referenceccda.isDynamicVocab is false; "
-                			+ "using preloaded default config for this and all future validations.");
-                }
-                
-                if (vocabularyValidationConfigurations != null) {
-                	validate(vocabularyValidationResultMap, configuredXpathExpression, xpath, doc, severityLevel);
-                } else {
-                	logger.error("Vocabulary validation was not run as vocabularyValidationConfigurations is null");
-                }
-            } catch (XPathExpressionException e) {
-                System.err.println("ERROR VALIDATING DOCUMENT FOR THE FOLLOWING CONFIGURED EXPRESSION: " + configuredXpathExpression);
+            } else {
+            	logger.info("Property referenceccda.isDynamicVocab is false; "
+            			+ "using preloaded default config for this and all future validations.");
             }
+            if (trace != null) {
+            	trace.recordConfiguration(System.nanoTime() - configurationStart);
+            }
+            
+            // read once, a dynamic configuration of another validation may replace it meanwhile
+            List<ConfiguredExpression> configuredExpressions = vocabularyValidationConfigurations;
+            if (configuredExpressions != null) {
+            	validate(vocabularyValidationResultMap, configuredExpressions, xpath, doc, severityLevel, statistics, trace);
+            } else {
+            	logger.error("Vocabulary validation was not run as vocabularyValidationConfigurations is null");
+            }
+        } catch (XPathExpressionException e) {
+            System.err.println("ERROR VALIDATING DOCUMENT FOR THE FOLLOWING CONFIGURED EXPRESSION: " + configuredXpathExpression);
         }
-        return convertMapToList(vocabularyValidationResultMap, severityLevel);
     }
     
-	private void limitConfiguredExpressionsBySeverity(SeverityLevel severityLevelLimit) {
+	private static List<ConfiguredExpression> limitConfiguredExpressionsBySeverity(
+			List<ConfiguredExpression> configuredExpressions, SeverityLevel severityLevelLimit) {
 		// This improves performance since it is run before the expressions are processed
+		// The limited expressions are copies, the shared configuration is used by concurrent validations of any level
 		logger.info("limiting configured expressions by severity level: " + severityLevelLimit.name());
-		for (ConfiguredExpression configuredExpression : vocabularyValidationConfigurations) {
-			Iterator<ConfiguredValidator> validatorIter = configuredExpression.getConfiguredValidators().iterator();
+		List<ConfiguredExpression> limitedExpressions = new ArrayList<>(configuredExpressions.size());
+		for (ConfiguredExpression configuredExpression : configuredExpressions) {
+			ConfiguredExpression limitedExpression = new ConfiguredExpression();
+			limitedExpression.setConfiguredXpathExpression(configuredExpression.getConfiguredXpathExpression());
+			limitedExpression.setConfiguredValidators(
+					new ArrayList<ConfiguredValidator>(configuredExpression.getConfiguredValidators()));
+			Iterator<ConfiguredValidator> validatorIter = limitedExpression.getConfiguredValidators().iterator();
 			while (validatorIter.hasNext()) {		
 				ConfiguredValidator configuredValidator = validatorIter.next();
 				// NodeCodeSystemMatchesConfiguredCodeSystemValidator defaults to ERROR severity dynamically
@@ -178,21 +386,16 @@ public class VocabularyValidationService {
 					}					
 				}
 			}			
-		}
-		
-		Iterator<ConfiguredExpression> expressionIter = vocabularyValidationConfigurations.iterator();
-		while (expressionIter.hasNext()) {
-			ConfiguredExpression configuredExpression = expressionIter.next();
-			if (configuredExpression.getConfiguredValidators().isEmpty()) {
-				expressionIter.remove();
+			if (!limitedExpression.getConfiguredValidators().isEmpty()) {
+				limitedExpressions.add(limitedExpression);
 			}
 		}
-		
+		return limitedExpressions;
 	}
 	
-	private int determineConfigurationsErrorCount() {
+	private static int determineConfigurationsErrorCount(List<ConfiguredExpression> configuredExpressions) {
 		int errorCount = 0;
-		for (ConfiguredExpression expression : vocabularyValidationConfigurations) {
+		for (ConfiguredExpression expression : configuredExpressions) {
 			for (ConfiguredValidator validator : expression.getConfiguredValidators()) {
 				// NodeCodeSystemMatchesConfiguredCodeSystemValidator dynamically resolves to
 				// SHALL/does not have codeSeverityLevel in the config / may be null
@@ -214,20 +417,40 @@ public class VocabularyValidationService {
 	}
 	
 	private void validate(Map<String, ArrayList<VocabularyValidationResult>> vocabularyValidationResultMap,
-			String configuredXpathExpression, XPath xpath, Document doc, SeverityLevel severityLevel)
-			throws XPathExpressionException {
+			List<ConfiguredExpression> configuredExpressions, XPath xpath, Document doc, SeverityLevel severityLevel,
+			ValidationStatistics statistics, ValidationTrace trace) throws XPathExpressionException {
+		long configurationStart = trace != null ? System.nanoTime() : 0;
 		if(severityLevel != SeverityLevel.INFO) {
-			limitConfiguredExpressionsBySeverity(severityLevel);
+			configuredExpressions = limitConfiguredExpressionsBySeverity(configuredExpressions, severityLevel);
+		}
+		if (trace != null) {
+			trace.recordConfiguration(System.nanoTime() - configurationStart);
 		}
 		
-		globalCodeValidatorResults.setVocabularyValidationConfigurationsCount(
-				vocabularyValidationConfigurations != null ? vocabularyValidationConfigurations.size() : 0);
-		globalCodeValidatorResults.setVocabularyValidationConfigurationsErrorCount(
-				vocabularyValidationConfigurations != null ? determineConfigurationsErrorCount() : 0);		
+		statistics.setVocabularyValidationConfigurationsCount(configuredExpressions.size());
+		statistics.setVocabularyValidationConfigurationsErrorCount(determineConfigurationsErrorCount(configuredExpressions));
 				
-        for (ConfiguredExpression configuredExpression : vocabularyValidationConfigurations) {
-            configuredXpathExpression = configuredExpression.getConfiguredXpathExpression();
+        // read once, so a validation is recorded completely or not at all
+        boolean recordMetrics = validationMetrics != null && validationMetrics.isEnabled();
+        boolean measure = recordMetrics || trace != null;
+        long nodeCount = 0;
+        int unvalidatedExpressionCount = configuredExpressions.size();
+        Set<String> unloadedPartitions = new LinkedHashSet<>();
+        expressions:
+        for (ConfiguredExpression configuredExpression : configuredExpressions) {
+            String configuredXpathExpression = configuredExpression.getConfiguredXpathExpression();
+            long xpathStart = measure ? System.nanoTime() : 0;
             NodeList nodes = findAllDocumentNodesByXpathExpression(xpath, configuredXpathExpression, doc);
+            long xpathNanos = measure ? System.nanoTime() - xpathStart : 0;
+            nodeCount += nodes.getLength();
+            if (recordMetrics) {
+                validationMetrics.recordExpression(configuredXpathExpression, xpathNanos, nodes.getLength());
+            }
+            ValidationTrace.ExpressionTrace expressionTrace = trace != null
+                    ? trace.recordExpression(configuredXpathExpression, xpathNanos, nodes.getLength()) : null;
+            if (nodes.getLength() > 0) {
+                ensureVocabularyLoaded(configuredExpression, unloadedPartitions);
+            }
             for (int i = 0; i < nodes.getLength(); i++) {
                 Node node = nodes.item(i);
                 List<VocabularyValidationResult> vocabularyValidationResults = new ArrayList<>();
@@ -236,8 +459,31 @@ public class VocabularyValidationService {
                 while(configIterator.hasNext() && !validNode){
                     ConfiguredValidator configuredValidator = (ConfiguredValidator) configIterator.next();
                     NodeValidation vocabularyValidator = selectVocabularyValidator(configuredValidator);
-					List<VocabularyValidationResult> tempResults = vocabularyValidator.validateNode(configuredValidator,
-							xpath, node, i);
+					long lookupsBefore = measure ? sessionLookupCount() : 0;
+					long statementReusesBefore = trace != null ? sessionStatementReuseCount() : 0;
+					long validateStart = measure ? System.nanoTime() : 0;
+					List<VocabularyValidationResult> tempResults;
+					try {
+						tempResults = vocabularyValidator.validateNode(configuredValidator, xpath, node, i);
+					} catch (VocabularyLookupRepository.LookupBudgetExceededException e) {
+						// the results of the nodes validated so far stand, the rest of the document is skipped
+						logger.warn(e.getMessage() + "; skipping the remaining nodes of " + unvalidatedExpressionCount
+								+ " configured expressions, starting at " + configuredXpathExpression);
+						statistics.setLookupBudgetExceeded(true);
+						statistics.setUnvalidatedConfigurationsCount(unvalidatedExpressionCount);
+						break expressions;
+					}
+					if (measure) {
+						long validateNanos = System.nanoTime() - validateStart;
+						long lookups = sessionLookupCount() - lookupsBefore;
+						if (recordMetrics) {
+							validationMetrics.recordValidator(configuredValidator.getName(), validateNanos, lookups);
+						}
+						if (expressionTrace != null) {
+							expressionTrace.recordValidator(configuredValidator.getName(), validateNanos, lookups,
+									sessionStatementReuseCount() - statementReusesBefore);
+						}
+					}
 					if (foundValidationError(tempResults)) {
 						vocabularyValidationResults.addAll(tempResults);
 					} else {
@@ -256,10 +502,43 @@ public class VocabularyValidationService {
 				}
 
             }
-
+            unvalidatedExpressionCount--;
         }
+        statistics.setNodeCount(nodeCount);
+        statistics.setUnloadedPartitions(new ArrayList<>(unloadedPartitions));
     }
 	
+	private long sessionLookupCount() {
+		return vocabularyLookupRepository != null ? vocabularyLookupRepository.getSessionLookupCount() : 0;
+	}
+
+	private long sessionStatementReuseCount() {
+		return vocabularyLookupRepository != null ? vocabularyLookupRepository.getSessionStatementReuseCount() : 0;
+	}
+
+	/**
+	 * Loads the deferred vocabulary partitions the validators of configuredExpression need, adding those that
+	 * fail to load to unloadedPartitions.
+	 */
+	private void ensureVocabularyLoaded(ConfiguredExpression configuredExpression, Set<String> unloadedPartitions) {
+		if (vocabularyLoadRunner != null && vocabularyLoadRunner.isLazyLoad()) {
+			for (ConfiguredValidator configuredValidator : configuredExpression.getConfiguredValidators()) {
+				for (String partitionName : vocabularyLoadRunner.ensureLoaded(configuredValidator)) {
+					logger.warn("Vocabulary partition " + partitionName + " needed by validator " + configuredValidator.getName()
+							+ " of " + configuredExpression.getConfiguredXpathExpression()
+							+ " failed to load, its codes are reported as not found");
+					unloadedPartitions.add(partitionName);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the shared results, which validations no longer write to
+	 * @deprecated the configuration counts of a validation are in the {@link ValidationStatistics} returned by
+	 *             {@link #validateAndReport(String, String, SeverityLevel, ValidationTrace)}
+	 */
+	@Deprecated
 	public GlobalCodeValidatorResults getGlobalCodeValidatorResults() {
 		return globalCodeValidatorResults;
 	}
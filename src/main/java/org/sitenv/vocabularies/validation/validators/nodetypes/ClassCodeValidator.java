@@ -7,7 +7,7 @@ import org.sitenv.vocabularies.configuration.ConfiguredValidator;
 import org.sitenv.vocabularies.validation.dto.NodeValidationResult;
 import org.sitenv.vocabularies.validation.dto.VocabularyValidationResult;
 import org.sitenv.vocabularies.validation.dto.enums.VocabularyValidationResultLevel;
-import org.sitenv.vocabularies.validation.repositories.VsacValuesSetRepository;
+import org.sitenv.vocabularies.validation.repositories.VocabularyLookupRepository;
 import org.sitenv.vocabularies.validation.utils.XpathUtils;
 import org.sitenv.vocabularies.validation.validators.NodeValidator;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,11 +25,11 @@ import java.util.List;
 @Component(value = "ClassCodeValidator")
 public class ClassCodeValidator extends NodeValidator {
 	private static final Logger logger = LoggerFactory.getLogger(ClassCodeValidator.class);
-	private VsacValuesSetRepository vsacValuesSetRepository;
+	private VocabularyLookupRepository vocabularyLookupRepository;
 
 	@Autowired
-	public ClassCodeValidator(VsacValuesSetRepository vsacValuesSetRepository) {
-		this.vsacValuesSetRepository = vsacValuesSetRepository;
+	public ClassCodeValidator(VocabularyLookupRepository vocabularyLookupRepository) {
+		this.vocabularyLookupRepository = vocabularyLookupRepository;
 	}
 
 	@Override
@@ -48,9 +48,9 @@ public class ClassCodeValidator extends NodeValidator {
         nodeValidationResult.setValidatedDocumentXpathExpression(XpathUtils.buildXpathFromNode(node));
         nodeValidationResult.setRequestedClassCode(classCode);
         nodeValidationResult.setConfiguredAllowableValuesetOidsForNode(configuredValidator.getAllowedValuesetOids());
-		if(vsacValuesSetRepository.valuesetOidsExists(allowedConfiguredCodeSystemOids)){
+		if(vocabularyLookupRepository.valuesetOidsExists(allowedConfiguredCodeSystemOids)){
             nodeValidationResult.setNodeValuesetsFound(true);
-			if (vsacValuesSetRepository.codeExistsInValueset(classCode, allowedConfiguredCodeSystemOids)) {
+			if (vocabularyLookupRepository.codeExistsInValueset(classCode, allowedConfiguredCodeSystemOids)) {
                 nodeValidationResult.setValid(true);
 			}
 		}
@@ -6,7 +6,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
-import javax.persistence.NonUniqueResultException;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
@@ -19,7 +18,7 @@ import org.sitenv.vocabularies.configuration.ConfiguredValidator;
 import org.sitenv.vocabularies.validation.dto.NodeValidationResult;
 import org.sitenv.vocabularies.validation.dto.VocabularyValidationResult;
 import org.sitenv.vocabularies.validation.dto.enums.VocabularyValidationResultLevel;
-import org.sitenv.vocabularies.validation.repositories.CodeRepository;
+import org.sitenv.vocabularies.validation.repositories.VocabularyLookupRepository;
 import org.sitenv.vocabularies.validation.utils.XpathUtils;
 import org.sitenv.vocabularies.validation.validators.NodeValidator;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,12 +28,12 @@ import org.w3c.dom.Node;
 @Component(value = "CodeSystemCodeValidator")
 public class CodeSystemCodeValidator extends NodeValidator {
     private static final Logger logger = LoggerFactory.getLogger(CodeSystemCodeValidator.class);
-    private CodeRepository codeRepository;
+    private VocabularyLookupRepository vocabularyLookupRepository;
 
 
     @Autowired
-    public CodeSystemCodeValidator(CodeRepository codeRepository) {
-        this.codeRepository = codeRepository;
+    public CodeSystemCodeValidator(VocabularyLookupRepository vocabularyLookupRepository) {
+        this.vocabularyLookupRepository = vocabularyLookupRepository;
     }
 
     @Override
@@ -66,31 +65,21 @@ public class CodeSystemCodeValidator extends NodeValidator {
         nodeValidationResult.setRequestedDisplayName(nodeDisplayName);
         nodeValidationResult.setConfiguredAllowableCodesystemNamesForNode(configuredValidator.getAllowedCodesystemNames());
 
-        if(codeRepository.foundActiveCodeAndDisplayNameAndCodeSystemOIDInCodesystem(nodeCode, nodeDisplayName, nodeCodeSystem, allowedConfiguredCodeSystemNames)){
+        if(vocabularyLookupRepository.foundActiveCodeAndDisplayNameAndCodeSystemOIDInCodesystem(nodeCode, nodeDisplayName, nodeCodeSystem, allowedConfiguredCodeSystemNames)){
             nodeValidationResult.setValid(true);
         }else{
-            if(codeRepository.foundCodesystems(allowedConfiguredCodeSystemNames)){
+            if(vocabularyLookupRepository.foundCodesystems(allowedConfiguredCodeSystemNames)){
                 nodeValidationResult.setCodeSystemFound(true);
-                if(codeRepository.foundCodeInCodesystems(nodeCode, allowedConfiguredCodeSystemNames)){
+                if(vocabularyLookupRepository.foundCodeInCodesystems(nodeCode, allowedConfiguredCodeSystemNames)){
                     nodeValidationResult.setNodeCodeFound(true);
-					try {
-						if (!codeRepository.codeIsActive(nodeCode, allowedConfiguredCodeSystemNames)) {
-							nodeValidationResult.setNodeCodeIsActive(false);
-						}
-					} catch (NonUniqueResultException nonUniqueResultException) {
-						nodeValidationResult.setNodeCodeIsActive(false);
-						logger.error(
-								"The following error was encountered when trying to check codeRepository.codeIsActive(...). "
-										+ "It will be handled internally and considered inactive as the source is likely corrupt "
-										+ "since it is returning multiple values.",
-								nonUniqueResultException);
-
-					}
+                    if(!vocabularyLookupRepository.codeIsActive(nodeCode, allowedConfiguredCodeSystemNames)){
+                        nodeValidationResult.setNodeCodeIsActive(false);
+                    }
                 }
-                if(codeRepository.foundDisplayNameInCodesystems(nodeDisplayName, allowedConfiguredCodeSystemNames)){
+                if(vocabularyLookupRepository.foundDisplayNameInCodesystems(nodeDisplayName, allowedConfiguredCodeSystemNames)){
                     nodeValidationResult.setNodeDisplayNameFound(true);
                 }
-                if(codeRepository.foundCodeSystemOIDInCodesystems(nodeCodeSystem, allowedConfiguredCodeSystemNames)){
+                if(vocabularyLookupRepository.foundCodeSystemOIDInCodesystems(nodeCodeSystem, allowedConfiguredCodeSystemNames)){
                     nodeValidationResult.setNodeCodeSystemOIDFound(true);
                 }
             }
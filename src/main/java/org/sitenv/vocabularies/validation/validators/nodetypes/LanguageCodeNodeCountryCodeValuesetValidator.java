@@ -8,7 +8,7 @@ import org.sitenv.vocabularies.configuration.ConfiguredValidator;
 import org.sitenv.vocabularies.validation.dto.NodeValidationResult;
 import org.sitenv.vocabularies.validation.dto.VocabularyValidationResult;
 import org.sitenv.vocabularies.validation.dto.enums.VocabularyValidationResultLevel;
-import org.sitenv.vocabularies.validation.repositories.VsacValuesSetRepository;
+import org.sitenv.vocabularies.validation.repositories.VocabularyLookupRepository;
 import org.sitenv.vocabularies.validation.utils.XpathUtils;
 import org.sitenv.vocabularies.validation.validators.NodeValidator;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,11 +26,11 @@ import java.util.List;
 @Component(value = "LanguageCodeNodeCountryCodeValuesetValidator")
 public class LanguageCodeNodeCountryCodeValuesetValidator extends NodeValidator {
 	private static final Logger logger = LoggerFactory.getLogger(LanguageCodeNodeCountryCodeValuesetValidator.class);
-	private VsacValuesSetRepository vsacValuesSetRepository;
+	private VocabularyLookupRepository vocabularyLookupRepository;
 
 	@Autowired
-	public LanguageCodeNodeCountryCodeValuesetValidator(VsacValuesSetRepository vsacValuesSetRepository) {
-		this.vsacValuesSetRepository = vsacValuesSetRepository;
+	public LanguageCodeNodeCountryCodeValuesetValidator(VocabularyLookupRepository vocabularyLookupRepository) {
+		this.vocabularyLookupRepository = vocabularyLookupRepository;
 	}
 
 	@Override
@@ -52,9 +52,9 @@ public class LanguageCodeNodeCountryCodeValuesetValidator extends NodeValidator
 
 		if(needToValidateCountryCode(nodeCode)){
 			nodeCode = StringUtils.substringAfter(nodeCode, "-");
-			if (vsacValuesSetRepository.valuesetOidsExists(allowedConfiguredCodeSystemOids)) {
+			if (vocabularyLookupRepository.valuesetOidsExists(allowedConfiguredCodeSystemOids)) {
 				nodeValidationResult.setNodeValuesetsFound(true);
-				if (vsacValuesSetRepository.codeExistsInValueset(nodeCode, allowedConfiguredCodeSystemOids)) {
+				if (vocabularyLookupRepository.codeExistsInValueset(nodeCode, allowedConfiguredCodeSystemOids)) {
 					nodeValidationResult.setValid(true);
 				}
 			}
@@ -8,7 +8,7 @@ import org.sitenv.vocabularies.configuration.ConfiguredValidator;
 import org.sitenv.vocabularies.validation.dto.NodeValidationResult;
 import org.sitenv.vocabularies.validation.dto.VocabularyValidationResult;
 import org.sitenv.vocabularies.validation.dto.enums.VocabularyValidationResultLevel;
-import org.sitenv.vocabularies.validation.repositories.VsacValuesSetRepository;
+import org.sitenv.vocabularies.validation.repositories.VocabularyLookupRepository;
 import org.sitenv.vocabularies.validation.utils.XpathUtils;
 import org.sitenv.vocabularies.validation.validators.NodeValidator;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,11 +26,11 @@ import java.util.List;
 @Component(value = "LanguageCodeNodeLanguageCodeValuesetValidator")
 public class LanguageCodeNodeLanguageCodeValuesetValidator extends NodeValidator {
 	private static final Logger logger = LoggerFactory.getLogger(LanguageCodeNodeLanguageCodeValuesetValidator.class);
-	private VsacValuesSetRepository vsacValuesSetRepository;
+	private VocabularyLookupRepository vocabularyLookupRepository;
 
 	@Autowired
-	public LanguageCodeNodeLanguageCodeValuesetValidator(VsacValuesSetRepository vsacValuesSetRepository) {
-		this.vsacValuesSetRepository = vsacValuesSetRepository;
+	public LanguageCodeNodeLanguageCodeValuesetValidator(VocabularyLookupRepository vocabularyLookupRepository) {
+		this.vocabularyLookupRepository = vocabularyLookupRepository;
 	}
 
 	@Override
@@ -50,12 +50,12 @@ public class LanguageCodeNodeLanguageCodeValuesetValidator extends NodeValidator
 		nodeValidationResult.setRequestedCode(nodeCode);
 		nodeValidationResult.setConfiguredAllowableValuesetOidsForNode(configuredValidator.getAllowedValuesetOids());
 
-		if(vsacValuesSetRepository.valuesetOidsExists(allowedConfiguredCodeSystemOids)){
+		if(vocabularyLookupRepository.valuesetOidsExists(allowedConfiguredCodeSystemOids)){
 			nodeValidationResult.setNodeValuesetsFound(true);
 			if(StringUtils.contains(nodeCode, "-")){
 				nodeCode = StringUtils.substringBefore(nodeCode, "-");
 			}
-			if (vsacValuesSetRepository.codeExistsInValueset(nodeCode, allowedConfiguredCodeSystemOids)) {
+			if (vocabularyLookupRepository.codeExistsInValueset(nodeCode, allowedConfiguredCodeSystemOids)) {
 				nodeValidationResult.setValid(true);
 			}
 		}
@@ -7,7 +7,7 @@ import org.sitenv.vocabularies.configuration.ConfiguredValidator;
 import org.sitenv.vocabularies.validation.dto.NodeValidationResult;
 import org.sitenv.vocabularies.validation.dto.VocabularyValidationResult;
 import org.sitenv.vocabularies.validation.dto.enums.VocabularyValidationResultLevel;
-import org.sitenv.vocabularies.validation.repositories.VsacValuesSetRepository;
+import org.sitenv.vocabularies.validation.repositories.VocabularyLookupRepository;
 import org.sitenv.vocabularies.validation.utils.XpathUtils;
 import org.sitenv.vocabularies.validation.validators.NodeValidator;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,11 +25,11 @@ import java.util.List;
 @Component(value = "TextNodeValidator")
 public class TextNodeValidator extends NodeValidator {
 	private static final Logger logger = LoggerFactory.getLogger(TextNodeValidator.class);
-	private VsacValuesSetRepository vsacValuesSetRepository;
+	private VocabularyLookupRepository vocabularyLookupRepository;
 
 	@Autowired
-	public TextNodeValidator(VsacValuesSetRepository vsacValuesSetRepository) {
-		this.vsacValuesSetRepository = vsacValuesSetRepository;
+	public TextNodeValidator(VocabularyLookupRepository vocabularyLookupRepository) {
+		this.vocabularyLookupRepository = vocabularyLookupRepository;
 	}
 
 	@Override
@@ -48,9 +48,9 @@ public class TextNodeValidator extends NodeValidator {
         nodeValidationResult.setValidatedDocumentXpathExpression(XpathUtils.buildXpathFromNode(node));
         nodeValidationResult.setRequestedText(nodeText);
         nodeValidationResult.setConfiguredAllowableValuesetOidsForNode(configuredValidator.getAllowedValuesetOids());
-		if(vsacValuesSetRepository.valuesetOidsExists(allowedConfiguredCodeSystemOids)){
+		if(vocabularyLookupRepository.valuesetOidsExists(allowedConfiguredCodeSystemOids)){
             nodeValidationResult.setNodeValuesetsFound(true);
-			if (vsacValuesSetRepository.codeExistsInValueset(nodeText, allowedConfiguredCodeSystemOids)) {
+			if (vocabularyLookupRepository.codeExistsInValueset(nodeText, allowedConfiguredCodeSystemOids)) {
                 nodeValidationResult.setValid(true);
 			}
 		}
@@ -17,7 +17,7 @@ import org.sitenv.vocabularies.configuration.ConfiguredValidator;
 import org.sitenv.vocabularies.validation.dto.NodeValidationResult;
 import org.sitenv.vocabularies.validation.dto.VocabularyValidationResult;
 import org.sitenv.vocabularies.validation.dto.enums.VocabularyValidationResultLevel;
-import org.sitenv.vocabularies.validation.repositories.VsacValuesSetRepository;
+import org.sitenv.vocabularies.validation.repositories.VocabularyLookupRepository;
 import org.sitenv.vocabularies.validation.utils.XpathUtils;
 import org.sitenv.vocabularies.validation.validators.NodeValidator;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,12 +27,12 @@ import org.w3c.dom.Node;
 @Component(value = "UnitAllowsOneValidator")
 public class UnitAllowsOneValidator extends NodeValidator {
 	private static final Logger logger = LoggerFactory.getLogger(UnitAllowsOneValidator.class);
-	private VsacValuesSetRepository vsacValuesSetRepository;
+	private VocabularyLookupRepository vocabularyLookupRepository;
 	private static final String UNIT_EXCEPTION = "1";
 
 	@Autowired
-	public UnitAllowsOneValidator(VsacValuesSetRepository vsacValuesSetRepository) {
-		this.vsacValuesSetRepository = vsacValuesSetRepository;
+	public UnitAllowsOneValidator(VocabularyLookupRepository vocabularyLookupRepository) {
+		this.vocabularyLookupRepository = vocabularyLookupRepository;
 	}
 
 	@Override
@@ -55,9 +55,9 @@ public class UnitAllowsOneValidator extends NodeValidator {
 			logger.info("Unit is != " + UNIT_EXCEPTION + " as it is equal to " + "'"
 					+ nodeValidationResult.getRequestedUnit() + "' instead"
 					+ ": Running standard vocabulary validation on node");
-			if(vsacValuesSetRepository.valuesetOidsExists(allowedConfiguredCodeSystemOids)){
+			if(vocabularyLookupRepository.valuesetOidsExists(allowedConfiguredCodeSystemOids)){
 	            nodeValidationResult.setNodeValuesetsFound(true);
-				if (vsacValuesSetRepository.codeExistsInValueset(nodeUnit, allowedConfiguredCodeSystemOids)) {
+				if (vocabularyLookupRepository.codeExistsInValueset(nodeUnit, allowedConfiguredCodeSystemOids)) {
 	                nodeValidationResult.setValid(true);
 				}
 			}
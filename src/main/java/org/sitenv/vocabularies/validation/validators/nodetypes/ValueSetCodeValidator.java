@@ -7,7 +7,7 @@ import org.sitenv.vocabularies.configuration.ConfiguredValidator;
 import org.sitenv.vocabularies.validation.dto.NodeValidationResult;
 import org.sitenv.vocabularies.validation.dto.VocabularyValidationResult;
 import org.sitenv.vocabularies.validation.dto.enums.VocabularyValidationResultLevel;
-import org.sitenv.vocabularies.validation.repositories.VsacValuesSetRepository;
+import org.sitenv.vocabularies.validation.repositories.VocabularyLookupRepository;
 import org.sitenv.vocabularies.validation.utils.XpathUtils;
 import org.sitenv.vocabularies.validation.validators.NodeValidator;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,12 +25,12 @@ import java.util.List;
 @Component(value = "ValueSetCodeValidator")
 public class ValueSetCodeValidator extends NodeValidator {
     private static final Logger logger = LoggerFactory.getLogger(ValueSetCodeValidator.class);
-    private VsacValuesSetRepository vsacValuesSetRepository;
+    private VocabularyLookupRepository vocabularyLookupRepository;
 
 
     @Autowired
-    public ValueSetCodeValidator(VsacValuesSetRepository vsacValuesSetRepository) {
-        this.vsacValuesSetRepository = vsacValuesSetRepository;
+    public ValueSetCodeValidator(VocabularyLookupRepository vocabularyLookupRepository) {
+        this.vocabularyLookupRepository = vocabularyLookupRepository;
     }
 
     @Override
@@ -62,21 +62,21 @@ public class ValueSetCodeValidator extends NodeValidator {
         nodeValidationResult.setRequestedDisplayName(nodeDisplayName);
         nodeValidationResult.setConfiguredAllowableValuesetOidsForNode(configuredValidator.getAllowedValuesetOids());
 
-        if(vsacValuesSetRepository.valuesetOidsExists(allowedConfiguredCodeSystemOids)){
+        if(vocabularyLookupRepository.valuesetOidsExists(allowedConfiguredCodeSystemOids)){
             nodeValidationResult.setNodeValuesetsFound(true);
-            if (vsacValuesSetRepository.existsByCodeAndCodeSystemAndCodeSystemNameAndDisplayNameInValuesetOid(nodeCode, nodeCodeSystem, nodeCodeSystemName, nodeDisplayName, allowedConfiguredCodeSystemOids)) {
+            if (vocabularyLookupRepository.existsByCodeAndCodeSystemAndCodeSystemNameAndDisplayNameInValuesetOid(nodeCode, nodeCodeSystem, nodeCodeSystemName, nodeDisplayName, allowedConfiguredCodeSystemOids)) {
                 nodeValidationResult.setValid(true);
             } else {
-                if (vsacValuesSetRepository.codeSystemExistsInValueset(nodeCodeSystem, allowedConfiguredCodeSystemOids)) {
+                if (vocabularyLookupRepository.codeSystemExistsInValueset(nodeCodeSystem, allowedConfiguredCodeSystemOids)) {
                     nodeValidationResult.setNodeCodeSystemOIDFound(true);
                 }
-                if(vsacValuesSetRepository.codeExistsInValueset(nodeCode, allowedConfiguredCodeSystemOids)){
+                if(vocabularyLookupRepository.codeExistsInValueset(nodeCode, allowedConfiguredCodeSystemOids)){
                     nodeValidationResult.setNodeCodeFound(true);
                 }
-                if(nodeDisplayName.isEmpty() || vsacValuesSetRepository.displayNameExistsInValueset(nodeDisplayName, allowedConfiguredCodeSystemOids)){
+                if(nodeDisplayName.isEmpty() || vocabularyLookupRepository.displayNameExistsInValueset(nodeDisplayName, allowedConfiguredCodeSystemOids)){
                     nodeValidationResult.setNodeDisplayNameFound(true);
                 }
-                if(nodeCodeSystemName.isEmpty() || vsacValuesSetRepository.codeSystemNameExistsInValueset(nodeCodeSystemName, allowedConfiguredCodeSystemOids)){
+                if(nodeCodeSystemName.isEmpty() || vocabularyLookupRepository.codeSystemNameExistsInValueset(nodeCodeSystemName, allowedConfiguredCodeSystemOids)){
                     nodeValidationResult.setNodeCodeSystemNameFound(true);
                 }
             }
@@ -0,0 +1,8 @@
+CREATE INDEX IF NOT EXISTS IDX_VALUESETMEMBERS ON VALUESETMEMBERS (CODE, VALUESET_ID);
+CREATE INDEX IF NOT EXISTS IDX_VALUESETMEMBERSBYVALUESET ON VALUESETMEMBERS (VALUESET_ID);
+CREATE INDEX IF NOT EXISTS IDX_DISPLAYNAMEINVALUESETMEMBERS ON VALUESETMEMBERS (DISPLAYNAME_ID, VALUESET_ID);
+CREATE INDEX IF NOT EXISTS IDX_CODESYSTEMINVALUESETMEMBERS ON VALUESETMEMBERS (CODESYSTEM_ID, VALUESET_ID);
+CREATE INDEX IF NOT EXISTS IDX_CODESYTEMS ON CODES (CODESYSTEM_ID);
+CREATE INDEX IF NOT EXISTS IDX_CODESINCODES ON CODES (CODE, CODESYSTEM_ID);
+CREATE INDEX IF NOT EXISTS IDX_DISPLAYNAMEINCODES ON CODES (DISPLAYNAME_ID, CODESYSTEM_ID);
+COMMIT ;
@@ -1,10 +1,16 @@
 DROP SCHEMA PUBLIC CASCADE;
 COMMIT;
 
-CREATE TABLE VALUESETS (
-  ID INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+-- readers do not take locks under MVCC, so concurrent validations and a lazily loading partition do not
+-- wait for each other
+SET DATABASE TRANSACTION CONTROL MVCC;
+
+-- Loaders insert flat rows into the staging tables; VocabularyNormalizer moves them into the normalized
+-- tables below and empties the staging tables again.
+CREATE TABLE VALUESETS_STAGING (
   CODE VARCHAR(50) NOT NULL,
   DISPLAYNAME VARCHAR(10000)  NOT NULL,
+  DISPLAYNAME_HASH BIGINT NOT NULL,
   CODESYSTEMNAME VARCHAR(50)  NOT NULL,
   CODESYSTEMVERSION VARCHAR(50)  NOT NULL,
   CODESYSTEM VARCHAR(50)  NOT NULL,
@@ -16,21 +22,64 @@ CREATE TABLE VALUESETS (
   VALUESETSTEWARD VARCHAR(500)
 );
 
-CREATE TABLE CODES (
-  ID INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+CREATE TABLE CODES_STAGING (
   CODE VARCHAR(50) NOT NULL,
   DISPLAYNAME VARCHAR(100000) NOT NULL,
+  DISPLAYNAME_HASH BIGINT NOT NULL,
   CODESYSTEM VARCHAR(50) NOT NULL,
   CODESYSTEMOID VARCHAR(50) NOT NULL,
   ACTIVE BOOLEAN NOT NULL
 );
-COMMIT ;
 
-CREATE INDEX IDX_VALUESETS ON VALUESETS (CODE, DISPLAYNAME, CODESYSTEMNAME, CODESYSTEM, VALUESETOID);
-CREATE INDEX IDX_VALUESETOIDS ON VALUESETS (VALUESETOID);
-CREATE INDEX IDX_CODESINCODESYSTEMANDINVALUESETOIDS ON VALUESETS (CODE, CODESYSTEM, VALUESETOID);
-CREATE INDEX IDX_CODESYTEMS ON CODES (CODESYSTEM);
-CREATE INDEX IDX_CODESYSTEMOIDS ON CODES (CODESYSTEMOID);
-CREATE INDEX IDX_CODESINCODES ON CODES (CODE, DISPLAYNAME, CODESYSTEM, CODESYSTEMOID);
-CREATE INDEX IDX_DISPLAYNAMEINCODES ON CODES (DISPLAYNAME, CODESYSTEM);
+-- every distinct display name of CODES and VALUESETMEMBERS, stored once. Display names are looked up by
+-- their DisplayNameHash and then compared, so only the 64 bit hash is indexed. The index is needed while
+-- loading, it is not left to schema-indexes.sql.
+CREATE TABLE DISPLAYNAMES (
+  ID INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  DISPLAYNAME_HASH BIGINT NOT NULL,
+  DISPLAYNAME VARCHAR(100000) NOT NULL
+);
+CREATE INDEX IDX_DISPLAYNAMEHASHES ON DISPLAYNAMES (DISPLAYNAME_HASH);
+
+CREATE TABLE CODESYSTEMS (
+  ID INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  NAME VARCHAR(50) NOT NULL,
+  OID VARCHAR(50) NOT NULL,
+  CONSTRAINT UK_CODESYSTEMS UNIQUE (NAME, OID)
+);
+
+CREATE TABLE CODES (
+  ID INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  CODE VARCHAR(50) NOT NULL,
+  DISPLAYNAME_ID INTEGER NOT NULL,
+  CODESYSTEM_ID INTEGER NOT NULL,
+  ACTIVE BOOLEAN NOT NULL
+);
+
+CREATE TABLE VALUESETHEADERS (
+  ID INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  OID VARCHAR(50) NOT NULL,
+  NAME VARCHAR(75) NOT NULL,
+  TYPE VARCHAR(50) NOT NULL,
+  DEFINITIONVERSION VARCHAR(25) NOT NULL,
+  STEWARD VARCHAR(500) NOT NULL,
+  CONSTRAINT UK_VALUESETHEADERS UNIQUE (OID, NAME, TYPE, DEFINITIONVERSION, STEWARD)
+);
+
+CREATE TABLE VALUESETCODESYSTEMS (
+  ID INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  NAME VARCHAR(50) NOT NULL,
+  VERSION VARCHAR(50) NOT NULL,
+  OID VARCHAR(50) NOT NULL,
+  CONSTRAINT UK_VALUESETCODESYSTEMS UNIQUE (OID, NAME, VERSION)
+);
+
+CREATE TABLE VALUESETMEMBERS (
+  ID INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  VALUESET_ID INTEGER NOT NULL,
+  CODE VARCHAR(50) NOT NULL,
+  DISPLAYNAME_ID INTEGER NOT NULL,
+  CODESYSTEM_ID INTEGER NOT NULL,
+  TTY VARCHAR(10) NOT NULL
+);
 COMMIT ;
@@ -0,0 +1,965 @@
+package org.sitenv.vocabularies.test.other;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
+import javax.xml.bind.JAXB;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+
+import org.sitenv.vocabularies.configuration.ConfiguredExpression;
+import org.sitenv.vocabularies.configuration.ConfiguredValidator;
+import org.sitenv.vocabularies.configuration.Configurations;
+import org.sitenv.vocabularies.validation.utils.CCDADocumentNamespaces;
+import org.w3c.dom.NodeList;
+
+/**
+ * Generates C-CDA documents for benchmarks and load tests from a validation configuration, so they need no
+ * patient data or licensed samples. For every configured xpathExpression it builds the element structure the
+ * expression matches: the elements of its location steps, the templateIds, attributes and children its
+ * predicates ask for, and the elements its ancestor:: steps name. The node the expression matches is given the
+ * code, unit, text or required child its validators check, valid or, at the invalid ratio, invalid. Codes come
+ * from the vocabulary loaded into the given data source, so the valid nodes pass against that vocabulary.
+ *
+ * The document is written in rounds until it reaches the requested size; each round holds repetitions copies
+ * of the structure of every expression. Expressions under /v3:ClinicalDocument go into the header, once.
+ * Expressions the generator cannot build a structure for (functions other than not(), unions, wildcards,
+ * sibling axes) or whose structure the expression does not match are left out, see
+ * {@link #getUnsupportedExpressions()}.
+ */
+public class CcdaCorpusGenerator {
+	private static final int SAMPLE_SIZE = 1000;
+	private static final String PLACEHOLDER_VALUE = "SYNTHETIC";
+	private static final String INVALID_CODE_SYSTEM_OID = "2.16.840.1.113883.19.5.99999.0";
+	private static final String DOCUMENT_ELEMENT = "ClinicalDocument";
+	private static final Pattern TOKEN = Pattern.compile(
+			"\\s*(//|::|!=|\\.\\.|'[^']*'|\"[^\"]*\"|[0-9]+(?:\\.[0-9]+)?|[A-Za-z_][\\w.\\-]*(?::[A-Za-z_][\\w.\\-]*)?|[/\\[\\]()@=*|.,<>+])");
+	private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<ClinicalDocument xmlns=\"urn:hl7-org:v3\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\""
+			+ " xmlns:sdtc=\"urn:hl7-org:sdtc\">\n"
+			+ "<realmCode code=\"US\"/>\n"
+			+ "<typeId extension=\"POCD_HD000040\" root=\"2.16.840.1.113883.1.3\"/>\n"
+			+ "<templateId root=\"2.16.840.1.113883.10.20.22.1.1\" extension=\"2015-08-01\"/>\n"
+			+ "<id root=\"2.16.840.1.113883.19.5.99999.1\" extension=\"synthetic\"/>\n"
+			+ "<code code=\"34133-9\" displayName=\"Summarization of Episode Note\" codeSystem=\"2.16.840.1.113883.6.1\""
+			+ " codeSystemName=\"LOINC\"/>\n"
+			+ "<title>Synthetic document</title>\n"
+			+ "<effectiveTime value=\"20200101\"/>\n";
+	private static final String BODY_START = "<component><structuredBody>\n";
+	private static final String FOOTER = "</structuredBody></component>\n</ClinicalDocument>\n";
+
+	private final List<Structure> headerStructures = new ArrayList<>();
+	private final List<Structure> bodyStructures = new ArrayList<>();
+	private final List<String> unsupportedExpressions = new ArrayList<>();
+	private final Map<String, List<Code>> codesByCodeSystemName = new HashMap<>();
+	private final Map<String, List<Code>> codesByCodeSystemOid = new HashMap<>();
+	private final Map<String, List<Code>> membersByValuesetOid = new HashMap<>();
+	private int repetitions = 1;
+	private double invalidRatio = 0.1;
+	private Random random = new Random(0);
+	private long invalidCodeSequence = 0;
+
+	/**
+	 * @param vocabulary a data source of a loaded vocabulary store; up to 1000 codes of every code system and
+	 *        members of every value set the configuration names are read from it
+	 */
+	public CcdaCorpusGenerator(Configurations configurations, DataSource vocabulary) throws SQLException {
+		List<ConfiguredExpression> expressions = configurations.getExpressions() != null ? configurations.getExpressions()
+				: Collections.<ConfiguredExpression>emptyList();
+		try (Connection connection = vocabulary.getConnection()) {
+			sampleCodes(connection);
+			sampleValuesetMembers(connection, referencedValuesetOids(expressions));
+		}
+		for (ConfiguredExpression expression : expressions) {
+			Structure structure = null;
+			try {
+				structure = buildStructure(expression);
+			} catch (IllegalArgumentException e) {
+				// the expression uses XPath the generator does not build structures for
+			}
+			if (structure == null || !matches(structure)) {
+				unsupportedExpressions.add(expression.getConfiguredXpathExpression());
+			} else if (structure.isHeader()) {
+				headerStructures.add(structure);
+			} else {
+				bodyStructures.add(structure);
+			}
+		}
+	}
+
+	public static Configurations readConfigurations(InputStream inputStream) {
+		return JAXB.unmarshal(inputStream, Configurations.class);
+	}
+
+	public int getRepetitions() {
+		return repetitions;
+	}
+
+	/**
+	 * @param repetitions the number of copies of each structure per round
+	 */
+	public void setRepetitions(int repetitions) {
+		this.repetitions = Math.max(1, repetitions);
+	}
+
+	public double getInvalidRatio() {
+		return invalidRatio;
+	}
+
+	/**
+	 * @param invalidRatio the share of structures, between 0 and 1, whose matched node fails its validators
+	 */
+	public void setInvalidRatio(double invalidRatio) {
+		this.invalidRatio = invalidRatio;
+	}
+
+	/**
+	 * Makes the following documents reproducible.
+	 */
+	public void setSeed(long seed) {
+		this.random = new Random(seed);
+		this.invalidCodeSequence = 0;
+	}
+
+	/**
+	 * @return the xpathExpressions that have no structure in the generated documents
+	 */
+	public List<String> getUnsupportedExpressions() {
+		return Collections.unmodifiableList(unsupportedExpressions);
+	}
+
+	public byte[] generate(long targetSize) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE - 8, targetSize + 65536));
+		generate(outputStream, targetSize);
+		return outputStream.toByteArray();
+	}
+
+	/**
+	 * Writes a document of at least targetSize bytes, unless the configuration has no body structures, in
+	 * which case the document has a single round.
+	 *
+	 * @return the number of bytes written
+	 */
+	public long generate(OutputStream outputStream, long targetSize) throws IOException {
+		CountingOutputStream countingOutputStream = new CountingOutputStream(outputStream);
+		Writer writer = new BufferedWriter(new OutputStreamWriter(countingOutputStream, StandardCharsets.UTF_8));
+		StringBuilder buffer = new StringBuilder(HEADER);
+		for (Structure structure : headerStructures) {
+			for (int repetition = 0; repetition < repetitions; repetition++) {
+				// the header structures are ClinicalDocument elements, only their children are written
+				for (Element child : emit(structure).children) {
+					child.write(buffer);
+					buffer.append('\n');
+				}
+			}
+		}
+		buffer.append(BODY_START);
+		do {
+			for (Structure structure : bodyStructures) {
+				appendRound(buffer, structure);
+			}
+			writer.write(buffer.toString());
+			writer.flush();
+			buffer.setLength(0);
+		} while (!bodyStructures.isEmpty() && countingOutputStream.count + FOOTER.length() < targetSize);
+		writer.write(FOOTER);
+		writer.flush();
+		return countingOutputStream.count;
+	}
+
+	/**
+	 * Appends the copies of one structure, within the elements C-CDA puts its root element in.
+	 */
+	private void appendRound(StringBuilder buffer, Structure structure) {
+		String rootName = structure.root.name;
+		if (rootName.equals("component")) {
+			for (int repetition = 0; repetition < repetitions; repetition++) {
+				emit(structure).write(buffer);
+			}
+		} else if (rootName.equals("section")) {
+			for (int repetition = 0; repetition < repetitions; repetition++) {
+				buffer.append("<component>");
+				emit(structure).write(buffer);
+				buffer.append("</component>\n");
+			}
+		} else {
+			buffer.append("<component><section>\n");
+			for (int repetition = 0; repetition < repetitions; repetition++) {
+				if (rootName.equals("entry")) {
+					emit(structure).write(buffer);
+				} else {
+					buffer.append("<entry>");
+					emit(structure).write(buffer);
+					buffer.append("</entry>\n");
+				}
+			}
+			buffer.append("</section></component>\n");
+		}
+	}
+
+	/**
+	 * @return a copy of the structure whose matched node is filled in for its validators
+	 */
+	private Element emit(Structure structure) {
+		Element root = structure.root.copy(null);
+		Element target = root.descendant(structure.targetPath);
+		boolean valid = random.nextDouble() >= invalidRatio;
+		for (ConfiguredValidator validator : structure.validators) {
+			fill(target, validator, valid);
+		}
+		return root;
+	}
+
+	private void fill(Element target, ConfiguredValidator validator, boolean valid) {
+		String name = String.valueOf(validator.getName());
+		switch (name) {
+		case "CodeSystemCodeValidator":
+			fillCode(target, pick(codesByCodeSystemName, validator.getAllowedCodesystemNames()), valid);
+			break;
+		case "ValueSetCodeValidator":
+			fillCode(target, pick(membersByValuesetOid, validator.getAllowedValuesetOids()), valid);
+			break;
+		case "NodeCodeSystemMatchesConfiguredCodeSystemValidator":
+			List<String> codeSystemOids = split(validator.getAllowedValuesetOids());
+			Code code = pick(codesByCodeSystemOid, validator.getAllowedValuesetOids());
+			if (code != null) {
+				fillCode(target, code, true);
+			} else if (!codeSystemOids.isEmpty()) {
+				target.fill("code", nextInvalidCode());
+			}
+			if (!valid) {
+				target.fill("codeSystem", INVALID_CODE_SYSTEM_OID);
+			} else if (code == null && !codeSystemOids.isEmpty()) {
+				target.fill("codeSystem", codeSystemOids.get(0));
+			}
+			break;
+		case "ValueSetNodeWithOnlyCodeValidator":
+			target.fill("code", memberCode(validator, valid));
+			break;
+		case "ClassCodeValidator":
+			target.fill("classCode", memberCode(validator, valid));
+			break;
+		case "UnitValidator":
+		case "UnitAllowsOneValidator":
+			target.fill("unit", memberCode(validator, valid));
+			break;
+		case "TextNodeValidator":
+			if (target.children.isEmpty()) {
+				target.text = memberCode(validator, valid);
+			}
+			break;
+		case "LanguageCodeNodeLanguageCodeValuesetValidator":
+			String countryCode = target.attributes.containsKey("code") ? target.attributes.get("code") : "";
+			target.fill("code", memberCode(validator, valid)
+					+ (countryCode.contains("-") ? countryCode.substring(countryCode.indexOf('-')) : ""));
+			break;
+		case "LanguageCodeNodeCountryCodeValuesetValidator":
+			String languageCode = target.attributes.containsKey("code") ? target.attributes.get("code") : "en";
+			target.fill("code", (languageCode.contains("-") ? languageCode.substring(0, languageCode.indexOf('-')) : languageCode)
+					+ "-" + memberCode(validator, valid));
+			break;
+		case "RequiredNodeValidator":
+			if (valid && validator.getRequiredNodeName() != null) {
+				try {
+					Path requiredNode = new Parser(validator.getRequiredNodeName()).parsePath();
+					Skeleton skeleton = new Skeleton(target);
+					buildPath(requiredNode, target, skeleton, PLACEHOLDER_VALUE);
+				} catch (IllegalArgumentException e) {
+					// a required node the generator cannot build is left out, as if invalid
+				}
+			}
+			break;
+		default:
+		}
+	}
+
+	private void fillCode(Element target, Code code, boolean valid) {
+		if (code == null) {
+			target.fill("code", nextInvalidCode());
+			return;
+		}
+		target.fill("code", valid ? code.code : nextInvalidCode());
+		target.fill("displayName", code.displayName);
+		target.fill("codeSystem", code.codeSystemOid);
+		target.fill("codeSystemName", code.codeSystemName);
+	}
+
+	private String memberCode(ConfiguredValidator validator, boolean valid) {
+		Code member = pick(membersByValuesetOid, validator.getAllowedValuesetOids());
+		return valid && member != null ? member.code : nextInvalidCode();
+	}
+
+	/**
+	 * @return a random code of one of the comma separated keys, or null if the vocabulary has none
+	 */
+	private Code pick(Map<String, List<Code>> codes, String keys) {
+		List<List<Code>> candidates = new ArrayList<>();
+		for (String key : split(keys)) {
+			List<Code> keyCodes = codes.get(key.toUpperCase());
+			if (keyCodes != null) {
+				candidates.add(keyCodes);
+			}
+		}
+		if (candidates.isEmpty()) {
+			return null;
+		}
+		List<Code> keyCodes = candidates.get(random.nextInt(candidates.size()));
+		return keyCodes.get(random.nextInt(keyCodes.size()));
+	}
+
+	private String nextInvalidCode() {
+		return "INVALID" + ++invalidCodeSequence;
+	}
+
+	private static List<String> split(String values) {
+		List<String> split = new ArrayList<>();
+		if (values != null) {
+			for (String value : values.split(",")) {
+				if (!value.trim().isEmpty()) {
+					split.add(value.trim());
+				}
+			}
+		}
+		return split;
+	}
+
+	private void sampleCodes(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery("SELECT s.NAME, s.OID, c.CODE, d.DISPLAYNAME FROM CODES c"
+						+ " JOIN CODESYSTEMS s ON s.ID = c.CODESYSTEM_ID JOIN DISPLAYNAMES d ON d.ID = c.DISPLAYNAME_ID"
+						+ " WHERE c.ACTIVE = TRUE")) {
+			while (resultSet.next()) {
+				Code code = new Code(resultSet.getString(3), resultSet.getString(4), resultSet.getString(2), resultSet.getString(1));
+				addSample(codesByCodeSystemName, code.codeSystemName.toUpperCase(), code);
+				addSample(codesByCodeSystemOid, code.codeSystemOid.toUpperCase(), code);
+			}
+		}
+	}
+
+	private void sampleValuesetMembers(Connection connection, Set<String> valuesetOids) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement("SELECT m.CODE, d.DISPLAYNAME, s.OID, s.NAME"
+				+ " FROM VALUESETMEMBERS m JOIN VALUESETHEADERS h ON h.ID = m.VALUESET_ID"
+				+ " JOIN VALUESETCODESYSTEMS s ON s.ID = m.CODESYSTEM_ID JOIN DISPLAYNAMES d ON d.ID = m.DISPLAYNAME_ID"
+				+ " WHERE h.OID = ? FETCH FIRST " + SAMPLE_SIZE + " ROWS ONLY")) {
+			for (String valuesetOid : valuesetOids) {
+				statement.setString(1, valuesetOid);
+				try (ResultSet resultSet = statement.executeQuery()) {
+					while (resultSet.next()) {
+						addSample(membersByValuesetOid, valuesetOid, new Code(resultSet.getString(1), resultSet.getString(2),
+								resultSet.getString(3), resultSet.getString(4)));
+					}
+				}
+			}
+		}
+	}
+
+	private static void addSample(Map<String, List<Code>> samples, String key, Code code) {
+		List<Code> codes = samples.get(key);
+		if (codes == null) {
+			codes = new ArrayList<>();
+			samples.put(key, codes);
+		}
+		if (codes.size() < SAMPLE_SIZE) {
+			codes.add(code);
+		}
+	}
+
+	private static Set<String> referencedValuesetOids(List<ConfiguredExpression> expressions) {
+		Set<String> valuesetOids = new HashSet<>();
+		for (ConfiguredExpression expression : expressions) {
+			if (expression.getConfiguredValidators() != null) {
+				for (ConfiguredValidator validator : expression.getConfiguredValidators()) {
+					for (String valuesetOid : split(validator.getAllowedValuesetOids())) {
+						valuesetOids.add(valuesetOid.toUpperCase());
+					}
+				}
+			}
+		}
+		return valuesetOids;
+	}
+
+	/**
+	 * @return the structure of the expression, or null if it does not lead to an element
+	 */
+	private Structure buildStructure(ConfiguredExpression expression) {
+		Path path = new Parser(expression.getConfiguredXpathExpression()).parseExpression();
+		if (path.steps.isEmpty()) {
+			return null;
+		}
+		Skeleton skeleton = new Skeleton(null);
+		Element target = buildPath(path, null, skeleton, PLACEHOLDER_VALUE);
+		if (target == null) {
+			return null;
+		}
+		List<ConfiguredValidator> validators = expression.getConfiguredValidators() != null ? expression.getConfiguredValidators()
+				: Collections.<ConfiguredValidator>emptyList();
+		return new Structure(expression.getConfiguredXpathExpression(), skeleton.root, target.pathFrom(skeleton.root), validators);
+	}
+
+	/**
+	 * Creates the elements and attributes of a path below context, or as the root of the skeleton if context is
+	 * null. The last step gets value if it is an attribute or text().
+	 *
+	 * @return the element the path leads to, the owner element if it leads to an attribute
+	 */
+	private Element buildPath(Path path, Element context, Skeleton skeleton, String value) {
+		Element current = context;
+		for (int index = 0; index < path.steps.size(); index++) {
+			Step step = path.steps.get(index);
+			boolean last = index == path.steps.size() - 1;
+			if (current == null) {
+				if (!step.isChild() || (path.rooted && !step.name.equals(DOCUMENT_ELEMENT))) {
+					throw new IllegalArgumentException("A path must start with an element, and a rooted one with " + DOCUMENT_ELEMENT);
+				}
+				current = new Element(step.name);
+				skeleton.root = current;
+			} else if (step.axis.equals("attribute")) {
+				current.pin(step.name, last ? value : PLACEHOLDER_VALUE);
+				continue;
+			} else if (step.axis.equals("text")) {
+				current.text = value;
+				continue;
+			} else if (step.isChild()) {
+				current = current.addChild(new Element(step.name));
+			} else if (step.axis.equals("self")) {
+				// stays on the current element
+			} else if (step.axis.equals("parent")) {
+				if (current.parent == null) {
+					throw new IllegalArgumentException("No parent to step to");
+				}
+				current = current.parent;
+			} else if (step.axis.equals("ancestor") || step.axis.equals("ancestor-or-self")) {
+				current = ancestor(current, step.name, step.axis.equals("ancestor-or-self"), skeleton);
+			} else {
+				throw new IllegalArgumentException("Unsupported axis " + step.axis);
+			}
+			for (Expr predicate : step.predicates) {
+				applyPredicate(predicate, current, skeleton);
+			}
+			if (last && value != null && !value.equals(PLACEHOLDER_VALUE) && current.children.isEmpty()) {
+				current.text = value;
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * @return the nearest ancestor of element with the given name, which is wrapped around the skeleton if
+	 *         there is none
+	 */
+	private static Element ancestor(Element element, String name, boolean orSelf, Skeleton skeleton) {
+		for (Element ancestor = orSelf ? element : element.parent; ancestor != null; ancestor = ancestor.parent) {
+			if (ancestor.name.equals(name)) {
+				return ancestor;
+			}
+		}
+		Element wrapper = new Element(name);
+		wrapper.addChild(skeleton.root);
+		skeleton.root = wrapper;
+		return wrapper;
+	}
+
+	private void applyPredicate(Expr predicate, Element element, Skeleton skeleton) {
+		if (predicate instanceof And) {
+			for (Expr operand : ((And) predicate).operands) {
+				applyPredicate(operand, element, skeleton);
+			}
+		} else if (predicate instanceof Path) {
+			Path path = (Path) predicate;
+			if (path.absolute) {
+				throw new IllegalArgumentException("Absolute paths in predicates are not supported");
+			}
+			buildPath(path, element, skeleton, PLACEHOLDER_VALUE);
+		} else if (predicate instanceof Equals) {
+			Equals equals = (Equals) predicate;
+			Expr left = equals.left instanceof Literal ? equals.right : equals.left;
+			Expr right = equals.left instanceof Literal ? equals.left : equals.right;
+			if (!(left instanceof Path) || !(right instanceof Literal) || ((Path) left).absolute) {
+				throw new IllegalArgumentException("Only a relative path compared to a literal is supported");
+			}
+			String value = ((Literal) right).value;
+			buildPath((Path) left, element, skeleton, equals.notEquals ? value + "-" + PLACEHOLDER_VALUE : value);
+		}
+		// not(...) holds as long as the generator does not create what it names, and a number is a position
+	}
+
+	/**
+	 * Checks that the expression matches its structure, as the validation service evaluates it.
+	 */
+	private boolean matches(Structure structure) {
+		try {
+			StringBuilder document = new StringBuilder(HEADER);
+			if (structure.isHeader()) {
+				for (Element child : emit(structure).children) {
+					child.write(document);
+				}
+				document.append(BODY_START);
+			} else {
+				document.append(BODY_START);
+				int savedRepetitions = repetitions;
+				repetitions = 1;
+				try {
+					appendRound(document, structure);
+				} finally {
+					repetitions = savedRepetitions;
+				}
+			}
+			document.append(FOOTER);
+			DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+			documentBuilderFactory.setNamespaceAware(true);
+			org.w3c.dom.Document parsed = documentBuilderFactory.newDocumentBuilder()
+					.parse(new ByteArrayInputStream(document.toString().getBytes(StandardCharsets.UTF_8)));
+			XPath xpath = XPathFactory.newInstance().newXPath();
+			xpath.setNamespaceContext(new CcdaNamespaceContext());
+			NodeList nodes = (NodeList) xpath.compile(structure.expression).evaluate(parsed, XPathConstants.NODESET);
+			return nodes.getLength() > 0;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	private static class Code {
+		private final String code;
+		private final String displayName;
+		private final String codeSystemOid;
+		private final String codeSystemName;
+
+		Code(String code, String displayName, String codeSystemOid, String codeSystemName) {
+			this.code = code;
+			this.displayName = displayName;
+			this.codeSystemOid = codeSystemOid;
+			this.codeSystemName = codeSystemName;
+		}
+	}
+
+	private static class Structure {
+		private final String expression;
+		private final Element root;
+		private final int[] targetPath;
+		private final List<ConfiguredValidator> validators;
+
+		Structure(String expression, Element root, int[] targetPath, List<ConfiguredValidator> validators) {
+			this.expression = expression;
+			this.root = root;
+			this.targetPath = targetPath;
+			this.validators = validators;
+		}
+
+		boolean isHeader() {
+			return root.name.equals(DOCUMENT_ELEMENT);
+		}
+	}
+
+	private static class Skeleton {
+		private Element root;
+
+		Skeleton(Element root) {
+			this.root = root;
+		}
+	}
+
+	/**
+	 * An element of a structure. Attributes the expression itself asks for are pinned, the validator values do
+	 * not replace them.
+	 */
+	private static class Element {
+		private final String name;
+		private final Map<String, String> attributes = new LinkedHashMap<>();
+		private final Set<String> pinnedAttributes = new HashSet<>();
+		private final List<Element> children = new ArrayList<>();
+		private Element parent;
+		private String text;
+
+		Element(String name) {
+			this.name = name;
+		}
+
+		Element addChild(Element child) {
+			child.parent = this;
+			children.add(child);
+			return child;
+		}
+
+		void pin(String attribute, String value) {
+			attributes.put(attribute, value);
+			pinnedAttributes.add(attribute);
+		}
+
+		void fill(String attribute, String value) {
+			if (!pinnedAttributes.contains(attribute)) {
+				attributes.put(attribute, value);
+			}
+		}
+
+		Element copy(Element copyParent) {
+			Element copy = new Element(name);
+			copy.parent = copyParent;
+			copy.attributes.putAll(attributes);
+			copy.pinnedAttributes.addAll(pinnedAttributes);
+			copy.text = text;
+			for (Element child : children) {
+				copy.children.add(child.copy(copy));
+			}
+			return copy;
+		}
+
+		int[] pathFrom(Element root) {
+			List<Integer> indexes = new ArrayList<>();
+			for (Element element = this; element != root; element = element.parent) {
+				indexes.add(0, element.parent.children.indexOf(element));
+			}
+			int[] path = new int[indexes.size()];
+			for (int i = 0; i < path.length; i++) {
+				path[i] = indexes.get(i);
+			}
+			return path;
+		}
+
+		Element descendant(int[] path) {
+			Element element = this;
+			for (int index : path) {
+				element = element.children.get(index);
+			}
+			return element;
+		}
+
+		void write(StringBuilder buffer) {
+			buffer.append('<').append(name);
+			for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+				buffer.append(' ').append(attribute.getKey()).append("=\"").append(escape(attribute.getValue())).append('"');
+			}
+			if (children.isEmpty() && text == null) {
+				buffer.append("/>");
+			} else {
+				buffer.append('>');
+				if (text != null) {
+					buffer.append(escape(text));
+				}
+				for (Element child : children) {
+					child.write(buffer);
+				}
+				buffer.append("</").append(name).append('>');
+			}
+			if (parent == null) {
+				buffer.append('\n');
+			}
+		}
+
+		private static String escape(String value) {
+			return value.replace("&", "&amp;").replace("<", "&lt;").replace("\"", "&quot;");
+		}
+	}
+
+	private interface Expr {
+	}
+
+	private static class Path implements Expr {
+		private final boolean absolute;
+		/** starts at the document element, with / rather than // */
+		private final boolean rooted;
+		private final List<Step> steps = new ArrayList<>();
+
+		Path(boolean absolute, boolean rooted) {
+			this.absolute = absolute;
+			this.rooted = rooted;
+		}
+	}
+
+	private static class Step {
+		private final String axis;
+		private final String name;
+		private final List<Expr> predicates = new ArrayList<>();
+
+		Step(String axis, String name) {
+			this.axis = axis;
+			this.name = name;
+		}
+
+		boolean isChild() {
+			return axis.equals("child") || axis.equals("descendant") || axis.equals("descendant-or-self");
+		}
+	}
+
+	private static class And implements Expr {
+		private final List<Expr> operands = new ArrayList<>();
+	}
+
+	private static class Not implements Expr {
+	}
+
+	private static class Literal implements Expr {
+		private final String value;
+
+		Literal(String value) {
+			this.value = value;
+		}
+	}
+
+	private static class Equals implements Expr {
+		private final Expr left;
+		private final Expr right;
+		private final boolean notEquals;
+
+		Equals(Expr left, Expr right, boolean notEquals) {
+			this.left = left;
+			this.right = right;
+			this.notEquals = notEquals;
+		}
+	}
+
+	/**
+	 * Parses the subset of XPath 1.0 the generator builds structures for: location paths with child,
+	 * descendant, self, parent, ancestor and attribute steps, and predicates made of and, or (of which the
+	 * first operand is built), not(), paths, positions and comparisons of a path with a literal.
+	 */
+	private static class Parser {
+		private final List<String> tokens = new ArrayList<>();
+		private int position = 0;
+
+		Parser(String expression) {
+			Matcher matcher = TOKEN.matcher(expression);
+			int end = 0;
+			while (end < expression.length() && matcher.find(end) && matcher.start() == end) {
+				tokens.add(matcher.group(1));
+				end = matcher.end();
+			}
+			if (!expression.substring(end).trim().isEmpty()) {
+				throw new IllegalArgumentException("Cannot tokenize " + expression.substring(end));
+			}
+		}
+
+		Path parseExpression() {
+			Path path = parsePath();
+			if (position < tokens.size()) {
+				throw new IllegalArgumentException("Unexpected " + tokens.get(position));
+			}
+			return path;
+		}
+
+		Path parsePath() {
+			Path path = new Path(peek("/") || peek("//"), peek("/"));
+			if (path.absolute) {
+				position++;
+			}
+			path.steps.add(parseStep());
+			while (accept("/") || accept("//")) {
+				path.steps.add(parseStep());
+			}
+			return path;
+		}
+
+		private Step parseStep() {
+			Step step;
+			if (accept("@")) {
+				step = new Step("attribute", attributeName(next()));
+			} else if (accept(".")) {
+				step = new Step("self", null);
+			} else if (accept("..")) {
+				step = new Step("parent", null);
+			} else {
+				String axis = "child";
+				String name = next();
+				if (accept("::")) {
+					axis = name;
+					name = next();
+				}
+				if (name.equals("*")) {
+					throw new IllegalArgumentException("Wildcards are not supported");
+				}
+				if (accept("(")) {
+					expect(")");
+					if (!name.equals("text")) {
+						throw new IllegalArgumentException("Unsupported node test " + name + "()");
+					}
+					step = new Step("text", null);
+				} else {
+					step = new Step(axis.equals("attribute") ? "attribute" : axis,
+							axis.equals("attribute") ? attributeName(name) : elementName(name));
+				}
+			}
+			while (accept("[")) {
+				step.predicates.add(parseOr());
+				expect("]");
+			}
+			return step;
+		}
+
+		private Expr parseOr() {
+			Expr first = parseAnd();
+			while (accept("or")) {
+				parseAnd();
+			}
+			return first;
+		}
+
+		private Expr parseAnd() {
+			And and = new And();
+			and.operands.add(parseUnary());
+			while (accept("and")) {
+				and.operands.add(parseUnary());
+			}
+			return and.operands.size() == 1 ? and.operands.get(0) : and;
+		}
+
+		private Expr parseUnary() {
+			if (peek("not") && "(".equals(peekAhead(1))) {
+				position += 2;
+				parseOr();
+				expect(")");
+				return new Not();
+			}
+			if (accept("(")) {
+				Expr expr = parseOr();
+				expect(")");
+				return expr;
+			}
+			Expr left = parseOperand();
+			if (accept("=")) {
+				return new Equals(left, parseOperand(), false);
+			}
+			if (accept("!=")) {
+				return new Equals(left, parseOperand(), true);
+			}
+			return left;
+		}
+
+		private Expr parseOperand() {
+			String token = tokens.size() > position ? tokens.get(position) : "";
+			if (token.startsWith("'") || token.startsWith("\"")) {
+				position++;
+				return new Literal(token.substring(1, token.length() - 1));
+			}
+			if (Character.isDigit(token.isEmpty() ? ' ' : token.charAt(0))) {
+				position++;
+				return new Literal(token);
+			}
+			if ("(".equals(peekAhead(1)) && !token.equals("text")) {
+				throw new IllegalArgumentException("Unsupported function " + token);
+			}
+			return parsePath();
+		}
+
+		private static String elementName(String name) {
+			// elements of the HL7 namespace are written without a prefix, the service maps every prefix but sdtc
+			// and xsi to that namespace
+			int colon = name.indexOf(':');
+			if (colon < 0 || name.startsWith(CCDADocumentNamespaces.sdtc.name() + ":")) {
+				return name;
+			}
+			return name.substring(colon + 1);
+		}
+
+		private static String attributeName(String name) {
+			int colon = name.indexOf(':');
+			if (colon < 0 || name.startsWith(CCDADocumentNamespaces.xsi.name() + ":")
+					|| name.startsWith(CCDADocumentNamespaces.sdtc.name() + ":")) {
+				return name;
+			}
+			return name.substring(colon + 1);
+		}
+
+		private boolean peek(String token) {
+			return position < tokens.size() && tokens.get(position).equals(token);
+		}
+
+		private String peekAhead(int offset) {
+			return position + offset < tokens.size() ? tokens.get(position + offset) : null;
+		}
+
+		private boolean accept(String token) {
+			if (peek(token)) {
+				position++;
+				return true;
+			}
+			return false;
+		}
+
+		private void expect(String token) {
+			if (!accept(token)) {
+				throw new IllegalArgumentException("Expected " + token + " at " + (position < tokens.size() ? tokens.get(position) : "end"));
+			}
+		}
+
+		private String next() {
+			if (position >= tokens.size()) {
+				throw new IllegalArgumentException("Unexpected end of expression");
+			}
+			return tokens.get(position++);
+		}
+	}
+
+	/**
+	 * Resolves prefixes the way the validation service does: sdtc and xsi to their namespaces, any other to
+	 * the HL7 namespace.
+	 */
+	private static class CcdaNamespaceContext implements NamespaceContext {
+		@Override
+		public String getNamespaceURI(String prefix) {
+			if (CCDADocumentNamespaces.sdtc.name().equals(prefix)) {
+				return CCDADocumentNamespaces.sdtc.getNamespace();
+			} else if (CCDADocumentNamespaces.xsi.name().equals(prefix)) {
+				return CCDADocumentNamespaces.xsi.getNamespace();
+			}
+			return CCDADocumentNamespaces.defaultNameSpaceForCcda.getNamespace();
+		}
+
+		@Override
+		public String getPrefix(String namespaceURI) {
+			return null;
+		}
+
+		@Override
+		public Iterator<?> getPrefixes(String namespaceURI) {
+			return null;
+		}
+	}
+
+	private static class CountingOutputStream extends FilterOutputStream {
+		private long count = 0;
+
+		CountingOutputStream(OutputStream outputStream) {
+			super(outputStream);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package org.sitenv.vocabularies.test.other;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.sitenv.vocabularies.loader.CodeSink;
+import org.sitenv.vocabularies.loader.VocabularyLoader;
+import org.sitenv.vocabularies.loader.VocabularyLoaderFactory;
+
+/**
+ * Loads code system directories of "code|display name" lines into the code system named like the directory
+ * and counts the loads of each directory. A directory can be made to fail after its first row, or to wait
+ * for a latch once its rows are written.
+ */
+public class TestCodeLoaderFactory implements VocabularyLoaderFactory {
+	public static final String OID = "1.2.3.4";
+
+	private final ConcurrentMap<String, AtomicInteger> loadCounts = new ConcurrentHashMap<>();
+	private final Set<String> failingDirectories = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private final ConcurrentMap<String, CountDownLatch[]> heldDirectories = new ConcurrentHashMap<>();
+
+	public static void writeCodes(File directory, String... lines) throws IOException {
+		directory.mkdirs();
+		Files.write(new File(directory, "codes.txt").toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+	}
+
+	public static long countCodes(DataSource dataSource, String codeSystem) throws SQLException {
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement statement = connection.prepareStatement("select count(*) from CODES c"
+						+ " join CODESYSTEMS s on s.ID = c.CODESYSTEM_ID where s.NAME = ?")) {
+			statement.setString(1, codeSystem);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				resultSet.next();
+				return resultSet.getLong(1);
+			}
+		}
+	}
+
+	public static long countStagedCodes(DataSource dataSource, String codeSystem) throws SQLException {
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement statement = connection.prepareStatement("select count(*) from CODES_STAGING where CODESYSTEM = ?")) {
+			statement.setString(1, codeSystem);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				resultSet.next();
+				return resultSet.getLong(1);
+			}
+		}
+	}
+
+	public int getLoadCount(String directoryName) {
+		AtomicInteger loadCount = loadCounts.get(directoryName);
+		return loadCount != null ? loadCount.get() : 0;
+	}
+
+	public void setFailing(String directoryName, boolean failing) {
+		if (failing) {
+			failingDirectories.add(directoryName);
+		} else {
+			failingDirectories.remove(directoryName);
+		}
+	}
+
+	/**
+	 * Makes the next loads of the directory count down started once their rows are written and wait for
+	 * release before they return.
+	 */
+	public void hold(String directoryName, CountDownLatch started, CountDownLatch release) {
+		heldDirectories.put(directoryName, new CountDownLatch[] {started, release});
+	}
+
+	@Override
+	public VocabularyLoader getVocabularyLoader(final String loaderType) {
+		return new VocabularyLoader() {
+			@Override
+			public void load(List<File> files, Connection connection) {
+				AtomicInteger loadCount = loadCounts.putIfAbsent(loaderType, new AtomicInteger(1));
+				if (loadCount != null) {
+					loadCount.incrementAndGet();
+				}
+				try (CodeSink codeSink = new CodeSink(connection, 100)) {
+					for (File file : files) {
+						for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+							String[] fields = line.split("\\|");
+							codeSink.add(fields[0], fields[1], loaderType, OID, true);
+							if (failingDirectories.contains(loaderType)) {
+								codeSink.commit();
+								throw new IllegalStateException("Test load of " + loaderType + " fails");
+							}
+						}
+					}
+				} catch (IOException | SQLException e) {
+					throw new IllegalStateException(e);
+				}
+				CountDownLatch[] latches = heldDirectories.get(loaderType);
+				if (latches != null) {
+					latches[0].countDown();
+					try {
+						latches[1].await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}
+		};
+	}
+}
@@ -1,13 +1,29 @@
 package org.sitenv.vocabularies.test.other;
+import java.util.HashMap;
+import java.util.Map;
+
 import org.sitenv.vocabularies.configuration.ConfiguredValidator;
 import org.sitenv.vocabularies.validation.NodeValidation;
 import org.sitenv.vocabularies.validation.services.VocabularyValidationService;
 
 public class TestableVocabularyValidationService extends VocabularyValidationService {
 
+	private final Map<String, NodeValidation> vocabularyValidators = new HashMap<>();
+
+	/**
+	 * Makes the configured validators of this name use the given validator instead of a new instance of the class
+	 * of that name.
+	 */
+	public void putVocabularyValidator(String name, NodeValidation vocabularyValidator) {
+		vocabularyValidators.put(name, vocabularyValidator);
+	}
+
 	@Override
 	public NodeValidation selectVocabularyValidator(ConfiguredValidator configuredValidator) {
-		NodeValidation vocabularyValidator = null;
+		NodeValidation vocabularyValidator = vocabularyValidators.get(configuredValidator.getName());
+		if (vocabularyValidator != null) {
+			return vocabularyValidator;
+		}
 		final String packagePath = "org.sitenv.vocabularies.validation.validators.nodetypes.";
 		try {
 			vocabularyValidator = (NodeValidation) Class.forName(packagePath + configuredValidator.getName())
@@ -0,0 +1,73 @@
+package org.sitenv.vocabularies.test.other;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.sitenv.vocabularies.loader.CodeSink;
+import org.sitenv.vocabularies.loader.ValueSetRow;
+import org.sitenv.vocabularies.loader.ValueSetSink;
+import org.sitenv.vocabularies.loader.VocabularyNormalizer;
+
+/**
+ * Writes a small vocabulary through the sinks the loaders use. Codes and value set members are staged until
+ * normalize() moves them into the normalized tables, as a load does.
+ */
+public class VocabularyFixture implements AutoCloseable {
+	public static final String LOINC_OID = "2.16.840.1.113883.6.1";
+	public static final String SNOMED_OID = "2.16.840.1.113883.6.96";
+	public static final String VALUESET_OID = "2.16.840.1.113762.1.4.1";
+
+	private final Connection connection;
+	private final CodeSink codeSink;
+	private final ValueSetSink valueSetSink;
+
+	public VocabularyFixture(Connection connection) throws SQLException {
+		this.connection = connection;
+		connection.setAutoCommit(false);
+		codeSink = new CodeSink(connection, 100);
+		valueSetSink = new ValueSetSink(connection, 100);
+	}
+
+	public VocabularyFixture addCode(String code, String displayName, String codeSystem, String codeSystemOid,
+			boolean active) throws SQLException {
+		codeSink.add(code, displayName, codeSystem, codeSystemOid, active);
+		return this;
+	}
+
+	public VocabularyFixture addValueSetMember(String code, String displayName, String codeSystemName, String codeSystem,
+			String valueSetName, String valueSetOid) throws SQLException {
+		valueSetSink.add(new ValueSetRow(code, displayName, codeSystemName, "2016", codeSystem, "", valueSetName,
+				valueSetOid, null, null, null));
+		return this;
+	}
+
+	/**
+	 * Adds the vocabulary the lookup and statistics tests read: five LOINC rows with an inactive code and a
+	 * code that is both active and inactive, and the one member of the Hypertension value set.
+	 */
+	public VocabularyFixture addLookupVocabulary() throws SQLException {
+		return addCode("1000-0", "GLUCOSE", "LOINC", LOINC_OID, true)
+				.addCode("1000-0", "GLUCOSE IN BLOOD", "LOINC", LOINC_OID, true)
+				.addCode("2000-0", "RETIRED", "LOINC", LOINC_OID, false)
+				.addCode("3000-0", "CONFLICTING", "LOINC", LOINC_OID, true)
+				.addCode("3000-0", "CONFLICTING", "LOINC", LOINC_OID, false)
+				.addValueSetMember("38341003", "HYPERTENSION", "SNOMEDCT", SNOMED_OID, "Hypertension", VALUESET_OID);
+	}
+
+	public void normalize() throws SQLException {
+		codeSink.commit();
+		valueSetSink.commit();
+		VocabularyNormalizer.normalizeCodes(connection, null);
+		VocabularyNormalizer.normalizeValueSets(connection);
+		connection.commit();
+	}
+
+	@Override
+	public void close() throws SQLException {
+		try {
+			codeSink.close();
+		} finally {
+			valueSetSink.close();
+		}
+	}
+}
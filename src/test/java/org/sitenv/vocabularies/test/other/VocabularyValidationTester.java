@@ -22,6 +22,7 @@ import org.sitenv.vocabularies.constants.VocabularyConstants;
 import org.sitenv.vocabularies.constants.VocabularyConstants.SeverityLevel;
 import org.sitenv.vocabularies.validation.NodeValidatorFactory;
 import org.sitenv.vocabularies.validation.dto.GlobalCodeValidatorResults;
+import org.sitenv.vocabularies.validation.dto.VocabularyValidationReport;
 import org.sitenv.vocabularies.validation.dto.VocabularyValidationResult;
 import org.sitenv.vocabularies.validation.dto.enums.VocabularyValidationResultLevel;
 import org.sitenv.vocabularies.validation.services.VocabularyValidationService;
@@ -131,7 +132,14 @@ public class VocabularyValidationTester {
 			vocabularyConfig = vocabularyConfig.replace(".xml", "");
 		}
 		try {
-			results = vocabularyValidationService.validate(filePath.toString(), vocabularyConfig, severityLevel);
+			VocabularyValidationReport report = vocabularyValidationService.validateAndReport(filePath.toString(),
+					vocabularyConfig, severityLevel, null);
+			results = report.getResults();
+			// the counts of the last validation, which the service no longer writes to the shared results
+			globalCodeValidatorResults.setVocabularyValidationConfigurationsCount(
+					report.getStatistics().getVocabularyValidationConfigurationsCount());
+			globalCodeValidatorResults.setVocabularyValidationConfigurationsErrorCount(
+					report.getStatistics().getVocabularyValidationConfigurationsErrorCount());
 			println("results.size(): " + results.size());
 			for (VocabularyValidationResult result : results) {
 				println(result.toString());
@@ -165,6 +173,9 @@ public class VocabularyValidationTester {
 		return isMatching;
 	}
 
+	/**
+	 * @return the configuration counts of the last validation of testVocabularyValidator
+	 */
 	public GlobalCodeValidatorResults getGlobalCodeValidatorResults() {
 		return globalCodeValidatorResults;
 	}
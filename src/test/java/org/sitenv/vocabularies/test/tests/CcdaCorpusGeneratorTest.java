@@ -0,0 +1,184 @@
+package org.sitenv.vocabularies.test.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.sitenv.vocabularies.configuration.ConfiguredExpression;
+import org.sitenv.vocabularies.configuration.Configurations;
+import org.sitenv.vocabularies.loader.VocabularyDataSource;
+import org.sitenv.vocabularies.loader.VocabularyStore;
+import org.sitenv.vocabularies.test.other.CcdaCorpusGenerator;
+import org.sitenv.vocabularies.test.other.VocabularyFixture;
+import org.sitenv.vocabularies.validation.repositories.VocabularyLookupRepository;
+import org.sitenv.vocabularies.validation.utils.CCDADocumentNamespaces;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+public class CcdaCorpusGeneratorTest {
+	private static final String CONFIG_RESOURCE = "/corpusGeneratorTestConfig.xml";
+	private static final String LOINC_OID = "2.16.840.1.113883.6.1";
+	private static final String SNOMED_OID = "2.16.840.1.113883.6.96";
+	private static final String VALUESET_OID = "2.16.840.1.113762.1.4.1";
+
+	private static VocabularyDataSource dataSource;
+	private static VocabularyLookupRepository lookupRepository;
+	private static Configurations configurations;
+
+	@BeforeClass
+	public static void loadVocabulary() throws SQLException {
+		dataSource = new VocabularyDataSource(VocabularyStore.create(202));
+		try (Connection connection = dataSource.getConnection(); VocabularyFixture fixture = new VocabularyFixture(connection)) {
+			fixture.addCode("1000-0", "GLUCOSE", "LOINC", LOINC_OID, true)
+					.addCode("2000-0", "HEMOGLOBIN", "LOINC", LOINC_OID, true)
+					.addCode("43789009", "CBC", "SNOMED-CT", SNOMED_OID, true)
+					.addValueSetMember("38341003", "HYPERTENSION", "SNOMEDCT", SNOMED_OID, "Problem", VALUESET_OID)
+					.addValueSetMember("44054006", "DIABETES", "SNOMEDCT", SNOMED_OID, "Problem", VALUESET_OID)
+					.normalize();
+		}
+		lookupRepository = new VocabularyLookupRepository(dataSource);
+		try (InputStream config = CcdaCorpusGeneratorTest.class.getResourceAsStream(CONFIG_RESOURCE)) {
+			configurations = CcdaCorpusGenerator.readConfigurations(config);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@AfterClass
+	public static void shutdown() {
+		dataSource.shutdown();
+	}
+
+	@Test
+	public void everySupportedExpressionMatchesItsRepetitionsTest() throws Exception {
+		CcdaCorpusGenerator generator = new CcdaCorpusGenerator(configurations, dataSource);
+		generator.setRepetitions(3);
+		Assert.assertEquals(Collections.singletonList("//v3:section[count(v3:entry) > 1]/v3:code"), generator.getUnsupportedExpressions());
+
+		Document document = parse(generator.generate(0));
+		for (ConfiguredExpression expression : configurations.getExpressions()) {
+			if (!generator.getUnsupportedExpressions().contains(expression.getConfiguredXpathExpression())) {
+				Assert.assertEquals(expression.getConfiguredXpathExpression(), 3, evaluate(document, expression.getConfiguredXpathExpression()).getLength());
+			}
+		}
+	}
+
+	@Test
+	public void codesFollowTheInvalidRatioTest() throws Exception {
+		String resultCodes = configurations.getExpressions().get(0).getConfiguredXpathExpression();
+		String problemValues = configurations.getExpressions().get(1).getConfiguredXpathExpression();
+		String panelCodes = configurations.getExpressions().get(2).getConfiguredXpathExpression();
+		String relatedPersonNames = configurations.getExpressions().get(3).getConfiguredXpathExpression();
+		Set<String> loinc = new HashSet<>(Collections.singletonList("LOINC"));
+
+		CcdaCorpusGenerator generator = new CcdaCorpusGenerator(configurations, dataSource);
+		generator.setRepetitions(5);
+		generator.setInvalidRatio(0);
+		Document document = parse(generator.generate(0));
+		for (Element code : elements(evaluate(document, resultCodes))) {
+			Assert.assertTrue(lookupRepository.foundActiveCodeAndDisplayNameAndCodeSystemOIDInCodesystem(code.getAttribute("code"),
+					code.getAttribute("displayName"), code.getAttribute("codeSystem"), loinc));
+		}
+		for (Element value : elements(evaluate(document, problemValues))) {
+			Assert.assertTrue(lookupRepository.existsByCodeAndCodeSystemAndCodeSystemNameAndDisplayNameInValuesetOid(value.getAttribute("code"),
+					value.getAttribute("codeSystem"), value.getAttribute("codeSystemName"), value.getAttribute("displayName"),
+					Collections.singletonList(VALUESET_OID)));
+		}
+		for (Element code : elements(evaluate(document, panelCodes))) {
+			Assert.assertEquals(SNOMED_OID, code.getAttribute("codeSystem"));
+		}
+		for (Element name : elements(evaluate(document, relatedPersonNames))) {
+			Assert.assertEquals(1, name.getElementsByTagNameNS(CCDADocumentNamespaces.defaultNameSpaceForCcda.getNamespace(), "prefix").getLength());
+		}
+
+		generator.setInvalidRatio(1);
+		document = parse(generator.generate(0));
+		for (Element code : elements(evaluate(document, resultCodes))) {
+			Assert.assertFalse(lookupRepository.foundCodeInCodesystems(code.getAttribute("code"), loinc));
+		}
+		for (Element value : elements(evaluate(document, problemValues))) {
+			Assert.assertFalse(lookupRepository.codeExistsInValueset(value.getAttribute("code"), Collections.singletonList(VALUESET_OID)));
+		}
+		for (Element code : elements(evaluate(document, panelCodes))) {
+			Assert.assertNotEquals(SNOMED_OID, code.getAttribute("codeSystem"));
+		}
+		for (Element name : elements(evaluate(document, relatedPersonNames))) {
+			Assert.assertEquals(0, name.getElementsByTagNameNS(CCDADocumentNamespaces.defaultNameSpaceForCcda.getNamespace(), "prefix").getLength());
+		}
+	}
+
+	@Test
+	public void documentReachesTheTargetSizeTest() throws Exception {
+		CcdaCorpusGenerator generator = new CcdaCorpusGenerator(configurations, dataSource);
+		generator.setSeed(7);
+		byte[] document = generator.generate(256 * 1024);
+		Assert.assertTrue(document.length >= 256 * 1024);
+		Assert.assertTrue("A document overshoots its size by at most a round", document.length < 264 * 1024);
+		Assert.assertTrue(evaluate(parse(document), configurations.getExpressions().get(0).getConfiguredXpathExpression()).getLength() > 100);
+
+		generator.setSeed(7);
+		Assert.assertArrayEquals("A seed makes the document reproducible", document, generator.generate(256 * 1024));
+	}
+
+	private static Document parse(byte[] document) throws Exception {
+		DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+		documentBuilderFactory.setNamespaceAware(true);
+		return documentBuilderFactory.newDocumentBuilder().parse(new ByteArrayInputStream(document));
+	}
+
+	private static NodeList evaluate(Document document, String expression) throws Exception {
+		XPath xpath = XPathFactory.newInstance().newXPath();
+		xpath.setNamespaceContext(new NamespaceContext() {
+			@Override
+			public String getNamespaceURI(String prefix) {
+				if (CCDADocumentNamespaces.sdtc.name().equals(prefix)) {
+					return CCDADocumentNamespaces.sdtc.getNamespace();
+				} else if (CCDADocumentNamespaces.xsi.name().equals(prefix)) {
+					return CCDADocumentNamespaces.xsi.getNamespace();
+				}
+				return CCDADocumentNamespaces.defaultNameSpaceForCcda.getNamespace();
+			}
+
+			@Override
+			public String getPrefix(String namespaceURI) {
+				return null;
+			}
+
+			@Override
+			public Iterator<?> getPrefixes(String namespaceURI) {
+				return null;
+			}
+		});
+		return (NodeList) xpath.compile(expression).evaluate(document, XPathConstants.NODESET);
+	}
+
+	private static List<Element> elements(NodeList nodes) {
+		Assert.assertTrue(nodes.getLength() > 0);
+		List<Element> elements = new ArrayList<>();
+		for (int i = 0; i < nodes.getLength(); i++) {
+			if (nodes.item(i).getNodeType() == Node.ELEMENT_NODE) {
+				elements.add((Element) nodes.item(i));
+			}
+		}
+		return elements;
+	}
+}
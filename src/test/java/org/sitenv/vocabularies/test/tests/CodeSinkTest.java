@@ -0,0 +1,130 @@
+package org.sitenv.vocabularies.test.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sitenv.vocabularies.loader.CodeSink;
+import org.sitenv.vocabularies.loader.VocabularyStore;
+import org.sitenv.vocabularies.loader.code.CptLoader;
+import org.sitenv.vocabularies.test.other.TestCodeLoaderFactory;
+
+public class CodeSinkTest {
+	private static final int BATCH_SIZE = 5;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private VocabularyStore store;
+	private Connection connection;
+
+	@Before
+	public void openConnection() throws SQLException {
+		store = VocabularyStore.create(901);
+		connection = store.getDatabase().getConnection();
+		connection.setAutoCommit(false);
+	}
+
+	@After
+	public void shutdown() throws SQLException {
+		connection.close();
+		store.getDatabase().shutdown();
+	}
+
+	@Test
+	public void rowsAreSentAtExactlyBatchSizeAndOnCloseTest() throws SQLException {
+		try (CodeSink codeSink = new CodeSink(connection, BATCH_SIZE)) {
+			for (int i = 1; i < BATCH_SIZE; i++) {
+				codeSink.add("C" + i, "Display " + i, "TEST", TestCodeLoaderFactory.OID, true);
+			}
+			Assert.assertEquals("Rows short of a batch are not sent", 0, countStagedCodes(connection));
+			codeSink.add("C" + BATCH_SIZE, "Display " + BATCH_SIZE, "TEST", TestCodeLoaderFactory.OID, true);
+			Assert.assertEquals("A full batch is sent", BATCH_SIZE, countStagedCodes(connection));
+			codeSink.add("LAST", "Display", "TEST", TestCodeLoaderFactory.OID, true);
+			Assert.assertEquals(BATCH_SIZE, countStagedCodes(connection));
+			Assert.assertEquals(BATCH_SIZE + 1, codeSink.getRowCount());
+		}
+		Assert.assertEquals("Closing sends and commits the rest", BATCH_SIZE + 1, TestCodeLoaderFactory.countStagedCodes(store.getDatabase(), "TEST"));
+	}
+
+	@Test
+	public void displayNamesWithQuotesRoundTripTest() throws SQLException {
+		String[] displayNames = {"Parkinson's disease", "\"Quoted\" name", "O''Brien's \"sign\"", " Trailing ' "};
+		try (CodeSink codeSink = new CodeSink(connection, BATCH_SIZE)) {
+			for (int i = 0; i < displayNames.length; i++) {
+				codeSink.add("Q" + i, displayNames[i], "TEST", TestCodeLoaderFactory.OID, true);
+			}
+		}
+		for (int i = 0; i < displayNames.length; i++) {
+			Assert.assertEquals(displayNames[i].trim().toUpperCase(), readDisplayName("Q" + i));
+		}
+	}
+
+	@Test
+	public void loaderCommitsOncePerFileTest() throws IOException, SQLException {
+		File directory = temporaryFolder.newFolder("CPT");
+		writeFile(new File(directory, "first.txt"), "99201 Office visit", "99202 Office visit, new patient");
+		writeFile(new File(directory, "second.txt"), "99203 Office visit, detailed");
+		writeFile(new File(directory, "third.txt"), "99204 Office visit, comprehensive");
+		final AtomicInteger commitCount = new AtomicInteger();
+		Connection countingConnection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] {Connection.class}, new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if ("commit".equals(method.getName())) {
+							commitCount.incrementAndGet();
+						}
+						try {
+							return method.invoke(connection, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					}
+				});
+
+		CptLoader loader = new CptLoader();
+		loader.setBatchSize(BATCH_SIZE);
+		loader.load(Arrays.asList(directory.listFiles()), countingConnection);
+		Assert.assertEquals(3, commitCount.get());
+		Assert.assertEquals(4, TestCodeLoaderFactory.countStagedCodes(store.getDatabase(), "CPT"));
+	}
+
+	private static void writeFile(File file, String... lines) throws IOException {
+		Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+	}
+
+	private static long countStagedCodes(Connection connection) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement("select count(*) from CODES_STAGING");
+				ResultSet resultSet = statement.executeQuery()) {
+			resultSet.next();
+			return resultSet.getLong(1);
+		}
+	}
+
+	private String readDisplayName(String code) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement("select DISPLAYNAME from CODES_STAGING where CODE = ?")) {
+			statement.setString(1, code);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				Assert.assertTrue(resultSet.next());
+				return resultSet.getString(1);
+			}
+		}
+	}
+}
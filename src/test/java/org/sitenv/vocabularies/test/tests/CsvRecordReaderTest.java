@@ -0,0 +1,58 @@
+package org.sitenv.vocabularies.test.tests;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.sitenv.vocabularies.loader.CsvRecordReader;
+
+public class CsvRecordReaderTest {
+
+	@Test
+	public void quotedFieldsTest() throws IOException {
+		String csv = "\"LOINC_NUM\",\"COMPONENT\",\"STATUS\"\r\n"
+				+ "\"1234-5\",\"Glucose, \"\"fasting\"\"\",\"ACTIVE\"\r\n"
+				+ "\"6789-0\",\"Line one\nline two\",\"DEPRECATED\"";
+		CsvRecordReader reader = new CsvRecordReader(new StringReader(csv), 0, 1, 2);
+
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals("STATUS", reader.get(2));
+
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals("1234-5", reader.get(0));
+		Assert.assertEquals("Glucose, \"fasting\"", reader.get(1));
+		Assert.assertEquals("ACTIVE", reader.get(2));
+
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals("Line one\nline two", reader.get(1));
+		Assert.assertEquals("DEPRECATED", reader.get(2));
+		Assert.assertEquals(3, reader.getRecordNumber());
+
+		Assert.assertFalse(reader.next());
+		reader.close();
+	}
+
+	@Test
+	public void onlySelectedColumnsAreKeptTest() throws IOException {
+		CsvRecordReader reader = new CsvRecordReader(new StringReader("a,b,\"c,c\",d,e\nf,g\n"), 3);
+
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals(5, reader.getColumnCount());
+		Assert.assertEquals("d", reader.get(3));
+
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals(2, reader.getColumnCount());
+		Assert.assertEquals("Missing columns should read as empty", "", reader.get(3));
+
+		Assert.assertFalse(reader.next());
+		reader.close();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unselectedColumnTest() throws IOException {
+		CsvRecordReader reader = new CsvRecordReader(new StringReader("a,b\n"), 0);
+		reader.next();
+		reader.get(1);
+	}
+}
@@ -0,0 +1,16 @@
+package org.sitenv.vocabularies.test.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.sitenv.vocabularies.loader.DisplayNameHash;
+
+public class DisplayNameHashTest {
+	@Test
+	public void hashTest() {
+		Assert.assertEquals(0xcbf29ce484222325L, DisplayNameHash.of(""));
+		Assert.assertEquals(0L, DisplayNameHash.of(null));
+		Assert.assertEquals(DisplayNameHash.of("HEMOGLOBIN A1C"), DisplayNameHash.of(new String("HEMOGLOBIN A1C")));
+		Assert.assertNotEquals(DisplayNameHash.of("HEMOGLOBIN A1C"), DisplayNameHash.of("HEMOGLOBIN A1D"));
+		Assert.assertNotEquals("Both bytes of a char should be hashed", DisplayNameHash.of("A"), DisplayNameHash.of("\u0141"));
+	}
+}
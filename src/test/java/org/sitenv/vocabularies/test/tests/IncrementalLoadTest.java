@@ -0,0 +1,251 @@
+package org.sitenv.vocabularies.test.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sitenv.vocabularies.loader.VocabularyLoadRunner;
+import org.sitenv.vocabularies.loader.VocabularyManifest;
+import org.sitenv.vocabularies.loader.VocabularyPartition;
+import org.sitenv.vocabularies.loader.VocabularyStore;
+import org.sitenv.vocabularies.test.other.TestCodeLoaderFactory;
+
+public class IncrementalLoadTest {
+	private static final String FAKE_SHA256 = "0000000000000000000000000000000000000000000000000000000000000000";
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private final TestCodeLoaderFactory loaderFactory = new TestCodeLoaderFactory();
+	private final List<VocabularyStore> stores = new ArrayList<>();
+	private File codeDirectory;
+	private File snapshotDirectory;
+	private VocabularyLoadRunner loadRunner;
+
+	@Before
+	public void createVocabulary() throws Exception {
+		codeDirectory = temporaryFolder.newFolder("codes");
+		snapshotDirectory = new File(temporaryFolder.getRoot(), "snapshots");
+		String[] loincCodes = new String[2500];
+		for (int i = 0; i < loincCodes.length; i++) {
+			loincCodes[i] = i + "-0|Observation " + i;
+		}
+		TestCodeLoaderFactory.writeCodes(new File(codeDirectory, "LOINC"), loincCodes);
+		TestCodeLoaderFactory.writeCodes(new File(codeDirectory, "SNOMED"), "38341003|Hypertension", "73211009|Diabetes");
+		loadRunner = new VocabularyLoadRunner();
+		loadRunner.setCodeDirectory(codeDirectory.getAbsolutePath());
+		loadRunner.setSnapshotDirectory(snapshotDirectory.getAbsolutePath());
+		loadRunner.setVocabularyLoaderFactory(loaderFactory);
+	}
+
+	@After
+	public void shutdown() {
+		for (VocabularyStore store : stores) {
+			store.getDatabase().shutdown();
+		}
+	}
+
+	@Test
+	public void unchangedPartitionsAreRestoredFromSnapshotsTest() throws Exception {
+		VocabularyStore first = load(401);
+		Assert.assertEquals(1, loaderFactory.getLoadCount("LOINC"));
+		Assert.assertEquals(1, loaderFactory.getLoadCount("SNOMED"));
+		Assert.assertTrue(new File(snapshotDirectory, "vocabulary-manifest.tsv").isFile());
+		Assert.assertTrue(snapshotFile("LOINC").isFile());
+
+		VocabularyStore second = load(402);
+		Assert.assertEquals("Unchanged source files are not parsed again", 1, loaderFactory.getLoadCount("LOINC"));
+		Assert.assertEquals(1, loaderFactory.getLoadCount("SNOMED"));
+		Assert.assertEquals(2500, TestCodeLoaderFactory.countCodes(second.getDatabase(), "LOINC"));
+		Assert.assertEquals(2, TestCodeLoaderFactory.countCodes(second.getDatabase(), "SNOMED"));
+		Assert.assertEquals(TestCodeLoaderFactory.countCodes(first.getDatabase(), "LOINC"),
+				TestCodeLoaderFactory.countCodes(second.getDatabase(), "LOINC"));
+	}
+
+	@Test
+	public void fingerprintRehashesOnlyFilesWithAnotherSizeOrModificationTimeTest() throws Exception {
+		File file = new File(new File(codeDirectory, "SNOMED"), "codes.txt");
+		List<File> files = Collections.singletonList(file);
+		String sha256 = VocabularyManifest.fingerprint(files, null).get(0).getSha256();
+		VocabularyManifest.Partition previous = new VocabularyManifest.Partition("CODES:SNOMED", 2, Collections.singletonList(
+				new VocabularyManifest.FileEntry(file.getAbsolutePath(), file.length(), file.lastModified(), FAKE_SHA256)));
+
+		Assert.assertEquals("The hash of an unchanged file is reused", FAKE_SHA256,
+				VocabularyManifest.fingerprint(files, previous).get(0).getSha256());
+		Assert.assertTrue(file.setLastModified(file.lastModified() + 2000));
+		Assert.assertEquals("A touched file is hashed again", sha256, VocabularyManifest.fingerprint(files, previous).get(0).getSha256());
+
+		TestCodeLoaderFactory.writeCodes(file.getParentFile(), "38341003|Hypertension");
+		Assert.assertTrue(file.setLastModified(previous.getFiles().get(0).getLastModified()));
+		Assert.assertNotEquals("A file of another size is hashed again", FAKE_SHA256,
+				VocabularyManifest.fingerprint(files, previous).get(0).getSha256());
+	}
+
+	@Test
+	public void touchedFilesAreRestoredAndChangedFilesReloadedTest() throws Exception {
+		load(403);
+		File loincFile = new File(new File(codeDirectory, "LOINC"), "codes.txt");
+		Assert.assertTrue(loincFile.setLastModified(loincFile.lastModified() + 2000));
+		// same size, other content
+		TestCodeLoaderFactory.writeCodes(new File(codeDirectory, "SNOMED"), "38341003|Hypertension", "44054006|Diabetes");
+
+		VocabularyStore second = load(404);
+		Assert.assertEquals("A touched file with the same content is restored", 1, loaderFactory.getLoadCount("LOINC"));
+		Assert.assertEquals("A changed file is parsed again", 2, loaderFactory.getLoadCount("SNOMED"));
+		Assert.assertEquals(2500, TestCodeLoaderFactory.countCodes(second.getDatabase(), "LOINC"));
+		Assert.assertEquals(2, TestCodeLoaderFactory.countCodes(second.getDatabase(), "SNOMED"));
+		Assert.assertEquals("44054006", readCode(second, "DIABETES"));
+
+		VocabularyStore third = load(405);
+		Assert.assertEquals("The new snapshot is used next time", 2, loaderFactory.getLoadCount("SNOMED"));
+		Assert.assertEquals("44054006", readCode(third, "DIABETES"));
+	}
+
+	@Test
+	public void truncatedSnapshotFallsBackToSourceFilesTest() throws Exception {
+		load(406);
+		File snapshotFile = snapshotFile("LOINC");
+		try (RandomAccessFile snapshot = new RandomAccessFile(snapshotFile, "rw")) {
+			snapshot.setLength(snapshot.length() / 2);
+		}
+		VocabularyStore restored = VocabularyStore.create(411);
+		stores.add(restored);
+		VocabularyPartition partition = VocabularyPartition.forCodeSystem(new File(codeDirectory, "LOINC"));
+		try (Connection connection = restored.getDatabase().getConnection()) {
+			try {
+				partition.restoreFrom(connection, snapshotFile, 100);
+				Assert.fail("A truncated snapshot is not restored");
+			} catch (IOException e) {
+				// expected
+			}
+			partition.deleteRows(connection);
+			connection.commit();
+		}
+		Assert.assertEquals(0, TestCodeLoaderFactory.countStagedCodes(restored.getDatabase(), "LOINC"));
+
+		VocabularyStore second = load(407);
+		Assert.assertEquals(2, loaderFactory.getLoadCount("LOINC"));
+		Assert.assertEquals(1, loaderFactory.getLoadCount("SNOMED"));
+		Assert.assertEquals("No row of the failed restore is left", 2500, TestCodeLoaderFactory.countCodes(second.getDatabase(), "LOINC"));
+
+		VocabularyStore third = load(408);
+		Assert.assertEquals("The rewritten snapshot is used next time", 2, loaderFactory.getLoadCount("LOINC"));
+		Assert.assertEquals(2500, TestCodeLoaderFactory.countCodes(third.getDatabase(), "LOINC"));
+	}
+
+	@Test
+	public void corruptSnapshotFallsBackToSourceFilesTest() throws Exception {
+		load(409);
+		File snapshotFile = snapshotFile("LOINC");
+		try (RandomAccessFile snapshot = new RandomAccessFile(snapshotFile, "rw")) {
+			snapshot.seek(snapshot.length() / 2);
+			snapshot.write(new byte[64]);
+		}
+
+		VocabularyStore second = load(410);
+		Assert.assertEquals(2, loaderFactory.getLoadCount("LOINC"));
+		Assert.assertEquals(2500, TestCodeLoaderFactory.countCodes(second.getDatabase(), "LOINC"));
+		Assert.assertEquals(2, TestCodeLoaderFactory.countCodes(second.getDatabase(), "SNOMED"));
+	}
+
+	@Test
+	public void snapshotRejectedByTheDatabaseFallsBackToSourceFilesTest() throws Exception {
+		load(412);
+		// a code longer than the CODE column, in an otherwise well formed snapshot
+		rewriteFirstCode(snapshotFile("SNOMED"), "38341003-0000000000000000000000000000000000000000000000000");
+
+		VocabularyStore second = load(413);
+		Assert.assertEquals(2, loaderFactory.getLoadCount("SNOMED"));
+		Assert.assertEquals(1, loaderFactory.getLoadCount("LOINC"));
+		Assert.assertEquals(2, TestCodeLoaderFactory.countCodes(second.getDatabase(), "SNOMED"));
+		Assert.assertEquals("38341003", readCode(second, "HYPERTENSION"));
+	}
+
+	private VocabularyStore load(int generation) {
+		VocabularyStore store = VocabularyStore.create(generation);
+		stores.add(store);
+		Assert.assertTrue(loadRunner.load(store));
+		return store;
+	}
+
+	private File snapshotFile(String codeSystem) {
+		return VocabularyPartition.forCodeSystem(new File(codeDirectory, codeSystem)).getSnapshotFile(snapshotDirectory);
+	}
+
+	/**
+	 * Copies a code system snapshot (see VocabularyPartition.exportTo) with the code of its first row replaced.
+	 */
+	private static void rewriteFirstCode(File snapshotFile, String code) throws IOException {
+		byte[] snapshot = Files.readAllBytes(snapshotFile.toPath());
+		try (DataInputStream input = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(snapshot)));
+				DataOutputStream output = new DataOutputStream(new GZIPOutputStream(new FileOutputStream(snapshotFile)))) {
+			output.writeInt(input.readInt());
+			output.writeInt(input.readInt());
+			copyString(input, output);
+			boolean first = true;
+			while (input.readBoolean()) {
+				output.writeBoolean(true);
+				if (first) {
+					input.readFully(new byte[input.readInt()]);
+					writeString(output, code);
+					first = false;
+				} else {
+					copyString(input, output);
+				}
+				for (int i = 0; i < 3; i++) {
+					copyString(input, output);
+				}
+				output.writeBoolean(input.readBoolean());
+			}
+			output.writeBoolean(false);
+			output.writeLong(input.readLong());
+		}
+	}
+
+	private static void copyString(DataInputStream input, DataOutputStream output) throws IOException {
+		int length = input.readInt();
+		output.writeInt(length);
+		if (length > 0) {
+			byte[] bytes = new byte[length];
+			input.readFully(bytes);
+			output.write(bytes);
+		}
+	}
+
+	private static void writeString(DataOutputStream output, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	private static String readCode(VocabularyStore store, String displayName) throws Exception {
+		try (Connection connection = store.getDatabase().getConnection();
+				PreparedStatement statement = connection.prepareStatement("select c.CODE from CODES c"
+						+ " join DISPLAYNAMES d on d.ID = c.DISPLAYNAME_ID where d.DISPLAYNAME = ?")) {
+			statement.setString(1, displayName);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				return resultSet.next() ? resultSet.getString(1) : null;
+			}
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package org.sitenv.vocabularies.test.tests;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.sitenv.vocabularies.loader.BatchWriter;
+import org.sitenv.vocabularies.loader.LoadPipeline;
+
+public class LoadPipelineTest {
+
+	@Test
+	public void allRowsReachTheWritersTest() throws SQLException {
+		RecordingWriter first = new RecordingWriter(-1);
+		RecordingWriter second = new RecordingWriter(-1);
+		try (LoadPipeline<Integer> pipeline = LoadPipeline.start("TEST", 7, 2, Arrays.asList(first, second))) {
+			LoadPipeline<Integer>.Producer producer = pipeline.newProducer();
+			for (int i = 0; i < 1000; i++) {
+				producer.add(i);
+			}
+			producer.flush();
+			pipeline.finish();
+			Assert.assertEquals(1000, pipeline.getRowsProduced());
+			Assert.assertEquals(1000, pipeline.getRowsWritten());
+		}
+		Assert.assertEquals(1000, first.rows.size() + second.rows.size());
+		Assert.assertTrue(first.closed && second.closed);
+	}
+
+	@Test
+	public void writerFailureReachesTheProducerTest() {
+		RecordingWriter failing = new RecordingWriter(3);
+		SQLException thrown = null;
+		try (LoadPipeline<Integer> pipeline = LoadPipeline.start("TEST", 10, 1, Collections.singletonList(failing))) {
+			LoadPipeline<Integer>.Producer producer = pipeline.newProducer();
+			for (int i = 0; i < 100000; i++) {
+				producer.add(i);
+			}
+			producer.flush();
+			pipeline.finish();
+		} catch (SQLException e) {
+			thrown = e;
+		}
+		Assert.assertNotNull("The writer failure should have been rethrown", thrown);
+		Assert.assertTrue(failing.closed);
+	}
+
+	private static class RecordingWriter implements BatchWriter<Integer> {
+		private final List<Integer> rows = new ArrayList<>();
+		private final int failOnBatch;
+		private int batchCount = 0;
+		private boolean closed = false;
+
+		RecordingWriter(int failOnBatch) {
+			this.failOnBatch = failOnBatch;
+		}
+
+		@Override
+		public void write(List<Integer> batch) throws SQLException {
+			if (++batchCount == failOnBatch) {
+				throw new SQLException("simulated insert failure");
+			}
+			rows.addAll(batch);
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+	}
+}
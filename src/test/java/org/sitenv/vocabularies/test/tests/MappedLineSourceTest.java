@@ -0,0 +1,65 @@
+package org.sitenv.vocabularies.test.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sitenv.vocabularies.loader.MappedLineSource;
+
+public class MappedLineSourceTest {
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void delimitedFieldsTest() throws IOException {
+		File file = write("\uFEFFid\tactive\tterm\r\n1\t1\tCaf\u00e9 au lait\r\n\r\n2\t\tlast line");
+		try (MappedLineSource lines = new MappedLineSource(file)) {
+			Assert.assertTrue(lines.nextLine());
+			Assert.assertEquals("The byte order mark should be skipped", "id", lines.getField(0, '\t'));
+
+			Assert.assertTrue(lines.nextLine());
+			Assert.assertEquals(3, lines.getFieldCount('\t'));
+			Assert.assertEquals("Caf\u00e9 au lait", lines.getField(2, '\t'));
+
+			Assert.assertTrue(lines.nextLine());
+			Assert.assertTrue(lines.isEmptyLine());
+
+			Assert.assertTrue(lines.nextLine());
+			Assert.assertEquals("", lines.getField(1, '\t'));
+			Assert.assertEquals("last line", lines.getField(2, '\t'));
+			Assert.assertEquals("", lines.getField(5, '\t'));
+			Assert.assertEquals(4, lines.getLineNumber());
+
+			Assert.assertFalse(lines.nextLine());
+		}
+	}
+
+	@Test
+	public void linesSpanningWindowsTest() throws IOException {
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			content.append(i).append('|').append("display ").append(i).append('\n');
+		}
+		File file = write(content.toString());
+		try (MappedLineSource lines = new MappedLineSource(file, 64)) {
+			int count = 0;
+			while (lines.nextLine()) {
+				Assert.assertEquals(String.valueOf(count), lines.getField(0, '|'));
+				Assert.assertEquals("display " + count, lines.getField(1, '|'));
+				count++;
+			}
+			Assert.assertEquals(200, count);
+		}
+	}
+
+	private File write(String content) throws IOException {
+		File file = temporaryFolder.newFile();
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+}
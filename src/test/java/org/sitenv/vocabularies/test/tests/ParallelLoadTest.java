@@ -0,0 +1,141 @@
+package org.sitenv.vocabularies.test.tests;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sitenv.vocabularies.loader.VocabularyLoadRunner;
+import org.sitenv.vocabularies.loader.VocabularyStore;
+import org.sitenv.vocabularies.test.other.TestCodeLoaderFactory;
+
+public class ParallelLoadTest {
+	private static final String[] CODE_SYSTEMS = {"CPT", "LOINC", "RXNORM", "SNOMED"};
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private final TestCodeLoaderFactory loaderFactory = new TestCodeLoaderFactory();
+	private VocabularyLoadRunner loadRunner;
+	private VocabularyStore store;
+
+	@Before
+	public void createVocabulary() throws Exception {
+		File codeDirectory = temporaryFolder.newFolder("codes");
+		for (String codeSystem : CODE_SYSTEMS) {
+			TestCodeLoaderFactory.writeCodes(new File(codeDirectory, codeSystem), "1|" + codeSystem + " one", "2|" + codeSystem + " two");
+		}
+		loadRunner = new VocabularyLoadRunner();
+		loadRunner.setCodeDirectory(codeDirectory.getAbsolutePath());
+		loadRunner.setParallelLoad(true);
+		loadRunner.setLoadThreadCount(CODE_SYSTEMS.length);
+		loadRunner.setVocabularyLoaderFactory(loaderFactory);
+	}
+
+	@After
+	public void shutdown() {
+		if (store != null) {
+			store.getDatabase().shutdown();
+		}
+	}
+
+	@Test
+	public void failingDirectoryDoesNotStopTheOthersTest() throws Exception {
+		store = VocabularyStore.create(701);
+		loaderFactory.setFailing("LOINC", true);
+		Assert.assertFalse("A failed directory fails the load", loadRunner.load(store));
+		for (String codeSystem : CODE_SYSTEMS) {
+			Assert.assertEquals(1, loaderFactory.getLoadCount(codeSystem));
+			if (!"LOINC".equals(codeSystem)) {
+				Assert.assertEquals(2, TestCodeLoaderFactory.countCodes(store.getDatabase(), codeSystem));
+			}
+		}
+	}
+
+	@Test
+	public void threadCountCapIsRespectedTest() throws Exception {
+		store = VocabularyStore.create(702);
+		loadRunner.setLoadThreadCount(2);
+		CountDownLatch started = new CountDownLatch(CODE_SYSTEMS.length);
+		CountDownLatch release = new CountDownLatch(1);
+		for (String codeSystem : CODE_SYSTEMS) {
+			loaderFactory.hold(codeSystem, started, release);
+		}
+
+		LoadThread loadThread = new LoadThread();
+		loadThread.start();
+		long deadline = System.currentTimeMillis() + 10000;
+		while (started.getCount() > CODE_SYSTEMS.length - 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		Thread.sleep(200);
+		Assert.assertEquals("Only two directories load at a time", CODE_SYSTEMS.length - 2, started.getCount());
+		release.countDown();
+		loadThread.join(10000);
+
+		Assert.assertTrue(loadThread.loaded.get());
+		Assert.assertTrue(started.await(0, TimeUnit.SECONDS));
+		for (String codeSystem : CODE_SYSTEMS) {
+			Assert.assertEquals(2, TestCodeLoaderFactory.countCodes(store.getDatabase(), codeSystem));
+		}
+	}
+
+	@Test
+	public void loadersFinishBeforeNormalizeAndIndexBuildTest() throws Exception {
+		store = VocabularyStore.create(703);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		loaderFactory.hold("SNOMED", started, release);
+
+		LoadThread loadThread = new LoadThread();
+		loadThread.start();
+		Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+		long deadline = System.currentTimeMillis() + 10000;
+		while (TestCodeLoaderFactory.countStagedCodes(store.getDatabase(), "CPT") < 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		Thread.sleep(200);
+		Assert.assertTrue(loadThread.isAlive());
+		Assert.assertEquals("Rows are staged while a loader runs", 2, TestCodeLoaderFactory.countStagedCodes(store.getDatabase(), "CPT"));
+		Assert.assertEquals("Nothing is normalized while a loader runs", 0, TestCodeLoaderFactory.countCodes(store.getDatabase(), "CPT"));
+		Assert.assertFalse(hasIndex("IDX_CODESINCODES"));
+		release.countDown();
+		loadThread.join(10000);
+
+		Assert.assertTrue(loadThread.loaded.get());
+		Assert.assertTrue(hasIndex("IDX_CODESINCODES"));
+		for (String codeSystem : CODE_SYSTEMS) {
+			Assert.assertEquals(2, TestCodeLoaderFactory.countCodes(store.getDatabase(), codeSystem));
+		}
+	}
+
+	private boolean hasIndex(String indexName) throws SQLException {
+		try (Connection connection = store.getDatabase().getConnection();
+				PreparedStatement statement = connection.prepareStatement("select count(*) from INFORMATION_SCHEMA.SYSTEM_INDEXINFO where INDEX_NAME = ?")) {
+			statement.setString(1, indexName);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				resultSet.next();
+				return resultSet.getLong(1) > 0;
+			}
+		}
+	}
+
+	private class LoadThread extends Thread {
+		private final AtomicBoolean loaded = new AtomicBoolean();
+
+		@Override
+		public void run() {
+			loaded.set(loadRunner.load(store));
+		}
+	}
+}
@@ -0,0 +1,301 @@
+package org.sitenv.vocabularies.test.tests;
+
+import java.lang.management.ManagementFactory;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.xml.xpath.XPath;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.sitenv.vocabularies.configuration.ConfiguredValidationResultSeverityLevel;
+import org.sitenv.vocabularies.configuration.ConfiguredValidator;
+import org.sitenv.vocabularies.constants.VocabularyConstants;
+import org.sitenv.vocabularies.constants.VocabularyConstants.SeverityLevel;
+import org.sitenv.vocabularies.loader.VocabularyDataSource;
+import org.sitenv.vocabularies.loader.VocabularyStore;
+import org.sitenv.vocabularies.test.other.TestableVocabularyValidationService;
+import org.sitenv.vocabularies.test.other.VocabularyValidationTester;
+import org.sitenv.vocabularies.validation.NodeValidation;
+import org.sitenv.vocabularies.validation.dto.ValidationStatistics;
+import org.sitenv.vocabularies.validation.dto.VocabularyValidationReport;
+import org.sitenv.vocabularies.validation.dto.VocabularyValidationResult;
+import org.sitenv.vocabularies.validation.dto.enums.VocabularyValidationResultLevel;
+import org.sitenv.vocabularies.validation.metrics.ExpressionStatistics;
+import org.sitenv.vocabularies.validation.metrics.HistogramSnapshot;
+import org.sitenv.vocabularies.validation.metrics.LatencyHistogram;
+import org.sitenv.vocabularies.validation.metrics.ValidationMetrics;
+import org.sitenv.vocabularies.validation.metrics.ValidationTotals;
+import org.sitenv.vocabularies.validation.metrics.ValidationTrace;
+import org.sitenv.vocabularies.validation.metrics.ValidatorStatistics;
+import org.sitenv.vocabularies.validation.repositories.VocabularyLookupRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.w3c.dom.Node;
+
+public class ValidationMetricsTest extends VocabularyValidationTester {
+
+	@Test
+	public void histogramPercentilesTest() {
+		LatencyHistogram histogram = new LatencyHistogram(1000000);
+		for (int value = 1; value <= 10000; value++) {
+			histogram.record(value);
+		}
+		HistogramSnapshot snapshot = histogram.snapshot();
+		Assert.assertEquals(10000, snapshot.getCount());
+		Assert.assertEquals(10000, snapshot.getMax());
+		Assert.assertEquals(5000.5, snapshot.getMean(), 0.001);
+		assertWithinBucket(5000, snapshot.getP50());
+		assertWithinBucket(9000, snapshot.getP90());
+		assertWithinBucket(9900, snapshot.getP99());
+		assertWithinBucket(9990, snapshot.getP999());
+
+		histogram.record(5000000);
+		Assert.assertEquals("Values above the highest trackable value keep their maximum", 5000000, histogram.snapshot().getMax());
+		histogram.reset();
+		Assert.assertEquals(0, histogram.snapshot().getCount());
+		Assert.assertEquals(0, histogram.snapshot().getP99());
+	}
+
+	@Test
+	public void histogramConcurrentRecordingTest() throws InterruptedException {
+		final LatencyHistogram histogram = new LatencyHistogram(1000000);
+		List<Thread> threads = new ArrayList<>();
+		for (int thread = 0; thread < 4; thread++) {
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					for (int value = 0; value < 100000; value++) {
+						histogram.record(value % 1000);
+					}
+				}
+			});
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		Assert.assertEquals(400000, histogram.snapshot().getCount());
+		Assert.assertEquals(999, histogram.snapshot().getMax());
+	}
+
+	@Test
+	public void validationRecordsMetricsTest() throws URISyntaxException {
+		String configuredXpathExpression = "//v3:observation/v3:templateId[@root='2.16.840.1.113883.10.20.22.4.2' and @extension='2015-08-01']"
+				+ "/ancestor::v3:observation[1]/v3:value[@xsi:type='PQ' and not(@nullFlavor) and ancestor::v3:section[not(@nullFlavor)]]";
+		setupInitParameters(false);
+		programmaticallyConfigureRequiredNodeValidator(new ConfiguredValidationResultSeverityLevel("SHALL"), "@unit",
+				"Result value SHALL have a unit", configuredXpathExpression);
+		injectDependencies();
+		ValidationMetrics validationMetrics = new ValidationMetrics();
+		ReflectionTestUtils.setField(getVocabularyValidationService(), "validationMetrics", validationMetrics);
+
+		testVocabularyValidator(getClass().getResource("/unitTest1_NoUnitExpectFail.xml").toURI());
+		testVocabularyValidator(getClass().getResource("/unitTest1_NoUnitExpectFail.xml").toURI());
+
+		ValidationMetrics.Snapshot snapshot = validationMetrics.getSnapshot();
+		ExpressionStatistics expression = snapshot.getExpression(configuredXpathExpression);
+		Assert.assertEquals(2, expression.getXpathNanos().getCount());
+		Assert.assertTrue(expression.getXpathNanos().getMax() > 0);
+		long nodesMatched = expression.getNodesMatched().getMax();
+		Assert.assertTrue(nodesMatched > 0);
+		ValidatorStatistics validator = snapshot.getValidator("RequiredNodeValidator");
+		Assert.assertEquals(2 * nodesMatched, validator.getValidateNodeNanos().getCount());
+		Assert.assertEquals("RequiredNodeValidator makes no vocabulary lookups", 0, snapshot.getLookupCount());
+
+		validationMetrics.setEnabled(false);
+		testVocabularyValidator(getClass().getResource("/unitTest1_NoUnitExpectFail.xml").toURI());
+		Assert.assertEquals(2, validationMetrics.getSnapshot().getExpression(configuredXpathExpression).getXpathNanos().getCount());
+	}
+
+	@Test
+	public void validationTraceTest() throws Exception {
+		String configuredXpathExpression = "//v3:observation/v3:templateId[@root='2.16.840.1.113883.10.20.22.4.2' and @extension='2015-08-01']"
+				+ "/ancestor::v3:observation[1]/v3:value[@xsi:type='PQ' and not(@nullFlavor) and ancestor::v3:section[not(@nullFlavor)]]";
+		setupInitParameters(false);
+		programmaticallyConfigureRequiredNodeValidator(new ConfiguredValidationResultSeverityLevel("SHALL"), "@unit",
+				"Result value SHALL have a unit", configuredXpathExpression);
+		injectDependencies();
+
+		ValidationTrace trace = new ValidationTrace();
+		List<VocabularyValidationResult> results = getVocabularyValidationService().validate(
+				getClass().getResource("/unitTest1_NoUnitExpectFail.xml").toURI().toString(), VocabularyConstants.Config.DEFAULT,
+				SeverityLevel.INFO, trace);
+
+		Assert.assertTrue(trace.getParseNanos() > 0);
+		Assert.assertTrue(trace.getValidationNanos() >= trace.getConfigurationNanos() + trace.getResultBuildingNanos());
+		Assert.assertEquals(trace.getParseNanos() + trace.getValidationNanos(), trace.getTotalNanos());
+		Assert.assertEquals(results.size(), trace.getResultCount());
+		Assert.assertEquals(1, trace.getExpressions().size());
+		ValidationTrace.ExpressionTrace expression = trace.getExpressions().get(0);
+		Assert.assertEquals(configuredXpathExpression, expression.getXpathExpression());
+		Assert.assertTrue(expression.getNodesMatched() > 0);
+		Assert.assertEquals(1, trace.getValidators().size());
+		ValidationTrace.ValidatorTrace validator = trace.getValidators().get(0);
+		Assert.assertEquals("RequiredNodeValidator", validator.getName());
+		Assert.assertEquals(expression.getNodesMatched(), validator.getCalls());
+		Assert.assertEquals(0, validator.getLookups());
+		Assert.assertTrue(trace.toString().contains("RequiredNodeValidator " + validator.getCalls() + " calls"));
+	}
+
+	@Test
+	public void concurrentValidationStatisticsTest() throws Exception {
+		String configuredXpathExpression = "//v3:observation/v3:templateId[@root='2.16.840.1.113883.10.20.22.4.2' and @extension='2015-08-01']"
+				+ "/ancestor::v3:observation[1]/v3:value[@xsi:type='PQ' and not(@nullFlavor) and ancestor::v3:section[not(@nullFlavor)]]";
+		setupInitParameters(false);
+		addConfiguredExpressionsToVocabularyValidationConfigurations(Arrays.asList(
+				createConfiguredExpression("RequiredNodeValidator", new ConfiguredValidationResultSeverityLevel("SHALL"),
+						"@unit", "Result value SHALL have a unit", configuredXpathExpression),
+				createConfiguredExpression("RequiredNodeValidator", new ConfiguredValidationResultSeverityLevel("MAY"),
+						"@unit", "Result value MAY have a unit", configuredXpathExpression)));
+		injectDependencies();
+		ValidationMetrics validationMetrics = new ValidationMetrics();
+		validationMetrics.setEnabled(false);
+		ReflectionTestUtils.setField(getVocabularyValidationService(), "validationMetrics", validationMetrics);
+		final String uri = getClass().getResource("/unitTest1_NoUnitExpectFail.xml").toURI().toString();
+
+		final int validationsPerThread = 25;
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<List<ValidationStatistics>>> futures = new ArrayList<>();
+		try {
+			for (int thread = 0; thread < 4; thread++) {
+				final SeverityLevel severityLevel = thread % 2 == 0 ? SeverityLevel.INFO : SeverityLevel.ERROR;
+				futures.add(executor.submit(new Callable<List<ValidationStatistics>>() {
+					@Override
+					public List<ValidationStatistics> call() throws Exception {
+						List<ValidationStatistics> statistics = new ArrayList<>();
+						for (int validation = 0; validation < validationsPerThread; validation++) {
+							statistics.add(getVocabularyValidationService().validateAndReport(uri,
+									VocabularyConstants.Config.DEFAULT, severityLevel, null).getStatistics());
+						}
+						return statistics;
+					}
+				}));
+			}
+			long nodes = 0;
+			long errors = 0;
+			long info = 0;
+			for (int thread = 0; thread < futures.size(); thread++) {
+				for (ValidationStatistics statistics : futures.get(thread).get()) {
+					int expectedConfigurations = thread % 2 == 0 ? 2 : 1;
+					Assert.assertEquals(expectedConfigurations, statistics.getVocabularyValidationConfigurationsCount());
+					Assert.assertEquals(1, statistics.getVocabularyValidationConfigurationsErrorCount());
+					Assert.assertEquals(expectedConfigurations == 2 ? statistics.getErrorCount() : 0, statistics.getInfoCount());
+					nodes += statistics.getNodeCount();
+					errors += statistics.getErrorCount();
+					info += statistics.getInfoCount();
+				}
+			}
+
+			ValidationTotals totals = validationMetrics.getSnapshot().getTotals();
+			Assert.assertEquals(4 * validationsPerThread, totals.getDocumentCount());
+			Assert.assertEquals(3 * 2 * validationsPerThread, totals.getConfigurationsExecutedCount());
+			Assert.assertEquals(nodes, totals.getNodeCount());
+			Assert.assertEquals(errors, totals.getErrorCount());
+			Assert.assertEquals(0, totals.getWarningCount());
+			Assert.assertEquals(info, totals.getInfoCount());
+			Assert.assertTrue(info > 0);
+			validationMetrics.reset();
+			Assert.assertEquals(0, validationMetrics.getTotals().getDocumentCount());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void lookupBudgetTest() throws Exception {
+		String configuredXpathExpression = "//v3:observation/v3:templateId[@root='2.16.840.1.113883.10.20.22.4.2' and @extension='2015-08-01']"
+				+ "/ancestor::v3:observation[1]/v3:value[@xsi:type='PQ' and not(@nullFlavor) and ancestor::v3:section[not(@nullFlavor)]]";
+		setupInitParameters(false);
+		addConfiguredExpressionsToVocabularyValidationConfigurations(Arrays.asList(
+				createConfiguredExpression("LookupValidator", new ConfiguredValidationResultSeverityLevel("SHALL"), null,
+						"Looks up a code", configuredXpathExpression),
+				createConfiguredExpression("LookupValidator", new ConfiguredValidationResultSeverityLevel("SHALL"), null,
+						"Looks up a code", configuredXpathExpression)));
+		injectDependencies();
+		VocabularyDataSource dataSource = new VocabularyDataSource(VocabularyStore.create(202));
+		try {
+			final VocabularyLookupRepository lookupRepository = new VocabularyLookupRepository(dataSource);
+			TestableVocabularyValidationService vocabularyValidationService = (TestableVocabularyValidationService) getVocabularyValidationService();
+			ReflectionTestUtils.setField(vocabularyValidationService, "vocabularyDataSource", dataSource);
+			ReflectionTestUtils.setField(vocabularyValidationService, "vocabularyLookupRepository", lookupRepository);
+			vocabularyValidationService.putVocabularyValidator("LookupValidator", new NodeValidation() {
+				@Override
+				public List<VocabularyValidationResult> validateNode(ConfiguredValidator configuredValidator, XPath xpath,
+						Node node, int nodeIndex) {
+					lookupRepository.foundCodeInCodesystems("1000-0", Collections.singleton("LOINC"));
+					return new ArrayList<>();
+				}
+			});
+			String uri = getClass().getResource("/unitTest1_NoUnitExpectFail.xml").toURI().toString();
+
+			VocabularyValidationReport report = vocabularyValidationService.validateAndReport(uri,
+					VocabularyConstants.Config.DEFAULT, SeverityLevel.INFO, null);
+			long nodesPerExpression = report.getStatistics().getNodeCount() / 2;
+			Assert.assertTrue(nodesPerExpression > 1);
+			Assert.assertFalse(report.getStatistics().isLookupBudgetExceeded());
+			Assert.assertTrue(report.getResults().isEmpty());
+			Assert.assertEquals(2 * nodesPerExpression, report.getStatistics().getLookupCount());
+			Assert.assertEquals(Collections.singletonMap("CODE_FOUND", 2 * nodesPerExpression),
+					report.getStatistics().getLookupCounts());
+
+			// the budget runs out within the second expression
+			vocabularyValidationService.setLookupBudget(nodesPerExpression + 1);
+			report = vocabularyValidationService.validateAndReport(uri, VocabularyConstants.Config.DEFAULT,
+					SeverityLevel.ERROR, null);
+			Assert.assertTrue(report.getStatistics().isLookupBudgetExceeded());
+			Assert.assertEquals(1, report.getStatistics().getUnvalidatedConfigurationsCount());
+			Assert.assertEquals(nodesPerExpression + 1, report.getStatistics().getLookupCount());
+			Assert.assertEquals("The summary is returned at any severity level", 1, report.getResults().size());
+			Assert.assertEquals(VocabularyValidationResultLevel.SHOULD,
+					report.getResults().get(0).getVocabularyValidationResultLevel());
+			Assert.assertEquals(0, report.getStatistics().getWarningCount());
+		} finally {
+			dataSource.shutdown();
+		}
+	}
+
+	@Test
+	public void mBeansTest() throws Exception {
+		MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+		ObjectName metricsName = new ObjectName("org.sitenv.vocabularies:type=ValidationMetrics");
+		ObjectName validatorName = new ObjectName("org.sitenv.vocabularies:type=ValidationMetrics,validator=\"CodeSystemCodeValidator\"");
+		ValidationMetrics validationMetrics = new ValidationMetrics();
+		validationMetrics.setRegisterMBeans(true);
+		validationMetrics.afterPropertiesSet();
+		try {
+			validationMetrics.recordValidator("CodeSystemCodeValidator", 2000, 3);
+			validationMetrics.recordValidator("CodeSystemCodeValidator", 4000, 1);
+
+			Assert.assertEquals(4L, mBeanServer.getAttribute(metricsName, "LookupCount"));
+			CompositeData[] validators = (CompositeData[]) mBeanServer.getAttribute(metricsName, "Validators");
+			Assert.assertEquals(1, validators.length);
+			Assert.assertEquals("CodeSystemCodeValidator", validators[0].get("name"));
+			CompositeData validateNodeNanos = (CompositeData) mBeanServer.getAttribute(validatorName, "ValidateNodeNanos");
+			Assert.assertEquals(2L, validateNodeNanos.get("count"));
+			Assert.assertEquals(4000L, validateNodeNanos.get("max"));
+
+			mBeanServer.invoke(metricsName, "reset", null, null);
+			Assert.assertEquals(0L, mBeanServer.getAttribute(metricsName, "LookupCount"));
+		} finally {
+			validationMetrics.destroy();
+		}
+		Assert.assertFalse(mBeanServer.isRegistered(metricsName));
+		Assert.assertFalse(mBeanServer.isRegistered(validatorName));
+	}
+
+	private static void assertWithinBucket(long expected, long actual) {
+		Assert.assertTrue(actual + " is not within 1/16 of " + expected, Math.abs(actual - expected) <= expected / 16);
+	}
+}
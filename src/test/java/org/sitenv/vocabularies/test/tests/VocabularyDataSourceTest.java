@@ -0,0 +1,58 @@
+package org.sitenv.vocabularies.test.tests;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.sitenv.vocabularies.loader.VocabularyDataSource;
+import org.sitenv.vocabularies.loader.VocabularyStore;
+
+public class VocabularyDataSourceTest {
+
+	@Test
+	public void pinnedThreadKeepsItsStoreAcrossSwapTest() throws Exception {
+		VocabularyStore first = VocabularyStore.create(101);
+		VocabularyStore second = VocabularyStore.create(102);
+		VocabularyDataSource dataSource = new VocabularyDataSource(first);
+		insertCode(first, "OLD");
+		insertCode(second, "NEW");
+
+		try (VocabularyDataSource.Lease lease = dataSource.pin()) {
+			dataSource.swap(second);
+			Assert.assertSame(second, dataSource.getCurrentStore());
+			Assert.assertFalse("A leased store must stay open", first.isShutDown());
+			Assert.assertEquals("OLD", readCode(dataSource));
+		}
+
+		Assert.assertTrue("The retired store should shut down with its last lease", first.isShutDown());
+		Assert.assertEquals("NEW", readCode(dataSource));
+		dataSource.shutdown();
+	}
+
+	@Test
+	public void unusedStoreShutsDownOnSwapTest() {
+		VocabularyStore first = VocabularyStore.create(103);
+		VocabularyDataSource dataSource = new VocabularyDataSource(first);
+		dataSource.swap(VocabularyStore.create(104));
+		Assert.assertTrue(first.isShutDown());
+		dataSource.shutdown();
+	}
+
+	private static void insertCode(VocabularyStore store, String code) throws SQLException {
+		try (Connection connection = store.getDatabase().getConnection(); Statement statement = connection.createStatement()) {
+			statement.executeUpdate("insert into CODES_STAGING (CODE, DISPLAYNAME, DISPLAYNAME_HASH, CODESYSTEM, CODESYSTEMOID, ACTIVE) values ('"
+					+ code + "', 'DISPLAY', 0, 'TEST', '1.2.3', true)");
+		}
+	}
+
+	private static String readCode(VocabularyDataSource dataSource) throws SQLException {
+		try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+			ResultSet resultSet = statement.executeQuery("select CODE from CODES_STAGING");
+			Assert.assertTrue(resultSet.next());
+			return resultSet.getString(1);
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package org.sitenv.vocabularies.test.tests;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sitenv.vocabularies.configuration.ConfiguredExpression;
+import org.sitenv.vocabularies.configuration.ConfiguredValidator;
+import org.sitenv.vocabularies.configuration.ConfiguredVocabularyReferences;
+import org.sitenv.vocabularies.loader.VocabularyDataSource;
+import org.sitenv.vocabularies.loader.VocabularyLoadRunner;
+import org.sitenv.vocabularies.loader.VocabularyPartition;
+import org.sitenv.vocabularies.loader.VocabularyStore;
+import org.sitenv.vocabularies.test.other.TestCodeLoaderFactory;
+
+public class VocabularyLoadRunnerTest {
+	private static final String SNOMED_PARTITION = VocabularyPartition.codeSystemPartitionName("SNOMED");
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private final TestCodeLoaderFactory loaderFactory = new TestCodeLoaderFactory();
+	private VocabularyDataSource dataSource;
+	private VocabularyLoadRunner loadRunner;
+
+	@After
+	public void shutdown() {
+		if (dataSource != null) {
+			dataSource.shutdown();
+		}
+	}
+
+	@Test
+	public void partitionNotNamedByAValidatorIsDeferredTest() throws Exception {
+		VocabularyStore store = startLazyLoad(301);
+		Assert.assertTrue(store.getLoadState().isDeferred(SNOMED_PARTITION));
+		Assert.assertFalse(store.getLoadState().isDeferred(VocabularyPartition.codeSystemPartitionName("LOINC")));
+		Assert.assertEquals(1, loaderFactory.getLoadCount("LOINC"));
+		Assert.assertEquals(0, loaderFactory.getLoadCount("SNOMED"));
+		Assert.assertEquals(2, TestCodeLoaderFactory.countCodes(dataSource, "LOINC"));
+		Assert.assertEquals(0, TestCodeLoaderFactory.countCodes(dataSource, "SNOMED"));
+		Assert.assertNull(store.getStatistics().getCodeSystem("SNOMED"));
+
+		Assert.assertTrue(loadRunner.ensureLoaded(validatorNaming("LOINC")).isEmpty());
+		Assert.assertEquals("A partition loaded up front is not loaded again", 0, loaderFactory.getLoadCount("SNOMED"));
+		Assert.assertTrue(loadRunner.ensureLoaded(validatorNaming("SNOMED")).isEmpty());
+		Assert.assertFalse(store.getLoadState().isDeferred(SNOMED_PARTITION));
+		Assert.assertEquals(3, TestCodeLoaderFactory.countCodes(dataSource, "SNOMED"));
+		Assert.assertEquals(3, store.getStatistics().getCodeSystem("SNOMED").getRowCount());
+		Assert.assertEquals(2, store.getStatistics().getCodeSystem("LOINC").getRowCount());
+
+		Assert.assertTrue(loadRunner.ensureLoaded(validatorNaming("SNOMED")).isEmpty());
+		Assert.assertEquals(1, loaderFactory.getLoadCount("SNOMED"));
+	}
+
+	@Test
+	public void concurrentCallersShareOneLoadTest() throws Exception {
+		startLazyLoad(302);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		loaderFactory.hold("SNOMED", started, release);
+
+		EnsureLoadedThread first = new EnsureLoadedThread();
+		first.start();
+		Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+		EnsureLoadedThread second = new EnsureLoadedThread();
+		second.start();
+		long deadline = System.currentTimeMillis() + 10000;
+		while (second.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		Assert.assertEquals("The second caller should wait for the running load", Thread.State.WAITING, second.getState());
+		release.countDown();
+		first.join(10000);
+		second.join(10000);
+
+		for (EnsureLoadedThread thread : Arrays.asList(first, second)) {
+			Assert.assertNull(thread.failure.get());
+			Assert.assertEquals(Collections.<String>emptyList(), thread.failedPartitions.get());
+			Assert.assertEquals("Both callers see the rows once they return", Long.valueOf(3), thread.rowCount.get());
+		}
+		Assert.assertEquals(1, loaderFactory.getLoadCount("SNOMED"));
+	}
+
+	@Test
+	public void failedLoadIsRetriedTest() throws Exception {
+		VocabularyStore store = startLazyLoad(303);
+		loaderFactory.setFailing("SNOMED", true);
+		Assert.assertEquals(Collections.singletonList(SNOMED_PARTITION), loadRunner.ensureLoaded(validatorNaming("SNOMED")));
+		Assert.assertTrue("A failed partition stays deferred", store.getLoadState().isDeferred(SNOMED_PARTITION));
+		Assert.assertEquals(0, TestCodeLoaderFactory.countCodes(dataSource, "SNOMED"));
+		Assert.assertEquals("The rows of the failed load are deleted", 0, TestCodeLoaderFactory.countStagedCodes(dataSource, "SNOMED"));
+
+		loaderFactory.setFailing("SNOMED", false);
+		Assert.assertTrue(loadRunner.ensureLoaded(validatorNaming("SNOMED")).isEmpty());
+		Assert.assertEquals(2, loaderFactory.getLoadCount("SNOMED"));
+		Assert.assertEquals(3, TestCodeLoaderFactory.countCodes(dataSource, "SNOMED"));
+		Assert.assertFalse(store.getLoadState().isDeferred(SNOMED_PARTITION));
+	}
+
+	/**
+	 * Loads LOINC and SNOMED lazily with a configuration that only names LOINC.
+	 */
+	private VocabularyStore startLazyLoad(int generation) throws Exception {
+		File codeDirectory = temporaryFolder.newFolder("codes");
+		TestCodeLoaderFactory.writeCodes(new File(codeDirectory, "LOINC"), "1000-0|Glucose", "2000-0|Sodium");
+		TestCodeLoaderFactory.writeCodes(new File(codeDirectory, "SNOMED"), "38341003|Hypertension", "73211009|Diabetes",
+				"195967001|Asthma");
+		ConfiguredVocabularyReferences vocabularyReferences = new ConfiguredVocabularyReferences();
+		ConfiguredExpression expression = new ConfiguredExpression();
+		expression.setConfiguredValidators(Collections.singletonList(validatorNaming("LOINC")));
+		vocabularyReferences.addExpressions(Collections.singletonList(expression));
+
+		VocabularyStore store = VocabularyStore.create(generation);
+		dataSource = new VocabularyDataSource(store);
+		loadRunner = new VocabularyLoadRunner();
+		loadRunner.setCodeDirectory(codeDirectory.getAbsolutePath());
+		loadRunner.setLazyLoad(true);
+		loadRunner.setVocabularyReferences(vocabularyReferences);
+		loadRunner.setVocabularyLoaderFactory(loaderFactory);
+		loadRunner.setDataSource(dataSource);
+		loadRunner.afterPropertiesSet();
+		return store;
+	}
+
+	private static ConfiguredValidator validatorNaming(String codeSystemName) {
+		ConfiguredValidator validator = new ConfiguredValidator();
+		validator.setName("CodeSystemCodeValidator");
+		validator.setAllowedCodesystemNames(codeSystemName);
+		return validator;
+	}
+
+	private class EnsureLoadedThread extends Thread {
+		private final AtomicReference<List<String>> failedPartitions = new AtomicReference<>();
+		private final AtomicReference<Long> rowCount = new AtomicReference<>();
+		private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+		@Override
+		public void run() {
+			try {
+				failedPartitions.set(loadRunner.ensureLoaded(validatorNaming("SNOMED")));
+				rowCount.set(TestCodeLoaderFactory.countCodes(dataSource, "SNOMED"));
+			} catch (Throwable e) {
+				failure.set(e);
+			}
+		}
+	}
+}
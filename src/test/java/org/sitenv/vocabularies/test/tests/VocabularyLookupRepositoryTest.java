@@ -0,0 +1,133 @@
+package org.sitenv.vocabularies.test.tests;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.sitenv.vocabularies.loader.VocabularyDataSource;
+import org.sitenv.vocabularies.loader.VocabularyStore;
+import org.sitenv.vocabularies.test.other.VocabularyFixture;
+import org.sitenv.vocabularies.validation.repositories.VocabularyLookupRepository;
+
+public class VocabularyLookupRepositoryTest {
+	private static final String LOINC_OID = VocabularyFixture.LOINC_OID;
+	private static final String SNOMED_OID = VocabularyFixture.SNOMED_OID;
+	private static final String VALUESET_OID = VocabularyFixture.VALUESET_OID;
+
+	private static VocabularyDataSource dataSource;
+	private static VocabularyLookupRepository lookupRepository;
+
+	@BeforeClass
+	public static void loadVocabulary() throws SQLException {
+		dataSource = new VocabularyDataSource(VocabularyStore.create(201));
+		try (Connection connection = dataSource.getConnection(); VocabularyFixture fixture = new VocabularyFixture(connection)) {
+			fixture.addLookupVocabulary().normalize();
+		}
+		lookupRepository = new VocabularyLookupRepository(dataSource);
+	}
+
+	@AfterClass
+	public static void shutdown() {
+		dataSource.shutdown();
+	}
+
+	@Test
+	public void codeLookupsTest() {
+		Set<String> loinc = new HashSet<>(Collections.singletonList("LOINC"));
+		Set<String> loincAndSnomed = new HashSet<>(Arrays.asList("SNOMED-CT", "LOINC"));
+		Set<String> rxnorm = new HashSet<>(Collections.singletonList("RXNORM"));
+
+		Assert.assertTrue(lookupRepository.foundCodesystems(loincAndSnomed));
+		Assert.assertFalse(lookupRepository.foundCodesystems(rxnorm));
+		Assert.assertTrue(lookupRepository.foundActiveCodeAndDisplayNameAndCodeSystemOIDInCodesystem("1000-0", "GLUCOSE IN BLOOD", LOINC_OID, loinc));
+		Assert.assertFalse(lookupRepository.foundActiveCodeAndDisplayNameAndCodeSystemOIDInCodesystem("1000-0", "GLUCOSE IN BLOOD", SNOMED_OID, loinc));
+		Assert.assertFalse(lookupRepository.foundActiveCodeAndDisplayNameAndCodeSystemOIDInCodesystem("2000-0", "RETIRED", LOINC_OID, loinc));
+		Assert.assertTrue(lookupRepository.foundCodeInCodesystems("2000-0", loincAndSnomed));
+		Assert.assertFalse(lookupRepository.foundCodeInCodesystems("2000-0", rxnorm));
+		Assert.assertTrue(lookupRepository.foundDisplayNameInCodesystems("GLUCOSE", loinc));
+		Assert.assertFalse(lookupRepository.foundDisplayNameInCodesystems("GLUCOSE", rxnorm));
+		Assert.assertTrue(lookupRepository.foundCodeSystemOIDInCodesystems(LOINC_OID, loinc));
+		Assert.assertFalse(lookupRepository.foundCodeSystemOIDInCodesystems(SNOMED_OID, loinc));
+		Assert.assertFalse(lookupRepository.foundCodesystems(Collections.<String>emptySet()));
+	}
+
+	@Test
+	public void codeIsActiveOnlyIfEveryRowIsActiveTest() {
+		Set<String> loinc = new HashSet<>(Collections.singletonList("LOINC"));
+		Assert.assertTrue(lookupRepository.codeIsActive("1000-0", loinc));
+		Assert.assertFalse(lookupRepository.codeIsActive("2000-0", loinc));
+		Assert.assertFalse(lookupRepository.codeIsActive("3000-0", loinc));
+	}
+
+	@Test
+	public void valueSetLookupsTest() {
+		List<String> valuesetOids = Arrays.asList("1.2.3", VALUESET_OID);
+		List<String> otherOids = Collections.singletonList("1.2.3");
+
+		Assert.assertTrue(lookupRepository.valuesetOidsExists(valuesetOids));
+		Assert.assertFalse(lookupRepository.valuesetOidsExists(otherOids));
+		Assert.assertTrue(lookupRepository.existsByCodeAndCodeSystemAndCodeSystemNameAndDisplayNameInValuesetOid("38341003", SNOMED_OID, "SNOMEDCT", "HYPERTENSION", valuesetOids));
+		Assert.assertFalse(lookupRepository.existsByCodeAndCodeSystemAndCodeSystemNameAndDisplayNameInValuesetOid("38341003", SNOMED_OID, "SNOMEDCT", "HYPERTENSIVE", valuesetOids));
+		Assert.assertTrue(lookupRepository.codeSystemExistsInValueset(SNOMED_OID, valuesetOids));
+		Assert.assertFalse(lookupRepository.codeSystemExistsInValueset(LOINC_OID, valuesetOids));
+		Assert.assertTrue(lookupRepository.codeExistsInValueset("38341003", valuesetOids));
+		Assert.assertFalse(lookupRepository.codeExistsInValueset("38341003", otherOids));
+		Assert.assertTrue(lookupRepository.displayNameExistsInValueset("HYPERTENSION", valuesetOids));
+		Assert.assertFalse(lookupRepository.displayNameExistsInValueset("GLUCOSE", valuesetOids));
+		Assert.assertTrue(lookupRepository.codeSystemNameExistsInValueset("SNOMEDCT", valuesetOids));
+		Assert.assertFalse(lookupRepository.codeSystemNameExistsInValueset("LOINC", valuesetOids));
+	}
+
+	@Test
+	public void sessionReusesItsStatementsTest() {
+		Set<String> loinc = new HashSet<>(Collections.singletonList("LOINC"));
+		try (VocabularyDataSource.Lease lease = dataSource.pin();
+				VocabularyLookupRepository.LookupSession session = lookupRepository.openSession()) {
+			for (int i = 0; i < 3; i++) {
+				Assert.assertTrue(lookupRepository.foundCodeInCodesystems("1000-0", loinc));
+				Assert.assertFalse(lookupRepository.foundCodeInCodesystems("9999-9", loinc));
+				try (VocabularyLookupRepository.LookupSession nestedSession = lookupRepository.openSession()) {
+					Assert.assertTrue(lookupRepository.foundCodeInCodesystems("2000-0", loinc));
+				}
+				Assert.assertTrue("A nested session must not close the outer one", lookupRepository.codeIsActive("1000-0", loinc));
+			}
+		}
+		Assert.assertTrue(lookupRepository.foundCodeInCodesystems("1000-0", loinc));
+	}
+
+	@Test
+	public void sessionCountsLookupsPerTypeWithinItsBudgetTest() {
+		Set<String> loinc = new HashSet<>(Collections.singletonList("LOINC"));
+		try (VocabularyDataSource.Lease lease = dataSource.pin();
+				VocabularyLookupRepository.LookupSession session = lookupRepository.openSession(3)) {
+			Assert.assertTrue(lookupRepository.foundCodeInCodesystems("1000-0", loinc));
+			Assert.assertFalse("An empty IN list is answered without a lookup",
+					lookupRepository.foundCodeInCodesystems("1000-0", Collections.<String>emptySet()));
+			Assert.assertTrue(lookupRepository.codeIsActive("1000-0", loinc));
+			Assert.assertTrue(lookupRepository.foundCodeInCodesystems("2000-0", loinc));
+
+			Map<VocabularyLookupRepository.LookupType, Long> lookupCounts = lookupRepository.getSessionLookupCounts();
+			Assert.assertEquals(2, lookupCounts.size());
+			Assert.assertEquals(Long.valueOf(2), lookupCounts.get(VocabularyLookupRepository.LookupType.CODE_FOUND));
+			Assert.assertEquals(Long.valueOf(1), lookupCounts.get(VocabularyLookupRepository.LookupType.INACTIVE_CODE_FOUND));
+			try {
+				lookupRepository.foundCodeInCodesystems("1000-0", loinc);
+				Assert.fail("The fourth lookup exceeds the budget of 3");
+			} catch (VocabularyLookupRepository.LookupBudgetExceededException e) {
+				Assert.assertEquals(3, e.getLookupBudget());
+			}
+			Assert.assertEquals(3, lookupRepository.getSessionLookupCount());
+		}
+		Assert.assertTrue(lookupRepository.getSessionLookupCounts().isEmpty());
+		Assert.assertTrue("Lookups without a session have no budget", lookupRepository.foundCodeInCodesystems("1000-0", loinc));
+	}
+}
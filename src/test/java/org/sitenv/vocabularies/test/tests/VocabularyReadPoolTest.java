@@ -0,0 +1,158 @@
+package org.sitenv.vocabularies.test.tests;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.sitenv.vocabularies.loader.VocabularyDataSource;
+import org.sitenv.vocabularies.loader.VocabularyReadPool;
+import org.sitenv.vocabularies.loader.VocabularyStore;
+
+public class VocabularyReadPoolTest {
+	private VocabularyDataSource dataSource;
+
+	@After
+	public void shutdown() {
+		if (dataSource != null) {
+			dataSource.shutdown();
+		}
+	}
+
+	@Test
+	public void borrowedConnectionsAreReadOnlyTest() throws Exception {
+		VocabularyStore store = VocabularyStore.create(501);
+		dataSource = new VocabularyDataSource(store);
+		try (Connection connection = dataSource.getReadDataSource().getConnection(); Statement statement = connection.createStatement()) {
+			Assert.assertTrue(connection.isReadOnly());
+			Assert.assertTrue(connection.getAutoCommit());
+			try {
+				statement.executeUpdate(insertCode("WRITE"));
+				Assert.fail("A read connection must not write");
+			} catch (SQLException e) {
+				// expected
+			}
+		}
+		Assert.assertNull(readCode(dataSource));
+		Assert.assertEquals(501, store.getReadPool().getGeneration());
+	}
+
+	@Test
+	public void pinnedBorrowerReadsItsStoreAcrossSwapTest() throws Exception {
+		VocabularyStore first = VocabularyStore.create(502);
+		VocabularyStore second = VocabularyStore.create(503);
+		dataSource = new VocabularyDataSource(first);
+		writeCode(first, "OLD");
+		writeCode(second, "NEW");
+
+		try (VocabularyDataSource.Lease lease = dataSource.pin()) {
+			Connection borrowedBeforeSwap = dataSource.getReadDataSource().getConnection();
+			dataSource.swap(second);
+			Assert.assertEquals("OLD", readCode(borrowedBeforeSwap));
+			borrowedBeforeSwap.close();
+			Assert.assertEquals("A connection borrowed after the swap still reads the pinned store", "OLD", readCode(dataSource));
+		}
+		Assert.assertEquals("NEW", readCode(dataSource));
+		Assert.assertEquals(503, dataSource.getReadPool().getGeneration());
+	}
+
+	@Test
+	public void retiredStoreClosesItsPoolOnReleaseTest() throws Exception {
+		VocabularyStore first = VocabularyStore.create(504);
+		dataSource = new VocabularyDataSource(first);
+		VocabularyReadPool pool;
+		try (VocabularyDataSource.Lease lease = dataSource.pin()) {
+			readCode(dataSource);
+			pool = first.getReadPool();
+			Assert.assertNotNull(pool);
+			dataSource.swap(VocabularyStore.create(505));
+			Assert.assertFalse("The pool of a leased store stays open", pool.isClosed());
+			readCode(dataSource);
+		}
+		Assert.assertTrue(pool.isClosed());
+		Assert.assertTrue(first.isShutDown());
+		try {
+			first.getReadPool().getConnection();
+			Assert.fail("A closed pool must not hand out connections");
+		} catch (SQLException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void exhaustedPoolReportsWaitersTest() throws Exception {
+		dataSource = new VocabularyDataSource(VocabularyStore.create(506));
+		dataSource.setReadPoolSize(1);
+		dataSource.setReadPoolMaxWaitMillis(10000);
+		Connection connection = dataSource.getReadDataSource().getConnection();
+		VocabularyReadPool pool = dataSource.getReadPool();
+		Assert.assertEquals(0, pool.getNumWaiters());
+
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		Thread waiter = new Thread() {
+			@Override
+			public void run() {
+				try (Connection waitedFor = dataSource.getReadDataSource().getConnection()) {
+					Assert.assertTrue(waitedFor.isReadOnly());
+				} catch (Throwable e) {
+					failure.set(e);
+				}
+			}
+		};
+		waiter.start();
+		long deadline = System.currentTimeMillis() + 10000;
+		while (pool.getNumWaiters() == 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		Assert.assertEquals(1, pool.getNumWaiters());
+		Thread.sleep(200);
+		connection.close();
+		waiter.join(10000);
+
+		Assert.assertNull(failure.get());
+		Assert.assertEquals(0, pool.getNumWaiters());
+		Assert.assertTrue("The wait should be recorded, was " + pool.getMaxBorrowWaitTimeMillis(), pool.getMaxBorrowWaitTimeMillis() >= 200);
+		Assert.assertTrue(pool.getMeanBorrowWaitTimeMillis() > 0);
+	}
+
+	@Test
+	public void exhaustedPoolTimesOutTest() throws Exception {
+		dataSource = new VocabularyDataSource(VocabularyStore.create(507));
+		dataSource.setReadPoolSize(1);
+		dataSource.setReadPoolMaxWaitMillis(100);
+		try (Connection connection = dataSource.getReadDataSource().getConnection()) {
+			dataSource.getReadDataSource().getConnection();
+			Assert.fail("The second borrower should give up after the maximum wait");
+		} catch (SQLException e) {
+			// expected
+		}
+		Assert.assertEquals(0, dataSource.getReadPool().getNumActive());
+	}
+
+	private static void writeCode(VocabularyStore store, String code) throws SQLException {
+		try (Connection connection = store.getDatabase().getConnection(); Statement statement = connection.createStatement()) {
+			statement.executeUpdate(insertCode(code));
+		}
+	}
+
+	private static String insertCode(String code) {
+		return "insert into CODES_STAGING (CODE, DISPLAYNAME, DISPLAYNAME_HASH, CODESYSTEM, CODESYSTEMOID, ACTIVE) values ('"
+				+ code + "', 'DISPLAY', 0, 'TEST', '1.2.3', true)";
+	}
+
+	private static String readCode(VocabularyDataSource dataSource) throws SQLException {
+		try (Connection connection = dataSource.getReadDataSource().getConnection()) {
+			return readCode(connection);
+		}
+	}
+
+	private static String readCode(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery("select CODE from CODES_STAGING")) {
+			return resultSet.next() ? resultSet.getString(1) : null;
+		}
+	}
+}
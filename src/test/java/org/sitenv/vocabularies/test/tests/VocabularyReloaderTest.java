@@ -0,0 +1,170 @@
+package org.sitenv.vocabularies.test.tests;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sitenv.vocabularies.loader.VocabularyDataSource;
+import org.sitenv.vocabularies.loader.VocabularyLoadRunner;
+import org.sitenv.vocabularies.loader.VocabularyReloader;
+import org.sitenv.vocabularies.loader.VocabularyStore;
+import org.sitenv.vocabularies.test.other.TestCodeLoaderFactory;
+
+public class VocabularyReloaderTest {
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private final TestCodeLoaderFactory loaderFactory = new TestCodeLoaderFactory();
+	private final AtomicReference<VocabularyStore> loadedStore = new AtomicReference<>();
+	private File codeDirectory;
+	private VocabularyDataSource dataSource;
+	private VocabularyReloader reloader;
+
+	@Before
+	public void createVocabulary() throws Exception {
+		codeDirectory = temporaryFolder.newFolder("codes");
+		TestCodeLoaderFactory.writeCodes(new File(codeDirectory, "LOINC"), "1000-0|Glucose", "2000-0|Hemoglobin");
+	}
+
+	@After
+	public void shutdown() throws Exception {
+		if (reloader != null) {
+			reloader.destroy();
+		}
+		if (dataSource != null) {
+			dataSource.shutdown();
+		}
+	}
+
+	@Test
+	public void failedReloadKeepsTheCurrentStoreTest() throws Exception {
+		startReloader(800, 0);
+		VocabularyStore currentStore = dataSource.getCurrentStore();
+		loaderFactory.setFailing("LOINC", true);
+
+		Assert.assertFalse(reloader.reload());
+		Assert.assertSame(currentStore, dataSource.getCurrentStore());
+		Assert.assertFalse(currentStore.isShutDown());
+		Assert.assertEquals(801, loadedStore.get().getGeneration());
+		Assert.assertTrue("The store that failed to load is shut down", loadedStore.get().isShutDown());
+		Assert.assertEquals(2, TestCodeLoaderFactory.countCodes(dataSource, "LOINC"));
+	}
+
+	@Test
+	public void concurrentReloadIsRejectedTest() throws Exception {
+		startReloader(810, 0);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		loaderFactory.hold("LOINC", started, release);
+
+		Future<Boolean> reload = reloader.reloadInBackground();
+		Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+		Assert.assertTrue(reloader.isReloading());
+		Assert.assertFalse("A second reload is rejected while one runs", reloader.reload());
+		release.countDown();
+
+		Assert.assertTrue(reload.get(10, TimeUnit.SECONDS));
+		Assert.assertFalse(reloader.isReloading());
+		Assert.assertEquals(811, dataSource.getCurrentStore().getGeneration());
+		Assert.assertEquals(2, loaderFactory.getLoadCount("LOINC"));
+	}
+
+	@Test
+	public void swapNotifiesListenersAndEvictsTheJpaCacheTest() throws Exception {
+		startReloader(820, 0);
+		final AtomicInteger evictions = new AtomicInteger();
+		final Cache cache = proxy(Cache.class, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if ("evictAll".equals(method.getName())) {
+					evictions.incrementAndGet();
+				}
+				return null;
+			}
+		});
+		reloader.setEntityManagerFactory(proxy(EntityManagerFactory.class, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				return "getCache".equals(method.getName()) ? cache : null;
+			}
+		}));
+		final AtomicReference<VocabularyStore> notifiedStore = new AtomicReference<>();
+		final AtomicInteger evictionsBeforeNotification = new AtomicInteger(-1);
+		reloader.addListener(new VocabularyReloader.Listener() {
+			@Override
+			public void vocabularyReloaded(VocabularyStore newStore) {
+				notifiedStore.set(newStore);
+				evictionsBeforeNotification.set(evictions.get());
+			}
+		});
+		VocabularyStore previousStore = dataSource.getCurrentStore();
+
+		Assert.assertTrue(reloader.reload());
+		Assert.assertSame(dataSource.getCurrentStore(), notifiedStore.get());
+		Assert.assertEquals(821, notifiedStore.get().getGeneration());
+		Assert.assertEquals(1, evictions.get());
+		Assert.assertEquals("The cache is evicted before listeners are told", 1, evictionsBeforeNotification.get());
+		Assert.assertTrue("The unleased previous store is shut down", previousStore.isShutDown());
+	}
+
+	@Test
+	public void changedSourcesTriggerAReloadTest() throws Exception {
+		final CountDownLatch reloaded = new CountDownLatch(1);
+		startReloader(830, 1);
+		reloader.addListener(new VocabularyReloader.Listener() {
+			@Override
+			public void vocabularyReloaded(VocabularyStore newStore) {
+				reloaded.countDown();
+			}
+		});
+		Assert.assertFalse("Unchanged sources are not reloaded", reloaded.await(1500, TimeUnit.MILLISECONDS));
+		Assert.assertEquals(1, loaderFactory.getLoadCount("LOINC"));
+
+		TestCodeLoaderFactory.writeCodes(new File(codeDirectory, "SNOMED"), "38341003|Hypertension");
+		Assert.assertTrue(reloaded.await(10, TimeUnit.SECONDS));
+		Assert.assertEquals(831, dataSource.getCurrentStore().getGeneration());
+		Assert.assertEquals(1, TestCodeLoaderFactory.countCodes(dataSource, "SNOMED"));
+	}
+
+	/**
+	 * Loads the initial store of the given generation and starts a reloader on it.
+	 */
+	private void startReloader(int generation, long checkIntervalSeconds) throws Exception {
+		VocabularyLoadRunner loadRunner = new VocabularyLoadRunner() {
+			@Override
+			public boolean load(VocabularyStore store) {
+				loadedStore.set(store);
+				return super.load(store);
+			}
+		};
+		loadRunner.setCodeDirectory(codeDirectory.getAbsolutePath());
+		loadRunner.setVocabularyLoaderFactory(loaderFactory);
+		VocabularyStore store = VocabularyStore.create(generation);
+		dataSource = new VocabularyDataSource(store);
+		Assert.assertTrue(loadRunner.load(store));
+		reloader = new VocabularyReloader();
+		reloader.setVocabularyLoadRunner(loadRunner);
+		reloader.setVocabularyDataSource(dataSource);
+		reloader.setCheckIntervalSeconds(checkIntervalSeconds);
+		reloader.afterPropertiesSet();
+	}
+
+	private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+		return type.cast(Proxy.newProxyInstance(VocabularyReloaderTest.class.getClassLoader(), new Class<?>[] {type}, handler));
+	}
+}
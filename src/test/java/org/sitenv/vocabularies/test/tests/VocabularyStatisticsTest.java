@@ -0,0 +1,69 @@
+package org.sitenv.vocabularies.test.tests;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.sitenv.vocabularies.loader.VocabularyDataSource;
+import org.sitenv.vocabularies.loader.VocabularyPartition;
+import org.sitenv.vocabularies.loader.VocabularyStatistics;
+import org.sitenv.vocabularies.loader.VocabularyStore;
+import org.sitenv.vocabularies.test.other.VocabularyFixture;
+
+public class VocabularyStatisticsTest {
+	private static final String LOINC_OID = VocabularyFixture.LOINC_OID;
+	private static final String VALUESET_OID = VocabularyFixture.VALUESET_OID;
+
+	private static VocabularyDataSource dataSource;
+
+	@BeforeClass
+	public static void loadVocabulary() throws SQLException {
+		dataSource = new VocabularyDataSource(VocabularyStore.create(902));
+		try (Connection connection = dataSource.getConnection(); VocabularyFixture fixture = new VocabularyFixture(connection)) {
+			fixture.addLookupVocabulary().normalize();
+		}
+	}
+
+	@AfterClass
+	public static void shutdown() {
+		dataSource.shutdown();
+	}
+
+	@Test
+	public void vocabularyStatisticsTest() throws SQLException {
+		try (Connection connection = dataSource.getConnection()) {
+			VocabularyStatistics statistics = VocabularyStatistics.collect(connection);
+			Assert.assertEquals(1, statistics.getCodeSystems().size());
+			VocabularyStatistics.CodeSystemStatistics loinc = statistics.getCodeSystem("LOINC");
+			Assert.assertEquals(LOINC_OID, loinc.getOid());
+			Assert.assertEquals(5, loinc.getRowCount());
+			Assert.assertEquals(3, loinc.getDistinctCodeCount());
+			Assert.assertEquals(4, loinc.getDistinctDisplayNameCount());
+			Assert.assertEquals(52 / 5.0, loinc.getAverageDisplayNameLength(), 0.001);
+			Assert.assertEquals("GLUCOSE IN BLOOD".length(), loinc.getMaxDisplayNameLength());
+
+			VocabularyStatistics.ValueSetStatistics valueSet = statistics.getValueSet(VALUESET_OID);
+			Assert.assertEquals("Hypertension", valueSet.getName());
+			Assert.assertEquals(1, valueSet.getRowCount());
+			Assert.assertEquals(1, valueSet.getDistinctCodeCount());
+			Assert.assertEquals("HYPERTENSION".length(), valueSet.getMaxDisplayNameLength());
+
+			Assert.assertEquals(5, statistics.getTable("CODES").getRowCount());
+			Assert.assertEquals(1, statistics.getTable("VALUESETMEMBERS").getRowCount());
+			Assert.assertEquals("Display names are stored once", 5, statistics.getTable("DISPLAYNAMES").getRowCount());
+			Assert.assertFalse(statistics.getTable("DISPLAYNAMES").getIndexes().isEmpty());
+			Assert.assertTrue(statistics.getTable("CODES").getEstimatedBytes() > statistics.getTable("VALUESETMEMBERS").getEstimatedBytes());
+			Assert.assertTrue(statistics.getEstimatedBytes() > 0);
+
+			VocabularyStatistics partitionStatistics = VocabularyStatistics.collect(connection,
+					VocabularyPartition.forCodeSystem(new File("LOINC")), statistics);
+			Assert.assertEquals(5, partitionStatistics.getCodeSystem("LOINC").getRowCount());
+			Assert.assertSame(valueSet, partitionStatistics.getValueSet(VALUESET_OID));
+			Assert.assertEquals(statistics.getEstimatedBytes(), partitionStatistics.getEstimatedBytes());
+		}
+	}
+}
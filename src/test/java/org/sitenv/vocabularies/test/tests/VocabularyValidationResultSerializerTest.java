@@ -0,0 +1,71 @@
+package org.sitenv.vocabularies.test.tests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.sitenv.vocabularies.validation.dto.NodeValidationResult;
+import org.sitenv.vocabularies.validation.dto.VocabularyValidationResult;
+import org.sitenv.vocabularies.validation.dto.VocabularyValidationResultSerializer;
+import org.sitenv.vocabularies.validation.dto.VocabularyValidationResultSerializer.Format;
+import org.sitenv.vocabularies.validation.dto.enums.VocabularyValidationResultLevel;
+
+public class VocabularyValidationResultSerializerTest {
+
+	@Test
+	public void jsonArrayContainsEveryResultTest() throws IOException {
+		List<VocabularyValidationResult> results = Arrays.asList(createResult("1234-5", "Code \"1234-5\" not found"),
+				createResult("6789-0", null));
+
+		String json = serialize(results, Format.JSON);
+
+		Assert.assertTrue("JSON output should be an array", json.startsWith("[{") && json.endsWith("}]"));
+		Assert.assertTrue("Quotes in messages should be escaped", json.contains("\"message\":\"Code \\\"1234-5\\\" not found\""));
+		Assert.assertTrue("Null values should be written as null", json.contains("\"message\":null"));
+		Assert.assertTrue("Nested node result should be written", json.contains("\"requestedCode\":\"6789-0\""));
+		Assert.assertTrue("Result level should be written by name", json.contains("\"vocabularyValidationResultLevel\":\"SHALL\""));
+	}
+
+	@Test
+	public void ndjsonWritesOneResultPerLineTest() throws IOException {
+		List<VocabularyValidationResult> results = Arrays.asList(createResult("1", "first"), createResult("2", "second"),
+				createResult("3", "third"));
+
+		String ndjson = serialize(results, Format.NDJSON);
+		String[] lines = ndjson.split("\n");
+
+		Assert.assertEquals("Each result should be on its own line", 3, lines.length);
+		for (String line : lines) {
+			Assert.assertTrue("Each line should be a JSON object", line.startsWith("{") && line.endsWith("}"));
+		}
+	}
+
+	@Test
+	public void emptyResultsTest() throws IOException {
+		List<VocabularyValidationResult> results = Collections.emptyList();
+		Assert.assertEquals("[]", serialize(results, Format.JSON));
+		Assert.assertEquals("", serialize(results, Format.NDJSON));
+	}
+
+	private static String serialize(List<VocabularyValidationResult> results, Format format) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		new VocabularyValidationResultSerializer(format).serialize(results, outputStream);
+		return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static VocabularyValidationResult createResult(String code, String message) {
+		NodeValidationResult nodeValidationResult = new NodeValidationResult();
+		nodeValidationResult.setRequestedCode(code);
+		nodeValidationResult.setConfiguredXpathExpression("//v3:code");
+		VocabularyValidationResult result = new VocabularyValidationResult();
+		result.setNodeValidationResult(nodeValidationResult);
+		result.setMessage(message);
+		result.setVocabularyValidationResultLevel(VocabularyValidationResultLevel.SHALL);
+		return result;
+	}
+}
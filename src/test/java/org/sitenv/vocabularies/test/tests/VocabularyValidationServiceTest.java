@@ -5,19 +5,29 @@ import static org.sitenv.vocabularies.test.other.ValidationLogger.println;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.sitenv.vocabularies.configuration.ConfiguredExpression;
 import org.sitenv.vocabularies.configuration.ConfiguredValidationResultSeverityLevel;
+import org.sitenv.vocabularies.configuration.ConfiguredValidator;
+import org.sitenv.vocabularies.constants.VocabularyConstants;
 import org.sitenv.vocabularies.constants.VocabularyConstants.ConfiguredSeverityLevel;
 import org.sitenv.vocabularies.constants.VocabularyConstants.SeverityLevel;
+import org.sitenv.vocabularies.loader.VocabularyLoadRunner;
+import org.sitenv.vocabularies.loader.VocabularyPartition;
 import org.sitenv.vocabularies.test.other.ValidationLogger;
 import org.sitenv.vocabularies.test.other.ValidationTest;
 import org.sitenv.vocabularies.test.other.VocabularyValidationTester;
+import org.sitenv.vocabularies.validation.dto.ValidationStatistics;
+import org.sitenv.vocabularies.validation.dto.VocabularyValidationReport;
 import org.sitenv.vocabularies.validation.dto.VocabularyValidationResult;
 import org.sitenv.vocabularies.validation.dto.enums.VocabularyValidationResultLevel;
+import org.springframework.test.util.ReflectionTestUtils;
 
 public class VocabularyValidationServiceTest extends VocabularyValidationTester implements ValidationTest {
 
@@ -280,6 +290,70 @@ public class VocabularyValidationServiceTest extends VocabularyValidationTester
 	}
 	
 
+	@Test
+	public void severityLevelLimitKeepsSharedConfigurationTest() throws Exception {
+		String configuredXpathExpression = "//v3:observation/v3:templateId[@root='2.16.840.1.113883.10.20.22.4.2' and @extension='2015-08-01']"
+				+ "/ancestor::v3:observation[1]/v3:value[@xsi:type='PQ' and not(@nullFlavor) and ancestor::v3:section[not(@nullFlavor)]]";
+		setupInitParameters(false);
+		addConfiguredExpressionsToVocabularyValidationConfigurations(Arrays.asList(
+				createConfiguredExpression("RequiredNodeValidator", new ConfiguredValidationResultSeverityLevel("SHALL"),
+						"@unit", "Result value SHALL have a unit", configuredXpathExpression),
+				createConfiguredExpression("RequiredNodeValidator", new ConfiguredValidationResultSeverityLevel("SHOULD"),
+						"@unit", "Result value SHOULD have a unit", configuredXpathExpression)));
+		injectDependencies();
+
+		ValidationStatistics statistics = getVocabularyValidationService().validateAndReport(
+				CCDA_FILES[MISSING_UNIT_ATTRIBUTE].toString(), VocabularyConstants.Config.DEFAULT, SeverityLevel.ERROR, null)
+				.getStatistics();
+		Assert.assertEquals(1, statistics.getVocabularyValidationConfigurationsCount());
+		Assert.assertEquals(1, statistics.getVocabularyValidationConfigurationsErrorCount());
+		Assert.assertTrue(statistics.getErrorCount() > 0);
+		Assert.assertEquals(0, statistics.getWarningCount());
+
+		// the ERROR level validation must not have removed the SHOULD expression for later validations
+		statistics = getVocabularyValidationService().validateAndReport(CCDA_FILES[MISSING_UNIT_ATTRIBUTE].toString(),
+				VocabularyConstants.Config.DEFAULT, SeverityLevel.INFO, null).getStatistics();
+		Assert.assertEquals(2, statistics.getVocabularyValidationConfigurationsCount());
+		Assert.assertEquals(statistics.getErrorCount(), statistics.getWarningCount());
+		Assert.assertEquals(0, statistics.getInfoCount());
+		Assert.assertTrue(statistics.getNodeCount() >= 2 * statistics.getErrorCount());
+		Assert.assertEquals("Validations do not write the shared results", 0, getVocabularyValidationService()
+				.getGlobalCodeValidatorResults().getVocabularyValidationConfigurationsCount());
+	}
+
+	@Test
+	public void failedLazyLoadIsReportedTest() throws Exception {
+		final String snomedPartition = VocabularyPartition.codeSystemPartitionName("SNOMED");
+		String configuredXpathExpression = "//v3:observation/v3:templateId[@root='2.16.840.1.113883.10.20.22.4.2' and @extension='2015-08-01']"
+				+ "/ancestor::v3:observation[1]/v3:value[@xsi:type='PQ' and not(@nullFlavor) and ancestor::v3:section[not(@nullFlavor)]]";
+		setupInitParameters(false);
+		ConfiguredExpression configuredExpression = createConfiguredExpression("RequiredNodeValidator",
+				new ConfiguredValidationResultSeverityLevel("SHALL"), "@unit", "Result value SHALL have a unit",
+				configuredXpathExpression);
+		configuredExpression.getConfiguredValidators().get(0).setAllowedCodesystemNames("SNOMED");
+		addConfiguredExpressionsToVocabularyValidationConfigurations(Arrays.asList(configuredExpression));
+		injectDependencies();
+		ReflectionTestUtils.setField(getVocabularyValidationService(), "vocabularyLoadRunner", new VocabularyLoadRunner() {
+			@Override
+			public boolean isLazyLoad() {
+				return true;
+			}
+
+			@Override
+			public List<String> ensureLoaded(ConfiguredValidator configuredValidator) {
+				return Collections.singletonList(snomedPartition);
+			}
+		});
+
+		VocabularyValidationReport report = getVocabularyValidationService().validateAndReport(
+				CCDA_FILES[HAS_UNIT_ATTRIBUTE].toString(), VocabularyConstants.Config.DEFAULT, SeverityLevel.ERROR, null);
+		Assert.assertEquals(Collections.singletonList(snomedPartition), report.getStatistics().getUnloadedPartitions());
+		Assert.assertEquals("The failed load is reported at any severity level", 1, report.getResults().size());
+		VocabularyValidationResult result = report.getResults().get(0);
+		Assert.assertEquals(VocabularyValidationResultLevel.SHOULD, result.getVocabularyValidationResultLevel());
+		Assert.assertTrue(result.getMessage().contains(snomedPartition));
+	}
+
 	@Test
 	public void vocabularyValidationConfigurationsErrorCountZeroWhenNoShallsTest() {
 		setupInitParameters(true);
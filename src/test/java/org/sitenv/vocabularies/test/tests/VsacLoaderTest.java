@@ -0,0 +1,138 @@
+package org.sitenv.vocabularies.test.tests;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sitenv.vocabularies.configuration.ConfiguredExpression;
+import org.sitenv.vocabularies.configuration.ConfiguredValidator;
+import org.sitenv.vocabularies.configuration.ConfiguredVocabularyReferences;
+import org.sitenv.vocabularies.loader.VocabularyLoadRunner;
+import org.sitenv.vocabularies.loader.VocabularyLoader;
+import org.sitenv.vocabularies.loader.VocabularyLoaderFactory;
+import org.sitenv.vocabularies.loader.VocabularyStore;
+import org.sitenv.vocabularies.loader.valueset.VsacLoader;
+
+public class VsacLoaderTest {
+	private static final String CONFIGURED_OID = "2.16.840.1.113883.3.88.12.3221.7.4";
+	private static final String UNCONFIGURED_OID = "2.16.840.1.113762.1.4.1021.30";
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private VocabularyStore store;
+
+	@After
+	public void shutdown() {
+		if (store != null) {
+			store.getDatabase().shutdown();
+		}
+	}
+
+	@Test
+	public void unconfiguredValueSetsArePrunedTest() throws Exception {
+		store = VocabularyStore.create(601);
+		load(true);
+		Assert.assertEquals(3, countMembers(CONFIGURED_OID));
+		Assert.assertEquals("The value set no configuration names is skipped", 0, countMembers(UNCONFIGURED_OID));
+	}
+
+	@Test
+	public void everyValueSetIsLoadedWithoutPruningTest() throws Exception {
+		store = VocabularyStore.create(602);
+		load(false);
+		Assert.assertEquals(3, countMembers(CONFIGURED_OID));
+		Assert.assertEquals(2, countMembers(UNCONFIGURED_OID));
+	}
+
+	/**
+	 * Loads the workbook through a runner, which hands its value set OID filter to the loader when pruning.
+	 */
+	private void load(boolean pruneValueSets) throws Exception {
+		ConfiguredValidator validator = new ConfiguredValidator();
+		validator.setName("ValueSetCodeValidator");
+		validator.setAllowedValuesetOids(CONFIGURED_OID);
+		ConfiguredExpression expression = new ConfiguredExpression();
+		expression.setConfiguredValidators(Collections.singletonList(validator));
+		ConfiguredVocabularyReferences vocabularyReferences = new ConfiguredVocabularyReferences();
+		vocabularyReferences.addExpressions(Collections.singletonList(expression));
+
+		File valueSetDirectory = temporaryFolder.newFolder("valuesets");
+		File vsacDirectory = new File(valueSetDirectory, "VSAC");
+		Assert.assertTrue(vsacDirectory.mkdir());
+		writeWorkbook(new File(vsacDirectory, "valuesets.xlsx"));
+		final VsacLoader loader = new VsacLoader();
+		VocabularyLoadRunner loadRunner = new VocabularyLoadRunner();
+		loadRunner.setValueSetDirectory(valueSetDirectory.getAbsolutePath());
+		loadRunner.setVocabularyLoaderFactory(new VocabularyLoaderFactory() {
+			@Override
+			public VocabularyLoader getVocabularyLoader(String loaderType) {
+				return loader;
+			}
+		});
+		if (pruneValueSets) {
+			loadRunner.setValueSetOidFilter(vocabularyReferences.getValuesetOidFilter());
+		}
+		Assert.assertTrue(loadRunner.load(store));
+		Assert.assertEquals(pruneValueSets ? Collections.singleton(CONFIGURED_OID) : null, loader.getValuesetOidFilter());
+	}
+
+	private long countMembers(String valueSetOid) throws SQLException {
+		try (Connection connection = store.getDatabase().getConnection();
+				PreparedStatement statement = connection.prepareStatement("select count(*) from VALUESETMEMBERS m"
+						+ " join VALUESETHEADERS h on h.ID = m.VALUESET_ID where h.OID = ?")) {
+			statement.setString(1, valueSetOid);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				resultSet.next();
+				return resultSet.getLong(1);
+			}
+		}
+	}
+
+	private static void writeWorkbook(File file) throws IOException {
+		try (XSSFWorkbook workbook = new XSSFWorkbook(); FileOutputStream outputStream = new FileOutputStream(file)) {
+			workbook.createSheet("Summary").createRow(0).createCell(0).setCellValue("summary");
+			writeValueSet(workbook.createSheet("Problem"), "Problem Type", CONFIGURED_OID,
+					new String[] {"55607006", "Problem", "SNOMEDCT", "2016-03", "2.16.840.1.113883.6.96", "PT"},
+					new String[] {"404684003", "Finding", "SNOMEDCT", "2016-03", "2.16.840.1.113883.6.96", "PT"},
+					new String[] {"409586006", "Complaint", "SNOMEDCT", "2016-03", "2.16.840.1.113883.6.96", "PT"});
+			writeValueSet(workbook.createSheet("Sex"), "Sex", UNCONFIGURED_OID,
+					new String[] {"248152002", "Female", "SNOMEDCT", "2016-03", "2.16.840.1.113883.6.96", "PT"},
+					new String[] {"248153007", "Male", "SNOMEDCT", "2016-03", "2.16.840.1.113883.6.96", "PT"});
+			workbook.write(outputStream);
+		}
+	}
+
+	private static void writeValueSet(Sheet sheet, String name, String oid, String[]... members) {
+		String[][] metadata = {{"Value Set Name", name}, {"OID", oid}, {"Type", "Extensional"},
+				{"Definition Version", "20160331"}, {"Steward", "HL7"}};
+		int rowIndex = 0;
+		for (String[] cells : metadata) {
+			writeRow(sheet.createRow(rowIndex++), cells);
+		}
+		writeRow(sheet.createRow(rowIndex++), new String[] {"Code", "Descriptor", "Code System", "Code System Version",
+				"Code System OID", "TTY"});
+		for (String[] cells : members) {
+			writeRow(sheet.createRow(rowIndex++), cells);
+		}
+	}
+
+	private static void writeRow(Row row, String[] cells) {
+		for (int i = 0; i < cells.length; i++) {
+			row.createCell(i).setCellValue(cells[i]);
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package org.sitenv.vocabularies.test.tests;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sitenv.vocabularies.loader.XlsxSheetReader;
+
+public class XlsxSheetReaderTest {
+	private static final int SHEET_COUNT = 6;
+	private static final int ROWS_PER_SHEET = 50;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void readSheetsInParallelTest() throws IOException {
+		final Map<String, Integer> rowCounts = new ConcurrentHashMap<>();
+		try (XlsxSheetReader reader = new XlsxSheetReader(writeWorkbook())) {
+			Assert.assertEquals(SHEET_COUNT + 1, reader.getSheetCount());
+			reader.readSheets(1, 3, new XlsxSheetReader.SheetHandlerFactory() {
+				@Override
+				public XlsxSheetReader.SheetHandler newSheetHandler(int sheetIndex, final String sheetName) {
+					return new XlsxSheetReader.SheetHandler() {
+						private int rowCount = 0;
+
+						@Override
+						public boolean row(int rowIndex, String[] cells) {
+							Assert.assertEquals(3, cells.length);
+							Assert.assertEquals(sheetName + "-" + rowIndex, cells[0]);
+							Assert.assertEquals("The missing middle cell should be empty", "", cells[1]);
+							Assert.assertEquals(String.valueOf(rowIndex), cells[2]);
+							rowCount++;
+							return true;
+						}
+
+						@Override
+						public void endSheet() {
+							rowCounts.put(sheetName, rowCount);
+						}
+					};
+				}
+			});
+		}
+		Assert.assertEquals(SHEET_COUNT, rowCounts.size());
+		for (int rowCount : rowCounts.values()) {
+			Assert.assertEquals(ROWS_PER_SHEET, rowCount);
+		}
+	}
+
+	@Test
+	public void stopReadingSheetTest() throws IOException {
+		final AtomicInteger rowCount = new AtomicInteger();
+		final AtomicInteger endCount = new AtomicInteger();
+		try (XlsxSheetReader reader = new XlsxSheetReader(writeWorkbook())) {
+			reader.readSheet(2, new XlsxSheetReader.SheetHandler() {
+				@Override
+				public boolean row(int rowIndex, String[] cells) {
+					return rowCount.incrementAndGet() < 5;
+				}
+
+				@Override
+				public void endSheet() {
+					endCount.incrementAndGet();
+				}
+			});
+		}
+		Assert.assertEquals(5, rowCount.get());
+		Assert.assertEquals(1, endCount.get());
+	}
+
+	private File writeWorkbook() throws IOException {
+		File file = temporaryFolder.newFile("workbook.xlsx");
+		try (XSSFWorkbook workbook = new XSSFWorkbook(); FileOutputStream outputStream = new FileOutputStream(file)) {
+			workbook.createSheet("Summary").createRow(0).createCell(0).setCellValue("summary");
+			for (int s = 0; s < SHEET_COUNT; s++) {
+				Sheet sheet = workbook.createSheet("VS" + s);
+				for (int r = 0; r < ROWS_PER_SHEET; r++) {
+					Row row = sheet.createRow(r);
+					row.createCell(0).setCellValue("VS" + s + "-" + r);
+					row.createCell(2).setCellValue(r);
+				}
+			}
+			workbook.write(outputStream);
+		}
+		return file;
+	}
+}